@@ -0,0 +1,34 @@
+package com.dbdeploy;
+
+import com.dbdeploy.logging.LogLevel;
+import com.dbdeploy.logging.LogSink;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.Task;
+
+/**
+ * Sends dbdeploy's messages to the Ant log of the task that is running it; individual statements show up with -verbose.
+ */
+public class AntLogSink implements LogSink {
+	private final Task task;
+
+	public AntLogSink(Task task) {
+		this.task = task;
+	}
+
+	public void log(LogLevel level, String message) {
+		task.log(message, priorityOf(level));
+	}
+
+	private static int priorityOf(LogLevel level) {
+		switch (level) {
+		case debug:
+			return Project.MSG_VERBOSE;
+		case warn:
+			return Project.MSG_WARN;
+		case error:
+			return Project.MSG_ERR;
+		default:
+			return Project.MSG_INFO;
+		}
+	}
+}
@@ -1,8 +1,10 @@
 package com.dbdeploy;
 
+import com.dbdeploy.appliers.TransactionGrouping;
 import com.dbdeploy.database.DelimiterType;
 import com.dbdeploy.database.LineEnding;
 import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.logging.LogLevel;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
 
@@ -21,18 +23,44 @@ public class AntTarget extends Task {
 			+ "\n\t\tdbms=\"[YOUR DBMS]\""
 			+ "\n\t\ttemplatedir=\"[DIRECTORY FOR DBMS TEMPLATE SCRIPTS, IF NOT USING BUILT-IN]\""
 			+ "\n\t\tdir=\"[YOUR SCRIPT FOLDER]\" *"
+			+ "\n\t\tscriptclasspath=\"[CLASSPATH DIRECTORY OF INDEXED CHANGE SCRIPTS, INSTEAD OF dir]\""
 			+ "\n\t\tencoding=\"[CHARSET OF SQL SCRIPTS - default UTF-8]\""
 			+ "\n\t\toutputfile=\"[OUTPUT SCRIPT PATH + NAME]\""
 			+ "\n\t\tlastChangeToApply=\"[NUMBER OF THE LAST SCRIPT TO APPLY]\""
 			+ "\n\t\tundoOutputfile=\"[UNDO SCRIPT PATH + NAME]\""
 			+ "\n\t\tchangeLogTableName=\"[CHANGE LOG TABLE NAME]\""
 			+ "\n\t\tdelimiter=\"[STATEMENT DELIMITER - default ;]\""
-			+ "\n\t\tdelimitertype=\"[STATEMENT DELIMITER TYPE - row or normal, default normal]\""
+			+ "\n\t\tdelimitertype=\"[STATEMENT DELIMITER TYPE - row, normal or parsed (by dbms), default normal]\""
+			+ "\n\t\tparsecache=\"[KEEP PARSED SCRIPTS FOR REUSE - true or false, default false]\""
+			+ "\n\t\tparsecachedir=\"[PARSE CACHE DIRECTORY - default ~/.dbdeploy/cache]\""
+			+ "\n\t\tparsecachesize=\"[PARSE CACHE SIZE IN MEGABYTES - default 256]\""
+			+ "\n\t\tparseahead=\"[NUMBER OF SCRIPTS TO PARSE IN THE BACKGROUND - default 0]\""
+			+ "\n\t\tbatchsize=\"[MAXIMUM NUMBER OF DML STATEMENTS PER JDBC BATCH - default 0, no batching]\""
+			+ "\n\t\tparameteriseinserts=\"[EXECUTE SINGLE ROW INSERTS OF LITERALS AS PREPARED STATEMENT BATCHES - true or false, default false]\""
+			+ "\n\t\tchecksums=\"[RECORD A CHECKSUM OF EACH SCRIPT APPLIED IN THE CHANGELOG TABLE - true or false, default false]\""
+			+ "\n\t\tlock=\"[TAKE A LEASE ON THE LOCK TABLE BEFORE APPLYING SCRIPTS - true or false, default false]\""
+			+ "\n\t\tlocklease=\"[SECONDS THE LOCK IS HELD WITHOUT BEING RENEWED - default 60]\""
+			+ "\n\t\tchangelogcache=\"[KEEP A SNAPSHOT OF THE CHANGELOG TABLE, READ AGAIN ONLY WHEN IT HAS CHANGED - true or false, default false]\""
+			+ "\n\t\tchangelogcachedir=\"[DIRECTORY FOR THE CHANGELOG CACHE - default ~/.dbdeploy/changelog]\""
+			+ "\n\t\ttargets=\"[PROPERTIES FILE LISTING THE DATABASES TO DEPLOY TO, INSTEAD OF url]\""
+			+ "\n\t\tparallelism=\"[NUMBER OF TARGETS TO DEPLOY TO AT A TIME - default 8]\""
+			+ "\n\t\tconnections=\"[NUMBER OF CONNECTIONS TO APPLY INDEPENDENT SCRIPTS OVER - default 1]\""
+			+ "\n\t\tpoolsize=\"[MAXIMUM NUMBER OF POOLED CONNECTIONS TO EACH DATABASE - default 8, 0 for no pooling]\""
+			+ "\n\t\tmetricsfile=\"[FILE TO WRITE THE METRICS OF THE RUN TO, AS JSON]\""
+			+ "\n\t\tcheckpointinterval=\"[NUMBER OF STATEMENTS BETWEEN CHECKPOINTS WITHIN A SCRIPT - default 0, none]\""
+			+ "\n\t\ttransactions=\"[TRANSACTION PER - script, count, time or deployment, default script]\""
+			+ "\n\t\ttransactionsize=\"[SCRIPTS PER TRANSACTION FOR count, MILLISECONDS FOR time]\""
+			+ "\n\t\tloglevel=\"[LEAST IMPORTANT MESSAGES TO LOG - debug, info, warn or error, default info]\""
 			+ "\n\t/>"
 			+ "\n\n* - Indicates mandatory parameter";
 
 	@Override
 	public void execute() throws BuildException {
+		dbDeploy.setLogSink(new AntLogSink(this));
+		// scripts on the classpath are found through the loader the task was defined with
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		thread.setContextClassLoader(getClass().getClassLoader());
 		try {
 			dbDeploy.go();
 		} catch (UsageException ex) {
@@ -40,6 +68,8 @@ public class AntTarget extends Task {
 			throw new BuildException(ex.getMessage());
 		} catch (Exception ex) {
 			throw new BuildException(ex);
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
 		}
 	}
 
@@ -47,6 +77,10 @@ public class AntTarget extends Task {
 		dbDeploy.setScriptdirectory(dir);
 	}
 
+	public void setScriptclasspath(String scriptClasspath) {
+		dbDeploy.setScriptClasspath(scriptClasspath);
+	}
+
 	public void setDriver(String driver) {
 		dbDeploy.setDriver(driver);
 	}
@@ -102,5 +136,85 @@ public class AntTarget extends Task {
 	public void setLineEnding(LineEnding lineEnding) {
 		dbDeploy.setLineEnding(lineEnding);
 	}
+
+	public void setParsecache(boolean parseCache) {
+		dbDeploy.setParseCache(parseCache);
+	}
+
+	public void setParsecachedir(File parseCacheDirectory) {
+		dbDeploy.setParseCacheDirectory(parseCacheDirectory);
+	}
+
+	public void setParsecachesize(long parseCacheSize) {
+		dbDeploy.setParseCacheSize(parseCacheSize);
+	}
+
+	public void setParseahead(int parseAhead) {
+		dbDeploy.setParseAhead(parseAhead);
+	}
+
+	public void setBatchsize(int batchSize) {
+		dbDeploy.setBatchSize(batchSize);
+	}
+
+	public void setParameteriseinserts(boolean parameteriseInserts) {
+		dbDeploy.setParameteriseInserts(parameteriseInserts);
+	}
+
+	public void setChecksums(boolean checksums) {
+		dbDeploy.setChecksums(checksums);
+	}
+
+	public void setLock(boolean lock) {
+		dbDeploy.setLock(lock);
+	}
+
+	public void setLocklease(int lockLease) {
+		dbDeploy.setLockLease(lockLease);
+	}
+
+	public void setChangelogcache(boolean changelogCache) {
+		dbDeploy.setChangelogCache(changelogCache);
+	}
+
+	public void setChangelogcachedir(File changelogCacheDirectory) {
+		dbDeploy.setChangelogCacheDirectory(changelogCacheDirectory);
+	}
+
+	public void setTargets(File targets) {
+		dbDeploy.setTargets(targets);
+	}
+
+	public void setParallelism(int parallelism) {
+		dbDeploy.setParallelism(parallelism);
+	}
+
+	public void setConnections(int connections) {
+		dbDeploy.setConnections(connections);
+	}
+
+	public void setPoolsize(int poolSize) {
+		dbDeploy.setPoolSize(poolSize);
+	}
+
+	public void setMetricsfile(File metricsFile) {
+		dbDeploy.setMetricsFile(metricsFile);
+	}
+
+	public void setCheckpointinterval(int checkpointInterval) {
+		dbDeploy.setCheckpointInterval(checkpointInterval);
+	}
+
+	public void setTransactions(TransactionGrouping transactionGrouping) {
+		dbDeploy.setTransactionGrouping(transactionGrouping);
+	}
+
+	public void setTransactionsize(long transactionSize) {
+		dbDeploy.setTransactionSize(transactionSize);
+	}
+
+	public void setLoglevel(LogLevel logLevel) {
+		dbDeploy.setLogLevel(logLevel);
+	}
 }
 
@@ -0,0 +1,26 @@
+package com.dbdeploy.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Takes the usual JMH command line, but always adds the gc profiler so that every
+ * run reports allocation rates alongside throughput and the sample time percentiles.
+ * <p>
+ * <code>java -jar dbdeploy-benchmarks/target/benchmarks.jar [jmh options] [benchmark regexp]</code>
+ */
+public class BenchmarkRunner {
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+				|| commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+			Main.main(args);
+			return;
+		}
+
+		new Runner(new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build()).run();
+	}
+}
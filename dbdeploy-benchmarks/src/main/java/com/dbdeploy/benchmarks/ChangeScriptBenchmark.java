@@ -0,0 +1,60 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.scripts.ChangeScript;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the do and undo sections of a change script from disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeScriptBenchmark {
+	@Param({ "tinyDdl", "plsqlPackage", "insertDump" })
+	public Corpus corpus;
+
+	@Param({ "1000000" })
+	public long size;
+
+	private File directory;
+	private ChangeScript script;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Corpus.createTempDirectory("dbdeploy-script");
+		script = new ChangeScript(1, corpus.generate(new File(directory, "1 script.sql"), size), "UTF-8");
+	}
+
+	@TearDown
+	public void tearDown() {
+		Corpus.delete(directory);
+	}
+
+	@Benchmark
+	public String getContent() {
+		return script.getContent();
+	}
+
+	@Benchmark
+	public String getUndoContent() {
+		return script.getUndoContent();
+	}
+}
@@ -0,0 +1,90 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.AppliedChangesProvider;
+import com.dbdeploy.AvailableChangeScriptsProvider;
+import com.dbdeploy.ChangeNumberSet;
+import com.dbdeploy.ChangeScriptApplier;
+import com.dbdeploy.Controller;
+import com.dbdeploy.PrettyPrinter;
+import com.dbdeploy.scripts.ChangeScript;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Working out which change scripts still need applying, and printing the summary of applied changes, with nothing
+ * actually applied. Half of the available scripts are already applied, with every tenth one missing so that the
+ * summary has plenty of ranges in it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+	@Param({ "100", "10000" })
+	public int scripts;
+
+	private final List<ChangeScript> available = new ArrayList<ChangeScript>();
+	private final ChangeNumberSet applied = new ChangeNumberSet();
+	private final PrettyPrinter prettyPrinter = new PrettyPrinter();
+	private Controller controller;
+	private List<ChangeScript> toApply;
+
+	@Setup
+	public void setUp() {
+		for (long id = 1; id <= scripts; id++) {
+			available.add(new ChangeScript(id, "change " + id));
+			if (id <= scripts / 2 && id % 10 != 0) {
+				applied.add(id);
+			}
+		}
+
+		controller = new Controller(new AvailableChangeScriptsProvider() {
+			public List<ChangeScript> getAvailableChangeScripts() {
+				return available;
+			}
+		}, new AppliedChangesProvider() {
+			public ChangeNumberSet getAppliedChanges() {
+				return applied;
+			}
+		}, new ChangeScriptApplier() {
+			public void apply(List<ChangeScript> changeScripts) {
+				toApply = changeScripts;
+			}
+		}, null);
+
+		Silence.on();
+	}
+
+	@TearDown
+	public void tearDown() {
+		Silence.off();
+	}
+
+	@Benchmark
+	public List<ChangeScript> processChangeScripts() throws IOException {
+		controller.processChangeScripts(Long.MAX_VALUE);
+		return toApply;
+	}
+
+	@Benchmark
+	public String formatAppliedChanges() {
+		return prettyPrinter.format(applied);
+	}
+}
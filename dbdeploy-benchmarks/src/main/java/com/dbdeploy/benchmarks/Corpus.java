@@ -0,0 +1,157 @@
+package com.dbdeploy.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generates the change scripts the benchmarks run over. Everything is derived from a fixed seed, so every run (and
+ * every fork) sees exactly the same input.
+ */
+public enum Corpus {
+	/**
+	 * A handful of short DDL statements, the kind most change scripts consist of.
+	 */
+	tinyDdl {
+		@Override
+		void write(Writer out, long size) throws IOException {
+			out.write("-- add the customer tables\n");
+			out.write("CREATE TABLE customer (\n  id INTEGER NOT NULL,\n  name VARCHAR(100),\n"
+					+ "  created TIMESTAMP DEFAULT CURRENT_TIMESTAMP\n);\n\n");
+			out.write("ALTER TABLE customer ADD CONSTRAINT pk_customer PRIMARY KEY (id);\n");
+			out.write("CREATE INDEX ix_customer_name ON customer (name);\n\n");
+			out.write("INSERT INTO customer (id, name) VALUES (1, 'first; customer');\n");
+			out.write("COMMENT ON TABLE customer IS 'customers';\n");
+			out.write("\n--//@UNDO\n\nDROP TABLE customer;\n");
+		}
+	},
+
+	/**
+	 * Oracle packages with a few hundred procedures each, full of nested blocks, literals and comments, terminated
+	 * SQL*Plus style by a "/" on a line of its own.
+	 */
+	plsqlPackage {
+		@Override
+		void write(Writer out, long size) throws IOException {
+			Random random = new Random(SEED);
+			CountingWriter counted = new CountingWriter(out);
+			for (int pkg = 0; counted.count < size; pkg++) {
+				counted.write("CREATE OR REPLACE PACKAGE BODY pkg_" + pkg + " AS\n");
+				for (int proc = 0; proc < 200; proc++) {
+					counted.write("  /* procedure " + proc + " */\n");
+					counted.write("  PROCEDURE p_" + proc + "(p_id IN NUMBER) IS\n");
+					counted.write("    v_name VARCHAR2(100) := 'name; with a delimiter';\n");
+					counted.write("  BEGIN\n");
+					counted.write("    -- look the row up first\n");
+					counted.write("    SELECT name INTO v_name FROM customer WHERE id = p_id;\n");
+					counted.write("    IF v_name IS NULL THEN\n");
+					counted.write("      UPDATE customer SET name = 'unknown' WHERE id = p_id;\n");
+					counted.write("    END IF;\n");
+					counted.write("    FOR r IN (SELECT id FROM orders WHERE customer_id = p_id) LOOP\n");
+					counted.write("      INSERT INTO audit (id, value) VALUES (r.id, " + random.nextInt(1000000) + ");\n");
+					counted.write("    END LOOP;\n");
+					counted.write("  END p_" + proc + ";\n\n");
+				}
+				counted.write("END pkg_" + pkg + ";\n/\n\n");
+			}
+		}
+	},
+
+	/**
+	 * One single-row INSERT per line, the way data exports are usually written.
+	 */
+	insertDump {
+		@Override
+		void write(Writer out, long size) throws IOException {
+			Random random = new Random(SEED);
+			CountingWriter counted = new CountingWriter(out);
+			for (long id = 1; counted.count < size; id++) {
+				counted.write("INSERT INTO orders (id, customer_id, status, amount, note) VALUES (" + id + ", "
+						+ random.nextInt(100000) + ", '" + STATUSES[random.nextInt(STATUSES.length)] + "', "
+						+ random.nextInt(100000) / 100.0 + ", 'order " + id + "; it''s a note');\n");
+			}
+		}
+	};
+
+	private static final long SEED = 20110101L;
+	private static final String[] STATUSES = { "NEW", "PAID", "SHIPPED", "CANCELLED" };
+
+	/**
+	 * Writes roughly <code>size</code> characters of this corpus; the smallest corpora ignore the size.
+	 */
+	abstract void write(Writer out, long size) throws IOException;
+
+	public String generate(long size) throws IOException {
+		StringWriter out = new StringWriter();
+		write(out, size);
+		return out.toString();
+	}
+
+	public File generate(File file, long size) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		try {
+			write(out, size);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Fills <code>directory</code> with <code>count</code> change scripts named the way dbdeploy expects, each
+	 * holding the {@link #tinyDdl} corpus.
+	 */
+	public static File generateScriptDirectory(File directory, int count) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create " + directory);
+		}
+		String content = tinyDdl.generate(0);
+		for (int i = 1; i <= count; i++) {
+			Writer out = new OutputStreamWriter(new FileOutputStream(new File(directory, i + " change " + i + ".sql")),
+					"UTF-8");
+			try {
+				out.write(content);
+			} finally {
+				out.close();
+			}
+		}
+		return directory;
+	}
+
+	public static File createTempDirectory(String prefix) throws IOException {
+		File directory = File.createTempFile(prefix, "");
+		if (!directory.delete() || !directory.mkdir()) {
+			throw new IOException("Could not create temporary directory " + directory);
+		}
+		return directory;
+	}
+
+	public static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private static class CountingWriter {
+		private final Writer out;
+		private long count;
+
+		CountingWriter(Writer out) {
+			this.out = out;
+		}
+
+		void write(String s) throws IOException {
+			out.write(s);
+			count += s.length();
+		}
+	}
+}
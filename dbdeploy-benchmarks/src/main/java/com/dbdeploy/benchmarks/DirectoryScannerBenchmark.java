@@ -0,0 +1,63 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.ChangeScriptRepository;
+import com.dbdeploy.scripts.DirectoryScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the change scripts in a directory and ordering them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DirectoryScannerBenchmark {
+	@Param({ "100", "10000" })
+	public int scripts;
+
+	private File directory;
+	private DirectoryScanner scanner;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Corpus.generateScriptDirectory(Corpus.createTempDirectory("dbdeploy-scripts"), scripts);
+		scanner = new DirectoryScanner("UTF-8");
+
+		Silence.on();
+	}
+
+	@TearDown
+	public void tearDown() {
+		Silence.off();
+		Corpus.delete(directory);
+	}
+
+	@Benchmark
+	public List<ChangeScript> scan() {
+		return scanner.getChangeScriptsForDirectory(directory);
+	}
+
+	@Benchmark
+	public List<ChangeScript> scanAndOrder() {
+		return new ChangeScriptRepository(scanner.getChangeScriptsForDirectory(directory)).getAvailableChangeScripts();
+	}
+}
@@ -0,0 +1,45 @@
+package com.dbdeploy.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Swallows what dbdeploy prints to stdout and stderr while a benchmark runs, so that the console cost does not swamp
+ * the measurement and the JMH output stays readable.
+ */
+final class Silence {
+	private static PrintStream out;
+	private static PrintStream err;
+
+	private Silence() {
+	}
+
+	static synchronized void on() {
+		if (out != null) {
+			return;
+		}
+		out = System.out;
+		err = System.err;
+		PrintStream nowhere = new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		});
+		System.setOut(nowhere);
+		System.setErr(nowhere);
+	}
+
+	static synchronized void off() {
+		if (out == null) {
+			return;
+		}
+		System.setOut(out);
+		System.setErr(err);
+		out = null;
+		err = null;
+	}
+}
@@ -0,0 +1,125 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.database.DelimiterType;
+import com.dbdeploy.database.ParseCache;
+import com.dbdeploy.database.QueryStatementSplitter;
+import com.dbdeploy.database.QueryStatementSplitterOracle;
+import com.dbdeploy.scripts.ChangeScript;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link QueryStatementSplitter#split(String)} and {@link QueryStatementSplitterOracle#split(String)} over scripts
+ * held in memory, and the same script read from disk either through the single pass lexer or from a warm
+ * {@link ParseCache} entry, the way {@link com.dbdeploy.appliers.DirectToDbApplier} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitterBenchmark {
+	@Param({ "tinyDdl", "plsqlPackage", "insertDump" })
+	public Corpus corpus;
+
+	/**
+	 * approximate script size in characters
+	 */
+	@Param({ "1000000" })
+	public long size;
+
+	private String script;
+	private QueryStatementSplitter splitter;
+	private QueryStatementSplitter oracleSplitter;
+	private File directory;
+	private ChangeScript scriptFile;
+	private ParseCache parseCache;
+
+	@Setup
+	public void setUp() throws IOException {
+		script = corpus.generate(size);
+		directory = Corpus.createTempDirectory("dbdeploy-split");
+		scriptFile = new ChangeScript(1, corpus.generate(new File(directory, "1 script.sql"), size), "UTF-8");
+		parseCache = new ParseCache(new File(directory, "cache"), ParseCache.DEFAULT_SIZE);
+
+		splitter = new QueryStatementSplitter();
+		if (corpus == Corpus.plsqlPackage) {
+			splitter.setDelimiter("/");
+			splitter.setDelimiterType(DelimiterType.row);
+		}
+		oracleSplitter = new QueryStatementSplitterOracle();
+
+		Silence.on();
+
+		/*
+		 * store the cache entry, so that iterateParseCache measures hits
+		 */
+		Reader reader = scriptFile.getContentReader();
+		try {
+			Iterator<String> statements = parseCache.iterate(scriptFile, splitter, reader);
+			while (statements.hasNext()) {
+				statements.next();
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		Silence.off();
+		Corpus.delete(directory);
+	}
+
+	@Benchmark
+	public List<String> split() {
+		return splitter.split(script);
+	}
+
+	@Benchmark
+	public List<String> splitOracle() {
+		return oracleSplitter.split(script);
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) throws IOException {
+		consume(null, blackhole);
+	}
+
+	@Benchmark
+	public void iterateParseCache(Blackhole blackhole) throws IOException {
+		consume(parseCache, blackhole);
+	}
+
+	private void consume(ParseCache cache, Blackhole blackhole) throws IOException {
+		Reader reader = scriptFile.getContentReader();
+		try {
+			Iterator<String> statements = cache == null ? splitter.iterate(reader)
+					: cache.iterate(scriptFile, splitter, reader);
+			while (statements.hasNext()) {
+				blackhole.consume(statements.next());
+			}
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.database.QueryStatementSplitter;
+import com.dbdeploy.database.QueryStatementSplitterOracle;
+import com.dbdeploy.scripts.ChangeScript;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams an INSERT dump from disk through {@link ChangeScript#getContentReader()} and the splitters, the way
+ * {@link com.dbdeploy.appliers.DirectToDbApplier} does. Each operation reads the whole file, so this runs in single
+ * shot mode; use <code>-p megabytes=4096</code> for a multi-gigabyte dump.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StreamingSplitterBenchmark {
+	@Param({ "256" })
+	public int megabytes;
+
+	private File directory;
+	private ChangeScript script;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Corpus.createTempDirectory("dbdeploy-dump");
+		File file = Corpus.insertDump.generate(new File(directory, "1 dump.sql"), megabytes * 1024L * 1024L);
+		script = new ChangeScript(1, file, "UTF-8");
+
+		Silence.on();
+	}
+
+	@TearDown
+	public void tearDown() {
+		Silence.off();
+		Corpus.delete(directory);
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) throws IOException {
+		consume(new QueryStatementSplitter(), blackhole);
+	}
+
+	@Benchmark
+	public void iterateOracle(Blackhole blackhole) throws IOException {
+		consume(new QueryStatementSplitterOracle(), blackhole);
+	}
+
+	private void consume(QueryStatementSplitter splitter, Blackhole blackhole) throws IOException {
+		Reader reader = script.getContentReader();
+		try {
+			Iterator<String> statements = splitter.iterate(reader);
+			while (statements.hasNext()) {
+				blackhole.consume(statements.next());
+			}
+		} finally {
+			reader.close();
+		}
+	}
+}
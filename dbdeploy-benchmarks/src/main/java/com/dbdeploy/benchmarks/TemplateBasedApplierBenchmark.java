@@ -0,0 +1,85 @@
+package com.dbdeploy.benchmarks;
+
+import com.dbdeploy.appliers.TemplateBasedApplier;
+import com.dbdeploy.database.DelimiterType;
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.ChangeScriptRepository;
+import com.dbdeploy.scripts.DirectoryScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating an output script from the bundled templates. A new applier is created for every operation, as dbdeploy
+ * itself does, so template loading is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateBasedApplierBenchmark {
+	@Param({ "hsql", "ora" })
+	public String syntax;
+
+	@Param({ "10", "1000" })
+	public int scripts;
+
+	private File directory;
+	private List<ChangeScript> changeScripts;
+
+	@Setup
+	public void setUp() throws IOException {
+		Silence.on();
+
+		directory = Corpus.generateScriptDirectory(Corpus.createTempDirectory("dbdeploy-templates"), scripts);
+		changeScripts = new ChangeScriptRepository(new DirectoryScanner("UTF-8").getChangeScriptsForDirectory(directory))
+				.getOrderedListOfDoChangeScripts();
+	}
+
+	@TearDown
+	public void tearDown() {
+		Silence.off();
+		Corpus.delete(directory);
+	}
+
+	@Benchmark
+	public long apply() throws IOException {
+		CountingWriter writer = new CountingWriter();
+		new TemplateBasedApplier(writer, syntax, "changelog", ";", DelimiterType.normal, null).apply(changeScripts);
+		return writer.count;
+	}
+
+	private static class CountingWriter extends Writer {
+		private long count;
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			count += len;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
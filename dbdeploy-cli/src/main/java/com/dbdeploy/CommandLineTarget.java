@@ -10,6 +10,12 @@ public class CommandLineTarget {
 		try {
 			DbDeploy dbDeploy = new DbDeploy();
 			commandLineParser.parse(args, dbDeploy);
+			if (commandLineParser.isStatus()) {
+				System.exit(dbDeploy.status().isEmpty() ? 0 : 1);
+			}
+			if (commandLineParser.isVerify()) {
+				System.exit(dbDeploy.verify().isEmpty() ? 0 : 1);
+			}
 			dbDeploy.go();
 		} catch (UsageException ex) {
 			System.err.println("ERROR: " + ex.getMessage());
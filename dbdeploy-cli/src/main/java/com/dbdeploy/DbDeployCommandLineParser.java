@@ -1,6 +1,8 @@
 package com.dbdeploy;
 
+import com.dbdeploy.appliers.TransactionGrouping;
 import com.dbdeploy.database.LineEnding;
+import com.dbdeploy.logging.LogLevel;
 import com.dbdeploy.exceptions.UsageException;
 import com.dbdeploy.database.DelimiterType;
 import org.apache.commons.cli.*;
@@ -12,6 +14,8 @@ import java.io.File;
 
 public class DbDeployCommandLineParser {
     private final UserInputReader userInputReader;
+    private boolean status;
+    private boolean verify;
 
     public DbDeployCommandLineParser() {
         this(new UserInputReader());
@@ -26,6 +30,8 @@ public class DbDeployCommandLineParser {
 			dbDeploy.setScriptdirectory(new File("."));
             final CommandLine commandLine = new GnuParser().parse(getOptions(), args);
 			copyValuesFromCommandLineToDbDeployBean(dbDeploy, commandLine);
+			status = commandLine.hasOption("status");
+			verify = commandLine.hasOption("verify");
 
             if (commandLine.hasOption("password") && commandLine.getOptionValue("password") == null) {
                 dbDeploy.setPassword(userInputReader.read("Password"));
@@ -46,12 +52,22 @@ public class DbDeployCommandLineParser {
 					Object value = commandLine.getOptionValue(propertyName);
 					if (p.getPropertyType().isAssignableFrom(File.class)) {
 						value = new File((String) value);
+					} else if (p.getPropertyType() == int.class) {
+						value = Integer.valueOf((String) value);
+					} else if (p.getPropertyType() == long.class) {
+						value = Long.valueOf((String) value);
+					} else if (p.getPropertyType() == boolean.class) {
+						value = Boolean.TRUE;
 					}
 
 					p.getWriteMethod().invoke(dbDeploy, value);
 				}
 			}
 
+			if (commandLine.hasOption("scriptclasspath")) {
+				dbDeploy.setScriptClasspath(commandLine.getOptionValue("scriptclasspath"));
+			}
+
 			if (commandLine.hasOption("delimitertype")) {
 				dbDeploy.setDelimiterType(DelimiterType.valueOf(commandLine.getOptionValue("delimitertype")));
 			}
@@ -60,11 +76,86 @@ public class DbDeployCommandLineParser {
 				dbDeploy.setLineEnding(LineEnding.valueOf(commandLine.getOptionValue("lineending")));
 			}
 
+			if (commandLine.hasOption("loglevel")) {
+				dbDeploy.setLogLevel(LogLevel.valueOf(commandLine.getOptionValue("loglevel")));
+			}
+
+			if (commandLine.hasOption("parsecache")) {
+				dbDeploy.setParseCache(true);
+			}
+
+			if (commandLine.hasOption("parsecachedir")) {
+				dbDeploy.setParseCacheDirectory(new File(commandLine.getOptionValue("parsecachedir")));
+			}
+
+			if (commandLine.hasOption("parsecachesize")) {
+				dbDeploy.setParseCacheSize(Long.parseLong(commandLine.getOptionValue("parsecachesize")));
+			}
+
+			if (commandLine.hasOption("parseahead")) {
+				dbDeploy.setParseAhead(Integer.parseInt(commandLine.getOptionValue("parseahead")));
+			}
+
+			if (commandLine.hasOption("batchsize")) {
+				dbDeploy.setBatchSize(Integer.parseInt(commandLine.getOptionValue("batchsize")));
+			}
+
+			if (commandLine.hasOption("parameteriseinserts")) {
+				dbDeploy.setParameteriseInserts(true);
+			}
+
+			if (commandLine.hasOption("locklease")) {
+				dbDeploy.setLockLease(Integer.parseInt(commandLine.getOptionValue("locklease")));
+			}
+
+			if (commandLine.hasOption("changelogcache")) {
+				dbDeploy.setChangelogCache(true);
+			}
+
+			if (commandLine.hasOption("changelogcachedir")) {
+				dbDeploy.setChangelogCacheDirectory(new File(commandLine.getOptionValue("changelogcachedir")));
+			}
+
+			if (commandLine.hasOption("poolsize")) {
+				dbDeploy.setPoolSize(Integer.parseInt(commandLine.getOptionValue("poolsize")));
+			}
+
+			if (commandLine.hasOption("metricsfile")) {
+				dbDeploy.setMetricsFile(new File(commandLine.getOptionValue("metricsfile")));
+			}
+
+			if (commandLine.hasOption("checkpointinterval")) {
+				dbDeploy.setCheckpointInterval(Integer.parseInt(commandLine.getOptionValue("checkpointinterval")));
+			}
+
+			if (commandLine.hasOption("transactions")) {
+				dbDeploy.setTransactionGrouping(TransactionGrouping.valueOf(commandLine.getOptionValue("transactions")));
+			}
+
+			if (commandLine.hasOption("transactionsize")) {
+				dbDeploy.setTransactionSize(Long.parseLong(commandLine.getOptionValue("transactionsize")));
+			}
+
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * @return whether the last command line parsed asked only for the status of the database, with --status
+	 */
+	public boolean isStatus() {
+		return status;
+	}
+
+	/**
+	 * @return whether the last command line parsed asked only for the checksums of applied scripts to be verified,
+	 * with --verify
+	 */
+	public boolean isVerify() {
+		return verify;
+	}
+
 	public void printUsage() {
 		HelpFormatter formatter = new HelpFormatter();
 		formatter.printHelp("dbdeploy", getOptions());
@@ -105,6 +196,12 @@ public class DbDeployCommandLineParser {
 				.withLongOpt("scriptdirectory")
 				.create("s"));
 
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("directory on the classpath of change scripts listed in a dbdeploy.index, instead of --scriptdirectory")
+				.withLongOpt("scriptclasspath")
+				.create());
+
 	    options.addOption(OptionBuilder
 			    .hasArg()
 			    .withDescription("encoding for input and output files (default: UTF-8)")
@@ -143,7 +240,7 @@ public class DbDeployCommandLineParser {
 
 		options.addOption(OptionBuilder
 				.hasArg()
-				.withDescription("delimiter type to separate sql statements (row or normal)")
+				.withDescription("delimiter type to separate sql statements (row, normal or parsed, which splits according to the dbms)")
 				.withLongOpt("delimitertype")
 				.create());
 
@@ -153,6 +250,131 @@ public class DbDeployCommandLineParser {
 			    .withLongOpt("lineending")
 			    .create());
 
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("least important messages to log (debug, info, warn, error; default: info)")
+				.withLongOpt("loglevel")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("keep parsed change scripts, so that applying them again elsewhere is quicker")
+				.withLongOpt("parsecache")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("directory for the parse cache (default: ~/.dbdeploy/cache)")
+				.withLongOpt("parsecachedir")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("maximum size of the parse cache in megabytes (default: 256)")
+				.withLongOpt("parsecachesize")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of change scripts to read and split in the background, ahead of the one being applied (default: 0)")
+				.withLongOpt("parseahead")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("maximum number of consecutive INSERT, UPDATE, DELETE or MERGE statements to send as one JDBC batch (default: 0, no batching)")
+				.withLongOpt("batchsize")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("execute runs of single row INSERTs of literal values as batches of one prepared statement")
+				.withLongOpt("parameteriseinserts")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("only report the change scripts still to apply, exiting with 1 if there are any")
+				.withLongOpt("status")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("record a checksum of each script applied, in the checksum column of the changelog table")
+				.withLongOpt("checksums")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("only check applied scripts against their checksums, exiting with 1 if any have been edited")
+				.withLongOpt("verify")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("take a lease on the lock table before applying scripts, so that only one process applies them at a time")
+				.withLongOpt("lock")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("seconds for which the lock is held without being renewed (default: 60)")
+				.withLongOpt("locklease")
+				.create());
+
+		options.addOption(OptionBuilder
+				.withDescription("keep a snapshot of the changelog table, read in full again only when it has changed")
+				.withLongOpt("changelogcache")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("directory for the changelog cache (default: ~/.dbdeploy/changelog)")
+				.withLongOpt("changelogcachedir")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("properties file listing the databases to deploy to, instead of --url, as <name>.url, <name>.userid, <name>.password and <name>.changeLogTableName")
+				.withLongOpt("targets")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of targets to deploy to at a time (default: 8)")
+				.withLongOpt("parallelism")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of connections over which to apply scripts marked --//@DEPENDS or --//@GROUP concurrently (default: 1)")
+				.withLongOpt("connections")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("maximum number of pooled connections to each database (default: 8; 0 disables pooling)")
+				.withLongOpt("poolsize")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("file to write the metrics of the run to, as JSON")
+				.withLongOpt("metricsfile")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of statements between checkpoints within a script, from which a failed script resumes (default: 0, no checkpoints)")
+				.withLongOpt("checkpointinterval")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("how to group change scripts into transactions: script, count, time or deployment (default: script)")
+				.withLongOpt("transactions")
+				.create());
+
+		options.addOption(OptionBuilder
+				.hasArg()
+				.withDescription("number of scripts per transaction for count, or milliseconds per transaction for time")
+				.withLongOpt("transactionsize")
+				.create());
+
 
 		return options;
 	}
@@ -1,12 +1,15 @@
 package com.dbdeploy;
 
+import com.dbdeploy.appliers.TransactionGrouping;
 import com.dbdeploy.database.DelimiterType;
 import com.dbdeploy.database.LineEnding;
+import com.dbdeploy.logging.LogLevel;
 import org.junit.Test;
 
 import java.io.File;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.*;
@@ -77,6 +80,138 @@ public class DbDeployCommandLineParserTest {
 
 	}
 
+	@Test
+	public void logLevelWorksOk() throws Exception {
+		parser.parse("--loglevel debug".split(" "), dbDeploy);
+		assertThat(dbDeploy.getLogLevel(), is(LogLevel.debug));
+	}
+
+	@Test
+	public void parseCacheWorksOk() throws Exception {
+		assertThat(dbDeploy.isParseCache(), is(false));
+
+		parser.parse("--parsecache --parsecachedir /tmp/cache --parsecachesize 10".split(" "), dbDeploy);
+		assertThat(dbDeploy.isParseCache(), is(true));
+		assertThat(dbDeploy.getParseCacheDirectory().getPath(), is(File.separator + "tmp" + File.separator + "cache"));
+		assertThat(dbDeploy.getParseCacheSize(), is(10L));
+	}
+
+	@Test
+	public void parseAheadWorksOk() throws Exception {
+		assertThat(dbDeploy.getParseAhead(), is(0));
+
+		parser.parse("--parseahead 2".split(" "), dbDeploy);
+		assertThat(dbDeploy.getParseAhead(), is(2));
+	}
+
+	@Test
+	public void batchSizeWorksOk() throws Exception {
+		assertThat(dbDeploy.getBatchSize(), is(0));
+
+		parser.parse("--batchsize 500".split(" "), dbDeploy);
+		assertThat(dbDeploy.getBatchSize(), is(500));
+	}
+
+	@Test
+	public void parameteriseInsertsWorksOk() throws Exception {
+		assertThat(dbDeploy.isParameteriseInserts(), is(false));
+
+		parser.parse("--parameteriseinserts".split(" "), dbDeploy);
+		assertThat(dbDeploy.isParameteriseInserts(), is(true));
+	}
+
+	@Test
+	public void statusWorksOk() throws Exception {
+		parser.parse("--url x".split(" "), dbDeploy);
+		assertThat(parser.isStatus(), is(false));
+
+		parser.parse("--status".split(" "), dbDeploy);
+		assertThat(parser.isStatus(), is(true));
+	}
+
+	@Test
+	public void checksumsWorkOk() throws Exception {
+		assertThat(dbDeploy.isChecksums(), is(false));
+
+		parser.parse("--checksums".split(" "), dbDeploy);
+		assertThat(dbDeploy.isChecksums(), is(true));
+		assertThat(parser.isVerify(), is(false));
+
+		parser.parse("--verify".split(" "), dbDeploy);
+		assertThat(parser.isVerify(), is(true));
+	}
+
+	@Test
+	public void lockWorksOk() throws Exception {
+		assertThat(dbDeploy.isLock(), is(false));
+		assertThat(dbDeploy.getLockLease(), is(DbDeploy.DEFAULT_LOCK_LEASE));
+
+		parser.parse("--lock --locklease 30".split(" "), dbDeploy);
+		assertThat(dbDeploy.isLock(), is(true));
+		assertThat(dbDeploy.getLockLease(), is(30));
+	}
+
+	@Test
+	public void scriptClasspathWorksOk() throws Exception {
+		assertThat(dbDeploy.getScriptClasspath(), is(nullValue()));
+
+		parser.parse("--scriptclasspath db/deltas".split(" "), dbDeploy);
+		assertThat(dbDeploy.getScriptClasspath(), is("db/deltas"));
+	}
+
+	@Test
+	public void changelogCacheWorksOk() throws Exception {
+		assertThat(dbDeploy.isChangelogCache(), is(false));
+
+		parser.parse("--changelogcache --changelogcachedir /tmp/changelog".split(" "), dbDeploy);
+		assertThat(dbDeploy.isChangelogCache(), is(true));
+		assertThat(dbDeploy.getChangelogCacheDirectory().getPath(), is(new File("/tmp/changelog").getPath()));
+	}
+
+	@Test
+	public void targetsWorkOk() throws Exception {
+		assertThat(dbDeploy.getParallelism(), is(DbDeploy.DEFAULT_PARALLELISM));
+
+		parser.parse("--targets shards.properties --parallelism 20".split(" "), dbDeploy);
+		assertThat(dbDeploy.getTargets().getPath(), is("shards.properties"));
+		assertThat(dbDeploy.getParallelism(), is(20));
+	}
+
+	@Test
+	public void connectionsWorkOk() throws Exception {
+		assertThat(dbDeploy.getConnections(), is(1));
+
+		parser.parse("--connections 4".split(" "), dbDeploy);
+		assertThat(dbDeploy.getConnections(), is(4));
+	}
+
+	@Test
+	public void poolSizeWorksOk() throws Exception {
+		parser.parse("--poolsize 0".split(" "), dbDeploy);
+		assertThat(dbDeploy.getPoolSize(), is(0));
+	}
+
+	@Test
+	public void metricsFileWorksOk() throws Exception {
+		parser.parse("--metricsfile metrics.json".split(" "), dbDeploy);
+		assertThat(dbDeploy.getMetricsFile().getPath(), is("metrics.json"));
+	}
+
+	@Test
+	public void checkpointIntervalWorksOk() throws Exception {
+		parser.parse("--checkpointinterval 1000".split(" "), dbDeploy);
+		assertThat(dbDeploy.getCheckpointInterval(), is(1000));
+	}
+
+	@Test
+	public void transactionGroupingWorksOk() throws Exception {
+		assertThat(dbDeploy.getTransactionGrouping(), is(TransactionGrouping.script));
+
+		parser.parse("--transactions count --transactionsize 50".split(" "), dbDeploy);
+		assertThat(dbDeploy.getTransactionGrouping(), is(TransactionGrouping.count));
+		assertThat(dbDeploy.getTransactionSize(), is(50L));
+	}
+
     @Test
     public void shouldPromptFromStdinForPasswordIfPasswordParamSuppliedWithNoArg() throws Exception {
         when(userInputReader.read("Password")).thenReturn("user entered password");
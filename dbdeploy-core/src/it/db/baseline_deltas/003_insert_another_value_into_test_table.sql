@@ -0,0 +1 @@
+INSERT INTO Test VALUES (7);
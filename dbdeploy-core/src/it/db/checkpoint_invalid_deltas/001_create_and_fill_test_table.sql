@@ -0,0 +1,5 @@
+CREATE TABLE Test (id INTEGER);
+INSERT INTO Test VALUES (1);
+INSERT INTO Test VALUES (2);
+INSERT INTO Test VALUES (3, 3);
+INSERT INTO Test VALUES (4);
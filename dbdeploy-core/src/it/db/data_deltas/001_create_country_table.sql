@@ -0,0 +1 @@
+CREATE TABLE Country (code CHAR(2), name VARCHAR(50), population INTEGER, joined DATE);
@@ -0,0 +1 @@
+ALTER TABLE Country ADD COLUMN capital VARCHAR(50);
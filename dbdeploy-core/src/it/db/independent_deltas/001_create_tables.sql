@@ -0,0 +1,2 @@
+CREATE TABLE Test (id INTEGER);
+CREATE TABLE Other (id INTEGER);
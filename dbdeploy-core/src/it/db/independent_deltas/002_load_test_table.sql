@@ -0,0 +1,3 @@
+--//@GROUP load
+INSERT INTO Test VALUES (6);
+INSERT INTO Test VALUES (7);
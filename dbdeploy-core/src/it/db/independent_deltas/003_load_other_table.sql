@@ -0,0 +1,2 @@
+--//@GROUP load
+INSERT INTO Other VALUES (8);
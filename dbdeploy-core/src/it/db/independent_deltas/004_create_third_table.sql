@@ -0,0 +1,2 @@
+--//@DEPENDS 1
+CREATE TABLE Third (id INTEGER);
@@ -0,0 +1 @@
+CREATE TABLE Customer (id INTEGER, name VARCHAR(50), balance DECIMAL(10, 2));
@@ -0,0 +1,5 @@
+INSERT INTO Customer (id, name, balance) VALUES (1, 'Smith', 10.50);
+INSERT INTO Customer (id, name, balance) VALUES (2, 'O''Brien', -3);
+INSERT INTO Customer (id, name, balance) VALUES (3, NULL, 0);
+INSERT INTO Customer (id, name, balance) VALUES (4, UPPER('jones'), 7.25);
+INSERT INTO Customer (id, name, balance) VALUES (5, 'Brown', 100);
@@ -0,0 +1 @@
+CREATE TABLE Event (code VARCHAR(10), happened DATE);
@@ -0,0 +1,2 @@
+INSERT INTO Event VALUES (1, '2020-01-01');
+INSERT INTO Event VALUES (22, '2020-02-29');
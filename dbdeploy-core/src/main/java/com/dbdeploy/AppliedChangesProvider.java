@@ -1,7 +1,5 @@
 package com.dbdeploy;
 
-import java.util.List;
-
 public interface AppliedChangesProvider {
-	List<Long> getAppliedChanges();
+	ChangeNumberSet getAppliedChanges();
 }
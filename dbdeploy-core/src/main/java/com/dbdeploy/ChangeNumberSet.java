@@ -0,0 +1,268 @@
+package com.dbdeploy;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A sorted set of change numbers, held as ranges of consecutive numbers in primitive arrays rather than as boxed
+ * Longs, so that a changelog of thousands of consecutive changes is a single range, and sparse timestamp numbers cost
+ * two longs each. Numbers added in ascending order, as they come from the changelog table or the script directory,
+ * only ever extend the last range or start a new one.
+ * <p>
+ * The largest number is found in constant time, membership by a binary search over the ranges, and the difference of
+ * two sets by a single pass over the ranges of both. Iterating boxes each number; prefer the ranges.
+ */
+public class ChangeNumberSet implements Iterable<Long> {
+	private long[] starts;
+	private long[] ends;
+	private int ranges;
+	private long size;
+
+	public ChangeNumberSet() {
+		this(8);
+	}
+
+	private ChangeNumberSet(int capacity) {
+		starts = new long[capacity];
+		ends = new long[capacity];
+	}
+
+	public static ChangeNumberSet of(long... numbers) {
+		ChangeNumberSet set = new ChangeNumberSet();
+		for (long number : numbers) {
+			set.add(number);
+		}
+		return set;
+	}
+
+	public static ChangeNumberSet of(Collection<Long> numbers) {
+		ChangeNumberSet set = new ChangeNumberSet();
+		for (Long number : numbers) {
+			set.add(number);
+		}
+		return set;
+	}
+
+	/**
+	 * @return whether the number was not already in the set
+	 */
+	public boolean add(long number) {
+		int last = ranges - 1;
+		if (last >= 0 && number >= starts[last]) {
+			if (number <= ends[last]) {
+				return false;
+			}
+			if (number == ends[last] + 1) {
+				ends[last] = number;
+			} else {
+				insertRange(ranges, number, number);
+			}
+			size++;
+			return true;
+		}
+
+		int i = rangeAtOrBefore(number);
+		if (i >= 0 && number <= ends[i]) {
+			return false;
+		}
+		boolean extendsBefore = i >= 0 && ends[i] + 1 == number;
+		boolean extendsAfter = i + 1 < ranges && starts[i + 1] - 1 == number;
+		if (extendsBefore && extendsAfter) {
+			ends[i] = ends[i + 1];
+			removeRange(i + 1);
+		} else if (extendsBefore) {
+			ends[i] = number;
+		} else if (extendsAfter) {
+			starts[i + 1] = number;
+		} else {
+			insertRange(i + 1, number, number);
+		}
+		size++;
+		return true;
+	}
+
+	/**
+	 * Adds the numbers from start to end inclusive, which must all be greater than the numbers already in the set.
+	 */
+	public void addRange(long start, long end) {
+		if (start > end || (ranges > 0 && start <= ends[ranges - 1])) {
+			throw new IllegalArgumentException("Range " + start + ".." + end + " does not follow " + this);
+		}
+		if (ranges > 0 && start == ends[ranges - 1] + 1) {
+			ends[ranges - 1] = end;
+			size += end - start + 1;
+		} else {
+			appendRange(start, end);
+		}
+	}
+
+	public boolean contains(long number) {
+		int i = rangeAtOrBefore(number);
+		return i >= 0 && number <= ends[i];
+	}
+
+	public boolean isEmpty() {
+		return ranges == 0;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public long min() {
+		if (ranges == 0) {
+			throw new NoSuchElementException();
+		}
+		return starts[0];
+	}
+
+	public long max() {
+		if (ranges == 0) {
+			throw new NoSuchElementException();
+		}
+		return ends[ranges - 1];
+	}
+
+	/**
+	 * @return the number of runs of consecutive numbers in the set
+	 */
+	public int getRangeCount() {
+		return ranges;
+	}
+
+	/**
+	 * @return the first number of the range at the given index, the ranges being in ascending order
+	 */
+	public long getRangeStart(int range) {
+		return starts[range];
+	}
+
+	/**
+	 * @return the last number of the range at the given index, inclusive
+	 */
+	public long getRangeEnd(int range) {
+		return ends[range];
+	}
+
+	/**
+	 * @return the numbers of this set that are not in the other
+	 */
+	public ChangeNumberSet minus(ChangeNumberSet other) {
+		ChangeNumberSet difference = new ChangeNumberSet(Math.max(ranges, 1));
+		int j = 0;
+		for (int i = 0; i < ranges; i++) {
+			long start = starts[i];
+			long end = ends[i];
+			while (j < other.ranges && other.ends[j] < start) {
+				j++;
+			}
+			boolean remains = true;
+			while (j < other.ranges && other.starts[j] <= end) {
+				if (other.starts[j] > start) {
+					difference.appendRange(start, other.starts[j] - 1);
+				}
+				if (other.ends[j] >= end) {
+					remains = false;
+					break;
+				}
+				start = other.ends[j] + 1;
+				j++;
+			}
+			if (remains) {
+				difference.appendRange(start, end);
+			}
+		}
+		return difference;
+	}
+
+	public Iterator<Long> iterator() {
+		return new Iterator<Long>() {
+			private int range;
+			private long next = ranges == 0 ? 0 : starts[0];
+
+			public boolean hasNext() {
+				return range < ranges;
+			}
+
+			public Long next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				long number = next;
+				if (number == ends[range]) {
+					range++;
+					if (range < ranges) {
+						next = starts[range];
+					}
+				} else {
+					next++;
+				}
+				return number;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < ranges; i++) {
+			if (i > 0) {
+				builder.append(", ");
+			}
+			builder.append(starts[i]);
+			if (ends[i] != starts[i]) {
+				builder.append("..").append(ends[i]);
+			}
+		}
+		return builder.append(']').toString();
+	}
+
+	/**
+	 * @return the index of the last range starting at or before the number, or -1 if there is none
+	 */
+	private int rangeAtOrBefore(long number) {
+		int low = 0;
+		int high = ranges - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (starts[middle] <= number) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return high;
+	}
+
+	private void appendRange(long start, long end) {
+		insertRange(ranges, start, end);
+		size += end - start + 1;
+	}
+
+	private void insertRange(int index, long start, long end) {
+		if (ranges == starts.length) {
+			long[] newStarts = new long[ranges * 2];
+			long[] newEnds = new long[ranges * 2];
+			System.arraycopy(starts, 0, newStarts, 0, ranges);
+			System.arraycopy(ends, 0, newEnds, 0, ranges);
+			starts = newStarts;
+			ends = newEnds;
+		}
+		System.arraycopy(starts, index, starts, index + 1, ranges - index);
+		System.arraycopy(ends, index, ends, index + 1, ranges - index);
+		starts[index] = start;
+		ends[index] = end;
+		ranges++;
+	}
+
+	private void removeRange(int index) {
+		System.arraycopy(starts, index + 1, starts, index, ranges - index - 1);
+		System.arraycopy(ends, index + 1, ends, index, ranges - index - 1);
+		ranges--;
+	}
+}
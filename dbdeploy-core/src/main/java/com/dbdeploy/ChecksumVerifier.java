@@ -0,0 +1,122 @@
+package com.dbdeploy;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.logging.Log;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Hashes the applied change scripts again and compares them with the checksums recorded in the changelog, to find
+ * scripts edited since they were applied. Hashing is bound by the cpu and the page cache rather than the database, so
+ * the scripts are shared out between a thread per core.
+ */
+class ChecksumVerifier {
+	private final int threads;
+
+	ChecksumVerifier(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Scripts applied without a checksum are not checked. Applied changes whose script is no longer there, such as
+	 * those folded into a baseline, are only warned about. A baseline and the script of the same number are one
+	 * change, applied either way, so it is only edited if neither matches.
+	 *
+	 * @param scripts the available scripts, in order
+	 * @param checksums the recorded checksum of each applied change, by change number
+	 * @return the scripts whose content no longer matches their checksum, in order
+	 */
+	List<ChangeScript> verify(List<ChangeScript> scripts, Map<Long, String> checksums) throws InterruptedException {
+		final List<ChangeScript> applied = new ArrayList<ChangeScript>();
+		Set<Long> found = new HashSet<Long>();
+		for (ChangeScript script : scripts) {
+			if (checksums.containsKey(script.getId())) {
+				applied.add(script);
+				found.add(script.getId());
+			}
+		}
+
+		List<Long> missing = new ArrayList<Long>();
+		for (Long changeNumber : checksums.keySet()) {
+			if (!found.contains(changeNumber)) {
+				missing.add(changeNumber);
+			}
+		}
+		Collections.sort(missing);
+		for (Long changeNumber : missing) {
+			Log.warn("Change #{} was applied, but its script is no longer there", changeNumber);
+		}
+
+		Set<Long> matched = hashAll(applied, checksums);
+		List<ChangeScript> edited = new ArrayList<ChangeScript>();
+		for (ChangeScript script : applied) {
+			if (matched.add(script.getId())) {
+				edited.add(script);
+			}
+		}
+		for (ChangeScript script : edited) {
+			Log.error("Change script {} has been edited since it was applied", script);
+		}
+		return edited;
+	}
+
+	/**
+	 * @return the change numbers with a script that matches their checksum
+	 */
+	private Set<Long> hashAll(final List<ChangeScript> applied, final Map<Long, String> checksums)
+			throws InterruptedException {
+		final int slices = Math.max(1, Math.min(threads, applied.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(slices, new ThreadFactory() {
+			private int count;
+
+			public synchronized Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "dbdeploy-verify-" + ++count);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		try {
+			List<Future<List<Long>>> futures = new ArrayList<Future<List<Long>>>();
+			for (int i = 0; i < slices; i++) {
+				final int first = i;
+				futures.add(executor.submit(new Callable<List<Long>>() {
+					public List<Long> call() {
+						List<Long> matched = new ArrayList<Long>();
+						for (int j = first; j < applied.size(); j += slices) {
+							ChangeScript script = applied.get(j);
+							if (script.getChecksum().equalsIgnoreCase(checksums.get(script.getId()))) {
+								matched.add(script.getId());
+							}
+						}
+						return matched;
+					}
+				}));
+			}
+
+			Set<Long> matched = new HashSet<Long>();
+			for (Future<List<Long>> future : futures) {
+				try {
+					matched.addAll(future.get());
+				} catch (ExecutionException e) {
+					throw new DbDeployException(e.getCause());
+				}
+			}
+			return matched;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -6,6 +6,8 @@ import java.util.Collections;
 import java.util.List;
 
 import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.logging.Log;
+import com.dbdeploy.logging.LogLevel;
 import com.dbdeploy.scripts.ChangeScript;
 
 public class Controller {
@@ -28,44 +30,78 @@ public class Controller {
 
 	public void processChangeScripts(Long lastChangeToApply) throws DbDeployException, IOException {
 		if (lastChangeToApply != Long.MAX_VALUE) {
-			info("Only applying changes up and including change script #" + lastChangeToApply);
+			Log.info("Only applying changes up and including change script #{}", lastChangeToApply);
 		}
 
 		List<ChangeScript> scripts = availableChangeScriptsProvider.getAvailableChangeScripts();
-		List<Long> applied = appliedChangesProvider.getAppliedChanges();
-		List<ChangeScript> toApply = identifyChangesToApply(lastChangeToApply, scripts, applied);
+		ChangeNumberSet applied = appliedChangesProvider.getAppliedChanges();
+		List<ChangeScript> toApply = identifyChangesToApply(lastChangeToApply, scripts,
+				applied.isEmpty() ? Long.MIN_VALUE : applied.max());
 
 		logStatus(scripts, applied, toApply);
+		if (!toApply.isEmpty() && toApply.get(0).isBaseline()) {
+			Log.info("Applying baseline {} in place of the change scripts up to and including #{}", toApply.get(0),
+					toApply.get(0).getId());
+		}
 
 		changeScriptApplier.apply(Collections.unmodifiableList(toApply));
 
 		if (undoScriptApplier != null) {
-			info("Generating undo scripts...");
+			Log.info("Generating undo scripts...");
 			Collections.reverse(toApply);
 			undoScriptApplier.apply(Collections.unmodifiableList(toApply));
 		}
 	}
 
-	private void logStatus(List<ChangeScript> scripts, List<Long> applied, List<ChangeScript> toApply) {
-		info("Changes currently applied to database:\n  " + prettyPrinter.format(applied));
-		info("Scripts available:\n  " + prettyPrinter.formatChangeScriptList(scripts));
-		info("To be applied:\n  " + prettyPrinter.formatChangeScriptList(toApply));
+	private void logStatus(List<ChangeScript> scripts, ChangeNumberSet applied, List<ChangeScript> toApply) {
+		/*
+		 * the lists are formatted here, as they change once the scripts are applied
+		 */
+		if (Log.isEnabled(LogLevel.info)) {
+			Log.info("Changes currently applied to database:\n  {}", prettyPrinter.format(applied));
+			Log.info("Scripts available:\n  {}", prettyPrinter.formatChangeScriptList(scripts));
+			Log.info("To be applied:\n  {}", prettyPrinter.formatChangeScriptList(toApply));
+		}
 	}
 
-	private List<ChangeScript> identifyChangesToApply(Long lastChangeToApply, List<ChangeScript> scripts,
-			List<Long> applied) {
+	/**
+	 * An empty database gets the highest baseline script within lastChangeToApply, if there is one, in place of the
+	 * scripts up to and including its number, and then the scripts after it. A database with changes already applied
+	 * never gets a baseline: it carries on script by script, so it needs the scripts up to any baseline it is behind.
+	 * Change numbers need not be consecutive, so a missing number is taken for a gap in the numbering rather than a
+	 * deleted script; but the baseline is numbered after the last script it stands in for, which must be there.
+	 *
+	 * @param lastApplied the highest change number applied to the database, as gaps are not filled, or
+	 * {@link Long#MIN_VALUE} if none
+	 */
+	static List<ChangeScript> identifyChangesToApply(Long lastChangeToApply, List<ChangeScript> scripts,
+			long lastApplied) {
 		List<ChangeScript> result = new ArrayList<ChangeScript>();
+		ChangeScript baseline = null;
+
+		for (ChangeScript script : scripts) {
+			if (script.getId() > lastChangeToApply) {
+				break;
+			}
+			if (script.isBaseline()) {
+				baseline = script;
+			}
+		}
+
+		if (baseline != null && lastApplied == Long.MIN_VALUE) {
+			result.add(baseline);
+			lastApplied = baseline.getId();
+		} else if (baseline != null && lastApplied < baseline.getId() && !hasScript(scripts, baseline.getId())) {
+			throw new DbDeployException("The database is at change #" + lastApplied + ", behind baseline " + baseline
+					+ ", but the change scripts the baseline stands in for are no longer there to bring it up to date");
+		}
 
 		for (ChangeScript script : scripts) {
 			if (script.getId() > lastChangeToApply) {
 				break;
 			}
-			/*
-			 * don't allow gaps to be "filled"
-			 */
-			Collections.sort(applied);
 
-			if (applied.size() == 0 || script.getId() > applied.get(applied.size() - 1)) {
+			if (script.getId() > lastApplied && !script.isBaseline()) {
 				result.add(script);
 			}
 		}
@@ -73,7 +109,12 @@ public class Controller {
 		return result;
 	}
 
-	private void info(String string) {
-		System.err.println(string);
+	private static boolean hasScript(List<ChangeScript> scripts, long id) {
+		for (ChangeScript script : scripts) {
+			if (script.getId() == id && !script.isBaseline()) {
+				return true;
+			}
+		}
+		return false;
 	}
 }
\ No newline at end of file
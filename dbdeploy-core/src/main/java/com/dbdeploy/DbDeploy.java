@@ -1,28 +1,68 @@
 package com.dbdeploy;
 
 import com.dbdeploy.appliers.DirectToDbApplier;
+import com.dbdeploy.appliers.ParallelDirectToDbApplier;
+import com.dbdeploy.appliers.ParsedScripts;
 import com.dbdeploy.appliers.TemplateBasedApplier;
+import com.dbdeploy.appliers.TransactionGrouping;
 import com.dbdeploy.appliers.UndoTemplateBasedApplier;
 import com.dbdeploy.database.DelimiterType;
 import com.dbdeploy.database.LineEnding;
+import com.dbdeploy.database.ParseCache;
 import com.dbdeploy.database.QueryStatementSplitter;
-import com.dbdeploy.database.QueryStatementSplitterOracle;
+import com.dbdeploy.database.StatementSplitterRegistry;
+import com.dbdeploy.database.changelog.ChangelogFingerprint;
+import com.dbdeploy.database.changelog.ChangelogLock;
+import com.dbdeploy.database.changelog.ChangelogSnapshot;
+import com.dbdeploy.database.changelog.ConnectionPool;
 import com.dbdeploy.database.changelog.DatabaseSchemaVersionManager;
 import com.dbdeploy.database.changelog.QueryExecuter;
+import com.dbdeploy.database.changelog.StatementCheckpoints;
+import com.dbdeploy.exceptions.DbDeployException;
 import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.logging.Log;
+import com.dbdeploy.logging.LogLevel;
+import com.dbdeploy.logging.LogSink;
+import com.dbdeploy.metrics.Metrics;
+import com.dbdeploy.scripts.ChangeScript;
 import com.dbdeploy.scripts.ChangeScriptRepository;
+import com.dbdeploy.scripts.ClasspathScanner;
 import com.dbdeploy.scripts.DirectoryScanner;
 
+import javax.sql.DataSource;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.text.MessageFormat;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class DbDeploy {
+	public static final int DEFAULT_PARALLELISM = 8;
+	public static final String CHECKPOINT_TABLE_SUFFIX = "_checkpoint";
+	public static final String LOCK_TABLE_SUFFIX = "_lock";
+	public static final int DEFAULT_LOCK_LEASE = 60;
+	private static final long LOCK_POLL_INITIAL_MILLIS = 200;
+	private static final long LOCK_POLL_MAX_MILLIS = 10000;
+
+	/*
+	 * the log sink, level and asynchronous writer are shared by the whole JVM, so runs in the same JVM, such as those
+	 * of the modules of a parallel maven build, take turns rather than write to each other's sinks
+	 */
+	private static final ReentrantLock RUNS = new ReentrantLock(true);
+
 	private String url;
 	private String userid;
 	private String password;
 	private String encoding = "UTF-8";
 	private File scriptdirectory;
+	private String scriptClasspath;
 	private File outputfile;
 	private File undoOutputfile;
 	private LineEnding lineEnding = LineEnding.platform;
@@ -33,6 +73,28 @@ public class DbDeploy {
 	private String delimiter = ";";
 	private DelimiterType delimiterType = DelimiterType.normal;
 	private File templatedir;
+	private boolean parseCache;
+	private File parseCacheDirectory = ParseCache.getDefaultDirectory();
+	private long parseCacheSize = ParseCache.DEFAULT_SIZE / (1024 * 1024);
+	private int parseAhead;
+	private int batchSize;
+	private boolean parameteriseInserts;
+	private TransactionGrouping transactionGrouping = TransactionGrouping.script;
+	private long transactionSize;
+	private File targets;
+	private int parallelism = DEFAULT_PARALLELISM;
+	private int connections = 1;
+	private DataSource dataSource;
+	private int poolSize = ConnectionPool.DEFAULT_MAX_SIZE;
+	private boolean changelogCache;
+	private boolean checksums;
+	private boolean lock;
+	private int lockLease = DEFAULT_LOCK_LEASE;
+	private File changelogCacheDirectory = ChangelogSnapshot.getDefaultDirectory();
+	private File metricsFile;
+	private int checkpointInterval;
+	private LogSink logSink;
+	private LogLevel logLevel;
 
 	public void setDriver(String driver) {
 		this.driver = driver;
@@ -50,10 +112,29 @@ public class DbDeploy {
 		this.password = password;
 	}
 
+	/**
+	 * The directory of change scripts. Besides sql scripts it may hold data scripts, <code>.csv</code> or
+	 * <code>.tsv</code> files of rows to load into a table; see {@link com.dbdeploy.scripts.DelimitedData}. Data
+	 * scripts can only be applied directly to the database.
+	 * <p>
+	 * A script named <code>baseline_</code> and a change number, such as <code>baseline_6000_schema.sql</code>, builds
+	 * the schema of all the scripts up to that number in one go. An empty database gets the latest baseline instead of
+	 * those scripts, which can then be removed once every database is past it.
+	 */
 	public void setScriptdirectory(File scriptdirectory) {
 		this.scriptdirectory = scriptdirectory;
 	}
 
+	/**
+	 * A directory on the classpath to take the change scripts from instead of the script directory, such as
+	 * <code>db/deltas</code> in an application jar. The scripts are listed by an index built beside them with the
+	 * index goal of the maven plugin, and streamed from the classpath as they are applied. They are looked up through
+	 * the context class loader of the thread that runs dbdeploy.
+	 */
+	public void setScriptClasspath(String scriptClasspath) {
+		this.scriptClasspath = scriptClasspath;
+	}
+
 	public void setOutputfile(File outputfile) {
 		this.outputfile = outputfile;
 	}
@@ -83,64 +164,478 @@ public class DbDeploy {
 	}
 
 	public void go() throws Exception {
-		System.err.println(getWelcomeString());
+		RUNS.lock();
+		try {
+			LogSink previousSink = Log.getSink();
+			LogLevel previousLevel = Log.getLevel();
+			try {
+				startLogging();
+				Metrics.startRun();
+				try {
+					boolean registered = Metrics.register();
+					try {
+						deploy();
+					} finally {
+						if (registered) {
+							Metrics.unregister();
+						}
+						if (metricsFile != null) {
+							writeMetrics();
+						}
+					}
+				} finally {
+					Metrics.endRun();
+				}
+			} finally {
+				stopLogging(previousSink, previousLevel);
+			}
+		} finally {
+			RUNS.unlock();
+		}
+	}
+
+	/**
+	 * Reports, without applying anything, whether the database is up to date with the change scripts, from the row
+	 * count and highest change number of the changelog table alone.
+	 *
+	 * @return the change scripts that {@link #go()} would apply, in order
+	 */
+	public List<ChangeScript> status() throws Exception {
+		RUNS.lock();
+		try {
+			LogSink previousSink = Log.getSink();
+			LogLevel previousLevel = Log.getLevel();
+			try {
+				startLogging();
+
+				ChangeScriptRepository changeScriptRepository = prepareForSingleDatabase("Status");
+
+				QueryExecuter queryExecuter = openQueryExecuter(new DeploymentTarget(url, url, userid, password,
+						changeLogTableName));
+				try {
+					ChangelogFingerprint fingerprint = new DatabaseSchemaVersionManager(queryExecuter,
+							changeLogTableName).getFingerprint();
+					List<ChangeScript> pending = identifyChangesToApply(changeScriptRepository, fingerprint);
+					if (pending.isEmpty()) {
+						Log.info("Database is up to date, at change #{}", fingerprint.getMax());
+					} else {
+						Log.info("{} change scripts to apply:\n  {}", pending.size(),
+								new PrettyPrinter().formatChangeScriptList(pending));
+					}
+					return pending;
+				} finally {
+					queryExecuter.close();
+				}
+			} finally {
+				stopLogging(previousSink, previousLevel);
+			}
+		} finally {
+			RUNS.unlock();
+		}
+	}
+
+	/**
+	 * Hashes the change scripts recorded in the changelog with a checksum again, on a thread per core, and reports any
+	 * whose content no longer matches; see {@link #setChecksums}.
+	 *
+	 * @return the change scripts edited since they were applied, in order
+	 */
+	public List<ChangeScript> verify() throws Exception {
+		RUNS.lock();
+		try {
+			LogSink previousSink = Log.getSink();
+			LogLevel previousLevel = Log.getLevel();
+			try {
+				startLogging();
+
+				ChangeScriptRepository changeScriptRepository = prepareForSingleDatabase("Checksums");
+
+				Map<Long, String> checksums;
+				QueryExecuter queryExecuter = openQueryExecuter(new DeploymentTarget(url, url, userid, password,
+						changeLogTableName));
+				try {
+					checksums = new DatabaseSchemaVersionManager(queryExecuter, changeLogTableName)
+							.getAppliedChecksums();
+				} finally {
+					queryExecuter.close();
+				}
+
+				long start = System.currentTimeMillis();
+				List<ChangeScript> edited = new ChecksumVerifier(Runtime.getRuntime().availableProcessors())
+						.verify(changeScriptRepository.getAvailableChangeScripts(), checksums);
+				Log.info("Verified {} checksums in {} ms", checksums.size(), System.currentTimeMillis() - start);
+				return edited;
+			} finally {
+				stopLogging(previousSink, previousLevel);
+			}
+		} finally {
+			RUNS.unlock();
+		}
+	}
 
+	private ChangeScriptRepository prepareForSingleDatabase(String what) throws Exception {
 		validate();
 
-		Class.forName(driver);
+		if (targets != null) {
+			throw new UsageException(what + " can only be checked for a single database, not for targets");
+		}
 
-		QueryExecuter queryExecuter = new QueryExecuter(url, userid, password);
+		if (dataSource == null) {
+			Class.forName(driver);
+		}
 
-		DatabaseSchemaVersionManager databaseSchemaVersionManager = new DatabaseSchemaVersionManager(queryExecuter,
-				changeLogTableName);
+		return readChangeScripts();
+	}
 
-		ChangeScriptRepository changeScriptRepository = new ChangeScriptRepository(
-				new DirectoryScanner(encoding).getChangeScriptsForDirectory(scriptdirectory));
+	private ChangeScriptRepository readChangeScripts() {
+		if (scriptClasspath == null) {
+			return new ChangeScriptRepository(
+					new DirectoryScanner(encoding).getChangeScriptsForDirectory(scriptdirectory));
+		}
 
-		ChangeScriptApplier doScriptApplier;
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		if (classLoader == null) {
+			classLoader = DbDeploy.class.getClassLoader();
+		}
+		return new ChangeScriptRepository(
+				new ClasspathScanner(encoding, classLoader).getChangeScriptsForLocation(scriptClasspath));
+	}
+
+	private void startLogging() {
+		if (logSink != null) {
+			Log.setSink(logSink);
+		}
+		if (logLevel != null) {
+			Log.setLevel(logLevel);
+		}
+		Log.startAsync();
+	}
+
+	private void stopLogging(LogSink previousSink, LogLevel previousLevel) {
+		try {
+			Log.stopAsync();
+		} finally {
+			Log.setSink(previousSink);
+			Log.setLevel(previousLevel);
+		}
+	}
+
+	private List<ChangeScript> identifyChangesToApply(ChangeScriptRepository changeScriptRepository,
+			ChangelogFingerprint fingerprint) {
+		return Controller.identifyChangesToApply(lastChangeToApply,
+				changeScriptRepository.getAvailableChangeScripts(),
+				fingerprint.isEmpty() ? Long.MIN_VALUE : fingerprint.getMax());
+	}
+
+	private void writeMetrics() {
+		try {
+			Writer writer = new OutputStreamWriter(new FileOutputStream(metricsFile), "UTF-8");
+			try {
+				writer.write(Metrics.toJson());
+			} finally {
+				writer.close();
+			}
+			Log.info("Metrics written to {}", metricsFile);
+		} catch (IOException e) {
+			Log.warn("Could not write metrics to {}: {}", metricsFile, e.getMessage());
+		}
+	}
+
+	private void deploy() throws Exception {
+		Log.info(getWelcomeString());
+
+		validate();
+
+		if (dataSource == null) {
+			Class.forName(driver);
+		}
+
+		ChangeScriptRepository changeScriptRepository = readChangeScripts();
+
+		if (targets != null) {
+			deployFleet(changeScriptRepository);
+			return;
+		}
+
+		deploy(new DeploymentTarget(url, url, userid, password, changeLogTableName), changeScriptRepository, null);
+	}
+
+	private void deployFleet(final ChangeScriptRepository changeScriptRepository) throws Exception {
+		List<DeploymentTarget> deploymentTargets = DeploymentTarget.load(targets, userid, password, changeLogTableName);
+		final ParsedScripts parsedScripts = new ParsedScripts(createSplitter(), createParseCache());
+
+		Log.info("Deploying to {} targets, {} at a time", deploymentTargets.size(), parallelism);
+		long start = System.currentTimeMillis();
+		List<DeploymentResult> results = new FleetDeployer(new FleetDeployer.Deployment() {
+			public void deploy(DeploymentTarget target) throws Exception {
+				DbDeploy.this.deploy(target, changeScriptRepository, parsedScripts);
+			}
+		}, parallelism).deploy(deploymentTargets);
+
+		int failed = FleetDeployer.report(results, System.currentTimeMillis() - start);
+		if (failed > 0) {
+			throw new DbDeployException("Deployment failed on " + failed + " of " + results.size() + " targets");
+		}
+	}
+
+	/**
+	 * @param parsedScripts the statements of scripts shared between targets, or null to split scripts as they are
+	 * applied
+	 */
+	private void deploy(DeploymentTarget target, ChangeScriptRepository changeScriptRepository,
+			ParsedScripts parsedScripts) throws Exception {
+		QueryExecuter queryExecuter = openQueryExecuter(target);
+		try {
+			DatabaseSchemaVersionManager databaseSchemaVersionManager = new DatabaseSchemaVersionManager(
+					queryExecuter, target.getChangeLogTableName());
 
-		if (outputfile != null) {
-			doScriptApplier = new TemplateBasedApplier(new PrintWriter(outputfile, encoding), dbms, changeLogTableName,
-					delimiter, delimiterType, getTemplatedir());
-		} else {
 			/*
-			 * parsing delimiter is only implemented for oracle
+			 * when applying directly, most runs have nothing to do, which the fingerprint of the changelog tells
+			 * without reading it all, or taking the lock
 			 */
-			QueryStatementSplitter splitter = delimiterType == DelimiterType.oracle_parsed ? new QueryStatementSplitterOracle()
-					: new QueryStatementSplitter();
-			System.err.println(MessageFormat.format("Splitter [{0}] implemented for delimiter-type [{1}]", splitter
-					.getClass().getName(), delimiterType));
+			if (outputfile != null || undoOutputfile != null) {
+				apply(target, changeScriptRepository, parsedScripts, queryExecuter, databaseSchemaVersionManager,
+						null);
+			} else if (isUpToDate(databaseSchemaVersionManager, changeScriptRepository)) {
+				return;
+			} else if (!lock) {
+				apply(target, changeScriptRepository, parsedScripts, queryExecuter, databaseSchemaVersionManager,
+						null);
+			} else {
+				QueryExecuter lockQueryExecuter = openQueryExecuter(target);
+				try {
+					ChangelogLock changelogLock = new ChangelogLock(lockQueryExecuter,
+							target.getChangeLogTableName() + LOCK_TABLE_SUFFIX, lockLease * 1000L);
+					if (acquireLock(changelogLock, databaseSchemaVersionManager, changeScriptRepository)) {
+						try {
+							apply(target, changeScriptRepository, parsedScripts, queryExecuter,
+									databaseSchemaVersionManager, changelogLock);
+						} finally {
+							changelogLock.release();
+						}
+					}
+				} finally {
+					lockQueryExecuter.close();
+				}
+			}
+		} finally {
+			queryExecuter.close();
+		}
+	}
 
-			splitter.setDelimiter(getDelimiter());
-			splitter.setDelimiterType(getDelimiterType());
-			splitter.setOutputLineEnding(lineEnding);
-			doScriptApplier = new DirectToDbApplier(queryExecuter, databaseSchemaVersionManager, splitter);
+	private boolean isUpToDate(DatabaseSchemaVersionManager databaseSchemaVersionManager,
+			ChangeScriptRepository changeScriptRepository) {
+		ChangelogFingerprint fingerprint = databaseSchemaVersionManager.getFingerprint();
+		if (identifyChangesToApply(changeScriptRepository, fingerprint).isEmpty()) {
+			Log.info("Database is up to date, at change #{}", fingerprint.getMax());
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Waits for the lock, backing off between attempts, for as long as there is anything to apply: usually whoever
+	 * holds it applies the same scripts meanwhile, and there is then nothing left to wait for.
+	 *
+	 * @return whether the lock was taken, with changes still to apply
+	 */
+	private boolean acquireLock(ChangelogLock changelogLock, DatabaseSchemaVersionManager databaseSchemaVersionManager,
+			ChangeScriptRepository changeScriptRepository) throws InterruptedException {
+		long wait = LOCK_POLL_INITIAL_MILLIS;
+		Random random = new Random();
+		while (!changelogLock.tryAcquire()) {
+			Log.info("Waiting for the lock, held by {}...", changelogLock.getHolder());
+			Thread.sleep(wait + random.nextInt((int) (wait / 2) + 1));
+			wait = Math.min(wait * 2, LOCK_POLL_MAX_MILLIS);
+
+			if (isUpToDate(databaseSchemaVersionManager, changeScriptRepository)) {
+				return false;
+			}
 		}
 
-		ChangeScriptApplier undoScriptApplier = null;
+		if (isUpToDate(databaseSchemaVersionManager, changeScriptRepository)) {
+			changelogLock.release();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Closes the connections it opens for applying with several connections, but not the queryExecuter given.
+	 *
+	 * @param changelogLock the lock held while applying, or null
+	 */
+	private void apply(DeploymentTarget target, ChangeScriptRepository changeScriptRepository,
+			ParsedScripts parsedScripts, QueryExecuter queryExecuter,
+			DatabaseSchemaVersionManager databaseSchemaVersionManager, ChangelogLock changelogLock) throws Exception {
+		databaseSchemaVersionManager.setChecksums(checksums);
+
+		if (changelogCache) {
+			databaseSchemaVersionManager.setSnapshot(new ChangelogSnapshot(changelogCacheDirectory,
+					queryExecuter.getDatabaseUrl(), target.getUserid(), target.getChangeLogTableName()));
+		}
 
-		if (undoOutputfile != null) {
-			undoScriptApplier = new UndoTemplateBasedApplier(new PrintWriter(undoOutputfile), dbms, changeLogTableName,
-					delimiter, delimiterType, templatedir);
+		ChangeScriptApplier doScriptApplier;
+		List<QueryExecuter> extraQueryExecuters = new ArrayList<QueryExecuter>();
+
+		try {
+			if (outputfile != null) {
+				doScriptApplier = new TemplateBasedApplier(new PrintWriter(outputfile, encoding), dbms,
+						target.getChangeLogTableName(), delimiter, delimiterType, getTemplatedir());
+			} else if (connections > 1) {
+				if (parsedScripts == null) {
+					parsedScripts = new ParsedScripts(createSplitter(), createParseCache());
+				}
+				List<DirectToDbApplier> appliers = new ArrayList<DirectToDbApplier>();
+				appliers.add(createDirectToDbApplier(target, queryExecuter, databaseSchemaVersionManager,
+						parsedScripts, changelogLock));
+				for (int i = 1; i < connections; i++) {
+					QueryExecuter extraQueryExecuter = openQueryExecuter(target);
+					extraQueryExecuters.add(extraQueryExecuter);
+					DatabaseSchemaVersionManager extraSchemaVersionManager = new DatabaseSchemaVersionManager(
+							extraQueryExecuter, target.getChangeLogTableName());
+					extraSchemaVersionManager.setChecksums(checksums);
+					appliers.add(createDirectToDbApplier(target, extraQueryExecuter, extraSchemaVersionManager,
+							parsedScripts, changelogLock));
+				}
+				doScriptApplier = new ParallelDirectToDbApplier(appliers);
+			} else {
+				doScriptApplier = createDirectToDbApplier(target, queryExecuter, databaseSchemaVersionManager,
+						parsedScripts, changelogLock);
+			}
+
+			ChangeScriptApplier undoScriptApplier = null;
+
+			if (undoOutputfile != null) {
+				undoScriptApplier = new UndoTemplateBasedApplier(new PrintWriter(undoOutputfile), dbms,
+						target.getChangeLogTableName(), delimiter, delimiterType, templatedir);
+
+			}
+
+			Controller controller = new Controller(changeScriptRepository, databaseSchemaVersionManager,
+					doScriptApplier, undoScriptApplier);
+
+			controller.processChangeScripts(lastChangeToApply);
+		} finally {
+			for (QueryExecuter extraQueryExecuter : extraQueryExecuters) {
+				extraQueryExecuter.close();
+			}
+		}
+	}
+
+	private QueryExecuter openQueryExecuter(DeploymentTarget target) throws SQLException {
+		if (dataSource != null) {
+			return new QueryExecuter(dataSource);
+		}
+		if (poolSize > 0) {
+			// a deployment holds a connection for the lock as well as those it applies over
+			return new QueryExecuter(ConnectionPool.get(target.getUrl(), target.getUserid(), target.getPassword(),
+					Math.max(poolSize, lock ? connections + 1 : connections)));
+		}
+		return new QueryExecuter(target.getUrl(), target.getUserid(), target.getPassword());
+	}
 
+	private DirectToDbApplier createDirectToDbApplier(DeploymentTarget target, QueryExecuter queryExecuter,
+			DatabaseSchemaVersionManager databaseSchemaVersionManager, ParsedScripts parsedScripts,
+			ChangelogLock changelogLock) {
+		DirectToDbApplier directToDbApplier;
+		if (parsedScripts == null) {
+			directToDbApplier = new DirectToDbApplier(queryExecuter, databaseSchemaVersionManager, createSplitter(),
+					createParseCache());
+		} else {
+			directToDbApplier = new DirectToDbApplier(queryExecuter, databaseSchemaVersionManager, null);
+			directToDbApplier.setParsedScripts(parsedScripts);
 		}
+		directToDbApplier.setParseAhead(parseAhead);
+		directToDbApplier.setBatchSize(batchSize);
+		directToDbApplier.setParameteriseInserts(parameteriseInserts);
+		directToDbApplier.setTransactionGrouping(transactionGrouping, transactionSize);
+		directToDbApplier.setLock(changelogLock);
+		if (checkpointInterval > 0) {
+			directToDbApplier.setCheckpoints(new StatementCheckpoints(queryExecuter,
+					target.getChangeLogTableName() + CHECKPOINT_TABLE_SUFFIX), checkpointInterval);
+		}
+		return directToDbApplier;
+	}
 
-		Controller controller = new Controller(changeScriptRepository, databaseSchemaVersionManager, doScriptApplier,
-				undoScriptApplier);
+	private QueryStatementSplitter createSplitter() {
+		QueryStatementSplitter splitter = new StatementSplitterRegistry().createSplitter(dbms, delimiterType);
+		Log.info("Splitter [{}] implemented for delimiter-type [{}]", splitter.getClass().getName(), delimiterType);
 
-		controller.processChangeScripts(lastChangeToApply);
+		splitter.setDelimiter(getDelimiter());
+		splitter.setDelimiterType(getDelimiterType());
+		splitter.setOutputLineEnding(lineEnding);
+		return splitter;
+	}
 
-		queryExecuter.close();
+	private ParseCache createParseCache() {
+		if (!parseCache) {
+			return null;
+		}
+		Log.info("Using parse cache in {}", parseCacheDirectory);
+		return new ParseCache(parseCacheDirectory, parseCacheSize * 1024 * 1024);
 	}
 
 	private void validate() throws UsageException {
-		checkForRequiredParameter(userid, "userid");
-		checkForRequiredParameter(driver, "driver");
-		checkForRequiredParameter(url, "url");
-		checkForRequiredParameter(scriptdirectory, "dir");
+		if (dataSource == null) {
+			if (targets == null) {
+				checkForRequiredParameter(userid, "userid");
+			}
+			checkForRequiredParameter(driver, "driver");
+			if (targets == null) {
+				checkForRequiredParameter(url, "url");
+			}
+		}
+		if (scriptClasspath == null) {
+			checkForRequiredParameter(scriptdirectory, "dir");
 
-		if (scriptdirectory == null || !scriptdirectory.isDirectory()) {
-			throw new UsageException("Script directory must point to a valid directory");
+			if (scriptdirectory == null || !scriptdirectory.isDirectory()) {
+				throw new UsageException("Script directory must point to a valid directory");
+			}
+		}
+
+		if ((transactionGrouping == TransactionGrouping.count || transactionGrouping == TransactionGrouping.time)
+				&& transactionSize <= 0) {
+			throw new UsageException("Transaction size must be given, and greater than 0, to group transactions by "
+					+ transactionGrouping);
+		}
+
+		if (targets != null && (outputfile != null || undoOutputfile != null)) {
+			throw new UsageException("Targets can only be used to apply scripts directly, not with output files");
+		}
+
+		if (checkpointInterval < 0) {
+			throw new UsageException("Checkpoint interval cannot be negative");
+		}
+
+		if (checkpointInterval > 0 && transactionGrouping != TransactionGrouping.script) {
+			throw new UsageException("Checkpoints can only be used with a transaction per script");
+		}
+
+		if (targets != null && dataSource != null) {
+			throw new UsageException("Targets cannot be used with a data source");
+		}
+
+		if (lock && lockLease < 1) {
+			throw new UsageException("Lock lease must be at least 1 second");
+		}
+
+		if (parallelism < 1) {
+			throw new UsageException("Parallelism must be at least 1");
+		}
+
+		if (connections < 1) {
+			throw new UsageException("Connections must be at least 1");
+		}
+
+		// scripts applied over several connections commit one by one, in order, which checkpoints and larger
+		// transactions would break
+		if (connections > 1 && transactionGrouping != TransactionGrouping.script) {
+			throw new UsageException("Several connections can only be used with a transaction per script");
+		}
+
+		if (connections > 1 && checkpointInterval > 0) {
+			throw new UsageException("Checkpoints cannot be used with several connections");
 		}
 	}
 
@@ -172,6 +667,10 @@ public class DbDeploy {
 		return scriptdirectory;
 	}
 
+	public String getScriptClasspath() {
+		return scriptClasspath;
+	}
+
 	public File getOutputfile() {
 		return outputfile;
 	}
@@ -232,4 +731,276 @@ public class DbDeploy {
 	public LineEnding getLineEnding() {
 		return lineEnding;
 	}
+
+	public boolean isParseCache() {
+		return parseCache;
+	}
+
+	/**
+	 * Keep the statements each change script is split into, so that applying the same script again elsewhere does
+	 * not mean parsing it again. Only used when applying scripts directly to the database.
+	 */
+	public void setParseCache(boolean parseCache) {
+		this.parseCache = parseCache;
+	}
+
+	public File getParseCacheDirectory() {
+		return parseCacheDirectory;
+	}
+
+	public void setParseCacheDirectory(File parseCacheDirectory) {
+		this.parseCacheDirectory = parseCacheDirectory;
+	}
+
+	/**
+	 * @return the size, in megabytes, beyond which the least recently used parse cache entries are deleted
+	 */
+	public long getParseCacheSize() {
+		return parseCacheSize;
+	}
+
+	public void setParseCacheSize(long parseCacheSize) {
+		this.parseCacheSize = parseCacheSize;
+	}
+
+	public int getParseAhead() {
+		return parseAhead;
+	}
+
+	/**
+	 * Read and split up to this many change scripts ahead of the one being applied, on background threads, so that
+	 * the database is kept busy. Default 0, i.e. none. Only used when applying scripts directly to the database, and
+	 * not for scripts applied over several connections; see {@link #setConnections(int)}.
+	 */
+	public void setParseAhead(int parseAhead) {
+		this.parseAhead = parseAhead;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Send up to this many consecutive INSERT, UPDATE, DELETE or MERGE statements to the database as one JDBC batch.
+	 * Default 0, i.e. no batching. Only used when applying scripts directly to the database.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public boolean isParameteriseInserts() {
+		return parameteriseInserts;
+	}
+
+	/**
+	 * Execute runs of single row INSERTs of literal values, such as those of generated data scripts, as batches of one
+	 * prepared statement with the literals bound as parameters, rather than have the database parse each one. The
+	 * literals are bound as the types of their columns, looked up once per table, so that they are converted as the
+	 * database would have coerced them. Default false. Only used when applying scripts directly to the database.
+	 */
+	public void setParameteriseInserts(boolean parameteriseInserts) {
+		this.parameteriseInserts = parameteriseInserts;
+	}
+
+	public File getTargets() {
+		return targets;
+	}
+
+	/**
+	 * Apply the change scripts to each of the databases listed in this file, rather than to the one given by url,
+	 * userid and password; see {@link DeploymentTarget#load} for the format. The scripts are only read and split once,
+	 * and applied to several databases at a time.
+	 */
+	public void setTargets(File targets) {
+		this.targets = targets;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * The number of targets to deploy to at a time. Default 8.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	public int getConnections() {
+		return connections;
+	}
+
+	/**
+	 * The number of connections to each database over which to apply change scripts that say, with
+	 * <code>--//@DEPENDS</code> or <code>--//@GROUP</code>, that they do not depend on all the scripts before them;
+	 * see {@link com.dbdeploy.scripts.ScriptDirectives}. Default 1, i.e. one script at a time. Scripts applied over
+	 * several connections are each committed on their own, so more than one connection needs a transaction per
+	 * script and no checkpoints; nor are they parsed ahead. Where DDL commits as it runs, as on Oracle and MySQL, the
+	 * DDL of a later script that ran before an earlier one failed is not rolled back; see
+	 * {@link ParallelDirectToDbApplier}.
+	 */
+	public void setConnections(int connections) {
+		this.connections = connections;
+	}
+
+	public DataSource getDataSource() {
+		return dataSource;
+	}
+
+	/**
+	 * Take connections from this, such as an application's own connection pool, rather than connecting to url with
+	 * userid and password; driver is then not needed either. Connections are closed as soon as the scripts have been
+	 * applied. A deployment takes as many {@link #setConnections connections} at once, plus one for the
+	 * {@link #setLock lock}, so the data source must be able to hand out that many.
+	 */
+	public void setDataSource(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * The most connections to keep open to each database when connecting with url, userid and password. Connections
+	 * are pooled for the whole JVM, so later runs against the same database reuse them; see {@link ConnectionPool}.
+	 * Default 8; 0 opens a new connection each time, and closes it afterwards. The pool grows to hold at least the
+	 * {@link #setConnections connections} of a deployment, plus one for the {@link #setLock lock}.
+	 */
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public TransactionGrouping getTransactionGrouping() {
+		return transactionGrouping;
+	}
+
+	/**
+	 * How to group change scripts into transactions: one per script (the default), every {@link #setTransactionSize
+	 * transaction size} scripts or milliseconds, or one for the whole deployment. Only used when applying scripts
+	 * directly to the database.
+	 */
+	public void setTransactionGrouping(TransactionGrouping transactionGrouping) {
+		this.transactionGrouping = transactionGrouping;
+	}
+
+	public long getTransactionSize() {
+		return transactionSize;
+	}
+
+	public void setTransactionSize(long transactionSize) {
+		this.transactionSize = transactionSize;
+	}
+
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	/**
+	 * Every this many statements into a change script, commit and record a checkpoint in the table named after the
+	 * changelog table with "_checkpoint" on the end; see the createCheckpointTable scripts. A script that fails then
+	 * carries on from its last checkpoint once fixed, rather than from the start, provided the statements up to there
+	 * are unchanged. Default 0, i.e. no checkpoints. Only used with a transaction per script; data scripts are always
+	 * loaded whole.
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public boolean isChangelogCache() {
+		return changelogCache;
+	}
+
+	/**
+	 * Keep a snapshot of the change numbers in the changelog table of each database, and only read them all again
+	 * when the row count, lowest or highest change number of the table no longer match it. Whether there is anything
+	 * to apply is always decided from the table itself.
+	 */
+	public void setChangelogCache(boolean changelogCache) {
+		this.changelogCache = changelogCache;
+	}
+
+	public File getChangelogCacheDirectory() {
+		return changelogCacheDirectory;
+	}
+
+	public void setChangelogCacheDirectory(File changelogCacheDirectory) {
+		this.changelogCacheDirectory = changelogCacheDirectory;
+	}
+
+	public boolean isChecksums() {
+		return checksums;
+	}
+
+	/**
+	 * Record a checksum of each change script applied in the changelog table, so that {@link #verify()} can find
+	 * scripts edited after they were applied. The table needs a checksum column first; see the addChecksumColumn
+	 * scripts. Only used when applying scripts directly to the database.
+	 */
+	public void setChecksums(boolean checksums) {
+		this.checksums = checksums;
+	}
+
+	public boolean isLock() {
+		return lock;
+	}
+
+	/**
+	 * Before applying anything directly to the database, take a lease on the lock table, named after the changelog
+	 * table with "_lock" on the end; see the createLockTable scripts. Of several processes deploying to the same
+	 * database at once, one applies the scripts while the others wait, and then find nothing left to do. The lock is
+	 * only taken when there is something to apply.
+	 */
+	public void setLock(boolean lock) {
+		this.lock = lock;
+	}
+
+	public int getLockLease() {
+		return lockLease;
+	}
+
+	/**
+	 * The seconds for which the lock is held without being renewed, after which a process that died holding it is
+	 * taken to be gone. Default 60; the lease is renewed every third of that.
+	 */
+	public void setLockLease(int lockLease) {
+		this.lockLease = lockLease;
+	}
+
+	public File getMetricsFile() {
+		return metricsFile;
+	}
+
+	/**
+	 * Write the metrics of the run - scripts, statements and bytes handled, and how long parsing, statements, commits
+	 * and reading the changelog took - to this file as JSON once {@link #go()} finishes, whether or not it succeeds.
+	 * The same metrics can be watched over JMX while it runs; see {@link Metrics}.
+	 */
+	public void setMetricsFile(File metricsFile) {
+		this.metricsFile = metricsFile;
+	}
+
+	public LogSink getLogSink() {
+		return logSink;
+	}
+
+	/**
+	 * Where to send progress messages while {@link #go()} runs; by default they go to standard error. Logging is set up
+	 * for the whole JVM, so runs of dbdeploy in the same JVM, each with its own sink, wait for one another.
+	 */
+	public void setLogSink(LogSink logSink) {
+		this.logSink = logSink;
+	}
+
+	public LogLevel getLogLevel() {
+		return logLevel;
+	}
+
+	/**
+	 * The least important messages to report while {@link #go()} runs; by default info, which leaves out the
+	 * individual statements.
+	 */
+	public void setLogLevel(LogLevel logLevel) {
+		this.logLevel = logLevel;
+	}
 }
@@ -0,0 +1,35 @@
+package com.dbdeploy;
+
+/**
+ * The outcome of applying change scripts to one target.
+ */
+public class DeploymentResult {
+	private final DeploymentTarget target;
+	private final Throwable failure;
+	private final long millis;
+
+	public DeploymentResult(DeploymentTarget target, Throwable failure, long millis) {
+		this.target = target;
+		this.failure = failure;
+		this.millis = millis;
+	}
+
+	public DeploymentTarget getTarget() {
+		return target;
+	}
+
+	public boolean isSucceeded() {
+		return failure == null;
+	}
+
+	/**
+	 * @return null if the deployment succeeded
+	 */
+	public Throwable getFailure() {
+		return failure;
+	}
+
+	public long getMillis() {
+		return millis;
+	}
+}
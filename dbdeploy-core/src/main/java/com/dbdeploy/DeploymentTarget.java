@@ -0,0 +1,121 @@
+package com.dbdeploy;
+
+import com.dbdeploy.exceptions.UsageException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * A database to apply change scripts to.
+ */
+public class DeploymentTarget {
+	private final String name;
+	private final String url;
+	private final String userid;
+	private final String password;
+	private final String changeLogTableName;
+
+	public DeploymentTarget(String name, String url, String userid, String password, String changeLogTableName) {
+		this.name = name;
+		this.url = url;
+		this.userid = userid;
+		this.password = password;
+		this.changeLogTableName = changeLogTableName;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public String getUserid() {
+		return userid;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public String getChangeLogTableName() {
+		return changeLogTableName;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/**
+	 * Reads a list of targets from a properties file with an entry per target and property:
+	 * <pre>
+	 * shard1.url=jdbc:...
+	 * shard1.userid=...
+	 * shard1.password=...
+	 * shard1.changeLogTableName=...
+	 * </pre>
+	 * Only the url is required; the other properties default to the values given. Targets are returned in order of
+	 * their names.
+	 */
+	public static List<DeploymentTarget> load(File file, String userid, String password, String changeLogTableName)
+			throws IOException {
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(file);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+
+		Map<String, Properties> byName = new TreeMap<String, Properties>();
+		for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+			String key = (String) entry.getKey();
+			int dot = key.lastIndexOf('.');
+			if (dot <= 0) {
+				throw new UsageException("Invalid entry in " + file + ": " + key
+						+ " (expected <target>.url, .userid, .password or .changeLogTableName)");
+			}
+
+			String name = key.substring(0, dot);
+			String property = key.substring(dot + 1);
+			if (!property.equals("url") && !property.equals("userid") && !property.equals("password")
+					&& !property.equals("changeLogTableName")) {
+				throw new UsageException("Unknown property in " + file + ": " + key);
+			}
+
+			Properties target = byName.get(name);
+			if (target == null) {
+				target = new Properties();
+				byName.put(name, target);
+			}
+			target.setProperty(property, (String) entry.getValue());
+		}
+
+		List<DeploymentTarget> targets = new ArrayList<DeploymentTarget>();
+		for (Map.Entry<String, Properties> entry : byName.entrySet()) {
+			String name = entry.getKey();
+			Properties target = entry.getValue();
+			if (target.getProperty("url") == null) {
+				UsageException.throwForMissingRequiredValue(name + ".url");
+			}
+			targets.add(new DeploymentTarget(name, target.getProperty("url"),
+					target.getProperty("userid", userid),
+					target.getProperty("password", password),
+					target.getProperty("changeLogTableName", changeLogTableName)));
+		}
+
+		if (targets.isEmpty()) {
+			throw new UsageException("No targets in " + file);
+		}
+		return targets;
+	}
+}
@@ -0,0 +1,134 @@
+package com.dbdeploy;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.logging.Log;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Applies the same change scripts to many targets, at most <code>parallelism</code> at a time. Each target gets its
+ * own connection and is deployed exactly as it would be on its own; a failure on one target does not stop the others.
+ * <p>
+ * Runs each target on a virtual thread where the JVM has them (Java 21 on), as deployments spend nearly all their time
+ * waiting for the database, and otherwise on a fixed pool of <code>parallelism</code> threads.
+ */
+class FleetDeployer {
+	/**
+	 * Deploys to a single target.
+	 */
+	interface Deployment {
+		void deploy(DeploymentTarget target) throws Exception;
+	}
+
+	private final Deployment deployment;
+	private final int parallelism;
+
+	FleetDeployer(Deployment deployment, int parallelism) {
+		this.deployment = deployment;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @return a result per target, in the order given
+	 */
+	List<DeploymentResult> deploy(List<DeploymentTarget> targets) throws InterruptedException {
+		final Semaphore running = new Semaphore(parallelism);
+		ExecutorService executor = createExecutor();
+		List<Future<DeploymentResult>> futures = new ArrayList<Future<DeploymentResult>>();
+
+		try {
+			for (final DeploymentTarget target : targets) {
+				futures.add(executor.submit(new Callable<DeploymentResult>() {
+					public DeploymentResult call() throws InterruptedException {
+						running.acquire();
+						try {
+							return deploy(target);
+						} finally {
+							running.release();
+						}
+					}
+				}));
+			}
+
+			List<DeploymentResult> results = new ArrayList<DeploymentResult>();
+			for (Future<DeploymentResult> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					throw new DbDeployException(e.getCause());
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private DeploymentResult deploy(DeploymentTarget target) {
+		Log.info("Deploying to {}...", target);
+		long start = System.currentTimeMillis();
+		Throwable failure = null;
+		try {
+			deployment.deploy(target);
+		} catch (Exception e) {
+			failure = e;
+		} catch (Error e) {
+			failure = e;
+		}
+		long millis = System.currentTimeMillis() - start;
+
+		if (failure == null) {
+			Log.info("Deployed to {} in {} ms", target, millis);
+		} else {
+			Log.error("Deployment to {} failed: {}", target, failure.getMessage());
+		}
+		return new DeploymentResult(target, failure, millis);
+	}
+
+	private ExecutorService createExecutor() {
+		try {
+			Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) virtual.invoke(null);
+		} catch (Exception e) {
+			return Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+				private int count;
+
+				public synchronized Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "dbdeploy-fleet-" + ++count);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Logs a line per target, and a summary.
+	 *
+	 * @return the number of targets that failed
+	 */
+	static int report(List<DeploymentResult> results, long millis) {
+		int failed = 0;
+		for (DeploymentResult result : results) {
+			if (result.isSucceeded()) {
+				Log.info("  " + result.getTarget() + ": ok, " + result.getMillis() + " ms");
+			} else {
+				failed++;
+				Log.error("  " + result.getTarget() + ": FAILED, " + result.getMillis() + " ms: "
+						+ result.getFailure().getMessage());
+			}
+		}
+		Log.info("Deployed to " + (results.size() - failed) + " of " + results.size() + " targets in " + millis
+				+ " ms");
+		return failed;
+	}
+}
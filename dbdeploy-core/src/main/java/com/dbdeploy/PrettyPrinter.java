@@ -2,68 +2,54 @@ package com.dbdeploy;
 
 import com.dbdeploy.scripts.ChangeScript;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class PrettyPrinter {
 
 	public String format(List<Long> appliedChanges) {
-		if (appliedChanges.isEmpty()) {
+		return format(ChangeNumberSet.of(appliedChanges));
+	}
+
+	public String format(ChangeNumberSet changeNumbers) {
+		if (changeNumbers.isEmpty()) {
 			return "(none)";
 		}
 		
 		StringBuilder builder = new StringBuilder();
-		
-		Long lastRangeStart = null;
-		Long lastNumber = null;
-		
-		for (Long thisNumber : appliedChanges) {
-			if (lastNumber == null) {
-				// first in loop
-				lastNumber = thisNumber;
-				lastRangeStart = thisNumber;
-			} else if (thisNumber == lastNumber + 1) {
-				// continuation of current range
-				lastNumber = thisNumber;
-			} else {
-				// doesn't fit into last range - so output the old range and
-				// start a new one
-				appendRange(builder, lastRangeStart, lastNumber);
-				lastNumber = thisNumber;
-				lastRangeStart = thisNumber;
-			}
+
+		for (int i = 0; i < changeNumbers.getRangeCount(); i++) {
+			appendRange(builder, changeNumbers.getRangeStart(i), changeNumbers.getRangeEnd(i));
 		}
 
-		appendRange(builder, lastRangeStart, lastNumber);
 		return builder.toString();
 	}
 
-	private void appendRange(StringBuilder builder, Long lastRangeStart, Long lastNumber) {
-		if (lastRangeStart == lastNumber) {
-			appendWithPossibleComma(builder, lastNumber);
-		} else if (lastRangeStart + 1 == lastNumber) {
-			appendWithPossibleComma(builder, lastRangeStart);
-			appendWithPossibleComma(builder, lastNumber);
+	private void appendRange(StringBuilder builder, long rangeStart, long rangeEnd) {
+		if (rangeStart == rangeEnd) {
+			appendSeparator(builder).append(rangeEnd);
+		} else if (rangeStart + 1 == rangeEnd) {
+			appendSeparator(builder).append(rangeStart);
+			appendSeparator(builder).append(rangeEnd);
 		} else {
-			appendWithPossibleComma(builder, lastRangeStart + ".." + lastNumber);
+			appendSeparator(builder).append(rangeStart).append("..").append(rangeEnd);
 		}
 	}
 
-	private void appendWithPossibleComma(StringBuilder builder, Object o) {
+	private StringBuilder appendSeparator(StringBuilder builder) {
 		if (builder.length() != 0) {
 			builder.append(", ");
 		}
-		builder.append(o);
+		return builder;
 	}
 
 	public String formatChangeScriptList(List<ChangeScript> changeScripts) {
-		List<Long> numberList = new ArrayList<Long>(changeScripts.size());
+		ChangeNumberSet numbers = new ChangeNumberSet();
 		
 		for (ChangeScript changeScript : changeScripts) {
-			numberList.add(changeScript.getId());
+			numbers.add(changeScript.getId());
 		}
 		
-		return format(numberList);
+		return format(numbers);
 	}
 
 }
@@ -0,0 +1,109 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.database.changelog.QueryExecuter;
+import com.dbdeploy.exceptions.ChangeScriptFailedException;
+import com.dbdeploy.metrics.Metrics;
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.DelimitedData;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the rows of a data script into its table through one prepared INSERT, a batch at a time, holding no more than
+ * a batch of rows in memory. Each value is bound as text and converted by the driver to the type of its column. A
+ * failing row is reported as the statement of that number, counting rows from 1, with an equivalent INSERT as its
+ * sql.
+ */
+class DataLoad {
+	private final QueryExecuter queryExecuter;
+	private final ChangeScript script;
+	private final int size;
+	private final List<Object[]> rows;
+	private String insertInto;
+	private String sql;
+	private int[] types;
+	private int firstRowNumber = 1;
+
+	DataLoad(QueryExecuter queryExecuter, ChangeScript script, int size) {
+		this.queryExecuter = queryExecuter;
+		this.script = script;
+		this.size = size;
+		this.rows = new ArrayList<Object[]>(size);
+	}
+
+	void load() {
+		DelimitedData data = DelimitedData.open(script);
+		try {
+			insertInto = "INSERT INTO " + data.getTable() + " (" + join(data.getColumns(), null) + ")";
+			sql = insertInto + " VALUES (" + join(data.getColumns(), "?") + ")";
+			try {
+				types = queryExecuter.getColumnTypes(data.getTable(), data.getColumns());
+			} catch (SQLException e) {
+				throw new ChangeScriptFailedException(e, script, 1, sql);
+			}
+
+			String[] row;
+			while ((row = data.next()) != null) {
+				rows.add(row);
+				if (rows.size() >= size) {
+					flush();
+				}
+			}
+			flush();
+		} finally {
+			data.close();
+		}
+	}
+
+	private void flush() {
+		if (rows.isEmpty()) {
+			return;
+		}
+
+		try {
+			long start = System.nanoTime();
+			queryExecuter.executeBatch(sql, rows, types);
+			Metrics.STATEMENT_TIME.record(Metrics.since(start) / rows.size(), rows.size());
+			Metrics.STATEMENTS_EXECUTED.add(rows.size());
+		} catch (BatchUpdateException e) {
+			int failed = StatementBatch.failedIndex(e, rows.size());
+			throw new ChangeScriptFailedException(e, script, firstRowNumber + failed, describe(rows.get(failed)));
+		} catch (SQLException e) {
+			throw new ChangeScriptFailedException(e, script, firstRowNumber, describe(rows.get(0)));
+		}
+
+		firstRowNumber += rows.size();
+		rows.clear();
+	}
+
+	/**
+	 * @return the items separated by commas, each replaced by the given text if it is not null
+	 */
+	private static String join(List<String> items, String replacement) {
+		StringBuilder joined = new StringBuilder();
+		for (String item : items) {
+			if (joined.length() > 0) {
+				joined.append(", ");
+			}
+			joined.append(replacement == null ? item : replacement);
+		}
+		return joined.toString();
+	}
+
+	/**
+	 * @return the row as the INSERT statement it would be in a sql script
+	 */
+	private String describe(Object[] row) {
+		StringBuilder values = new StringBuilder();
+		for (Object value : row) {
+			if (values.length() > 0) {
+				values.append(", ");
+			}
+			values.append(value == null ? "NULL" : "'" + value.toString().replace("'", "''") + "'");
+		}
+		return insertInto + " VALUES (" + values + ")";
+	}
+}
@@ -1,36 +1,203 @@
 package com.dbdeploy.appliers;
 
 import com.dbdeploy.ChangeScriptApplier;
+import com.dbdeploy.database.ParseCache;
 import com.dbdeploy.database.QueryStatementSplitter;
+import com.dbdeploy.database.changelog.ChangelogLock;
 import com.dbdeploy.database.changelog.DatabaseSchemaVersionManager;
 import com.dbdeploy.database.changelog.QueryExecuter;
+import com.dbdeploy.database.changelog.StatementCheckpoints;
+import com.dbdeploy.database.changelog.StatementCheckpoints.Checkpoint;
 import com.dbdeploy.exceptions.ChangeScriptFailedException;
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.logging.Log;
+import com.dbdeploy.metrics.Metrics;
 import com.dbdeploy.scripts.ChangeScript;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 public class DirectToDbApplier implements ChangeScriptApplier {
+	private static final int PARSE_AHEAD_STATEMENTS = 1000;
+	private static final int DEFAULT_INSERT_BATCH_SIZE = 500;
+
 	private final QueryExecuter queryExecuter;
 	private final DatabaseSchemaVersionManager schemaVersionManager;
     private final QueryStatementSplitter splitter;
+    private final ParseCache parseCache;
+    private int parseAhead;
+    private int batchSize;
+    private boolean parameteriseInserts;
+    private TransactionGrouping transactionGrouping = TransactionGrouping.script;
+    private long transactionSize;
+    private ParsedScripts parsedScripts;
+    private StatementCheckpoints checkpoints;
+    private int checkpointInterval;
+    private final Set<Long> checkpointedScripts = new HashSet<Long>();
+    private ChangelogLock lock;
 
     public DirectToDbApplier(QueryExecuter queryExecuter, DatabaseSchemaVersionManager schemaVersionManager, QueryStatementSplitter splitter) {
+        this(queryExecuter, schemaVersionManager, splitter, null);
+    }
+
+    public DirectToDbApplier(QueryExecuter queryExecuter, DatabaseSchemaVersionManager schemaVersionManager, QueryStatementSplitter splitter, ParseCache parseCache) {
 		this.queryExecuter = queryExecuter;
 		this.schemaVersionManager = schemaVersionManager;
         this.splitter = splitter;
+        this.parseCache = parseCache;
+    }
+
+    /**
+     * Read and split up to this many scripts ahead of the one being applied, on as many background threads. By default
+     * 0, i.e. each script is read and split as it is applied.
+     */
+    public void setParseAhead(int parseAhead) {
+        this.parseAhead = parseAhead;
+    }
+
+    /**
+     * Send up to this many consecutive INSERT, UPDATE, DELETE or MERGE statements of a script to the database as one
+     * JDBC batch. By default 0, i.e. each statement is executed on its own.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Execute consecutive single row INSERTs of literal values into the same columns of the same table as a batch of
+     * one prepared statement, with the literals bound as parameters; see {@link ParameterisedInsert}. The batches hold
+     * up to the batch size, or 500 inserts if there is none. By default false.
+     * <p>
+     * The rows of data scripts are always loaded this way, in batches of the same size.
+     */
+    public void setParameteriseInserts(boolean parameteriseInserts) {
+        this.parameteriseInserts = parameteriseInserts;
+    }
+
+    /**
+     * How to group the scripts into transactions, by default one transaction per script. The size is the number of
+     * scripts for {@link TransactionGrouping#count} and the number of milliseconds for {@link TransactionGrouping#time}.
+     */
+    public void setTransactionGrouping(TransactionGrouping transactionGrouping, long transactionSize) {
+        this.transactionGrouping = transactionGrouping;
+        this.transactionSize = transactionSize;
+    }
+
+    /**
+     * Take the statements of each script from these, rather than splitting the scripts here, so that scripts being
+     * applied to several databases are only split once.
+     */
+    public void setParsedScripts(ParsedScripts parsedScripts) {
+        this.parsedScripts = parsedScripts;
+    }
+
+    /**
+     * Every this many statements into a script, commit and record a checkpoint, so that a script that fails carries on
+     * from its last checkpoint when applied again rather than from the start. Only for a transaction per script.
+     */
+    public void setCheckpoints(StatementCheckpoints checkpoints, int checkpointInterval) {
+        this.checkpoints = checkpoints;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Check that this lock is still held before each script and each commit, and fail rather than carry on alongside
+     * another process once its lease has been lost.
+     */
+    public void setLock(ChangelogLock lock) {
+        this.lock = lock;
     }
 
     public void apply(List<ChangeScript> changeScript) {
         begin();
 
-        for (ChangeScript script : changeScript) {
-            System.err.println("Applying " + script + "...");
+        ParseAhead parsed = null;
+        if (parseAhead > 0) {
+            parsed = new ParseAhead(changeScript, parseAhead, PARSE_AHEAD_STATEMENTS) {
+                @Override
+                protected Iterator<String> split(ChangeScript script, Reader content) {
+                    return DirectToDbApplier.this.split(script, content);
+                }
+            };
+        }
+
+        List<ChangeScript> uncommitted = new ArrayList<ChangeScript>();
+        ChangeScript lastCommitted = null;
+        ChangeScript current = null;
+        long lastCommitTime = System.currentTimeMillis();
+
+        try {
+            for (ChangeScript script : changeScript) {
+                current = script;
+                checkLock();
+                Log.info("Applying {}...", script);
 
-            applyChangeScript(script);
-            insertToSchemaVersionTable(script);
+                Iterator<String> statements = parsed == null ? null : parsed.next();
+                if (statements == null || script.isDataScript()) {
+                    applyChangeScript(script);
+                } else {
+                    execute(script, statements);
+                }
+                uncommitted.add(script);
 
-            commitTransaction();
+                long now = System.currentTimeMillis();
+                if (transactionGrouping.isCommitDue(uncommitted.size(), now - lastCommitTime, transactionSize)) {
+                    commit(uncommitted);
+                    lastCommitted = script;
+                    lastCommitTime = now;
+                }
+            }
+            current = null;
+
+            if (!uncommitted.isEmpty()) {
+                commit(uncommitted);
+            }
+        } catch (RuntimeException e) {
+            rollback(lastCommitted, uncommitted.isEmpty() ? current : uncommitted.get(0));
+            throw e;
+        } finally {
+            if (parsed != null) {
+                parsed.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the changelog rows for the scripts applied since the last commit, and commits.
+     */
+    private void commit(List<ChangeScript> uncommitted) {
+        if (uncommitted.size() == 1) {
+            insertToSchemaVersionTable(uncommitted.get(0));
+        } else {
+            schemaVersionManager.recordScriptsApplied(uncommitted);
+        }
+        commitTransaction();
+
+        if (transactionGrouping != TransactionGrouping.script) {
+            Log.info("Committed {} to {}", uncommitted.get(0), uncommitted.get(uncommitted.size() - 1));
+        }
+        uncommitted.clear();
+    }
+
+    private void rollback(ChangeScript lastCommitted, ChangeScript firstUncommitted) {
+        rollbackTransaction();
+        reportRollback(lastCommitted, firstUncommitted);
+    }
+
+    static void reportRollback(ChangeScript lastCommitted, ChangeScript firstUncommitted) {
+        if (firstUncommitted == null) {
+            return;
+        }
+        if (lastCommitted == null) {
+            Log.error("Rolled back from {} on; no scripts were committed", firstUncommitted);
+        } else {
+            Log.error("Rolled back from {} on; committed up to and including {}", firstUncommitted, lastCommitted);
         }
     }
 
@@ -43,30 +210,167 @@ public class DirectToDbApplier implements ChangeScriptApplier {
 	}
 
 	protected void applyChangeScript(ChangeScript script) {
-		List<String> statements = splitter.split(script.getContent());
+		checkLock();
+		if (script.isDataScript()) {
+			new DataLoad(queryExecuter, script, batchSize > 1 ? batchSize : DEFAULT_INSERT_BATCH_SIZE).load();
+			Metrics.SCRIPTS_APPLIED.increment();
+			return;
+		}
+
+		if (parsedScripts != null) {
+			execute(script, parsedScripts.getStatements(script).iterator());
+			return;
+		}
 
-		for (int i = 0; i < statements.size(); i++) {
-			String statement = statements.get(i);
+		Reader content = script.getContentReader();
+
+		try {
+			execute(script, split(script, content));
+		} finally {
 			try {
-				if (statements.size() > 1) {
-					System.err.println(" -> statement " + (i+1) + " of " + statements.size() + "...");
+				content.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	private Iterator<String> split(ChangeScript script, Reader content) {
+		if (parsedScripts != null) {
+			return parsedScripts.getStatements(script).iterator();
+		}
+		return parseCache == null ? splitter.iterate(content) : parseCache.iterate(script, splitter, content);
+	}
+
+	private void execute(ChangeScript script, Iterator<String> statements) {
+		StatementBatch batch = batchSize > 1 ? new StatementBatch(queryExecuter, script, batchSize) : null;
+		InsertBatch inserts = parameteriseInserts ? new InsertBatch(queryExecuter, script,
+				batchSize > 1 ? batchSize : DEFAULT_INSERT_BATCH_SIZE) : null;
+		long parseNanos = 0;
+		StatementHash hash = checkpoints == null ? null : new StatementHash();
+		Checkpoint resumeFrom = checkpoints == null ? null : checkpoints.getLastCheckpoint(script.getId());
+
+		for (int i = 1; ; i++) {
+			long parseStart = System.nanoTime();
+			String statement = statements.hasNext() ? statements.next() : null;
+			parseNanos += System.nanoTime() - parseStart;
+			if (statement == null) {
+				break;
+			}
+
+			if (hash != null) {
+				hash.add(statement);
+				if (resumeFrom != null) {
+					if (i < resumeFrom.getStatementIndex()) {
+						continue;
+					}
+					resume(script, resumeFrom, hash);
+					resumeFrom = null;
+					continue;
 				}
-				queryExecuter.execute(statement);
-			} catch (SQLException e) {
-				throw new ChangeScriptFailedException(e, script, i+1, statement);
 			}
+
+			if (Log.isDebugEnabled() && (i > 1 || statements.hasNext())) {
+				Log.debug(" -> statement {}...", i);
+			}
+
+			ParameterisedInsert insert = inserts == null ? null : ParameterisedInsert.parse(statement);
+			if (insert != null) {
+				flush(batch, null);
+				inserts.add(i, statement, insert);
+			} else if (batch != null && StatementBatch.isBatchable(statement)) {
+				flush(null, inserts);
+				batch.add(i, statement);
+			} else {
+				flush(batch, inserts);
+				execute(script, i, statement);
+			}
+
+			if (hash != null && checkpointInterval > 0 && i % checkpointInterval == 0) {
+				flush(batch, inserts);
+				checkpoint(script, new Checkpoint(i, hash.get()));
+			}
+		}
+
+		if (resumeFrom != null) {
+			throw new DbDeployException(script + " has fewer statements than when it was checkpointed after statement "
+					+ resumeFrom.getStatementIndex() + "; delete its rows from the checkpoint table to apply it from"
+					+ " the start");
 		}
+		flush(batch, inserts);
+		Metrics.PARSE_TIME.record(parseNanos / 1000);
+		Metrics.SCRIPTS_APPLIED.increment();
+	}
+
+	private static void flush(StatementBatch batch, InsertBatch inserts) {
+		if (batch != null) {
+			batch.flush();
+		}
+		if (inserts != null) {
+			inserts.flush();
+		}
+	}
+
+	private void execute(ChangeScript script, int statementNumber, String statement) {
+		try {
+			long executeStart = System.nanoTime();
+			queryExecuter.execute(statement);
+			Metrics.STATEMENT_TIME.record(Metrics.since(executeStart));
+			Metrics.STATEMENTS_EXECUTED.increment();
+		} catch (SQLException e) {
+			throw new ChangeScriptFailedException(e, script, statementNumber, statement);
+		}
+	}
+
+	/**
+	 * Checks that the statements up to the checkpoint are the ones that were applied, before skipping them.
+	 */
+	private void resume(ChangeScript script, Checkpoint checkpoint, StatementHash hash) {
+		if (!hash.get().equals(checkpoint.getStatementHash())) {
+			throw new DbDeployException("Statements 1 to " + checkpoint.getStatementIndex() + " of " + script
+					+ " have changed since they were applied; delete its rows from the checkpoint table to apply it"
+					+ " from the start");
+		}
+		Log.info("Resuming {} after statement {}", script, checkpoint.getStatementIndex());
+		checkpointedScripts.add(script.getId());
+	}
+
+	private void checkpoint(ChangeScript script, Checkpoint checkpoint) {
+		checkpoints.recordCheckpoint(script.getId(), checkpoint);
+		commitTransaction();
+		checkpointedScripts.add(script.getId());
+		Log.debug("Checkpointed {} after statement {}", script, checkpoint.getStatementIndex());
 	}
 
 	protected void insertToSchemaVersionTable(ChangeScript changeScript) {
         schemaVersionManager.recordScriptApplied(changeScript);
+        if (checkpointedScripts.remove(changeScript.getId())) {
+            checkpoints.clearCheckpoints(changeScript.getId());
+        }
 	}
 
     protected void commitTransaction() {
+		checkLock();
 		try {
+			long start = System.nanoTime();
 			queryExecuter.commit();
+			Metrics.COMMIT_TIME.record(Metrics.since(start));
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void checkLock() {
+		if (lock != null) {
+			lock.checkHeld();
+		}
+	}
+
+	protected void rollbackTransaction() {
+		try {
+			queryExecuter.rollback();
 		} catch (SQLException e) {
-			throw new RuntimeException();
+			Log.warn("Could not roll back: {}", e.getMessage());
 		}
 	}
 
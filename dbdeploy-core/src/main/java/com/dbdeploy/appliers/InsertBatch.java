@@ -0,0 +1,116 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.database.changelog.QueryExecuter;
+import com.dbdeploy.exceptions.ChangeScriptFailedException;
+import com.dbdeploy.metrics.Metrics;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consecutive single row INSERTs of a change script that have the same shape, executed as one batch of a single
+ * prepared statement with their literals bound as parameters. An INSERT of another shape, or any other statement,
+ * ends the batch, so that the statements of a script still run in the order they were written.
+ * <p>
+ * The parameters are bound as the {@link java.sql.Types} of their columns, looked up once for each shape, so that the
+ * driver converts them as the database would have coerced the literals.
+ */
+class InsertBatch {
+	private final QueryExecuter queryExecuter;
+	private final ChangeScript script;
+	private final int size;
+	private final List<Object[]> rows;
+	private final List<String> statements;
+	private final Map<String, int[]> typesBySql = new HashMap<String, int[]>();
+	private String sql;
+	private int[] types;
+	private int firstStatementNumber;
+
+	InsertBatch(QueryExecuter queryExecuter, ChangeScript script, int size) {
+		this.queryExecuter = queryExecuter;
+		this.script = script;
+		this.size = size;
+		this.rows = new ArrayList<Object[]>(size);
+		this.statements = new ArrayList<String>(size);
+	}
+
+	/**
+	 * Adds an insert, first executing the batch if the insert has a different shape, and afterwards if it is full.
+	 *
+	 * @param statementNumber the position of the statement in its script, counting from 1
+	 */
+	void add(int statementNumber, String statement, ParameterisedInsert insert) {
+		if (sql != null && !sql.equals(insert.getSql())) {
+			flush();
+		}
+		if (rows.isEmpty()) {
+			sql = insert.getSql();
+			types = typesOf(statementNumber, statement, insert);
+			firstStatementNumber = statementNumber;
+		}
+		rows.add(insert.getParameters());
+		statements.add(statement);
+		if (rows.size() >= size) {
+			flush();
+		}
+	}
+
+	/**
+	 * Executes the inserts added since the last flush, if any.
+	 */
+	void flush() {
+		if (rows.isEmpty()) {
+			return;
+		}
+
+		try {
+			long start = System.nanoTime();
+			queryExecuter.executeBatch(sql, rows, types);
+			Metrics.STATEMENT_TIME.record(Metrics.since(start) / rows.size(), rows.size());
+			Metrics.STATEMENTS_EXECUTED.add(rows.size());
+		} catch (BatchUpdateException e) {
+			int failed = StatementBatch.failedIndex(e, rows.size());
+			throw new ChangeScriptFailedException(e, script, firstStatementNumber + failed, statements.get(failed));
+		} catch (SQLException e) {
+			throw new ChangeScriptFailedException(e, script, firstStatementNumber, statements.get(0));
+		} finally {
+			rows.clear();
+			statements.clear();
+			sql = null;
+			types = null;
+		}
+	}
+
+	/**
+	 * @return the types of the columns the parameters of the insert go into
+	 */
+	private int[] typesOf(int statementNumber, String statement, ParameterisedInsert insert) {
+		int[] parameterTypes = typesBySql.get(insert.getSql());
+		if (parameterTypes != null) {
+			return parameterTypes;
+		}
+
+		int[] columnTypes;
+		try {
+			columnTypes = queryExecuter.getColumnTypes(insert.getTable(), insert.getColumns());
+		} catch (SQLException e) {
+			throw new ChangeScriptFailedException(e, script, statementNumber, statement);
+		}
+		int[] positions = insert.getPositions();
+		parameterTypes = new int[positions.length];
+		for (int i = 0; i < positions.length; i++) {
+			if (positions[i] >= columnTypes.length) {
+				throw new ChangeScriptFailedException(new SQLException("More values than " + insert.getTable()
+						+ " has columns"), script, statementNumber, statement);
+			}
+			parameterTypes[i] = columnTypes[positions[i]];
+		}
+		typesBySql.put(insert.getSql(), parameterTypes);
+		return parameterTypes;
+	}
+}
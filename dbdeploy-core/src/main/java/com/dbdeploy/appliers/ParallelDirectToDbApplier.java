@@ -0,0 +1,265 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.ChangeScriptApplier;
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.logging.Log;
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.ScriptDirectives;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Applies change scripts over several connections at once, as far as their {@link ScriptDirectives} allow, each
+ * connection being driven by its own {@link DirectToDbApplier}.
+ * <p>
+ * Scripts still commit strictly in order: a script that finishes early keeps its transaction open, changelog row
+ * included, until every script before it has committed. So the changelog never has gaps, and a script only starts
+ * once the scripts it depends on have committed, when their changes are visible from any connection. When a script
+ * fails, the scripts before it are still applied, and those after it that had already run are rolled back and not
+ * recorded in the changelog.
+ * <p>
+ * Rolling back only undoes what the database has not already committed. Where DDL commits as it runs, as on Oracle
+ * and MySQL, the tables or indexes a later script created before an earlier one failed stay in place without a
+ * changelog row, so the script fails when it is run again until they are dropped by hand; the failure report lists
+ * these scripts as having run without being recorded. On such databases only give scripts of DDL directives when
+ * they can be run again, or when the risk is worth it.
+ * <p>
+ * Each script is applied in a transaction of its own, so the appliers must not group scripts into larger transactions
+ * or commit at checkpoints part way through; {@link com.dbdeploy.DbDeploy} refuses those settings with several
+ * connections. Nor are scripts parsed ahead here.
+ * <p>
+ * If none of the scripts have directives, or there is only one connection, the scripts are simply applied one after
+ * the other by the first applier.
+ */
+public class ParallelDirectToDbApplier implements ChangeScriptApplier {
+	private final List<DirectToDbApplier> appliers;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+
+	private List<ChangeScript> scripts;
+	/*
+	 * for each script, how many of the scripts must have committed before it can start
+	 */
+	private int[] waitsFor;
+	private boolean[] started;
+	private int firstNotStarted;
+	private int committed;
+	private int failed;
+	private Throwable failure;
+	private final List<ChangeScript> ranNotRecorded = new ArrayList<ChangeScript>();
+
+	public ParallelDirectToDbApplier(List<DirectToDbApplier> appliers) {
+		this.appliers = appliers;
+	}
+
+	public void apply(List<ChangeScript> changeScript) {
+		int[] waitsFor = schedule(changeScript);
+		if (appliers.size() == 1 || waitsFor == null) {
+			appliers.get(0).apply(changeScript);
+			return;
+		}
+
+		this.scripts = changeScript;
+		this.waitsFor = waitsFor;
+		this.started = new boolean[changeScript.size()];
+		this.firstNotStarted = 0;
+		this.committed = 0;
+		this.failed = Integer.MAX_VALUE;
+		this.failure = null;
+		this.ranNotRecorded.clear();
+
+		Log.info("Applying scripts over {} connections", appliers.size());
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < appliers.size(); i++) {
+			final DirectToDbApplier applier = appliers.get(i);
+			applier.begin();
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					work(applier);
+				}
+			}, "dbdeploy-script-" + (i + 1));
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
+
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DbDeployException("Interrupted while applying change scripts", e);
+			}
+		}
+
+		if (failure != null) {
+			report();
+			if (failure instanceof RuntimeException) {
+				throw (RuntimeException) failure;
+			}
+			throw (Error) failure;
+		}
+	}
+
+	/**
+	 * @return for each script, the number of scripts that must have committed before it can start, or null if none
+	 * of the scripts have directives
+	 */
+	private static int[] schedule(List<ChangeScript> scripts) {
+		Map<Long, Integer> indexes = new HashMap<Long, Integer>();
+		int[] waitsFor = new int[scripts.size()];
+		boolean anyDirectives = false;
+		String group = null;
+		int groupStart = 0;
+
+		for (int i = 0; i < scripts.size(); i++) {
+			ChangeScript script = scripts.get(i);
+			indexes.put(script.getId(), i);
+			ScriptDirectives directives = ScriptDirectives.read(script);
+			anyDirectives |= !directives.isEmpty();
+
+			if (directives.getDependencies() != null) {
+				for (Long id : directives.getDependencies()) {
+					if (id >= script.getId()) {
+						throw new UsageException(script + " can only depend on earlier scripts, not #" + id);
+					}
+					/*
+					 * scripts not being applied now have been applied before
+					 */
+					Integer index = indexes.get(id);
+					if (index != null) {
+						waitsFor[i] = Math.max(waitsFor[i], index + 1);
+					}
+				}
+			} else if (directives.getGroup() != null) {
+				if (!directives.getGroup().equals(group)) {
+					groupStart = i;
+				}
+				waitsFor[i] = groupStart;
+			} else {
+				waitsFor[i] = i;
+			}
+			group = directives.getGroup();
+		}
+
+		return anyDirectives ? waitsFor : null;
+	}
+
+	private void work(DirectToDbApplier applier) {
+		while (true) {
+			int next = takeNext();
+			if (next < 0) {
+				return;
+			}
+
+			ChangeScript script = scripts.get(next);
+			try {
+				Log.info("Applying {}...", script);
+				applier.applyChangeScript(script);
+
+				if (!awaitTurn(next)) {
+					applier.rollbackTransaction();
+					continue;
+				}
+
+				applier.insertToSchemaVersionTable(script);
+				applier.commitTransaction();
+			} catch (RuntimeException e) {
+				applier.rollbackTransaction();
+				fail(next, e);
+				continue;
+			} catch (Error e) {
+				applier.rollbackTransaction();
+				fail(next, e);
+				continue;
+			}
+
+			lock.lock();
+			try {
+				committed = next + 1;
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * @return the lowest numbered script that is ready to start, waiting for one if need be, or -1 once there are no
+	 * more scripts to start
+	 */
+	private int takeNext() {
+		lock.lock();
+		try {
+			while (true) {
+				while (firstNotStarted < scripts.size() && started[firstNotStarted]) {
+					firstNotStarted++;
+				}
+				int limit = Math.min(scripts.size(), failed);
+				if (firstNotStarted >= limit) {
+					return -1;
+				}
+
+				for (int i = firstNotStarted; i < limit; i++) {
+					if (!started[i] && waitsFor[i] <= committed) {
+						started[i] = true;
+						return i;
+					}
+				}
+				changed.awaitUninterruptibly();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until all the scripts before this one have committed.
+	 *
+	 * @return false if one of them failed instead, in which case this script must be rolled back
+	 */
+	private boolean awaitTurn(int index) {
+		lock.lock();
+		try {
+			while (committed < index && failed > index) {
+				changed.awaitUninterruptibly();
+			}
+			if (failed < index) {
+				ranNotRecorded.add(scripts.get(index));
+				return false;
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void fail(int index, Throwable e) {
+		lock.lock();
+		try {
+			if (index < failed) {
+				failed = index;
+				failure = e;
+			}
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void report() {
+		DirectToDbApplier.reportRollback(committed == 0 ? null : scripts.get(committed - 1), scripts.get(failed));
+		if (!ranNotRecorded.isEmpty()) {
+			Log.error("These later scripts had already run, and are not recorded in the changelog: {}", ranNotRecorded);
+			Log.error("Their changes were rolled back, except for any DDL on a database that commits DDL as it runs,"
+					+ " such as Oracle or MySQL, which must be undone by hand before they are run again");
+		}
+	}
+}
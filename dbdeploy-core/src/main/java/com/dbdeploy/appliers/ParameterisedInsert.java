@@ -0,0 +1,263 @@
+package com.dbdeploy.appliers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single row INSERT of literal values, turned into sql with a bind parameter in place of each literal, so that the
+ * rows of a generated data script can be executed as batches of the same prepared statement instead of each being
+ * parsed by the database afresh.
+ * <p>
+ * Only the plainest form is recognised: <code>INSERT INTO table [(columns)] VALUES (literal, ...)</code> where each
+ * value is a number, a string in single quotes or NULL. NULLs are kept in the sql rather than bound, since not every
+ * driver can bind an untyped null. Anything else - expressions, multi-row VALUES, prefixed or backslash escaped
+ * strings - is left to be executed as written.
+ * <p>
+ * The literals are bound as the types of the columns they go into, as the database would have coerced them in place:
+ * a string into a date column, or a number into a character one; see {@link InsertBatch}.
+ */
+class ParameterisedInsert {
+	private final String sql;
+	private final String table;
+	private final List<String> columns;
+	private final int[] positions;
+	private final Object[] parameters;
+
+	private ParameterisedInsert(String sql, String table, List<String> columns, int[] positions,
+			Object[] parameters) {
+		this.sql = sql;
+		this.table = table;
+		this.columns = columns;
+		this.positions = positions;
+		this.parameters = parameters;
+	}
+
+	/**
+	 * @return the sql with bind parameters, the same for every row of the same shape into the same table
+	 */
+	String getSql() {
+		return sql;
+	}
+
+	Object[] getParameters() {
+		return parameters;
+	}
+
+	String getTable() {
+		return table;
+	}
+
+	/**
+	 * @return the columns named in the insert, or null if it gives a value for each column of the table in turn
+	 */
+	List<String> getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return for each parameter, the position among the columns of the value it stands for, counting from 0
+	 */
+	int[] getPositions() {
+		return positions;
+	}
+
+	/**
+	 * @return the insert with its literals as parameters, or null if the statement is not a simple enough INSERT
+	 */
+	static ParameterisedInsert parse(String statement) {
+		return new Parser(statement).parse();
+	}
+
+	private static class Parser {
+		private final String statement;
+		private int position;
+
+		Parser(String statement) {
+			this.statement = statement;
+		}
+
+		ParameterisedInsert parse() {
+			position = StatementBatch.skipWhitespaceAndComments(statement);
+			if (!keyword("INSERT") || !keyword("INTO")) {
+				return null;
+			}
+
+			String table = identifier();
+			if (table == null) {
+				return null;
+			}
+
+			String columns = "";
+			List<String> columnNames = null;
+			skipWhitespace();
+			if (peek() == '(') {
+				int end = statement.indexOf(')', position);
+				if (end < 0) {
+					return null;
+				}
+				columns = statement.substring(position, end + 1);
+				if (columns.indexOf('\'') >= 0 || columns.indexOf('(', 1) >= 0) {
+					return null;
+				}
+				columnNames = new ArrayList<String>();
+				for (String column : columns.substring(1, columns.length() - 1).split(",")) {
+					columnNames.add(column.trim());
+				}
+				columns = " " + columns;
+				position = end + 1;
+			}
+
+			if (!keyword("VALUES") || !symbol('(')) {
+				return null;
+			}
+
+			StringBuilder values = new StringBuilder();
+			List<Object> parameters = new ArrayList<Object>();
+			List<Integer> positions = new ArrayList<Integer>();
+			int count = 0;
+			do {
+				skipWhitespace();
+				if (values.length() > 0) {
+					values.append(", ");
+				}
+				if (keyword("NULL")) {
+					values.append("NULL");
+					count++;
+					continue;
+				}
+				Object literal = literal();
+				if (literal == null) {
+					return null;
+				}
+				values.append('?');
+				parameters.add(literal);
+				positions.add(count++);
+			} while (symbol(','));
+
+			if (!symbol(')')) {
+				return null;
+			}
+			skipWhitespace();
+			if (position < statement.length() || (columnNames != null && columnNames.size() != count)) {
+				return null;
+			}
+
+			int[] columnPositions = new int[positions.size()];
+			for (int i = 0; i < columnPositions.length; i++) {
+				columnPositions[i] = positions.get(i);
+			}
+			return new ParameterisedInsert("INSERT INTO " + table + columns + " VALUES (" + values + ")", table,
+					columnNames, columnPositions, parameters.toArray());
+		}
+
+		private Object literal() {
+			char c = peek();
+			if (c == '\'') {
+				return string();
+			}
+			if (c == '-' || c == '+' || c == '.' || Character.isDigit(c)) {
+				return number();
+			}
+			return null;
+		}
+
+		private String string() {
+			StringBuilder value = new StringBuilder();
+			position++;
+			while (position < statement.length()) {
+				char c = statement.charAt(position++);
+				if (c == '\\') {
+					return null;
+				}
+				if (c == '\'') {
+					if (peek() != '\'') {
+						return value.toString();
+					}
+					position++;
+				}
+				value.append(c);
+			}
+			return null;
+		}
+
+		private Number number() {
+			int start = position;
+			if (peek() == '-' || peek() == '+') {
+				position++;
+			}
+			boolean integral = true;
+			while (position < statement.length()) {
+				char c = statement.charAt(position);
+				if (Character.isDigit(c)) {
+					position++;
+				} else if (c == '.' || c == 'e' || c == 'E') {
+					integral = false;
+					position++;
+					if ((c == 'e' || c == 'E') && (peek() == '-' || peek() == '+')) {
+						position++;
+					}
+				} else {
+					break;
+				}
+			}
+
+			String text = statement.substring(start, position);
+			if (text.startsWith("+")) {
+				text = text.substring(1);
+			}
+			try {
+				if (integral && text.length() < 19) {
+					return Long.valueOf(text);
+				}
+				return new BigDecimal(text);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		private String identifier() {
+			skipWhitespace();
+			int start = position;
+			while (position < statement.length()) {
+				char c = statement.charAt(position);
+				if (Character.isLetterOrDigit(c) || "_$#.\"`[]".indexOf(c) >= 0) {
+					position++;
+				} else {
+					break;
+				}
+			}
+			return position > start ? statement.substring(start, position) : null;
+		}
+
+		private boolean keyword(String keyword) {
+			skipWhitespace();
+			int end = position + keyword.length();
+			if (statement.regionMatches(true, position, keyword, 0, keyword.length())
+					&& (end == statement.length() || !Character.isLetterOrDigit(statement.charAt(end)))) {
+				position = end;
+				return true;
+			}
+			return false;
+		}
+
+		private boolean symbol(char symbol) {
+			skipWhitespace();
+			if (peek() == symbol) {
+				position++;
+				return true;
+			}
+			return false;
+		}
+
+		private char peek() {
+			return position < statement.length() ? statement.charAt(position) : 0;
+		}
+
+		private void skipWhitespace() {
+			while (position < statement.length() && Character.isWhitespace(statement.charAt(position))) {
+				position++;
+			}
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Reads and splits the scripts after the one being applied on worker threads, so that the database is not left idle
+ * while the next script is read and split.
+ * <p>
+ * Scripts are handed out strictly in order by {@link #next()}. Besides the script being applied, at most
+ * <code>depth</code> further scripts are worked on at a time, and each worker stops once it is
+ * <code>capacity</code> statements ahead of the applier, so the memory used stays bounded however large the scripts.
+ * Any exception from reading or splitting a script is thrown by its iterator at the point the applier reaches it, as
+ * if the script had been split on the spot. Data scripts are not split: their iterators are empty, and the applier
+ * loads them itself.
+ */
+abstract class ParseAhead {
+	private static final Object END = new Object();
+
+	private final Iterator<ChangeScript> scripts;
+	private final int capacity;
+	private final ExecutorService executor;
+	private final LinkedList<ScriptStatements> inProgress = new LinkedList<ScriptStatements>();
+
+	ParseAhead(List<ChangeScript> scripts, int depth, int capacity) {
+		this.scripts = scripts.iterator();
+		this.capacity = capacity;
+		this.executor = Executors.newFixedThreadPool(depth + 1, new ThreadFactory() {
+			private int count;
+
+			public synchronized Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "dbdeploy-parse-" + ++count);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		for (int i = 0; i <= depth; i++) {
+			startNext();
+		}
+	}
+
+	/**
+	 * Splits the content of a script, on a worker thread.
+	 */
+	protected abstract Iterator<String> split(ChangeScript script, Reader content);
+
+	/**
+	 * @return the statements of the next script, in the order the scripts were given
+	 */
+	Iterator<String> next() {
+		ScriptStatements statements = inProgress.removeFirst();
+		startNext();
+		return statements;
+	}
+
+	/**
+	 * Abandons the work on any scripts not yet applied.
+	 */
+	void close() {
+		executor.shutdownNow();
+	}
+
+	private void startNext() {
+		if (scripts.hasNext()) {
+			ScriptStatements statements = new ScriptStatements(scripts.next());
+			inProgress.add(statements);
+			executor.execute(statements);
+		}
+	}
+
+	private class ScriptStatements implements Runnable, Iterator<String> {
+		private final ChangeScript script;
+		private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(capacity);
+		private Object next;
+
+		ScriptStatements(ChangeScript script) {
+			this.script = script;
+		}
+
+		public void run() {
+			try {
+				if (script.isDataScript()) {
+					queue.put(END);
+					return;
+				}
+				Reader content = script.getContentReader();
+				try {
+					Iterator<String> statements = split(script, content);
+					while (statements.hasNext()) {
+						queue.put(statements.next());
+					}
+				} finally {
+					try {
+						content.close();
+					} catch (IOException e) {
+						// ignore
+					}
+				}
+				queue.put(END);
+			} catch (InterruptedException e) {
+				// abandoned
+			} catch (Throwable t) {
+				try {
+					queue.put(t);
+				} catch (InterruptedException e) {
+					// abandoned
+				}
+			}
+		}
+
+		public boolean hasNext() {
+			if (next == null) {
+				try {
+					next = queue.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new DbDeployException("Interrupted while waiting for the statements of " + script, e);
+				}
+			}
+
+			if (next instanceof RuntimeException) {
+				throw (RuntimeException) next;
+			}
+			if (next instanceof Error) {
+				throw (Error) next;
+			}
+			if (next instanceof Throwable) {
+				throw new DbDeployException("Failed to read change script " + script, (Throwable) next);
+			}
+			return next != END;
+		}
+
+		public String next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			String statement = (String) next;
+			next = null;
+			return statement;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
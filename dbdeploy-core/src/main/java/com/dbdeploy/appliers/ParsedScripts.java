@@ -0,0 +1,84 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.database.ParseCache;
+import com.dbdeploy.database.QueryStatementSplitter;
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The statements of each change script, split the first time they are asked for and kept in memory from then on, for
+ * when the same scripts are applied to several databases at once. If several threads ask for a script at the same
+ * time, one splits it and the others wait for the result.
+ */
+public class ParsedScripts {
+	private final QueryStatementSplitter splitter;
+	private final ParseCache parseCache;
+	private final ConcurrentMap<ChangeScript, FutureTask<List<String>>> statements =
+			new ConcurrentHashMap<ChangeScript, FutureTask<List<String>>>();
+
+	/**
+	 * @param parseCache may be null
+	 */
+	public ParsedScripts(QueryStatementSplitter splitter, ParseCache parseCache) {
+		this.splitter = splitter;
+		this.parseCache = parseCache;
+	}
+
+	public List<String> getStatements(final ChangeScript script) {
+		FutureTask<List<String>> task = statements.get(script);
+		if (task == null) {
+			FutureTask<List<String>> created = new FutureTask<List<String>>(new Callable<List<String>>() {
+				public List<String> call() {
+					return split(script);
+				}
+			});
+			task = statements.putIfAbsent(script, created);
+			if (task == null) {
+				task = created;
+				created.run();
+			}
+		}
+
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new DbDeployException("Failed to split change script " + script, e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DbDeployException("Interrupted while waiting for change script " + script + " to be split", e);
+		}
+	}
+
+	private List<String> split(ChangeScript script) {
+		Reader content = script.getContentReader();
+		try {
+			Iterator<String> iterator = parseCache == null ? splitter.iterate(content)
+					: parseCache.iterate(script, splitter, content);
+			List<String> result = new ArrayList<String>();
+			while (iterator.hasNext()) {
+				result.add(iterator.next());
+			}
+			return result;
+		} finally {
+			try {
+				content.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+}
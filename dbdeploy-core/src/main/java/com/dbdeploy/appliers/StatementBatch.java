@@ -0,0 +1,122 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.database.changelog.QueryExecuter;
+import com.dbdeploy.exceptions.ChangeScriptFailedException;
+import com.dbdeploy.metrics.Metrics;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consecutive data manipulation statements of a change script, sent to the database together as one JDBC batch
+ * rather than one round trip each. Anything else - DDL, queries, procedure calls - ends the batch, so that the
+ * statements of a script still run in the order they were written.
+ */
+class StatementBatch {
+	private static final String[] BATCHABLE_KEYWORDS = { "INSERT", "UPDATE", "DELETE", "MERGE" };
+
+	private final QueryExecuter queryExecuter;
+	private final ChangeScript script;
+	private final int size;
+	private final List<String> statements;
+	private int firstStatementNumber;
+
+	StatementBatch(QueryExecuter queryExecuter, ChangeScript script, int size) {
+		this.queryExecuter = queryExecuter;
+		this.script = script;
+		this.size = size;
+		this.statements = new ArrayList<String>(size);
+	}
+
+	/**
+	 * Adds a statement, executing the batch once it is full.
+	 *
+	 * @param statementNumber the position of the statement in its script, counting from 1
+	 */
+	void add(int statementNumber, String statement) {
+		if (statements.isEmpty()) {
+			firstStatementNumber = statementNumber;
+		}
+		statements.add(statement);
+		if (statements.size() >= size) {
+			flush();
+		}
+	}
+
+	/**
+	 * Executes the statements added since the last flush, if any.
+	 */
+	void flush() {
+		if (statements.isEmpty()) {
+			return;
+		}
+
+		try {
+			long start = System.nanoTime();
+			queryExecuter.executeBatch(statements);
+			Metrics.STATEMENT_TIME.record(Metrics.since(start) / statements.size(), statements.size());
+			Metrics.STATEMENTS_EXECUTED.add(statements.size());
+		} catch (BatchUpdateException e) {
+			int failed = failedIndex(e, statements.size());
+			throw new ChangeScriptFailedException(e, script, firstStatementNumber + failed, statements.get(failed));
+		} catch (SQLException e) {
+			throw new ChangeScriptFailedException(e, script, firstStatementNumber, statements.get(0));
+		} finally {
+			statements.clear();
+		}
+	}
+
+	/**
+	 * Drivers either stop at the first failure, in which case the update counts cover only the statements before it,
+	 * or carry on and mark each failure with {@link Statement#EXECUTE_FAILED}.
+	 */
+	static int failedIndex(BatchUpdateException e, int size) {
+		int[] updateCounts = e.getUpdateCounts();
+		if (updateCounts == null) {
+			return 0;
+		}
+		for (int i = 0; i < updateCounts.length; i++) {
+			if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+				return i;
+			}
+		}
+		return Math.min(updateCounts.length, size - 1);
+	}
+
+	/**
+	 * @return whether the statement is an INSERT, UPDATE, DELETE or MERGE, which can go in a batch
+	 */
+	static boolean isBatchable(String statement) {
+		int start = skipWhitespaceAndComments(statement);
+		for (String keyword : BATCHABLE_KEYWORDS) {
+			int end = start + keyword.length();
+			if (statement.regionMatches(true, start, keyword, 0, keyword.length())
+					&& (end == statement.length() || !Character.isLetterOrDigit(statement.charAt(end)))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static int skipWhitespaceAndComments(String statement) {
+		int i = 0;
+		while (i < statement.length()) {
+			if (Character.isWhitespace(statement.charAt(i))) {
+				i++;
+			} else if (statement.startsWith("--", i)) {
+				int end = statement.indexOf('\n', i);
+				i = end < 0 ? statement.length() : end + 1;
+			} else if (statement.startsWith("/*", i)) {
+				int end = statement.indexOf("*/", i + 2);
+				i = end < 0 ? statement.length() : end + 2;
+			} else {
+				break;
+			}
+		}
+		return i;
+	}
+}
@@ -0,0 +1,53 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.exceptions.DbDeployException;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A running SHA-1 hash of the statements of a script so far, which identifies not just a statement but everything
+ * before it: a checkpoint only matches if none of the statements up to it have changed.
+ */
+class StatementHash {
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final MessageDigest digest;
+
+	StatementHash() {
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new DbDeployException("SHA-1 is not available", e);
+		}
+	}
+
+	void add(String statement) {
+		try {
+			digest.update(statement.getBytes("UTF-8"));
+			digest.update((byte) 0);
+		} catch (UnsupportedEncodingException e) {
+			throw new DbDeployException("UTF-8 is not available", e);
+		}
+	}
+
+	/**
+	 * @return the hash of the statements added so far, in hex
+	 */
+	String get() {
+		byte[] hash;
+		try {
+			hash = ((MessageDigest) digest.clone()).digest();
+		} catch (CloneNotSupportedException e) {
+			throw new DbDeployException("SHA-1 digest cannot be copied", e);
+		}
+
+		char[] hex = new char[hash.length * 2];
+		for (int i = 0; i < hash.length; i++) {
+			hex[i * 2] = HEX[(hash[i] >> 4) & 0xf];
+			hex[i * 2 + 1] = HEX[hash[i] & 0xf];
+		}
+		return new String(hex);
+	}
+}
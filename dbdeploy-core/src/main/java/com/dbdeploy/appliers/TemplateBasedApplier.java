@@ -64,6 +64,7 @@ public class TemplateBasedApplier implements ChangeScriptApplier {
 
 			try {
 				Template template = configuration.getTemplate(filename);
+				rejectDataScripts(changeScripts);
 				template.process(model, writer);
 			} finally {
 				writer.close();
@@ -71,11 +72,22 @@ public class TemplateBasedApplier implements ChangeScriptApplier {
 		} catch (FileNotFoundException ex) {
 			throw new UsageException("Could not find template named " + filename + "\n" +
 					"Check that you have got the name of the database syntax correct.", ex);
+		} catch (UsageException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	private static void rejectDataScripts(List<ChangeScript> changeScripts) {
+		for (ChangeScript script : changeScripts) {
+			if (script.isDataScript()) {
+				throw new UsageException("Data change script " + script + " can only be applied directly to the database,"
+						+ " not written to an output file");
+			}
+		}
+	}
+
 	protected String getTemplateQualifier() {
 		return "apply";
 	}
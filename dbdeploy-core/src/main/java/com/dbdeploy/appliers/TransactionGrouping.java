@@ -0,0 +1,49 @@
+package com.dbdeploy.appliers;
+
+/**
+ * How many change scripts go into each transaction when applying them directly to the database. Grouping scripts
+ * saves a commit per script, but a failure then also rolls back the scripts applied since the last commit, and only
+ * databases with transactional DDL (such as PostgreSQL or HSQLDB) can roll back schema changes.
+ */
+public enum TransactionGrouping {
+	/**
+	 * Commit after each script
+	 */
+	script {
+		public boolean isCommitDue(int uncommittedScripts, long millisSinceCommit, long size) {
+			return true;
+		}
+	},
+
+	/**
+	 * Commit after every <i>size</i> scripts
+	 */
+	count {
+		public boolean isCommitDue(int uncommittedScripts, long millisSinceCommit, long size) {
+			return uncommittedScripts >= size;
+		}
+	},
+
+	/**
+	 * Commit after the first script to finish once <i>size</i> milliseconds have passed since the last commit
+	 */
+	time {
+		public boolean isCommitDue(int uncommittedScripts, long millisSinceCommit, long size) {
+			return millisSinceCommit >= size;
+		}
+	},
+
+	/**
+	 * Apply all the scripts in one transaction
+	 */
+	deployment {
+		public boolean isCommitDue(int uncommittedScripts, long millisSinceCommit, long size) {
+			return false;
+		}
+	};
+
+	/**
+	 * Asked after each script has been applied.
+	 */
+	public abstract boolean isCommitDue(int uncommittedScripts, long millisSinceCommit, long size);
+}
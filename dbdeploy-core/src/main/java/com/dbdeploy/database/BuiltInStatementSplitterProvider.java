@@ -0,0 +1,16 @@
+package com.dbdeploy.database;
+
+/**
+ * The statement splitters that come with dbdeploy: the Oracle splitter for "ora", and a {@link DialectStatementSplitter}
+ * for each of the other syntaxes dbdeploy has templates for.
+ */
+public class BuiltInStatementSplitterProvider implements StatementSplitterProvider {
+	public QueryStatementSplitter createSplitter(String dbms) {
+		if ("ora".equals(dbms)) {
+			return new QueryStatementSplitterOracle();
+		}
+
+		Dialect dialect = Dialect.forDbms(dbms);
+		return dialect == null ? null : new DialectStatementSplitter(dialect);
+	}
+}
@@ -1,6 +1,8 @@
 package com.dbdeploy.database;
 
-import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Enumeration listing used/relevant DDL elements together with a property {@link #encapsulatesPlSqlBlock}
@@ -29,21 +31,20 @@ public enum DdlObjectType {
         this.encapsulatesPlSqlBlock = encapsulatesPlSql;
     }
 
-    public static DdlObjectType getByNameOrOTHER(String objectName) {
-        for (DdlObjectType e : EnumSet.allOf(DdlObjectType.class)) {
-            if (e.getObjectName().equalsIgnoreCase(objectName)) {
-                return e;
-            }
+    private static final Map<String, DdlObjectType> BY_NAME = new HashMap<String, DdlObjectType>();
+
+    static {
+        for (DdlObjectType e : values()) {
+            BY_NAME.put(e.getObjectName(), e);
         }
-        return OTHER;
+    }
+
+    public static DdlObjectType getByNameOrOTHER(String objectName) {
+        DdlObjectType e = objectName == null ? null : BY_NAME.get(objectName.toUpperCase(Locale.ENGLISH));
+        return e == null ? OTHER : e;
     }
 
     public static boolean encapsulatesPlSqlBlock(String objectName) {
-        for (DdlObjectType e : EnumSet.allOf(DdlObjectType.class)) {
-            if (e.getObjectName().equalsIgnoreCase(objectName)) {
-                return e.getEncapsulatesPlSqlBlock();
-            }
-        }
-        return OTHER.getEncapsulatesPlSqlBlock();
+        return getByNameOrOTHER(objectName).getEncapsulatesPlSqlBlock();
     }
 }
@@ -0,0 +1,367 @@
+package com.dbdeploy.database;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Single-pass scanner behind {@link QueryStatementSplitter} for the {@link DelimiterType#normal} and
+ * {@link DelimiterType#row} delimiter types.
+ * <p>
+ * Lines are right-trimmed, empty lines are skipped and line breaks are replaced by the configured {@link LineEnding},
+ * exactly as before; a statement ends at a line that ends with (normal) or consists of (row) the delimiter. Delimiters
+ * inside quoted literals, quoted identifiers and comments are ignored, and quoted literals spanning several lines are
+ * passed on exactly as written. For MySQL a backslash escapes the next character of a single-quoted literal, as in
+ * its dumps (<code>'it\'s'</code>).
+ * <p>
+ * Where a quote is still open at the end of the script, or after {@link #MAX_QUOTED_CHARS} characters, the current
+ * statement and everything after it are split by the end-of-line rule alone, ignoring quotes, a line at a time; so a
+ * stray quote in a large data script does not leave the rest of it to be held in memory.
+ * <p>
+ * Characters are appended straight to the current statement as they are read, so the only strings created are the
+ * statements themselves.
+ */
+final class DelimitedStatementScanner extends StatementIterator {
+	static final int MAX_QUOTED_CHARS = 1024 * 1024;
+
+	private static final int CODE = 0;
+	private static final int SINGLE_QUOTED = 1;
+	private static final int DOUBLE_QUOTED = 2;
+	private static final int LINE_COMMENT = 3;
+	private static final int BLOCK_COMMENT = 4;
+
+	private final LookaheadReader in;
+	private final String delimiter;
+	private final char delimiterEndChar;
+	private final DelimiterType delimiterType;
+	private final String lineEnding;
+	private final boolean backslashEscapes;
+
+	private final StringBuilder sql = new StringBuilder();
+	private int state = CODE;
+	private int quoteStart;
+
+	/*
+	 * once a quote is taken to be unterminated, statements are split by lines, first from what is in sql, starting at
+	 * replayed, and then from the input
+	 */
+	private boolean byLines;
+	private int replayed;
+
+	/*
+	 * positions within sql: start of the current line, end of its last non-whitespace character and end of the last
+	 * delimiter seen outside quotes and comments
+	 */
+	private int lineStart;
+	private int contentEnd;
+	private int delimiterEnd = -1;
+	private boolean lineHasCharacters;
+
+	DelimitedStatementScanner(Reader input, String delimiter, DelimiterType delimiterType, LineEnding lineEnding,
+			boolean backslashEscapes) {
+		this.in = new LookaheadReader(input);
+		this.delimiter = delimiter;
+		this.delimiterEndChar = delimiter.length() == 0 ? 0 : delimiter.charAt(delimiter.length() - 1);
+		this.delimiterType = delimiterType;
+		this.lineEnding = lineEnding.get();
+		this.backslashEscapes = backslashEscapes;
+	}
+
+	@Override
+	protected String computeNext() throws IOException {
+		if (byLines) {
+			return nextByLines();
+		}
+
+		while (in.peek(0) >= 0) {
+			if (state == SINGLE_QUOTED || state == DOUBLE_QUOTED) {
+				quotedRun();
+				if (state != CODE && sql.length() - quoteStart > MAX_QUOTED_CHARS) {
+					byLines = true;
+					return nextByLines();
+				}
+				continue;
+			}
+			if (ordinaryRun()) {
+				continue;
+			}
+
+			int c = in.read();
+			if (c == '\n' || c == '\r') {
+				if (state == LINE_COMMENT) {
+					state = CODE;
+				}
+				if (endOfLine()) {
+					return statement();
+				}
+				continue;
+			}
+
+			if (!lineHasCharacters) {
+				startLine();
+			}
+			sql.append((char) c);
+
+			if (state == CODE) {
+				code((char) c);
+			} else if (state == BLOCK_COMMENT) {
+				contentEnd = sql.length();
+				if (c == '*' && in.peek(0) == '/') {
+					sql.append('/');
+					in.skip(1);
+					contentEnd = sql.length();
+					state = CODE;
+				}
+			}
+		}
+
+		if (state == SINGLE_QUOTED || state == DOUBLE_QUOTED) {
+			byLines = true;
+			return nextByLines();
+		}
+
+		if (endOfLine()) {
+			return statement();
+		}
+
+		if (sql.length() > 0) {
+			String statement = sql.toString();
+			sql.setLength(0);
+			return statement;
+		}
+		return null;
+	}
+
+	/**
+	 * Copies buffered characters up to (and including) the closing quote, line breaks and all.
+	 */
+	private void quotedRun() throws IOException {
+		if (!lineHasCharacters) {
+			startLine();
+		}
+		char quote = state == SINGLE_QUOTED ? '\'' : '"';
+		boolean escapes = backslashEscapes && quote == '\'';
+		if (escapes) {
+			// so that a backslash and the character it escapes are buffered together
+			in.peek(1);
+		}
+		char[] buffer = in.buffer();
+		int start = in.position();
+		int limit = in.limit();
+
+		int i = start;
+		while (i < limit && buffer[i] != quote) {
+			if (escapes && buffer[i] == '\\') {
+				if (i + 1 == limit) {
+					if (i == start) {
+						// the script ends in the backslash
+						i++;
+					}
+					// otherwise the escaped character is read in on the next run
+					break;
+				}
+				i++;
+			}
+			i++;
+		}
+		if (i < limit && buffer[i] == quote) {
+			i++;
+			state = CODE;
+		}
+
+		sql.append(buffer, start, i - start);
+		contentEnd = sql.length();
+		in.skip(i - start);
+	}
+
+	/**
+	 * Copies buffered characters up to the next one that may change the state of the scanner, keeping track of the
+	 * last non-whitespace character.
+	 *
+	 * @return false if the next character needs looking at on its own
+	 */
+	private boolean ordinaryRun() {
+		char[] buffer = in.buffer();
+		int start = in.position();
+		int limit = in.limit();
+
+		int i = start;
+		int lastContent = -1;
+		while (i < limit) {
+			char c = buffer[i];
+			if (c == '\n' || c == '\r' || isSpecial(c)) {
+				break;
+			}
+			if (!isWhitespace(c)) {
+				lastContent = i;
+			}
+			i++;
+		}
+		if (i == start) {
+			return false;
+		}
+
+		if (!lineHasCharacters) {
+			startLine();
+		}
+		int offset = sql.length() - start;
+		sql.append(buffer, start, i - start);
+		if (lastContent >= 0) {
+			contentEnd = offset + lastContent + 1;
+		}
+		in.skip(i - start);
+		return true;
+	}
+
+	private boolean isSpecial(char c) {
+		switch (state) {
+		case CODE:
+			return c == '\'' || c == '"' || c == '-' || c == '/' || c == delimiterEndChar;
+		case BLOCK_COMMENT:
+			return c == '*';
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isWhitespace(char c) {
+		return (c <= ' ' || c >= 0x80) && Character.isWhitespace(c);
+	}
+
+	private void code(char c) throws IOException {
+		markContent(c);
+
+		if (c == '\'') {
+			state = SINGLE_QUOTED;
+			quoteStart = sql.length() - 1;
+		} else if (c == '"') {
+			state = DOUBLE_QUOTED;
+			quoteStart = sql.length() - 1;
+		} else if (c == '-' && in.peek(0) == '-') {
+			state = LINE_COMMENT;
+		} else if (c == '/' && in.peek(0) == '*') {
+			sql.append('*');
+			in.skip(1);
+			contentEnd = sql.length();
+			state = BLOCK_COMMENT;
+		} else if (c == delimiterEndChar && endsWithDelimiter()) {
+			delimiterEnd = sql.length();
+		}
+	}
+
+	private void markContent(char c) {
+		if (!isWhitespace(c)) {
+			contentEnd = sql.length();
+		}
+	}
+
+	private void startLine() {
+		if (sql.length() > 0) {
+			sql.append(lineEnding);
+		}
+		lineStart = sql.length();
+		contentEnd = lineStart;
+		lineHasCharacters = true;
+	}
+
+	/**
+	 * Trims the line just finished and decides whether it terminates the current statement.
+	 *
+	 * @return true if it does
+	 */
+	private boolean endOfLine() {
+		if (!lineHasCharacters) {
+			return false;
+		}
+		lineHasCharacters = false;
+		sql.setLength(contentEnd);
+
+		if (state != CODE || delimiterEnd != contentEnd) {
+			return false;
+		}
+		switch (delimiterType) {
+		case normal:
+			return true;
+		case row:
+			return delimiterEnd - delimiter.length() == lineStart;
+		default:
+			return false;
+		}
+	}
+
+	private String statement() {
+		String statement = sql.substring(0, sql.length() - delimiter.length());
+		sql.setLength(0);
+		delimiterEnd = -1;
+		return statement;
+	}
+
+	/**
+	 * Splits as statements were split before quotes were recognised: at each line that ends with (normal) or consists
+	 * of (row) the delimiter.
+	 */
+	private String nextByLines() throws IOException {
+		StringBuilder statement = new StringBuilder();
+		String line;
+		while ((line = readLine()) != null) {
+			int contentEnd = line.length();
+			while (contentEnd > 0 && Character.isWhitespace(line.charAt(contentEnd - 1))) {
+				contentEnd--;
+			}
+			if (contentEnd == 0) {
+				continue;
+			}
+			line = line.substring(0, contentEnd);
+
+			if (statement.length() > 0) {
+				statement.append(lineEnding);
+			}
+			statement.append(line);
+			if (delimiterType.matches(line, delimiter)) {
+				return statement.substring(0, statement.length() - delimiter.length());
+			}
+		}
+		return statement.length() > 0 ? statement.toString() : null;
+	}
+
+	/**
+	 * @return the next line of what is left in sql and then of the input, or null at the end of both
+	 */
+	private String readLine() throws IOException {
+		StringBuilder line = new StringBuilder();
+		boolean read = false;
+		int c;
+		while ((c = nextChar()) >= 0) {
+			read = true;
+			if (c == '\n' || c == '\r') {
+				return line.toString();
+			}
+			line.append((char) c);
+		}
+		return read ? line.toString() : null;
+	}
+
+	private int nextChar() throws IOException {
+		if (replayed < sql.length()) {
+			return sql.charAt(replayed++);
+		}
+		if (sql.length() > 0) {
+			sql.setLength(0);
+			sql.trimToSize();
+			replayed = 0;
+		}
+		return in.read();
+	}
+
+	private boolean endsWithDelimiter() {
+		int start = sql.length() - delimiter.length();
+		if (start < 0) {
+			return false;
+		}
+		for (int i = 0; i < delimiter.length() - 1; i++) {
+			if (sql.charAt(start + i) != delimiter.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -26,6 +26,16 @@ public enum DelimiterType {
 		public boolean matches(String line, String delimiter) {
 			return false;
 		}
+	},
+
+	/**
+	 * Delimiters will be determined by parsing the script with the splitter for the dbms, see
+	 * {@link StatementSplitterProvider}
+	 */
+	parsed {
+		public boolean matches(String line, String delimiter) {
+			return false;
+		}
 	};
 
 	public abstract boolean matches(String line, String delimiter);
@@ -0,0 +1,61 @@
+package com.dbdeploy.database;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The lexical rules {@link DialectStatementLexer} needs to know about for each dbms syntax.
+ */
+enum Dialect {
+	/**
+	 * SQL Server and Sybase: statements are sent in batches, ended by "GO" on a line of its own
+	 */
+	transact_sql(new String[] { "mssql", "syb-ase" }, Feature.GO_BATCHES, Feature.BRACKET_IDENTIFIERS,
+			Feature.NESTED_COMMENTS),
+
+	/**
+	 * PostgreSQL: $$ and $tag$ quoting, E'' strings with backslash escapes, nested comments
+	 */
+	postgresql(new String[] { "pgsql" }, Feature.DOLLAR_QUOTES, Feature.ESCAPE_STRINGS, Feature.NESTED_COMMENTS),
+
+	/**
+	 * MySQL: backslash escapes, backquoted identifiers, # comments, and the client's DELIMITER command
+	 */
+	mysql(new String[] { "mysql" }, Feature.BACKSLASH_ESCAPES, Feature.BACKQUOTED_IDENTIFIERS, Feature.HASH_COMMENTS,
+			Feature.DELIMITER_COMMAND),
+
+	/**
+	 * DB2: the command line processor's --#SET TERMINATOR directive
+	 */
+	db2(new String[] { "db2" }, Feature.TERMINATOR_DIRECTIVE),
+
+	hsql(new String[] { "hsql" });
+
+	enum Feature {
+		GO_BATCHES, BRACKET_IDENTIFIERS, NESTED_COMMENTS, DOLLAR_QUOTES, ESCAPE_STRINGS, BACKSLASH_ESCAPES,
+		BACKQUOTED_IDENTIFIERS, HASH_COMMENTS, DELIMITER_COMMAND, TERMINATOR_DIRECTIVE
+	}
+
+	private final List<String> dbmsNames;
+	private final Set<Feature> features;
+
+	private Dialect(String[] dbmsNames, Feature... features) {
+		this.dbmsNames = Arrays.asList(dbmsNames);
+		this.features = features.length == 0 ? EnumSet.noneOf(Feature.class) : EnumSet.copyOf(Arrays.asList(features));
+	}
+
+	boolean has(Feature feature) {
+		return features.contains(feature);
+	}
+
+	static Dialect forDbms(String dbms) {
+		for (Dialect dialect : values()) {
+			if (dialect.dbmsNames.contains(dbms)) {
+				return dialect;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,338 @@
+package com.dbdeploy.database;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import static com.dbdeploy.database.Dialect.Feature.*;
+
+/**
+ * Single-pass scanner behind {@link DialectStatementSplitter}. Quoted literals, quoted identifiers and comments are
+ * copied through whole, so nothing inside them can end a statement; outside them the scanner looks for the delimiter,
+ * or for a batch separator or directive at the start of a line.
+ */
+final class DialectStatementLexer extends StatementIterator {
+	private static final int MAX_DIRECTIVE_LENGTH = 256;
+
+	private final LookaheadReader in;
+	private final String lineEnding;
+	private final boolean batches;
+	private final boolean brackets;
+	private final boolean nestedComments;
+	private final boolean dollarQuotes;
+	private final boolean escapeStrings;
+	private final boolean backslashEscapes;
+	private final boolean backquotes;
+	private final boolean hashComments;
+	private final boolean delimiterCommand;
+	private final boolean terminatorDirective;
+
+	private String delimiter;
+	private final StringBuilder sql = new StringBuilder();
+	/*
+	 * whether sql holds anything besides whitespace and comments
+	 */
+	private boolean hasCode;
+	private boolean lineStart = true;
+
+	/*
+	 * the batch just ended by GO, to be returned as many times as the count after the GO says
+	 */
+	private String repeated;
+	private int repeats;
+
+	DialectStatementLexer(Reader input, Dialect dialect, String delimiter, LineEnding lineEnding) {
+		this.in = new LookaheadReader(input);
+		this.delimiter = delimiter;
+		this.lineEnding = lineEnding.get();
+		this.batches = dialect.has(GO_BATCHES);
+		this.brackets = dialect.has(BRACKET_IDENTIFIERS);
+		this.nestedComments = dialect.has(NESTED_COMMENTS);
+		this.dollarQuotes = dialect.has(DOLLAR_QUOTES);
+		this.escapeStrings = dialect.has(ESCAPE_STRINGS);
+		this.backslashEscapes = dialect.has(BACKSLASH_ESCAPES);
+		this.backquotes = dialect.has(BACKQUOTED_IDENTIFIERS);
+		this.hashComments = dialect.has(HASH_COMMENTS);
+		this.delimiterCommand = dialect.has(DELIMITER_COMMAND);
+		this.terminatorDirective = dialect.has(TERMINATOR_DIRECTIVE);
+	}
+
+	@Override
+	protected String computeNext() throws IOException {
+		if (repeats > 0) {
+			repeats--;
+			return repeated;
+		}
+
+		int c;
+		while ((c = in.peek(0)) >= 0) {
+			if (c == '\n' || c == '\r') {
+				in.skip(c == '\r' && in.peek(1) == '\n' ? 2 : 1);
+				sql.append(lineEnding);
+				lineStart = true;
+				continue;
+			}
+
+			if (isWhitespace(c)) {
+				sql.append((char) c);
+				in.skip(1);
+				continue;
+			}
+
+			if (lineStart) {
+				lineStart = false;
+				String line = directiveLine(c);
+				if (line != null && directive(line)) {
+					if (repeats > 0) {
+						repeats--;
+						return repeated;
+					}
+					continue;
+				}
+			}
+
+			if (!batches && delimiter.length() > 0 && c == delimiter.charAt(0) && in.startsWith(delimiter)) {
+				in.skip(delimiter.length());
+				String statement = end();
+				if (statement != null) {
+					return statement;
+				}
+				continue;
+			}
+
+			token((char) c);
+		}
+
+		return end();
+	}
+
+	private void token(char c) throws IOException {
+		if (c == '\'') {
+			boolean escapes = backslashEscapes || escapeStrings && isEscapeStringPrefix();
+			hasCode = true;
+			quoted('\'', escapes);
+		} else if (c == '"') {
+			hasCode = true;
+			quoted('"', backslashEscapes);
+		} else if (c == '`' && backquotes) {
+			hasCode = true;
+			quoted('`', false);
+		} else if (c == '[' && brackets) {
+			hasCode = true;
+			quoted(']', false);
+		} else if (c == '$' && dollarQuotes && !endsWithIdentifierPart()) {
+			hasCode = true;
+			int tagLength = dollarTagLength();
+			if (tagLength > 0) {
+				dollarQuoted(tagLength);
+			} else {
+				copy(1);
+			}
+		} else if (c == '-' && in.peek(1) == '-' && (!hashComments || isWhitespaceOrEnd(in.peek(2)))) {
+			lineComment();
+		} else if (c == '#' && hashComments) {
+			lineComment();
+		} else if (c == '/' && in.peek(1) == '*') {
+			if (delimiterCommand && in.peek(2) == '!') {
+				/*
+				 * mysql runs what is inside comments starting with /*!
+				 */
+				hasCode = true;
+			}
+			blockComment();
+		} else {
+			hasCode = true;
+			copy(1);
+		}
+	}
+
+	/**
+	 * Copies a quoted literal or identifier, from the opening quote at the current position up to and including the
+	 * closing one. A doubled closing quote stands for itself.
+	 */
+	private void quoted(char close, boolean escapes) throws IOException {
+		copy(1);
+		int c;
+		while ((c = in.read()) >= 0) {
+			sql.append((char) c);
+			if (c == '\\' && escapes) {
+				if (in.peek(0) >= 0) {
+					copy(1);
+				}
+			} else if (c == close) {
+				if (in.peek(0) != close) {
+					return;
+				}
+				copy(1);
+			}
+		}
+	}
+
+	/**
+	 * @return the length of the $tag$ (or $$) at the current position, or 0 if the $ does not start one
+	 */
+	private int dollarTagLength() throws IOException {
+		int i = 1;
+		int c = in.peek(i);
+		if (c >= 0 && c != '$') {
+			if (!Character.isLetter(c) && c != '_') {
+				return 0;
+			}
+			while ((c = in.peek(i)) >= 0 && (Character.isLetterOrDigit(c) || c == '_')) {
+				i++;
+			}
+		}
+		return c == '$' ? i + 1 : 0;
+	}
+
+	private void dollarQuoted(int tagLength) throws IOException {
+		StringBuilder tag = new StringBuilder();
+		for (int i = 0; i < tagLength; i++) {
+			tag.append((char) in.peek(i));
+		}
+		copy(tagLength);
+
+		String closingTag = tag.toString();
+		int c;
+		while ((c = in.peek(0)) >= 0) {
+			if (c == '$' && in.startsWith(closingTag)) {
+				copy(tagLength);
+				return;
+			}
+			copy(1);
+		}
+	}
+
+	private void lineComment() throws IOException {
+		int c;
+		while ((c = in.peek(0)) >= 0 && c != '\n' && c != '\r') {
+			copy(1);
+		}
+	}
+
+	private void blockComment() throws IOException {
+		copy(2);
+		int depth = 1;
+		int c;
+		while ((c = in.peek(0)) >= 0) {
+			if (c == '*' && in.peek(1) == '/') {
+				copy(2);
+				if (--depth == 0) {
+					return;
+				}
+			} else if (c == '/' && in.peek(1) == '*' && nestedComments) {
+				copy(2);
+				depth++;
+			} else {
+				copy(1);
+			}
+		}
+	}
+
+	/**
+	 * @return the rest of the current line, if it may be a batch separator or directive, otherwise null
+	 */
+	private String directiveLine(int c) throws IOException {
+		boolean candidate = batches && (c == 'G' || c == 'g')
+				|| delimiterCommand && !hasCode && (c == 'D' || c == 'd')
+				|| terminatorDirective && c == '-';
+		if (!candidate) {
+			return null;
+		}
+
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; (c = in.peek(i)) >= 0 && c != '\n' && c != '\r'; i++) {
+			if (i == MAX_DIRECTIVE_LENGTH) {
+				return null;
+			}
+			line.append((char) c);
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Acts on the line at the current position if it is a batch separator or directive, consuming it. A batch
+	 * separator leaves the batch it ends in {@link #repeated}.
+	 *
+	 * @return false if the line is neither
+	 */
+	private boolean directive(String line) {
+		String[] words = StringUtils.split(line);
+
+		if (batches && words[0].equalsIgnoreCase("GO") && isBatchSeparator(words)) {
+			in.skip(line.length());
+			repeated = end();
+			repeats = repeated == null ? 0 : words.length > 1 && isCount(words[1]) ? Integer.parseInt(words[1]) : 1;
+			return true;
+		}
+
+		if (delimiterCommand && words.length >= 2 && words[0].equalsIgnoreCase("DELIMITER")) {
+			in.skip(line.length());
+			delimiter = words[1];
+			sql.setLength(0);
+			return true;
+		}
+
+		if (terminatorDirective && words.length >= 3 && words[0].equalsIgnoreCase("--#SET")
+				&& words[1].equalsIgnoreCase("TERMINATOR")) {
+			in.skip(line.length());
+			delimiter = words[2];
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * GO may be followed by a repeat count and a comment, but nothing else
+	 */
+	private static boolean isBatchSeparator(String[] words) {
+		int i = 1;
+		if (i < words.length && isCount(words[i])) {
+			i++;
+		}
+		return i == words.length || words[i].startsWith("--");
+	}
+
+	private static boolean isCount(String word) {
+		return word.length() <= 9 && StringUtils.isNumeric(word) && Integer.parseInt(word) > 0;
+	}
+
+	private String end() {
+		String statement = hasCode ? StringUtils.strip(sql.toString()) : null;
+		sql.setLength(0);
+		hasCode = false;
+		return statement;
+	}
+
+	private void copy(int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			sql.append((char) in.read());
+		}
+	}
+
+	private boolean isEscapeStringPrefix() {
+		int length = sql.length();
+		if (length == 0 || Character.toUpperCase(sql.charAt(length - 1)) != 'E') {
+			return false;
+		}
+		return length == 1 || !isIdentifierPart(sql.charAt(length - 2));
+	}
+
+	private boolean endsWithIdentifierPart() {
+		return sql.length() > 0 && isIdentifierPart(sql.charAt(sql.length() - 1));
+	}
+
+	private static boolean isIdentifierPart(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+
+	private static boolean isWhitespace(int c) {
+		return Character.isWhitespace(c);
+	}
+
+	private static boolean isWhitespaceOrEnd(int c) {
+		return c < 0 || Character.isWhitespace(c);
+	}
+}
@@ -0,0 +1,31 @@
+package com.dbdeploy.database;
+
+import java.io.Reader;
+import java.util.Iterator;
+
+/**
+ * Splits scripts written for a particular dbms, understanding its quoting and comment syntax, and its batch separator
+ * or delimiter commands where it has them. Created by {@link BuiltInStatementSplitterProvider}.
+ * <p>
+ * For SQL Server and Sybase each "GO" batch is returned as a single statement, so that it goes to the server in one
+ * round trip. Otherwise statements end at the delimiter (";" unless changed), which is dropped. Statements are
+ * returned as written apart from surrounding whitespace being trimmed and line breaks outside quotes and comments
+ * being replaced by the output line ending.
+ */
+public class DialectStatementSplitter extends QueryStatementSplitter {
+	private final Dialect dialect;
+
+	DialectStatementSplitter(Dialect dialect) {
+		this.dialect = dialect;
+	}
+
+	@Override
+	public Iterator<String> iterate(Reader input) {
+		return new DialectStatementLexer(input, dialect, getDelimiter(), getOutputLineEnding());
+	}
+
+	@Override
+	String getCacheKey() {
+		return super.getCacheKey() + ":" + dialect;
+	}
+}
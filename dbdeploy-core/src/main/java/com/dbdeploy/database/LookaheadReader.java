@@ -0,0 +1,118 @@
+package com.dbdeploy.database;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Buffers a {@link Reader} so that the statement splitters can look a few characters ahead of the current position
+ * without holding more of the script in memory than the buffer itself.
+ */
+final class LookaheadReader {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Reader reader;
+	private char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	private boolean eof;
+
+	LookaheadReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * @return the character <code>offset</code> places after the current position, or -1 if the end of the input
+	 *         comes first
+	 */
+	int peek(int offset) throws IOException {
+		if (position + offset >= limit && !fill(offset + 1)) {
+			return -1;
+		}
+		return buffer[position + offset];
+	}
+
+	int read() throws IOException {
+		int c = peek(0);
+		if (c >= 0) {
+			position++;
+		}
+		return c;
+	}
+
+	/**
+	 * Moves the current position on by <code>count</code> characters, which must already have been peeked.
+	 */
+	void skip(int count) {
+		position += count;
+	}
+
+	/*
+	 * direct access to the buffered characters, for scanners that consume runs of ordinary characters in bulk: the
+	 * characters from position() up to limit() stay valid until the next call that peeks or reads
+	 */
+
+	char[] buffer() {
+		return buffer;
+	}
+
+	int position() {
+		return position;
+	}
+
+	int limit() {
+		return limit;
+	}
+
+	boolean startsWith(String s) throws IOException {
+		if (!fill(s.length())) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if (buffer[position + i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	boolean startsWithIgnoreCase(String s) throws IOException {
+		if (!fill(s.length())) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if (Character.toUpperCase(buffer[position + i]) != Character.toUpperCase(s.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean fill(int required) throws IOException {
+		if (limit - position >= required) {
+			return true;
+		}
+		if (eof) {
+			return false;
+		}
+
+		System.arraycopy(buffer, position, buffer, 0, limit - position);
+		limit -= position;
+		position = 0;
+
+		if (required > buffer.length) {
+			char[] larger = new char[required];
+			System.arraycopy(buffer, 0, larger, 0, limit);
+			buffer = larger;
+		}
+
+		while (limit < required) {
+			int count = reader.read(buffer, limit, buffer.length - limit);
+			if (count < 0) {
+				eof = true;
+				return false;
+			}
+			limit += count;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,462 @@
+package com.dbdeploy.database;
+
+import com.dbdeploy.logging.Log;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Single-pass scanner behind {@link QueryStatementSplitterOracle}. Walks the script once, character by character,
+ * keeping track of quotes (including q-quotes), comments, SQL*Plus buffer executors ("/"), BEGIN/END depth and
+ * statement delimiters, and returns each statement as soon as it is complete.
+ * <p>
+ * Tokens outside of quoted literals are joined by a single space (as the previous regex based implementation did),
+ * whereas quoted literals are kept exactly as written. Only the statement currently being scanned is held in memory,
+ * so peak memory depends on the largest statement rather than on the size of the script.
+ *
+ * @author akenworthy
+ */
+final class OracleStatementLexer extends StatementIterator {
+
+	private enum Keyword {
+		CREATE, GRANT, BLOCK_BEGIN, BLOCK_END, DEFINITION_BEGIN, SIMPLE_OBJECT, OTHER
+	}
+
+	private static final int MAX_KEYWORD_LENGTH = 8;
+
+	/*
+	 * keywords bucketed by length, so that classifying a token is a bounded number of comparisons and needs no
+	 * intermediate string
+	 */
+	private static final String[][] KEYWORD_NAMES = new String[MAX_KEYWORD_LENGTH + 1][0];
+	private static final Keyword[][] KEYWORD_TYPES = new Keyword[MAX_KEYWORD_LENGTH + 1][0];
+
+	static {
+		register("CREATE", Keyword.CREATE);
+		register("GRANT", Keyword.GRANT);
+		register("END", Keyword.BLOCK_END);
+		register("AS", Keyword.DEFINITION_BEGIN);
+		for (SqlELementType e : SqlELementType.values()) {
+			if (e.getInitiatesPlSqlBlock()) {
+				register(e.getObjectName(), Keyword.BLOCK_BEGIN);
+			}
+		}
+		for (DdlObjectType e : DdlObjectType.values()) {
+			if (!e.getEncapsulatesPlSqlBlock()) {
+				register(e.getObjectName(), Keyword.SIMPLE_OBJECT);
+			}
+		}
+	}
+
+	private final LookaheadReader in;
+	private final String delimiter;
+	private final Queue<String> completed = new LinkedList<String>();
+	private boolean finished;
+
+	private final StringBuilder sql = new StringBuilder();
+	private char previous = '\n';
+
+	private boolean inWord;
+	private boolean wordPending;
+	private boolean wordQuoted;
+	private int wordStart;
+	private int lastDelimiterEnd = -1;
+
+	private boolean lineStart = true;
+	private boolean afterLineBreak;
+	private boolean lastWasDelimiter;
+	private boolean pendingSlash;
+	private boolean pendingSlashFollowedByWhitespace;
+
+	private int openBlocks;
+	private int openStatement;
+	private boolean definitionStarted;
+	private boolean isSimpleSqlBlock;
+
+	OracleStatementLexer(Reader input, String delimiter) {
+		this.in = new LookaheadReader(input);
+		this.delimiter = delimiter;
+	}
+
+	@Override
+	protected String computeNext() throws IOException {
+		while (completed.isEmpty() && !finished) {
+			scan();
+		}
+		return completed.poll();
+	}
+
+	private void scan() throws IOException {
+		int next = in.peek(0);
+		if (next < 0) {
+			finish();
+			return;
+		}
+		char c = (char) next;
+
+		if (pendingSlash && resolvePendingSlash(c)) {
+			return;
+		}
+
+		if (in.startsWith(delimiter)) {
+			delimiter();
+			advance(delimiter.length());
+			lineStart = false;
+			afterLineBreak = false;
+			return;
+		}
+
+		boolean afterDelimiter = lastWasDelimiter;
+		boolean atLineBreak = afterLineBreak;
+		lastWasDelimiter = false;
+		afterLineBreak = false;
+
+		if (c == '\n' || c == '\r') {
+			endWord();
+			lineStart = true;
+			afterLineBreak = true;
+			advance(1);
+		} else if (Character.isWhitespace(c)) {
+			endWord();
+			advance(1);
+		} else if (c == '-' && in.peek(1) == '-') {
+			endWord();
+			skipToEndOfLine();
+		} else if (c == '/' && in.peek(1) == '*') {
+			endWord();
+			skipBlockComment();
+		} else if (c == '/') {
+			/*
+			 * a "/" directly following a line break or touching a delimiter is the SQL*Plus buffer executor and is
+			 * dropped; otherwise wait and see whether it is the last thing on its line
+			 */
+			if (!atLineBreak && !afterDelimiter) {
+				pendingSlash = true;
+				pendingSlashFollowedByWhitespace = false;
+			}
+			advance(1);
+		} else if (lineStart && !inWord && isRemark()) {
+			skipToEndOfLine();
+		} else {
+			lineStart = false;
+			if (c == '\'' || c == '"') {
+				quoted(c);
+			} else if ((c == 'q' || c == 'Q') && in.peek(1) == '\'' && !isIdentifierChar(previous)) {
+				appendWordChar(c);
+				advance(1);
+				qQuoted();
+			} else if ((c == 'n' || c == 'N') && (in.peek(1) == 'q' || in.peek(1) == 'Q') && in.peek(2) == '\''
+					&& !isIdentifierChar(previous)) {
+				appendWordChar(c);
+				appendWordChar((char) in.peek(1));
+				advance(2);
+				qQuoted();
+			} else {
+				appendWordChar(c);
+				advance(1);
+			}
+		}
+	}
+
+	private void finish() {
+		finished = true;
+
+		endWord();
+		if (wordPending) {
+			classify(keywordOf(), false);
+		}
+
+		/*
+		 * an unterminated statement is kept up to the last delimiter seen
+		 */
+		if (lastDelimiterEnd > 0) {
+			addStatement(sql.substring(0, lastDelimiterEnd - delimiter.length()));
+		}
+		sql.setLength(0);
+	}
+
+	/**
+	 * @return true if the current character has been consumed
+	 */
+	private boolean resolvePendingSlash(char c) throws IOException {
+		if (c == '\n' || c == '\r' || (c == '-' && in.peek(1) == '-')
+				|| (!pendingSlashFollowedByWhitespace && in.startsWith(delimiter))) {
+			pendingSlash = false;
+			return false;
+		}
+		if (Character.isWhitespace(c)) {
+			pendingSlashFollowedByWhitespace = true;
+			advance(1);
+			return true;
+		}
+		if (c == '/' && in.peek(1) == '*') {
+			skipBlockComment();
+			return true;
+		}
+		pendingSlash = false;
+		lineStart = false;
+		appendWordChar('/');
+		if (pendingSlashFollowedByWhitespace) {
+			endWord();
+		}
+		return false;
+	}
+
+	private void delimiter() {
+		endWord();
+		pendingSlash = false;
+		lastWasDelimiter = true;
+
+		if (wordPending) {
+			Keyword keyword = keywordOf();
+			sql.append(delimiter);
+			lastDelimiterEnd = sql.length();
+			classify(keyword, true);
+		} else {
+			if (sql.length() > 0) {
+				sql.append(' ');
+			}
+			sql.append(delimiter);
+			lastDelimiterEnd = sql.length();
+			classify(Keyword.OTHER, true);
+		}
+	}
+
+	private void classify(Keyword keyword, boolean endsWithDelimiter) {
+		wordPending = false;
+
+		if (!endsWithDelimiter) {
+			switch (keyword) {
+			case CREATE:
+				openStatement++;
+				break;
+			case GRANT:
+				openStatement++;
+				isSimpleSqlBlock = true;
+				break;
+			case BLOCK_BEGIN:
+				openBlocks++;
+				break;
+			case BLOCK_END:
+				openBlocks--;
+				break;
+			case DEFINITION_BEGIN:
+				definitionStarted = true;
+				break;
+			case SIMPLE_OBJECT:
+				/*
+				 * the DDL will be treated as "simple" if only SQL, without any semicolons, follows the CREATE definition
+				 * N.B. this is done by considering the object type between the CREATE statement and the first AS
+				 * statement that initiates the code block
+				 */
+				if (openStatement > 0 && !isSimpleSqlBlock && !definitionStarted) {
+					isSimpleSqlBlock = true;
+				}
+				break;
+			default:
+				break;
+			}
+		} else if (keyword == Keyword.BLOCK_END) {
+			if (openBlocks > 0) {
+				openBlocks--;
+			}
+			if (openBlocks == 0) {
+				/*
+				 * if we have reached the final "END;" token, then the statement should be complete...
+				 */
+				endStatement(true);
+			}
+		} else if (openBlocks == 0 && (openStatement == 0 || isSimpleSqlBlock)) {
+			/*
+			 * ...otherwise, if we have a "stand-alone" statement then it is terminated by the first ";" encountered
+			 */
+			endStatement(false);
+		}
+	}
+
+	private void endStatement(boolean keepDelimiter) {
+		addStatement(keepDelimiter ? sql.toString() : sql.substring(0, sql.length() - delimiter.length()));
+
+		sql.setLength(0);
+		inWord = false;
+		wordPending = false;
+		lastDelimiterEnd = -1;
+		isSimpleSqlBlock = false;
+		definitionStarted = false;
+		if (openStatement > 0) {
+			openStatement--;
+		}
+	}
+
+	private void addStatement(String statement) {
+		if (StringUtils.isNotBlank(statement)) {
+			completed.add(statement);
+			Log.debug("Statement: {}", statement);
+		}
+	}
+
+	private void appendWordChar(char c) {
+		if (!inWord) {
+			if (wordPending) {
+				classify(keywordOf(), false);
+			}
+			if (sql.length() > 0) {
+				sql.append(' ');
+			}
+			inWord = true;
+			wordQuoted = false;
+			wordStart = sql.length();
+		}
+		sql.append(c);
+	}
+
+	private void endWord() {
+		if (inWord) {
+			inWord = false;
+			wordPending = true;
+		}
+	}
+
+	private Keyword keywordOf() {
+		int wordLength = sql.length() - wordStart;
+		if (wordQuoted || wordLength > MAX_KEYWORD_LENGTH) {
+			return Keyword.OTHER;
+		}
+		String[] names = KEYWORD_NAMES[wordLength];
+		for (int i = 0; i < names.length; i++) {
+			if (regionMatchesIgnoreCase(names[i], wordStart)) {
+				return KEYWORD_TYPES[wordLength][i];
+			}
+		}
+		return Keyword.OTHER;
+	}
+
+	private boolean regionMatchesIgnoreCase(String upperCaseName, int start) {
+		for (int i = 0; i < upperCaseName.length(); i++) {
+			if (Character.toUpperCase(sql.charAt(start + i)) != upperCaseName.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void quoted(char quote) throws IOException {
+		appendWordChar(quote);
+		wordQuoted = true;
+		advance(1);
+		int c;
+		while ((c = in.read()) >= 0) {
+			sql.append((char) c);
+			if (c == quote) {
+				previous = quote;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Oracle alternative quoting, e.g. q'[it's]' or nq'{...}'. Expects the current position to be on the opening
+	 * quote.
+	 */
+	private void qQuoted() throws IOException {
+		appendWordChar('\'');
+		wordQuoted = true;
+		advance(1);
+		int open = in.read();
+		if (open < 0) {
+			return;
+		}
+		sql.append((char) open);
+		char close = closingQQuote((char) open);
+		int c;
+		while ((c = in.read()) >= 0) {
+			sql.append((char) c);
+			if (c == close && in.peek(0) == '\'') {
+				sql.append('\'');
+				advance(1);
+				return;
+			}
+		}
+	}
+
+	private static char closingQQuote(char open) {
+		switch (open) {
+		case '[':
+			return ']';
+		case '{':
+			return '}';
+		case '(':
+			return ')';
+		case '<':
+			return '>';
+		default:
+			return open;
+		}
+	}
+
+	private static boolean isIdentifierChar(char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+	}
+
+	/**
+	 * SQL*Plus remarks: lines beginning with REM or REMARK
+	 */
+	private boolean isRemark() throws IOException {
+		int end;
+		if (in.startsWithIgnoreCase("REMARK")) {
+			end = 6;
+		} else if (in.startsWithIgnoreCase("REM")) {
+			end = 3;
+		} else {
+			return false;
+		}
+		int c = in.peek(end);
+		return c < 0 || Character.isWhitespace((char) c);
+	}
+
+	private void skipToEndOfLine() throws IOException {
+		int c;
+		while ((c = in.peek(0)) >= 0 && c != '\n' && c != '\r') {
+			advance(1);
+		}
+	}
+
+	private void skipBlockComment() throws IOException {
+		advance(2);
+		int c;
+		while ((c = in.read()) >= 0) {
+			if (c == '*' && in.peek(0) == '/') {
+				advance(1);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Moves past characters that have already been peeked, remembering the last one for q-quote detection.
+	 */
+	private void advance(int count) throws IOException {
+		previous = (char) in.peek(count - 1);
+		in.skip(count);
+	}
+
+	private static void register(String name, Keyword keyword) {
+		int len = name.length();
+		String[] names = KEYWORD_NAMES[len];
+		Keyword[] types = KEYWORD_TYPES[len];
+
+		String[] newNames = new String[names.length + 1];
+		Keyword[] newTypes = new Keyword[types.length + 1];
+		System.arraycopy(names, 0, newNames, 0, names.length);
+		System.arraycopy(types, 0, newTypes, 0, types.length);
+		newNames[names.length] = name.toUpperCase();
+		newTypes[types.length] = keyword;
+
+		KEYWORD_NAMES[len] = newNames;
+		KEYWORD_TYPES[len] = newTypes;
+	}
+}
@@ -0,0 +1,307 @@
+package com.dbdeploy.database;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.logging.Log;
+import com.dbdeploy.scripts.ChangeScript;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Keeps the statements a change script was split into on disk, so that deploying the same script again (typically
+ * to the next environment) does not mean lexing it again.
+ * <p>
+ * Entries are keyed by the {@link ChangeScript#getChecksum() checksum} of the script's bytes and its encoding,
+ * together with everything that affects how it is split: the splitter class, delimiter, delimiter type and output
+ * line ending. The checksum is hashed from the mapped file (or, for a script in an indexed jar, taken from the
+ * index), so a lookup neither decodes the script nor copies it onto the heap. Each entry is a file of length-prefixed
+ * UTF-8 statements that is memory-mapped when read. The directory is kept below the configured size by deleting the
+ * least recently used entries; entries that would not fit at all are not kept.
+ * <p>
+ * A lookup costs a few file operations whatever the size of the script, so the cache pays off for large scripts
+ * (see <code>SplitterBenchmark.iterateParseCache</code>); a script of a few kilobytes is lexed faster than it is
+ * looked up.
+ */
+public class ParseCache {
+	public static final long DEFAULT_SIZE = 256L * 1024 * 1024;
+
+	private static final String FORMAT = "dbdeploy parse cache 2";
+	private static final byte[] MAGIC = { 'D', 'B', 'D', 'P', 'C', 0, 0, 1 };
+	private static final int END = -1;
+	private static final String SUFFIX = ".statements";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+	private static final long STALE_TEMPORARY_AGE = 24L * 60 * 60 * 1000;
+
+	private final File directory;
+	private final long maxSize;
+
+	public ParseCache(File directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return ~/.dbdeploy/cache
+	 */
+	public static File getDefaultDirectory() {
+		return new File(new File(System.getProperty("user.home"), ".dbdeploy"), "cache");
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Iterates over the statements of <code>script</code>, either from the cache or by splitting <code>content</code>
+	 * (the script's content reader, which the caller remains responsible for closing) with <code>splitter</code>. In
+	 * the latter case the statements are written to the cache as they are read, and the entry is kept once the
+	 * iteration has run to the end.
+	 */
+	public Iterator<String> iterate(ChangeScript script, QueryStatementSplitter splitter, Reader content) {
+		String key = keyFor(script, splitter);
+		File entry = new File(directory, key + SUFFIX);
+
+		if (entry.isFile()) {
+			try {
+				Iterator<String> statements = read(entry);
+				entry.setLastModified(System.currentTimeMillis());
+				return statements;
+			} catch (IOException e) {
+				Log.warn("Ignoring unreadable parse cache entry {}: {}", entry, e.getMessage());
+				entry.delete();
+			}
+		}
+
+		Iterator<String> statements = splitter.iterate(content);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			return statements;
+		}
+		try {
+			return new RecordingIterator(statements, key, entry);
+		} catch (IOException e) {
+			return statements;
+		}
+	}
+
+	private String keyFor(ChangeScript script, QueryStatementSplitter splitter) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new DbDeployException("SHA-1 is not available", e);
+		}
+
+		update(digest, FORMAT);
+		update(digest, splitter.getCacheKey());
+		update(digest, splitter.getDelimiter());
+		update(digest, String.valueOf(splitter.getDelimiterType()));
+		update(digest, splitter.getOutputLineEnding().get());
+
+		update(digest, script.getEncoding());
+		update(digest, script.getChecksum());
+
+		StringBuilder key = new StringBuilder();
+		for (byte b : digest.digest()) {
+			key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return key.toString();
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		try {
+			digest.update(value.getBytes("UTF-8"));
+			digest.update((byte) 0);
+		} catch (IOException e) {
+			throw new DbDeployException("UTF-8 is not supported", e);
+		}
+	}
+
+	private static Iterator<String> read(File entry) throws IOException {
+		FileInputStream input = new FileInputStream(entry);
+		final MappedByteBuffer buffer;
+		try {
+			FileChannel channel = input.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			input.close();
+		}
+
+		byte[] magic = new byte[MAGIC.length];
+		if (buffer.remaining() < MAGIC.length + 4) {
+			throw new IOException("truncated");
+		}
+		buffer.get(magic);
+		if (!Arrays.equals(magic, MAGIC) || buffer.getInt(buffer.limit() - 4) != END) {
+			throw new IOException("not a complete cache entry");
+		}
+
+		return new Iterator<String>() {
+			public boolean hasNext() {
+				return buffer.getInt(buffer.position()) != END;
+			}
+
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				byte[] bytes = new byte[buffer.getInt()];
+				buffer.get(bytes);
+				try {
+					return new String(bytes, "UTF-8");
+				} catch (IOException e) {
+					throw new DbDeployException("UTF-8 is not supported", e);
+				}
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	private void evict() {
+		File[] files = directory.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return file.getName().endsWith(SUFFIX) || file.getName().endsWith(TEMPORARY_SUFFIX);
+			}
+		});
+		if (files == null) {
+			return;
+		}
+
+		Arrays.sort(files, new Comparator<File>() {
+			public int compare(File a, File b) {
+				return a.lastModified() < b.lastModified() ? -1 : a.lastModified() == b.lastModified() ? 0 : 1;
+			}
+		});
+
+		long size = 0;
+		for (File file : files) {
+			size += file.length();
+		}
+
+		long staleBefore = System.currentTimeMillis() - STALE_TEMPORARY_AGE;
+		for (File file : files) {
+			long length = file.length();
+			if (file.getName().endsWith(TEMPORARY_SUFFIX)) {
+				/*
+				 * left behind by a deployment that failed part way through a script
+				 */
+				if (file.lastModified() < staleBefore && file.delete()) {
+					size -= length;
+				}
+			} else if (size > maxSize && file.delete()) {
+				size -= length;
+			}
+		}
+	}
+
+	/**
+	 * Passes statements through from the splitter, writing them to a temporary file that becomes the cache entry when
+	 * the end is reached.
+	 */
+	private class RecordingIterator implements Iterator<String> {
+		private final Iterator<String> statements;
+		private final File entry;
+		private final File temporary;
+		private DataOutputStream output;
+		private long size;
+
+		RecordingIterator(Iterator<String> statements, String key, File entry) throws IOException {
+			this.statements = statements;
+			this.entry = entry;
+			this.temporary = File.createTempFile(key, TEMPORARY_SUFFIX, directory);
+
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+			try {
+				output.write(MAGIC);
+				size = MAGIC.length;
+			} catch (IOException e) {
+				abandon();
+				throw e;
+			}
+		}
+
+		public boolean hasNext() {
+			boolean hasNext = statements.hasNext();
+			if (!hasNext && output != null) {
+				store();
+			}
+			return hasNext;
+		}
+
+		public String next() {
+			String statement = statements.next();
+			if (output != null) {
+				record(statement);
+			}
+			return statement;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void record(String statement) {
+			try {
+				byte[] bytes = statement.getBytes("UTF-8");
+				size += 4 + bytes.length;
+				if (size + 4 > Math.min(maxSize, Integer.MAX_VALUE)) {
+					abandon();
+					return;
+				}
+				output.writeInt(bytes.length);
+				output.write(bytes);
+			} catch (IOException e) {
+				abandon();
+			}
+		}
+
+		private void store() {
+			try {
+				output.writeInt(END);
+				output.close();
+				output = null;
+			} catch (IOException e) {
+				abandon();
+				return;
+			}
+
+			if (!temporary.renameTo(entry)) {
+				/*
+				 * most likely another deployment has just stored the same entry
+				 */
+				temporary.delete();
+			}
+			evict();
+		}
+
+		private void abandon() {
+			try {
+				output.close();
+			} catch (IOException e) {
+				// ignore
+			}
+			output = null;
+			temporary.delete();
+		}
+	}
+}
@@ -1,49 +1,44 @@
 package com.dbdeploy.database;
 
-import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.text.StrBuilder;
-import org.apache.commons.lang.text.StrMatcher;
-import org.apache.commons.lang.text.StrTokenizer;
-
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
+/**
+ * Splits change scripts into the statements to execute. A splitter only holds its settings: everything to do with a
+ * particular script lives in the iterator returned by {@link #iterate(Reader)}, so once configured one splitter can be
+ * used for several scripts at a time, from different threads.
+ */
 public class QueryStatementSplitter {
     private String delimiter = ";";
     private DelimiterType delimiterType = DelimiterType.normal;
 	private LineEnding lineEnding = LineEnding.platform;
+	private boolean backslashEscapes;
 
 	public QueryStatementSplitter() {
     }
 
     public List<String> split(String input) {
         List<String> statements = new ArrayList<String>();
-        StrBuilder currentSql = new StrBuilder();
-
-        StrTokenizer lineTokenizer = new StrTokenizer(input);
-        lineTokenizer.setDelimiterMatcher(StrMatcher.charSetMatcher("\r\n"));
-
-        for (String line : lineTokenizer.getTokenArray()) {
-	        String strippedLine = StringUtils.stripEnd(line, null);
-            if (!currentSql.isEmpty()) {
-                currentSql.append(lineEnding.get());
-            }
-
-            currentSql.append(strippedLine);
 
-           if (delimiterType.matches(strippedLine, delimiter)) {
-                statements.add(currentSql.substring(0, currentSql.length() - delimiter.length()));
-                currentSql.clear();
-            }
+        Iterator<String> iterator = iterate(new StringReader(input));
+        while (iterator.hasNext()) {
+            statements.add(iterator.next());
         }
 
-        if (!currentSql.isEmpty()) {
-            statements.add(currentSql.toString());
-        }
-        
         return statements;
     }
 
+    /**
+     * Splits the input lazily: each call to {@link Iterator#next()} reads only as far as the end of the next
+     * statement, so scripts need not fit into memory as a whole.
+     */
+    public Iterator<String> iterate(Reader input) {
+        return new DelimitedStatementScanner(input, delimiter, delimiterType, lineEnding, backslashEscapes);
+    }
+
     public String getDelimiter() {
         return delimiter;
     }
@@ -60,6 +55,30 @@ public class QueryStatementSplitter {
         this.delimiterType = delimiterType;
     }
 
+	/**
+	 * @return what, besides the delimiter settings, determines how this splitter splits a script
+	 */
+	String getCacheKey() {
+		// 3: backslash escapes for MySQL only, and long unterminated quotes split by lines
+		return getClass().getName() + ":3" + (backslashEscapes ? ":backslash" : "");
+	}
+
+	public boolean isBackslashEscapes() {
+		return backslashEscapes;
+	}
+
+	/**
+	 * Whether a backslash escapes the next character of a single-quoted literal, as in MySQL. Default false, as other
+	 * databases take backslashes literally.
+	 */
+	public void setBackslashEscapes(boolean backslashEscapes) {
+		this.backslashEscapes = backslashEscapes;
+	}
+
+	public LineEnding getOutputLineEnding() {
+		return lineEnding;
+	}
+
 	public void setOutputLineEnding(LineEnding lineEnding) {
 		this.lineEnding = lineEnding;
 	}
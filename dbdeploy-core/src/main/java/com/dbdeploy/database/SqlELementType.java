@@ -1,6 +1,8 @@
 package com.dbdeploy.database;
 
-import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Enumeration listing used/relevant SQL text elements that initiate (and thereby necessitate termination of) PlSql blocks of code,
@@ -27,21 +29,20 @@ public enum SqlELementType {
         this.initiatesPlSqlBlock = initiatesPlSqlBlock;
     }
 
-    public static SqlELementType getByNameOrOTHER(String objectName) {
-        for (SqlELementType e : EnumSet.allOf(SqlELementType.class)) {
-            if (e.getObjectName().equalsIgnoreCase(objectName)) {
-                return e;
-            }
+    private static final Map<String, SqlELementType> BY_NAME = new HashMap<String, SqlELementType>();
+
+    static {
+        for (SqlELementType e : values()) {
+            BY_NAME.put(e.getObjectName(), e);
         }
-        return OTHER;
+    }
+
+    public static SqlELementType getByNameOrOTHER(String objectName) {
+        SqlELementType e = objectName == null ? null : BY_NAME.get(objectName.toUpperCase(Locale.ENGLISH));
+        return e == null ? OTHER : e;
     }
 
     public static boolean initiatesPlSqlBlock(String objectName) {
-        for (SqlELementType e : EnumSet.allOf(SqlELementType.class)) {
-            if (e.getObjectName().equalsIgnoreCase(objectName)) {
-                return e.getInitiatesPlSqlBlock();
-            }
-        }
-        return OTHER.getInitiatesPlSqlBlock();
+        return getByNameOrOTHER(objectName).getInitiatesPlSqlBlock();
     }
 }
@@ -0,0 +1,46 @@
+package com.dbdeploy.database;
+
+import com.dbdeploy.exceptions.DbDeployException;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Base class for the iterators returned by {@link QueryStatementSplitter#iterate(java.io.Reader)}: statements are
+ * scanned lazily, one at a time, as the iterator is advanced.
+ */
+abstract class StatementIterator implements Iterator<String> {
+	private String next;
+	private boolean done;
+
+	/**
+	 * @return the next statement, or null when the input is exhausted
+	 */
+	protected abstract String computeNext() throws IOException;
+
+	public boolean hasNext() {
+		if (next == null && !done) {
+			try {
+				next = computeNext();
+			} catch (IOException e) {
+				throw new DbDeployException("Failed to read change script", e);
+			}
+			done = next == null;
+		}
+		return next != null;
+	}
+
+	public String next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		String result = next;
+		next = null;
+		return result;
+	}
+
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,15 @@
+package com.dbdeploy.database;
+
+/**
+ * Supplies the statement splitters used with {@link DelimiterType#parsed}, one per dbms syntax. Implementations are
+ * found by {@link StatementSplitterRegistry} through <code>META-INF/services/com.dbdeploy.database.StatementSplitterProvider</code>
+ * files on the classpath, in the same format as used by <code>java.util.ServiceLoader</code>, and need a public no-args
+ * constructor.
+ */
+public interface StatementSplitterProvider {
+	/**
+	 * @param dbms the dbms syntax name, as passed to dbdeploy (e.g. "mssql")
+	 * @return a new splitter for scripts written in that syntax, or null if this provider doesn't know the syntax
+	 */
+	QueryStatementSplitter createSplitter(String dbms);
+}
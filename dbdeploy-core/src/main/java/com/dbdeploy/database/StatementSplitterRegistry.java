@@ -0,0 +1,105 @@
+package com.dbdeploy.database;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.exceptions.UsageException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Chooses the statement splitter for a dbms and delimiter type. For {@link DelimiterType#parsed} the splitter comes
+ * from the first {@link StatementSplitterProvider} on the classpath that knows the dbms; {@link BuiltInStatementSplitterProvider}
+ * covers the syntaxes dbdeploy ships templates for.
+ */
+public class StatementSplitterRegistry {
+	private static final String SERVICE = "META-INF/services/" + StatementSplitterProvider.class.getName();
+
+	private final List<StatementSplitterProvider> providers;
+
+	public StatementSplitterRegistry() {
+		this(StatementSplitterRegistry.class.getClassLoader());
+	}
+
+	public StatementSplitterRegistry(ClassLoader classLoader) {
+		this.providers = loadProviders(classLoader);
+	}
+
+	public QueryStatementSplitter createSplitter(String dbms, DelimiterType delimiterType) {
+		switch (delimiterType) {
+		case oracle_parsed:
+			return createParsingSplitter("ora");
+		case parsed:
+			if (dbms == null) {
+				throw new UsageException("dbms must be specified to use delimiter type parsed");
+			}
+			return createParsingSplitter(dbms);
+		default:
+			QueryStatementSplitter splitter = new QueryStatementSplitter();
+			Dialect dialect = dbms == null ? null : Dialect.forDbms(dbms);
+			splitter.setBackslashEscapes(dialect != null && dialect.has(Dialect.Feature.BACKSLASH_ESCAPES));
+			return splitter;
+		}
+	}
+
+	private QueryStatementSplitter createParsingSplitter(String dbms) {
+		for (StatementSplitterProvider provider : providers) {
+			QueryStatementSplitter splitter = provider.createSplitter(dbms);
+			if (splitter != null) {
+				return splitter;
+			}
+		}
+		throw new UsageException("No statement splitter is available for dbms " + dbms);
+	}
+
+	private static List<StatementSplitterProvider> loadProviders(ClassLoader classLoader) {
+		List<StatementSplitterProvider> providers = new ArrayList<StatementSplitterProvider>();
+		List<String> names = new ArrayList<String>();
+
+		try {
+			Enumeration<URL> resources = classLoader.getResources(SERVICE);
+			while (resources.hasMoreElements()) {
+				for (String name : readProviderNames(resources.nextElement())) {
+					if (!names.contains(name)) {
+						names.add(name);
+						providers.add(instantiate(classLoader, name));
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read " + SERVICE, e);
+		}
+
+		return providers;
+	}
+
+	private static List<String> readProviderNames(URL resource) throws IOException {
+		List<String> names = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int comment = line.indexOf('#');
+				String name = (comment < 0 ? line : line.substring(0, comment)).trim();
+				if (name.length() > 0) {
+					names.add(name);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return names;
+	}
+
+	private static StatementSplitterProvider instantiate(ClassLoader classLoader, String name) {
+		try {
+			return (StatementSplitterProvider) Class.forName(name, true, classLoader).newInstance();
+		} catch (Exception e) {
+			throw new DbDeployException("Could not create statement splitter provider " + name, e);
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.dbdeploy.database.changelog;
+
+import com.dbdeploy.ChangeNumberSet;
+
+/**
+ * The number of rows in a changelog table with its lowest and highest change numbers, which one aggregate query reads
+ * in a fraction of the time it takes to read every row. The highest change number alone says which change scripts are
+ * still to be applied, since gaps are never filled; the three together tell whether the changelog has changed since a
+ * {@link ChangelogSnapshot} was taken, short of someone deleting and inserting rows by hand between its ends.
+ */
+public class ChangelogFingerprint {
+	private final long count;
+	private final long min;
+	private final long max;
+
+	public ChangelogFingerprint(long count, long min, long max) {
+		this.count = count;
+		this.min = count == 0 ? 0 : min;
+		this.max = count == 0 ? 0 : max;
+	}
+
+	public static ChangelogFingerprint of(ChangeNumberSet changes) {
+		return changes.isEmpty() ? new ChangelogFingerprint(0, 0, 0)
+				: new ChangelogFingerprint(changes.size(), changes.min(), changes.max());
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMin() {
+		return min;
+	}
+
+	/**
+	 * @return the number of the last change applied, or 0 if there is none
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof ChangelogFingerprint)) {
+			return false;
+		}
+		ChangelogFingerprint other = (ChangelogFingerprint) o;
+		return count == other.count && min == other.min && max == other.max;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = (int) (count ^ (count >>> 32));
+		result = 31 * result + (int) (min ^ (min >>> 32));
+		return 31 * result + (int) (max ^ (max >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return count + " changes, " + min + ".." + max;
+	}
+}
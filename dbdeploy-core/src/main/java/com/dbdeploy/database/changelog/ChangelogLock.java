@@ -0,0 +1,183 @@
+package com.dbdeploy.database.changelog;
+
+import com.dbdeploy.exceptions.SchemaVersionTrackingException;
+import com.dbdeploy.logging.Log;
+
+import java.lang.management.ManagementFactory;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lease on the lock table, a table of at most one row naming the process applying change scripts to the database
+ * and when its lease expires. The holder renews the lease from a background thread, a third of the way through, for
+ * as long as it holds the lock; a holder that dies simply stops renewing, and once its lease has expired the next
+ * process to try takes the lock over. Lease times are taken from the clock of each process, so clocks need to agree to
+ * well within the lease.
+ * <p>
+ * A holder whose lease expires without being renewed, and may have been taken over, has lost the lock; see
+ * {@link #checkHeld()}, which the appliers call before each script and commit.
+ * <p>
+ * The lock has a connection of its own in auto-commit mode, so that taking, renewing and releasing it are seen by
+ * other processes at once, whatever transactions the change scripts are applied in.
+ */
+public class ChangelogLock {
+	private static final int LOCK_ID = 1;
+
+	private final QueryExecuter queryExecuter;
+	private final String lockTableName;
+	private final long leaseMillis;
+	private final String owner;
+	private ScheduledExecutorService heartbeat;
+	private volatile long renewedUntil;
+	private volatile boolean lost;
+
+	public ChangelogLock(QueryExecuter queryExecuter, String lockTableName, long leaseMillis) {
+		this.queryExecuter = queryExecuter;
+		this.lockTableName = lockTableName;
+		this.leaseMillis = leaseMillis;
+		String owner = ManagementFactory.getRuntimeMXBean().getName() + " " + UUID.randomUUID();
+		this.owner = owner.length() > 100 ? owner.substring(owner.length() - 100) : owner;
+	}
+
+	/**
+	 * Takes the lock if no one holds it, or their lease has expired, and starts renewing the lease.
+	 *
+	 * @return whether the lock was taken
+	 */
+	public boolean tryAcquire() {
+		long now = System.currentTimeMillis();
+		try {
+			queryExecuter.setAutoCommit(true);
+			int taken = queryExecuter.executeUpdate("UPDATE " + lockTableName
+					+ " SET locked_by = ?, expires_dt = ? WHERE lock_id = ? AND expires_dt < ?",
+					owner, new Timestamp(now + leaseMillis), LOCK_ID, new Timestamp(now));
+			if (taken == 0 && !insert(now)) {
+				return false;
+			}
+		} catch (SQLException e) {
+			throw new SchemaVersionTrackingException("Could not take the lock because: " + e.getMessage(), e);
+		}
+
+		renewedUntil = now + leaseMillis;
+		lost = false;
+		startHeartbeat();
+		return true;
+	}
+
+	/**
+	 * @return false if someone else holds the lock
+	 */
+	private boolean insert(long now) throws SQLException {
+		for (int attempt = 0; ; attempt++) {
+			try {
+				queryExecuter.executeUpdate("INSERT INTO " + lockTableName
+						+ " (lock_id, locked_by, expires_dt) VALUES (?, ?, ?)",
+						LOCK_ID, owner, new Timestamp(now + leaseMillis));
+				return true;
+			} catch (SQLException e) {
+				if (getHolder() != null) {
+					return false;
+				}
+				// the holder may just have released the lock; if not, the insert failed for some other reason
+				if (attempt > 0) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @throws SchemaVersionTrackingException if the lease has expired without being renewed, or has been taken over,
+	 * so that another process may be applying scripts too
+	 */
+	public void checkHeld() {
+		if (lost || System.currentTimeMillis() > renewedUntil) {
+			lost = true;
+			throw new SchemaVersionTrackingException("Lost the lock on " + lockTableName
+					+ ", its lease having expired; stopping, as another process may now be applying scripts");
+		}
+	}
+
+	/**
+	 * @return who holds the lock, or null if no one does
+	 */
+	public String getHolder() {
+		try {
+			ResultSet rs = queryExecuter.executeQuery("SELECT locked_by FROM " + lockTableName + " WHERE lock_id = "
+					+ LOCK_ID);
+			try {
+				return rs.next() ? rs.getString(1) : null;
+			} finally {
+				rs.close();
+			}
+		} catch (SQLException e) {
+			throw new SchemaVersionTrackingException("Could not read the lock because: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Stops renewing the lease and gives up the lock, unless it has already been taken over.
+	 */
+	public void release() {
+		stopHeartbeat();
+		try {
+			queryExecuter.executeUpdate("DELETE FROM " + lockTableName + " WHERE lock_id = ? AND locked_by = ?",
+					LOCK_ID, owner);
+		} catch (SQLException e) {
+			throw new SchemaVersionTrackingException("Could not release the lock because: " + e.getMessage(), e);
+		}
+	}
+
+	private void startHeartbeat() {
+		heartbeat = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "dbdeploy-lock-heartbeat");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		long interval = Math.max(1, leaseMillis / 3);
+		heartbeat.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				renew();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	private void renew() {
+		try {
+			long expires = System.currentTimeMillis() + leaseMillis;
+			int renewed = queryExecuter.executeUpdate("UPDATE " + lockTableName
+					+ " SET expires_dt = ? WHERE lock_id = ? AND locked_by = ?",
+					new Timestamp(expires), LOCK_ID, owner);
+			if (renewed == 0) {
+				Log.error("The lock on {} has been taken over, after the lease expired", lockTableName);
+				lost = true;
+				heartbeat.shutdown();
+			} else {
+				renewedUntil = expires;
+			}
+		} catch (SQLException e) {
+			Log.warn("Could not renew the lease on {}: {}", lockTableName, e.getMessage());
+		}
+	}
+
+	private void stopHeartbeat() {
+		if (heartbeat == null) {
+			return;
+		}
+		heartbeat.shutdown();
+		try {
+			heartbeat.awaitTermination(leaseMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		heartbeat = null;
+	}
+}
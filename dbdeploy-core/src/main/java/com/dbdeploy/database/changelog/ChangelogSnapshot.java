@@ -0,0 +1,137 @@
+package com.dbdeploy.database.changelog;
+
+import com.dbdeploy.ChangeNumberSet;
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.logging.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A copy of the change numbers in one changelog table, kept in a local file together with the
+ * {@link ChangelogFingerprint} of what was read, so that the next run against an unchanged changelog reads just the
+ * fingerprint instead of every row. The file is named by a hash of the database url, user and table, and holds the
+ * numbers as ranges. A snapshot that cannot be read is ignored, and one that cannot be written is only warned about:
+ * either way the changelog is simply read in full.
+ */
+public class ChangelogSnapshot {
+	private static final byte[] MAGIC = { 'D', 'B', 'D', 'P', 'C', 'L', 0, 1 };
+	private static final String SUFFIX = ".changelog";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	private final File directory;
+	private final File file;
+
+	public ChangelogSnapshot(File directory, String url, String userid, String changeLogTableName) {
+		this.directory = directory;
+		this.file = new File(directory, keyFor(url + "\n" + userid + "\n" + changeLogTableName) + SUFFIX);
+	}
+
+	/**
+	 * @return ~/.dbdeploy/changelog
+	 */
+	public static File getDefaultDirectory() {
+		return new File(new File(System.getProperty("user.home"), ".dbdeploy"), "changelog");
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the change numbers of the snapshot if it was taken of a changelog with this fingerprint, otherwise null
+	 */
+	public ChangeNumberSet read(ChangelogFingerprint fingerprint) {
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try {
+			DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				byte[] magic = new byte[MAGIC.length];
+				input.readFully(magic);
+				if (!Arrays.equals(magic, MAGIC)) {
+					return null;
+				}
+				ChangelogFingerprint snapshot = new ChangelogFingerprint(input.readLong(), input.readLong(),
+						input.readLong());
+				if (!snapshot.equals(fingerprint)) {
+					return null;
+				}
+
+				ChangeNumberSet changes = new ChangeNumberSet();
+				int ranges = input.readInt();
+				for (int i = 0; i < ranges; i++) {
+					changes.addRange(input.readLong(), input.readLong());
+				}
+				return ChangelogFingerprint.of(changes).equals(fingerprint) ? changes : null;
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			Log.debug("Ignoring unreadable changelog snapshot {}: {}", file, e.getMessage());
+			return null;
+		} catch (IllegalArgumentException e) {
+			Log.debug("Ignoring corrupt changelog snapshot {}: {}", file, e.getMessage());
+			return null;
+		}
+	}
+
+	public void write(ChangeNumberSet changes) {
+		File temporary = null;
+		try {
+			directory.mkdirs();
+			temporary = File.createTempFile(file.getName(), TEMPORARY_SUFFIX, directory);
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+			try {
+				ChangelogFingerprint fingerprint = ChangelogFingerprint.of(changes);
+				output.write(MAGIC);
+				output.writeLong(fingerprint.getCount());
+				output.writeLong(fingerprint.getMin());
+				output.writeLong(fingerprint.getMax());
+				output.writeInt(changes.getRangeCount());
+				for (int i = 0; i < changes.getRangeCount(); i++) {
+					output.writeLong(changes.getRangeStart(i));
+					output.writeLong(changes.getRangeEnd(i));
+				}
+			} finally {
+				output.close();
+			}
+
+			file.delete();
+			if (!temporary.renameTo(file)) {
+				throw new IOException("could not rename " + temporary + " to " + file.getName());
+			}
+		} catch (IOException e) {
+			if (temporary != null) {
+				temporary.delete();
+			}
+			Log.warn("Could not write changelog snapshot {}: {}", file, e.getMessage());
+		}
+	}
+
+	private static String keyFor(String text) {
+		try {
+			StringBuilder key = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-1").digest(text.getBytes("UTF-8"))) {
+				key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new DbDeployException("SHA-1 is not available", e);
+		} catch (UnsupportedEncodingException e) {
+			throw new DbDeployException("UTF-8 is not available", e);
+		}
+	}
+}
@@ -0,0 +1,406 @@
+package com.dbdeploy.database.changelog;
+
+import com.dbdeploy.logging.Log;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.logging.Logger;
+
+/**
+ * A small pool of connections to one database, for when dbdeploy opens its own connections rather than being given a
+ * {@link DataSource}. Closing a connection from the pool hands it back, rolled back and in auto-commit mode, for the
+ * next {@link #getConnection()}; connections are checked before being handed out again, and closed once they have
+ * been idle for longer than the idle timeout.
+ * <p>
+ * Pools obtained through {@link #get} are shared by everything in the JVM using the same database and credentials, so
+ * that successive runs, such as the goals of one build, reuse the same connections.
+ */
+public class ConnectionPool implements DataSource {
+	public static final int DEFAULT_MAX_SIZE = 8;
+	public static final long DEFAULT_IDLE_TIMEOUT = 60 * 1000;
+	public static final long DEFAULT_WAIT_TIMEOUT = 30 * 1000;
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+	private static final Map<List<String>, ConnectionPool> pools = new HashMap<List<String>, ConnectionPool>();
+	private static Timer evictionTimer;
+
+	private final String url;
+	private final String username;
+	private final String password;
+	private int maxSize;
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+	private long waitTimeout = DEFAULT_WAIT_TIMEOUT;
+	private String validationQuery;
+
+	private final LinkedList<IdleConnection> idle = new LinkedList<IdleConnection>();
+	private int open;
+	private boolean closed;
+	private TimerTask eviction;
+	private PrintWriter logWriter;
+	private int loginTimeout;
+
+	public ConnectionPool(String url, String username, String password, int maxSize) {
+		this.url = url;
+		this.username = username;
+		this.password = password;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the pool shared by everything in this JVM connecting to the url with these credentials, holding at least
+	 * <code>maxSize</code> connections
+	 */
+	public static synchronized ConnectionPool get(String url, String username, String password, int maxSize) {
+		List<String> key = Arrays.asList(url, username, password);
+		ConnectionPool pool = pools.get(key);
+		if (pool == null) {
+			pool = new ConnectionPool(url, username, password, maxSize);
+			pools.put(key, pool);
+		} else if (pool.getMaxSize() < maxSize) {
+			pool.setMaxSize(maxSize);
+		}
+		return pool;
+	}
+
+	/**
+	 * Closes every shared pool, and the idle connections in them.
+	 */
+	public static synchronized void closeAll() {
+		for (ConnectionPool pool : pools.values()) {
+			pool.close();
+		}
+		pools.clear();
+	}
+
+	public Connection getConnection() throws SQLException {
+		long deadline = System.currentTimeMillis() + waitTimeout;
+
+		synchronized (this) {
+			while (true) {
+				if (closed) {
+					throw new SQLException("Connection pool for " + url + " has been closed");
+				}
+
+				evictIdle();
+				while (!idle.isEmpty()) {
+					Connection connection = idle.removeLast().connection;
+					if (isValid(connection)) {
+						return pooled(connection);
+					}
+					Log.debug("Discarding broken connection to {}", url);
+					discard(connection);
+				}
+
+				if (open < maxSize) {
+					open++;
+					break;
+				}
+
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					throw new SQLException("Timed out waiting for a connection to " + url + "; all " + maxSize
+							+ " are in use");
+				}
+				try {
+					wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new SQLException("Interrupted while waiting for a connection to " + url);
+				}
+			}
+		}
+
+		try {
+			Connection connection = DriverManager.getConnection(url, username, password);
+			scheduleEviction();
+			return pooled(connection);
+		} catch (SQLException e) {
+			release();
+			throw e;
+		} catch (RuntimeException e) {
+			release();
+			throw e;
+		}
+	}
+
+	public Connection getConnection(String username, String password) throws SQLException {
+		if (eq(this.username, username) && eq(this.password, password)) {
+			return getConnection();
+		}
+		throw new SQLException("Connection pool for " + url + " only holds connections for " + this.username);
+	}
+
+	/**
+	 * Closes the idle connections, and each connection in use as it is handed back.
+	 */
+	public synchronized void close() {
+		closed = true;
+		for (IdleConnection connection : idle) {
+			discard(connection.connection);
+		}
+		idle.clear();
+		if (eviction != null) {
+			eviction.cancel();
+			eviction = null;
+		}
+		notifyAll();
+	}
+
+	private Connection pooled(Connection connection) {
+		return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+				new Class[] { Connection.class }, new PooledConnection(connection));
+	}
+
+	private synchronized void giveBack(Connection connection) {
+		try {
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			Log.debug("Discarding connection to {} that could not be reset: {}", url, e.getMessage());
+			discard(connection);
+			return;
+		}
+
+		if (closed) {
+			discard(connection);
+			return;
+		}
+		idle.addLast(new IdleConnection(connection, System.currentTimeMillis()));
+		notifyAll();
+	}
+
+	private synchronized void release() {
+		open--;
+		notifyAll();
+	}
+
+	private void discard(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			// ignore
+		}
+		release();
+	}
+
+	/**
+	 * Closes the connections idle for longer than the idle timeout. Connections are handed out last in first out, so
+	 * the longest idle are at the front.
+	 */
+	private synchronized void evictIdle() {
+		long cutoff = System.currentTimeMillis() - idleTimeout;
+		Iterator<IdleConnection> oldestFirst = idle.iterator();
+		while (oldestFirst.hasNext()) {
+			IdleConnection connection = oldestFirst.next();
+			if (connection.since > cutoff) {
+				break;
+			}
+			oldestFirst.remove();
+			discard(connection.connection);
+		}
+	}
+
+	private void scheduleEviction() {
+		Timer timer = getEvictionTimer();
+		synchronized (this) {
+			if (eviction != null || closed) {
+				return;
+			}
+			eviction = new TimerTask() {
+				public void run() {
+					evictIdle();
+				}
+			};
+			long period = Math.max(idleTimeout / 2, 1);
+			timer.schedule(eviction, period, period);
+		}
+	}
+
+	private static synchronized Timer getEvictionTimer() {
+		if (evictionTimer == null) {
+			evictionTimer = new Timer("dbdeploy-pool-eviction", true);
+		}
+		return evictionTimer;
+	}
+
+	private boolean isValid(Connection connection) {
+		try {
+			if (validationQuery != null) {
+				Statement statement = connection.createStatement();
+				try {
+					statement.execute(validationQuery);
+				} finally {
+					statement.close();
+				}
+				return true;
+			}
+
+			try {
+				return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+			} catch (AbstractMethodError e) {
+				// driver older than JDBC 4
+				return !connection.isClosed();
+			}
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private static boolean eq(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * The most connections to have open at once, in use or idle; beyond that {@link #getConnection()} waits for one to
+	 * be handed back.
+	 */
+	public synchronized void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+		notifyAll();
+	}
+
+	/**
+	 * How long, in milliseconds, a connection can stay idle in the pool before it is closed. Default 60 seconds.
+	 */
+	public synchronized void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * How long, in milliseconds, {@link #getConnection()} waits for a connection when they are all in use. Default
+	 * 30 seconds.
+	 */
+	public synchronized void setWaitTimeout(long waitTimeout) {
+		this.waitTimeout = waitTimeout;
+	}
+
+	/**
+	 * A query to check idle connections with before handing them out again. By default the driver's own check is used,
+	 * if it has one.
+	 */
+	public synchronized void setValidationQuery(String validationQuery) {
+		this.validationQuery = validationQuery;
+	}
+
+	/**
+	 * @return the number of connections open, in use or idle
+	 */
+	public synchronized int getOpenConnections() {
+		return open;
+	}
+
+	/**
+	 * @return the number of connections open but not in use
+	 */
+	public synchronized int getIdleConnections() {
+		return idle.size();
+	}
+
+	public PrintWriter getLogWriter() {
+		return logWriter;
+	}
+
+	public void setLogWriter(PrintWriter logWriter) {
+		this.logWriter = logWriter;
+	}
+
+	public void setLoginTimeout(int seconds) {
+		this.loginTimeout = seconds;
+	}
+
+	public int getLoginTimeout() {
+		return loginTimeout;
+	}
+
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("Not a wrapper for " + iface.getName());
+	}
+
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+
+	private static class IdleConnection {
+		private final Connection connection;
+		private final long since;
+
+		IdleConnection(Connection connection, long since) {
+			this.connection = connection;
+			this.since = since;
+		}
+	}
+
+	/**
+	 * Hands the connection back to the pool when it is closed, and refuses to be used after that.
+	 */
+	private class PooledConnection implements InvocationHandler {
+		private Connection connection;
+
+		PooledConnection(Connection connection) {
+			this.connection = connection;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("close")) {
+				if (connection != null) {
+					Connection returned = connection;
+					connection = null;
+					giveBack(returned);
+				}
+				return null;
+			}
+			if (name.equals("isClosed")) {
+				return connection == null || connection.isClosed();
+			}
+			if (name.equals("equals")) {
+				return proxy == args[0];
+			}
+			if (name.equals("hashCode")) {
+				return System.identityHashCode(proxy);
+			}
+			if (name.equals("toString")) {
+				return "pooled connection to " + url;
+			}
+			if (connection == null) {
+				throw new SQLException("Connection has been handed back to the pool");
+			}
+
+			try {
+				return method.invoke(connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+	}
+}
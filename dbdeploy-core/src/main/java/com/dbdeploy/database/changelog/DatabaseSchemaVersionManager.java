@@ -1,15 +1,21 @@
 package com.dbdeploy.database.changelog;
 
 import com.dbdeploy.AppliedChangesProvider;
+import com.dbdeploy.ChangeNumberSet;
 import com.dbdeploy.exceptions.SchemaVersionTrackingException;
+import com.dbdeploy.logging.Log;
+import com.dbdeploy.metrics.Metrics;
 import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.ScriptChecksum;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class is responsible for all interaction with the changelog table
@@ -19,18 +25,45 @@ public class DatabaseSchemaVersionManager implements AppliedChangesProvider {
     private final QueryExecuter queryExecuter;
     private final String changeLogTableName;
     private CurrentTimeProvider timeProvider = new CurrentTimeProvider();
+    private ChangelogSnapshot snapshot;
+    private boolean checksums;
 
     public DatabaseSchemaVersionManager(QueryExecuter queryExecuter, String changeLogTableName) {
         this.queryExecuter = queryExecuter;
         this.changeLogTableName = changeLogTableName;
     }
 
-	public List<Long> getAppliedChanges() {
+	/**
+	 * Reads the change numbers in the changelog table, or when there is a snapshot and the fingerprint of the table
+	 * still matches it, just the fingerprint.
+	 */
+	public ChangeNumberSet getAppliedChanges() {
+		long start = System.nanoTime();
+		ChangeNumberSet changeNumbers = null;
+
+		if (snapshot != null) {
+			changeNumbers = snapshot.read(getFingerprint());
+			if (changeNumbers != null) {
+				Log.debug("Changelog unchanged since snapshot {}", snapshot.getFile());
+			}
+		}
+		if (changeNumbers == null) {
+			changeNumbers = readAppliedChanges();
+			if (snapshot != null) {
+				snapshot.write(changeNumbers);
+			}
+		}
+
+		Metrics.CHANGELOG_READ_TIME.record(Metrics.since(start));
+		return changeNumbers;
+	}
+
+	private ChangeNumberSet readAppliedChanges() {
 		try {
 			ResultSet rs = queryExecuter.executeQuery(
 					"SELECT change_number FROM " + changeLogTableName + "  ORDER BY change_number");
 
-			List<Long> changeNumbers = new ArrayList<Long>();
+			ChangeNumberSet changeNumbers = new ChangeNumberSet();
 
 			while (rs.next()) {
 				changeNumbers.add(rs.getLong(1));
@@ -45,6 +78,32 @@ public class DatabaseSchemaVersionManager implements AppliedChangesProvider {
 		}
 	}
 
+	/**
+	 * Reads the row count and lowest and highest change numbers of the changelog table, with a single aggregate query.
+	 */
+	public ChangelogFingerprint getFingerprint() {
+		try {
+			ResultSet rs = queryExecuter.executeQuery(
+					"SELECT COUNT(*), MIN(change_number), MAX(change_number) FROM " + changeLogTableName);
+			try {
+				rs.next();
+				return new ChangelogFingerprint(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+			} finally {
+				rs.close();
+			}
+		} catch (SQLException e) {
+			throw new SchemaVersionTrackingException("Could not retrieve change log from database because: "
+					+ e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Keep the change numbers read in this snapshot, and only read them again when the changelog has changed.
+	 */
+	public void setSnapshot(ChangelogSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
     public String getChangelogDeleteSql(ChangeScript script) {
 		return String.format(
 			"DELETE FROM " + changeLogTableName + " WHERE change_number = %d",
@@ -53,16 +112,84 @@ public class DatabaseSchemaVersionManager implements AppliedChangesProvider {
 
     public void recordScriptApplied(ChangeScript script) {
         try {
-            queryExecuter.execute(
-                    "INSERT INTO " + changeLogTableName + " (change_number, complete_dt, applied_by, description)" +
-                            " VALUES (?, ?, ?, ?)",
+            queryExecuter.execute(getChangelogInsertSql(), getChangelogInsertParams(script));
+        } catch (SQLException e) {
+            throw new SchemaVersionTrackingException("Could not update change log because: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Records several scripts at once, with a single JDBC batch.
+     */
+    public void recordScriptsApplied(List<ChangeScript> scripts) {
+        List<Object[]> params = new ArrayList<Object[]>(scripts.size());
+        for (ChangeScript script : scripts) {
+            params.add(getChangelogInsertParams(script));
+        }
+
+        try {
+            queryExecuter.executeBatch(getChangelogInsertSql(), params);
+        } catch (SQLException e) {
+            throw new SchemaVersionTrackingException("Could not update change log because: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    private String getChangelogInsertSql() {
+        if (checksums) {
+            return "INSERT INTO " + changeLogTableName +
+                    " (change_number, complete_dt, applied_by, description, checksum) VALUES (?, ?, ?, ?, ?)";
+        }
+        return "INSERT INTO " + changeLogTableName + " (change_number, complete_dt, applied_by, description)" +
+                " VALUES (?, ?, ?, ?)";
+    }
+
+    private Object[] getChangelogInsertParams(ChangeScript script) {
+        if (checksums) {
+            return new Object[] {
                     script.getId(),
                     new Timestamp(timeProvider.now().getTime()),
                     queryExecuter.getDatabaseUsername(),
-                    script.getDescription()
-                    );
+                    script.getDescription(),
+                    script.getChecksum()
+            };
+        }
+        return new Object[] {
+                script.getId(),
+                new Timestamp(timeProvider.now().getTime()),
+                queryExecuter.getDatabaseUsername(),
+                script.getDescription()
+        };
+    }
+
+    /**
+     * Record the {@link ScriptChecksum} of each script applied in the checksum column of the changelog table, which
+     * the addChecksumColumn scripts add.
+     */
+    public void setChecksums(boolean checksums) {
+        this.checksums = checksums;
+    }
+
+    /**
+     * @return the checksum recorded for each applied change, by change number, leaving out changes recorded without
+     * one
+     */
+    public Map<Long, String> getAppliedChecksums() {
+        try {
+            ResultSet rs = queryExecuter.executeQuery("SELECT change_number, checksum FROM " + changeLogTableName
+                    + " WHERE checksum IS NOT NULL");
+            try {
+                Map<Long, String> checksums = new HashMap<Long, String>();
+                while (rs.next()) {
+                    checksums.put(rs.getLong(1), rs.getString(2));
+                }
+                return checksums;
+            } finally {
+                rs.close();
+            }
         } catch (SQLException e) {
-            throw new SchemaVersionTrackingException("Could not update change log because: "
+            throw new SchemaVersionTrackingException("Could not retrieve checksums from change log because: "
                     + e.getMessage(), e);
         }
     }
@@ -1,45 +1,319 @@
 package com.dbdeploy.database.changelog;
 
+import com.dbdeploy.logging.Log;
+
+import javax.sql.DataSource;
 import java.sql.*;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Runs sql over a single connection. Rather than creating a JDBC statement per call, it keeps one plain
+ * {@link Statement} for updates, one for queries, and the most recently used {@link PreparedStatement}s keyed by
+ * their sql, and closes them all in {@link #close()}.
+ */
 public class QueryExecuter {
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 16;
+
 	private final Connection connection;
     private final String username;
 
+	private Statement statement;
+	private Statement queryStatement;
+	private int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+	private final Map<String, PreparedStatement> preparedStatements =
+			new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true);
+	private long hits;
+	private long misses;
+
     public QueryExecuter(String connectionString, String username, String password) throws SQLException {
-        this.username = username;
-        connection = DriverManager.getConnection(connectionString, username, password);
+        this(DriverManager.getConnection(connectionString, username, password), username);
 	}
 
-	public ResultSet executeQuery(String sql) throws SQLException {
-		Statement statement = connection.createStatement();
-		return statement.executeQuery(sql);
+	/**
+	 * Runs sql over a connection from the data source, which is closed - handed back, for a pool - in {@link #close()}.
+	 */
+	public QueryExecuter(DataSource dataSource) throws SQLException {
+		this(dataSource.getConnection(), null);
 	}
 
-	public void execute(String sql) throws SQLException {
-		Statement statement = connection.createStatement();
+	private QueryExecuter(Connection connection, String username) throws SQLException {
+		this.connection = connection;
+		this.username = username != null ? username : getUserName(connection);
+	}
+
+	/**
+	 * Closes the connection if its user cannot be found, as the executer that would close it is never made.
+	 */
+	private static String getUserName(Connection connection) throws SQLException {
+		boolean found = false;
 		try {
-			statement.execute(sql);
+			String username = connection.getMetaData().getUserName();
+			found = true;
+			return username;
 		} finally {
-			statement.close();
+			if (!found) {
+				try {
+					connection.close();
+				} catch (SQLException e) {
+					Log.warn("Could not close connection: {}", e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * The result set stays open until the next call to executeQuery, or until the executer is closed.
+	 */
+	public ResultSet executeQuery(String sql) throws SQLException {
+		if (queryStatement == null) {
+			queryStatement = connection.createStatement();
 		}
+		return queryStatement.executeQuery(sql);
+	}
+
+	public void execute(String sql) throws SQLException {
+		getStatement().execute(sql);
 	}
 
     public void execute(String sql, Object... params) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement(sql);
+        PreparedStatement statement = prepare(sql);
         try {
             for (int i = 0; i < params.length; i++) {
                 Object param = params[i];
                 statement.setObject(i+1, param);
             }
             statement.execute();
+        } catch (SQLException e) {
+            preparedStatements.remove(sql);
+            throw e;
         } finally {
-            statement.close();
+            if (!preparedStatements.containsKey(sql)) {
+                closeQuietly(statement);
+            }
         }
     }
 
+	/**
+	 * @return the number of rows the INSERT, UPDATE or DELETE changed
+	 */
+	public int executeUpdate(String sql, Object... params) throws SQLException {
+		PreparedStatement statement = prepare(sql);
+		try {
+			for (int i = 0; i < params.length; i++) {
+				statement.setObject(i + 1, params[i]);
+			}
+			return statement.executeUpdate();
+		} catch (SQLException e) {
+			preparedStatements.remove(sql);
+			throw e;
+		} finally {
+			if (!preparedStatements.containsKey(sql)) {
+				closeQuietly(statement);
+			}
+		}
+	}
+
+	/**
+	 * Executes the prepared statement once for each set of parameters, as one JDBC batch if the driver supports it.
+	 */
+	public void executeBatch(String sql, List<Object[]> params) throws SQLException {
+		executeBatch(sql, params, null);
+	}
+
+	/**
+	 * As {@link #executeBatch(String, List)}, with each parameter converted by the driver to the {@link Types} given
+	 * for its position, or bound as it is if types is null.
+	 */
+	public void executeBatch(String sql, List<Object[]> params, int[] types) throws SQLException {
+		PreparedStatement statement = prepare(sql);
+		try {
+			if (connection.getMetaData().supportsBatchUpdates()) {
+				for (Object[] row : params) {
+					bind(statement, row, types);
+					statement.addBatch();
+				}
+				statement.executeBatch();
+				statement.clearBatch();
+			} else {
+				for (int i = 0; i < params.size(); i++) {
+					bind(statement, params.get(i), types);
+					try {
+						statement.execute();
+					} catch (SQLException e) {
+						throw batchFailure(e, i);
+					}
+				}
+			}
+		} catch (SQLException e) {
+			preparedStatements.remove(sql);
+			throw e;
+		} finally {
+			if (!preparedStatements.containsKey(sql)) {
+				closeQuietly(statement);
+			}
+		}
+	}
+
+	private static void bind(PreparedStatement statement, Object[] row, int[] types) throws SQLException {
+		for (int i = 0; i < row.length; i++) {
+			if (types == null) {
+				statement.setObject(i + 1, row[i]);
+			} else if (row[i] == null) {
+				statement.setNull(i + 1, types[i]);
+			} else {
+				statement.setObject(i + 1, row[i], types[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return the {@link Types} of the columns of the table, in the order given, or of all its columns in the order of
+	 * the table if columns is null
+	 */
+	public int[] getColumnTypes(String table, List<String> columns) throws SQLException {
+		StringBuilder sql = new StringBuilder("SELECT ");
+		if (columns == null) {
+			sql.append('*');
+		} else {
+			for (int i = 0; i < columns.size(); i++) {
+				sql.append(i == 0 ? "" : ", ").append(columns.get(i));
+			}
+		}
+		sql.append(" FROM ").append(table).append(" WHERE 1 = 0");
+
+		ResultSet rs = executeQuery(sql.toString());
+		try {
+			ResultSetMetaData metaData = rs.getMetaData();
+			int[] types = new int[metaData.getColumnCount()];
+			for (int i = 0; i < types.length; i++) {
+				types[i] = metaData.getColumnType(i + 1);
+			}
+			return types;
+		} finally {
+			rs.close();
+		}
+	}
+
+	/**
+	 * Executes the statements as one JDBC batch, or one after the other if the driver does not support batches.
+	 */
+	public void executeBatch(List<String> sqls) throws SQLException {
+		if (!connection.getMetaData().supportsBatchUpdates()) {
+			executeEach(sqls);
+			return;
+		}
+
+		Statement statement = getStatement();
+		try {
+			for (String sql : sqls) {
+				statement.addBatch(sql);
+			}
+			statement.executeBatch();
+		} finally {
+			statement.clearBatch();
+		}
+	}
+
+	private void executeEach(List<String> sqls) throws SQLException {
+		for (int i = 0; i < sqls.size(); i++) {
+			try {
+				execute(sqls.get(i));
+			} catch (SQLException e) {
+				throw batchFailure(e, i);
+			}
+		}
+	}
+
+	/**
+	 * @return the failure of the statement at the given index, as the driver would report it from a batch
+	 */
+	private static BatchUpdateException batchFailure(SQLException e, int index) {
+		int[] updateCounts = new int[index];
+		Arrays.fill(updateCounts, Statement.SUCCESS_NO_INFO);
+		BatchUpdateException failure = new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(),
+				updateCounts);
+		failure.initCause(e);
+		return failure;
+	}
+
+	private Statement getStatement() throws SQLException {
+		if (statement == null) {
+			statement = connection.createStatement();
+		}
+		return statement;
+	}
+
+	private PreparedStatement prepare(String sql) throws SQLException {
+		PreparedStatement prepared = preparedStatements.get(sql);
+		if (prepared != null) {
+			hits++;
+			return prepared;
+		}
+
+		misses++;
+		prepared = connection.prepareStatement(sql);
+		if (statementCacheSize > 0) {
+			preparedStatements.put(sql, prepared);
+			evict();
+		}
+		return prepared;
+	}
+
+	private void evict() {
+		Iterator<PreparedStatement> leastRecentlyUsed = preparedStatements.values().iterator();
+		while (preparedStatements.size() > statementCacheSize) {
+			closeQuietly(leastRecentlyUsed.next());
+			leastRecentlyUsed.remove();
+		}
+	}
+
+	/**
+	 * Closes every statement and then the connection, carrying on past failures and rethrowing the first.
+	 */
 	public void close() throws SQLException {
-		connection.close();
+		Log.debug("Prepared statement cache: {} hits, {} misses", hits, misses);
+
+		SQLException failure = null;
+		for (PreparedStatement prepared : preparedStatements.values()) {
+			failure = close(prepared, failure);
+		}
+		preparedStatements.clear();
+		failure = close(statement, failure);
+		statement = null;
+		failure = close(queryStatement, failure);
+		queryStatement = null;
+
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			throw failure == null ? e : failure;
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private static SQLException close(Statement statement, SQLException failure) {
+		if (statement != null) {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				return failure == null ? e : failure;
+			}
+		}
+		return failure;
+	}
+
+	private static void closeQuietly(Statement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			// ignore
+		}
 	}
 
 	public void setAutoCommit(boolean autoCommitMode) throws SQLException {
@@ -50,7 +324,38 @@ public class QueryExecuter {
 		connection.commit();
 	}
 
+	public void rollback() throws SQLException {
+		connection.rollback();
+	}
+
     public String getDatabaseUsername() {
         return username;
     }
+
+	public String getDatabaseUrl() throws SQLException {
+		return connection.getMetaData().getURL();
+	}
+
+	/**
+	 * The number of prepared statements to keep open for reuse; the least recently used are closed beyond that. 0
+	 * prepares every statement afresh.
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+		evict();
+	}
+
+	/**
+	 * @return the number of times a prepared statement was reused
+	 */
+	public long getStatementCacheHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of times a statement had to be prepared
+	 */
+	public long getStatementCacheMisses() {
+		return misses;
+	}
 }
@@ -0,0 +1,83 @@
+package com.dbdeploy.database.changelog;
+
+import com.dbdeploy.exceptions.SchemaVersionTrackingException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The checkpoint table, which records how far into a change script dbdeploy had got, so that a script that failed
+ * part way through can carry on from its last checkpoint once fixed, rather than start again. Each checkpoint is a
+ * statement number and a hash of the statements up to and including it; the rows for a script are deleted once the
+ * whole script has been applied.
+ */
+public class StatementCheckpoints {
+	private final QueryExecuter queryExecuter;
+	private final String checkpointTableName;
+
+	public StatementCheckpoints(QueryExecuter queryExecuter, String checkpointTableName) {
+		this.queryExecuter = queryExecuter;
+		this.checkpointTableName = checkpointTableName;
+	}
+
+	/**
+	 * @return the last checkpoint recorded for the script, or null if there is none
+	 */
+	public Checkpoint getLastCheckpoint(long changeNumber) {
+		try {
+			ResultSet rs = queryExecuter.executeQuery("SELECT statement_index, statement_hash FROM "
+					+ checkpointTableName + " WHERE change_number = " + changeNumber
+					+ " ORDER BY statement_index DESC");
+			try {
+				return rs.next() ? new Checkpoint(rs.getInt(1), rs.getString(2)) : null;
+			} finally {
+				rs.close();
+			}
+		} catch (SQLException e) {
+			throw new SchemaVersionTrackingException("Could not read checkpoints from database because: "
+					+ e.getMessage(), e);
+		}
+	}
+
+	public void recordCheckpoint(long changeNumber, Checkpoint checkpoint) {
+		try {
+			queryExecuter.execute("INSERT INTO " + checkpointTableName
+					+ " (change_number, statement_index, statement_hash) VALUES (?, ?, ?)",
+					changeNumber, checkpoint.getStatementIndex(), checkpoint.getStatementHash());
+		} catch (SQLException e) {
+			throw new SchemaVersionTrackingException("Could not record checkpoint because: " + e.getMessage(), e);
+		}
+	}
+
+	public void clearCheckpoints(long changeNumber) {
+		try {
+			queryExecuter.execute("DELETE FROM " + checkpointTableName + " WHERE change_number = ?", changeNumber);
+		} catch (SQLException e) {
+			throw new SchemaVersionTrackingException("Could not clear checkpoints because: " + e.getMessage(), e);
+		}
+	}
+
+	public static class Checkpoint {
+		private final int statementIndex;
+		private final String statementHash;
+
+		public Checkpoint(int statementIndex, String statementHash) {
+			this.statementIndex = statementIndex;
+			this.statementHash = statementHash;
+		}
+
+		/**
+		 * @return the number of the last statement applied, counting from 1
+		 */
+		public int getStatementIndex() {
+			return statementIndex;
+		}
+
+		/**
+		 * @return the hash of the statements up to and including that one
+		 */
+		public String getStatementHash() {
+			return statementHash;
+		}
+	}
+}
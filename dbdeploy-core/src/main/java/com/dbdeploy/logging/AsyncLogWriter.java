@@ -0,0 +1,126 @@
+package com.dbdeploy.logging;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Behind {@link Log#startAsync()}: a fixed size ring buffer of pending messages, emptied by a daemon thread that
+ * formats them and writes them to the sink. When the buffer is full the caller waits for a slot, so no message is
+ * ever lost; the slots are reused, so queueing a message allocates nothing.
+ */
+final class AsyncLogWriter implements Runnable {
+	private static final int CAPACITY = 8192;
+
+	private final LogLevel[] levels = new LogLevel[CAPACITY];
+	private final String[] messages = new String[CAPACITY];
+	private final Object[] arguments1 = new Object[CAPACITY];
+	private final Object[] arguments2 = new Object[CAPACITY];
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final Thread thread;
+
+	/*
+	 * the next slot to read and the number of slots in use
+	 */
+	private int head;
+	private int count;
+	private boolean closed;
+
+	AsyncLogWriter() {
+		thread = new Thread(this, "dbdeploy-log");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return false if the writer has been closed, in which case the caller should write the message itself
+	 */
+	boolean offer(LogLevel level, String message, Object argument1, Object argument2) {
+		lock.lock();
+		try {
+			while (count == CAPACITY && !closed) {
+				notFull.awaitUninterruptibly();
+			}
+			if (closed) {
+				return false;
+			}
+
+			int tail = (head + count) % CAPACITY;
+			levels[tail] = level;
+			messages[tail] = message;
+			arguments1[tail] = argument1;
+			arguments2[tail] = argument2;
+			count++;
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void run() {
+		while (true) {
+			LogLevel level;
+			String message;
+			Object argument1;
+			Object argument2;
+
+			lock.lock();
+			try {
+				while (count == 0) {
+					if (closed) {
+						return;
+					}
+					notEmpty.awaitUninterruptibly();
+				}
+
+				level = levels[head];
+				message = messages[head];
+				argument1 = arguments1[head];
+				argument2 = arguments2[head];
+				messages[head] = null;
+				arguments1[head] = null;
+				arguments2[head] = null;
+				head = (head + 1) % CAPACITY;
+				count--;
+				notFull.signal();
+			} finally {
+				lock.unlock();
+			}
+
+			try {
+				Log.write(level, message, argument1, argument2);
+			} catch (RuntimeException e) {
+				System.err.println("Failed to write log message: " + e);
+			}
+		}
+	}
+
+	/**
+	 * Stops taking messages and waits until those already queued have been written.
+	 */
+	void close() {
+		lock.lock();
+		try {
+			closed = true;
+			notEmpty.signal();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package com.dbdeploy.logging;
+
+/**
+ * Writes messages to standard error, where dbdeploy has always reported its progress.
+ */
+public class ConsoleLogSink implements LogSink {
+	public void log(LogLevel level, String message) {
+		if (level.compareTo(LogLevel.warn) >= 0) {
+			System.err.println(level.name().toUpperCase() + ": " + message);
+		} else {
+			System.err.println(message);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.dbdeploy.logging;
+
+/**
+ * The logging used throughout dbdeploy. Messages below the current level are dropped before anything is built:
+ * arguments are substituted for the "{}" placeholders in a message only once it is known to be wanted, and, while
+ * {@link #startAsync() asynchronous}, only on the background thread that writes to the sink.
+ * <p>
+ * Arguments are formatted after the call returns when asynchronous, so they should not be changed afterwards.
+ * Callers that need to do more than pass an argument through to build a message should check
+ * {@link #isEnabled(LogLevel)} first.
+ * <p>
+ * The sink, level and writer are shared by the whole JVM; {@link com.dbdeploy.DbDeploy} swaps them in for a run and
+ * back afterwards, one run at a time.
+ */
+public final class Log {
+	private static final Object NO_ARGUMENTS = new Object();
+
+	private static volatile LogSink sink = new ConsoleLogSink();
+	private static volatile LogLevel level = LogLevel.info;
+	private static volatile AsyncLogWriter writer;
+
+	private Log() {
+	}
+
+	public static LogSink getSink() {
+		return sink;
+	}
+
+	public static void setSink(LogSink sink) {
+		Log.sink = sink;
+	}
+
+	public static LogLevel getLevel() {
+		return level;
+	}
+
+	public static void setLevel(LogLevel level) {
+		Log.level = level;
+	}
+
+	public static boolean isEnabled(LogLevel level) {
+		return level.compareTo(Log.level) >= 0;
+	}
+
+	public static boolean isDebugEnabled() {
+		return isEnabled(LogLevel.debug);
+	}
+
+	/**
+	 * From now on, hand messages to a background thread to format and write to the sink, so that a slow sink (such as
+	 * the console) does not hold up the caller.
+	 */
+	public static synchronized void startAsync() {
+		if (writer == null) {
+			writer = new AsyncLogWriter();
+		}
+	}
+
+	/**
+	 * Writes out any messages still waiting, and goes back to writing messages as they are logged.
+	 */
+	public static synchronized void stopAsync() {
+		if (writer != null) {
+			AsyncLogWriter stopping = writer;
+			writer = null;
+			stopping.close();
+		}
+	}
+
+	public static void debug(String message) {
+		log(LogLevel.debug, message, NO_ARGUMENTS, null);
+	}
+
+	public static void debug(String message, Object argument) {
+		log(LogLevel.debug, message, argument, null);
+	}
+
+	public static void debug(String message, Object argument1, Object argument2) {
+		log(LogLevel.debug, message, argument1, argument2);
+	}
+
+	public static void info(String message) {
+		log(LogLevel.info, message, NO_ARGUMENTS, null);
+	}
+
+	public static void info(String message, Object argument) {
+		log(LogLevel.info, message, argument, null);
+	}
+
+	public static void info(String message, Object argument1, Object argument2) {
+		log(LogLevel.info, message, argument1, argument2);
+	}
+
+	public static void warn(String message) {
+		log(LogLevel.warn, message, NO_ARGUMENTS, null);
+	}
+
+	public static void warn(String message, Object argument) {
+		log(LogLevel.warn, message, argument, null);
+	}
+
+	public static void warn(String message, Object argument1, Object argument2) {
+		log(LogLevel.warn, message, argument1, argument2);
+	}
+
+	public static void error(String message) {
+		log(LogLevel.error, message, NO_ARGUMENTS, null);
+	}
+
+	public static void error(String message, Object argument) {
+		log(LogLevel.error, message, argument, null);
+	}
+
+	public static void error(String message, Object argument1, Object argument2) {
+		log(LogLevel.error, message, argument1, argument2);
+	}
+
+	private static void log(LogLevel level, String message, Object argument1, Object argument2) {
+		if (!isEnabled(level)) {
+			return;
+		}
+
+		AsyncLogWriter writer = Log.writer;
+		if (writer == null || !writer.offer(level, message, argument1, argument2)) {
+			write(level, message, argument1, argument2);
+		}
+	}
+
+	static void write(LogLevel level, String message, Object argument1, Object argument2) {
+		sink.log(level, format(message, argument1, argument2));
+	}
+
+	static String format(String message, Object argument1, Object argument2) {
+		int first = argument1 == NO_ARGUMENTS ? -1 : message.indexOf("{}");
+		if (first < 0) {
+			return message;
+		}
+
+		StringBuilder result = new StringBuilder(message.length() + 32);
+		result.append(message, 0, first).append(argument1);
+
+		int second = message.indexOf("{}", first + 2);
+		if (second < 0) {
+			return result.append(message, first + 2, message.length()).toString();
+		}
+		return result.append(message, first + 2, second).append(argument2)
+				.append(message, second + 2, message.length()).toString();
+	}
+}
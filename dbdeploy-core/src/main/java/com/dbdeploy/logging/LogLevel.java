@@ -0,0 +1,17 @@
+package com.dbdeploy.logging;
+
+public enum LogLevel {
+	/**
+	 * Every statement as it is applied
+	 */
+	debug,
+
+	/**
+	 * Progress: which scripts are available, applied and being applied
+	 */
+	info,
+
+	warn,
+
+	error
+}
@@ -0,0 +1,9 @@
+package com.dbdeploy.logging;
+
+/**
+ * Where {@link Log} messages end up: the console by default, or the logging of whatever is running dbdeploy, such as
+ * Ant or Maven.
+ */
+public interface LogSink {
+	void log(LogLevel level, String message);
+}
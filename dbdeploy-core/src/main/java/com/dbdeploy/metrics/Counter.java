@@ -0,0 +1,41 @@
+package com.dbdeploy.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A count that many threads can add to at once without contending: each thread adds to one of several cells, spaced
+ * apart so that they do not share a cache line, and the cells are only summed when the count is read.
+ */
+public class Counter {
+	private static final int STRIPES = 16;
+	private static final int PADDING = 8;
+
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+	public void increment() {
+		add(1);
+	}
+
+	public void add(long amount) {
+		cells.addAndGet(cell(), amount);
+	}
+
+	public long get() {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			sum += cells.get(i * PADDING);
+		}
+		return sum;
+	}
+
+	void reset() {
+		for (int i = 0; i < STRIPES; i++) {
+			cells.set(i * PADDING, 0);
+		}
+	}
+
+	private static int cell() {
+		long id = Thread.currentThread().getId();
+		return (int) ((id ^ (id >>> 16)) & (STRIPES - 1)) * PADDING;
+	}
+}
@@ -0,0 +1,110 @@
+package com.dbdeploy.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The distribution of a measured duration, recorded without locking. As in HdrHistogram, values are counted in
+ * buckets whose width grows with their magnitude - each power of two is split into 16 buckets - so that any value is
+ * known to within about 6% while the whole range of a long fits in under a thousand counters.
+ */
+public class Histogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final Counter count = new Counter();
+	private final Counter sum = new Counter();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long value) {
+		record(value, 1);
+	}
+
+	/**
+	 * Records the same value several times over.
+	 */
+	public void record(long value, long times) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.addAndGet(index(value), times);
+		count.add(times);
+		sum.add(value * times);
+
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+			// another thread raised the maximum in between; try again
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public long getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : sum.get() / count;
+	}
+
+	/**
+	 * @param percentile between 0 and 100
+	 * @return the highest value in the bucket that the given percentile of the recorded values fall at or below
+	 */
+	public long getPercentile(double percentile) {
+		long total = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long wanted = Math.max(1, (long) Math.ceil(total * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= wanted) {
+				return Math.min(highestValue(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+
+	/**
+	 * Values below 32 have a bucket each; above that, each power of two is split into 16 buckets.
+	 */
+	static int index(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+	}
+
+	static long highestValue(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index >> SUB_BUCKET_BITS) - 1;
+		long lowest = (long) (index - (shift << SUB_BUCKET_BITS)) << shift;
+		long highest = lowest + (1L << shift) - 1;
+		return highest < lowest ? Long.MAX_VALUE : highest;
+	}
+}
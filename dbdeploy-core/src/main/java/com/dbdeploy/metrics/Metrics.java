@@ -0,0 +1,168 @@
+package com.dbdeploy.metrics;
+
+import com.dbdeploy.logging.Log;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * The measurements taken throughout dbdeploy while it runs. Like {@link Log} this is used statically, so that any part
+ * of dbdeploy can record to it without being handed it; everything recorded is lock free, so recording costs next to
+ * nothing beside the database work being measured.
+ * <p>
+ * Durations are recorded in microseconds, using {@link #since(long)} on a start time from {@link System#nanoTime()}.
+ * While {@link #register() registered} the metrics can be watched over JMX as <code>com.dbdeploy:type=Metrics</code>.
+ * <p>
+ * Each run is bracketed by {@link #startRun()} and {@link #endRun()}, and the metrics start again from nothing only
+ * when no other run in the JVM is still recording to them.
+ */
+public final class Metrics implements MetricsMBean {
+	public static final String OBJECT_NAME = "com.dbdeploy:type=Metrics";
+
+	public static final Counter SCRIPTS_APPLIED = new Counter();
+	public static final Counter STATEMENTS_EXECUTED = new Counter();
+	public static final Counter BYTES_READ = new Counter();
+
+	/**
+	 * The time spent reading and splitting each script, or waiting for it to be split when parsing ahead.
+	 */
+	public static final Histogram PARSE_TIME = new Histogram();
+	public static final Histogram STATEMENT_TIME = new Histogram();
+	public static final Histogram COMMIT_TIME = new Histogram();
+	public static final Histogram CHANGELOG_READ_TIME = new Histogram();
+
+	private static final Metrics instance = new Metrics();
+	private static int runs;
+
+	private Metrics() {
+	}
+
+	/**
+	 * @return the microseconds elapsed since the given {@link System#nanoTime()}
+	 */
+	public static long since(long startNanos) {
+		return (System.nanoTime() - startNanos) / 1000;
+	}
+
+	/**
+	 * Starts recording for a run, from nothing unless another run is still recording, as a reset part way through
+	 * that run would lose some of its measurements.
+	 */
+	public static synchronized void startRun() {
+		if (runs++ == 0) {
+			reset();
+		}
+	}
+
+	public static synchronized void endRun() {
+		runs--;
+	}
+
+	public static void reset() {
+		SCRIPTS_APPLIED.reset();
+		STATEMENTS_EXECUTED.reset();
+		BYTES_READ.reset();
+		PARSE_TIME.reset();
+		STATEMENT_TIME.reset();
+		COMMIT_TIME.reset();
+		CHANGELOG_READ_TIME.reset();
+	}
+
+	/**
+	 * Publishes the metrics over JMX, unless they already are.
+	 *
+	 * @return whether they were published by this call, and so should be {@link #unregister() unregistered}
+	 */
+	public static synchronized boolean register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				return false;
+			}
+			server.registerMBean(instance, name);
+			return true;
+		} catch (JMException e) {
+			Log.warn("Could not publish metrics over JMX: {}", e.getMessage());
+			return false;
+		}
+	}
+
+	public static synchronized void unregister() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			Log.warn("Could not withdraw metrics from JMX: {}", e.getMessage());
+		}
+	}
+
+	public static String toJson() {
+		StringBuilder json = new StringBuilder("{\n");
+		json.append("  \"scriptsApplied\": ").append(SCRIPTS_APPLIED.get()).append(",\n");
+		json.append("  \"statementsExecuted\": ").append(STATEMENTS_EXECUTED.get()).append(",\n");
+		json.append("  \"bytesRead\": ").append(BYTES_READ.get()).append(",\n");
+		appendHistogram(json, "parseTime", PARSE_TIME).append(",\n");
+		appendHistogram(json, "statementTime", STATEMENT_TIME).append(",\n");
+		appendHistogram(json, "commitTime", COMMIT_TIME).append(",\n");
+		appendHistogram(json, "changelogReadTime", CHANGELOG_READ_TIME).append("\n");
+		return json.append("}\n").toString();
+	}
+
+	private static StringBuilder appendHistogram(StringBuilder json, String name, Histogram histogram) {
+		return json.append("  \"").append(name).append("\": {")
+				.append("\"unit\": \"us\", ")
+				.append("\"count\": ").append(histogram.getCount())
+				.append(", \"mean\": ").append(histogram.getMean())
+				.append(", \"p50\": ").append(histogram.getPercentile(50))
+				.append(", \"p90\": ").append(histogram.getPercentile(90))
+				.append(", \"p99\": ").append(histogram.getPercentile(99))
+				.append(", \"max\": ").append(histogram.getMax())
+				.append("}");
+	}
+
+	public long getScriptsApplied() {
+		return SCRIPTS_APPLIED.get();
+	}
+
+	public long getStatementsExecuted() {
+		return STATEMENTS_EXECUTED.get();
+	}
+
+	public long getBytesRead() {
+		return BYTES_READ.get();
+	}
+
+	public long getParseTimeMean() {
+		return PARSE_TIME.getMean();
+	}
+
+	public long getStatementTimeMean() {
+		return STATEMENT_TIME.getMean();
+	}
+
+	public long getStatementTime99thPercentile() {
+		return STATEMENT_TIME.getPercentile(99);
+	}
+
+	public long getStatementTimeMax() {
+		return STATEMENT_TIME.getMax();
+	}
+
+	public long getCommitTimeMean() {
+		return COMMIT_TIME.getMean();
+	}
+
+	public long getCommitTimeMax() {
+		return COMMIT_TIME.getMax();
+	}
+
+	public long getChangelogReadTimeMax() {
+		return CHANGELOG_READ_TIME.getMax();
+	}
+
+	public String getJson() {
+		return toJson();
+	}
+}
@@ -0,0 +1,31 @@
+package com.dbdeploy.metrics;
+
+/**
+ * The view of {@link Metrics} published over JMX while a deployment runs. Durations are in microseconds.
+ */
+public interface MetricsMBean {
+	long getScriptsApplied();
+
+	long getStatementsExecuted();
+
+	long getBytesRead();
+
+	long getParseTimeMean();
+
+	long getStatementTimeMean();
+
+	long getStatementTime99thPercentile();
+
+	long getStatementTimeMax();
+
+	long getCommitTimeMean();
+
+	long getCommitTimeMax();
+
+	long getChangelogReadTimeMax();
+
+	/**
+	 * @return every metric, as JSON
+	 */
+	String getJson();
+}
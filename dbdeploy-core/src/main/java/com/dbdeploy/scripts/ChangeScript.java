@@ -1,16 +1,33 @@
 package com.dbdeploy.scripts;
 
 import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.metrics.Metrics;
 
 import java.io.*;
+import java.lang.ref.SoftReference;
 
+/**
+ * A change script file. Scripts up to {@link #MAX_CACHED_LENGTH} bytes are read and decoded once, however often their
+ * content is asked for, and the text is kept as long as memory allows; larger scripts are streamed from the file each
+ * time, so that they are never held in memory whole.
+ * <p>
+ * A file named <code>.csv</code> or <code>.tsv</code> is a data script: rows to load into a table, read as
+ * {@link DelimitedData} rather than split into statements, and always streamed.
+ * <p>
+ * Subclasses may take the content from somewhere other than a file by overriding {@link #getLength()} and
+ * {@link #openStream()}; see {@link ClasspathChangeScript}.
+ */
 public class ChangeScript implements Comparable {
+	public static final long MAX_CACHED_LENGTH = 4 * 1024 * 1024;
 
 	private final long id;
 	private final File file;
 	private final String description;
     private final String encoding;
 	private static final String UNDO_MARKER = "--//@UNDO";
+	private final boolean data;
+	private final boolean baseline;
+	private SoftReference<ScriptText> text;
 
 	public ChangeScript(long id) {
 		this(id, "test");
@@ -21,6 +38,8 @@ public class ChangeScript implements Comparable {
         this.file = null;
         this.description = description;
         this.encoding = "UTF-8";
+        this.data = false;
+        this.baseline = false;
     }
 
 	public ChangeScript(long id, File file, String encoding) {
@@ -28,6 +47,20 @@ public class ChangeScript implements Comparable {
 		this.file = file;
 		this.description = file.getName();
         this.encoding = encoding;
+		this.data = DelimitedData.isDataFile(file.getName());
+		this.baseline = FilenameParser.isBaselineFile(file.getName());
+	}
+
+	/**
+	 * For a script without a file, whose kind is still told by its file name.
+	 */
+	protected ChangeScript(long id, String filename, String encoding) {
+		this.id = id;
+		this.file = null;
+		this.description = filename;
+		this.encoding = encoding;
+		this.data = DelimitedData.isDataFile(filename);
+		this.baseline = FilenameParser.isBaselineFile(filename);
 	}
 
 	public File getFile() {
@@ -42,6 +75,32 @@ public class ChangeScript implements Comparable {
 		return description;
 	}
 
+	public String getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * @return whether this is a file of rows to load rather than of sql statements
+	 */
+	public boolean isDataScript() {
+		return data;
+	}
+
+	/**
+	 * @return whether this script builds, on an empty database, the schema that all the scripts up to and including
+	 * its number would, so that it is applied in their place
+	 */
+	public boolean isBaseline() {
+		return baseline;
+	}
+
+	/**
+	 * @return the checksum of the script as it now is, to record in the changelog and check against it later
+	 */
+	public String getChecksum() {
+		return ScriptChecksum.of(this);
+	}
+
 	public int compareTo(Object o) {
 		ChangeScript other = (ChangeScript) o;
 		return Long.valueOf(this.id).compareTo(other.id);
@@ -53,35 +112,79 @@ public class ChangeScript implements Comparable {
 	}
 
 	public String getContent() {
-		return getFileContents(false);
+		ScriptText text = getText();
+		return text == null ? getFileContents(false) : text.getContent();
 	}
 
 	public String getUndoContent() {
-		return getFileContents(true);
+		ScriptText text = getText();
+		return text == null ? getFileContents(true) : text.getUndoContent();
 	}
 
-	private String getFileContents(boolean onlyAfterUndoMarker) {
+	/**
+	 * Streams the same text as {@link #getContent()} without copying it, or for large scripts without reading the
+	 * whole file into memory. The caller is responsible for closing the returned reader.
+	 */
+	public Reader getContentReader() {
+		ScriptText text = getText();
+		return text == null ? openSectionReader(false) : text.openContent();
+	}
+
+	/**
+	 * @return the text of the script, read now if it has not been read yet or has since been let go, or null if the
+	 * script is too large to keep
+	 */
+	private synchronized ScriptText getText() {
+		ScriptText text = this.text == null ? null : this.text.get();
+		if (text == null) {
+			if (data || getLength() > MAX_CACHED_LENGTH) {
+				return null;
+			}
+			text = ScriptText.read(this);
+			this.text = new SoftReference<ScriptText>(text);
+		}
+		text.retain();
+		return text;
+	}
+
+	private Reader openSectionReader(boolean onlyAfterUndoMarker) {
 		try {
-			StringBuilder content = new StringBuilder();
-			boolean foundUndoMarker = false;
-            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), encoding));
+			Metrics.BYTES_READ.add(getLength());
+			return new SectionReader(new BufferedReader(new InputStreamReader(openStream(), encoding)),
+					onlyAfterUndoMarker);
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read change script file", e);
+		}
+	}
 
-			try {
-				for (;;) {
-					String str = reader.readLine();
+	/**
+	 * @return the size of the script in bytes
+	 */
+	protected long getLength() {
+		return file.length();
+	}
 
-					if (str == null)
-						break;
+	/**
+	 * Opens the bytes of the script, or of its content in its encoding when it has no file. The caller is responsible
+	 * for closing the stream.
+	 */
+	protected InputStream openStream() throws IOException {
+		if (file == null) {
+			return new ByteArrayInputStream(getContent().getBytes(encoding));
+		}
+		return new FileInputStream(file);
+	}
 
-					if (str.trim().equals(UNDO_MARKER)) {
-						foundUndoMarker = true;
-						continue;
-					}
+	private String getFileContents(boolean onlyAfterUndoMarker) {
+		try {
+			StringBuilder content = new StringBuilder();
+			Reader reader = openSectionReader(onlyAfterUndoMarker);
 
-					if (foundUndoMarker == onlyAfterUndoMarker) {
-						content.append(str);
-						content.append('\n');
-					}
+			try {
+				char[] buffer = new char[8192];
+				int count;
+				while ((count = reader.read(buffer)) >= 0) {
+					content.append(buffer, 0, count);
 				}
 			} finally {
 				reader.close();
@@ -92,4 +195,73 @@ public class ChangeScript implements Comparable {
 			throw new DbDeployException("Failed to read change script file", e);
 		}
 	}
+
+	/**
+	 * Yields either the part of a change script before the undo marker or the part after it, one line at a time, with
+	 * each line terminated by '\n'.
+	 */
+	private static class SectionReader extends Reader {
+		private final BufferedReader reader;
+		private final boolean onlyAfterUndoMarker;
+		private boolean foundUndoMarker = false;
+		private String line = "";
+		private int linePosition = 1;
+
+		SectionReader(BufferedReader reader, boolean onlyAfterUndoMarker) {
+			this.reader = reader;
+			this.onlyAfterUndoMarker = onlyAfterUndoMarker;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (linePosition > line.length() && !nextLine()) {
+				return -1;
+			}
+
+			int count = 0;
+			while (count < len) {
+				if (linePosition < line.length()) {
+					int n = Math.min(len - count, line.length() - linePosition);
+					line.getChars(linePosition, linePosition + n, cbuf, off + count);
+					linePosition += n;
+					count += n;
+				} else if (linePosition == line.length()) {
+					cbuf[off + count++] = '\n';
+					linePosition++;
+				} else if (!nextLine()) {
+					break;
+				}
+			}
+			return count;
+		}
+
+		private boolean nextLine() throws IOException {
+			while (!foundUndoMarker || onlyAfterUndoMarker) {
+				String str = reader.readLine();
+
+				if (str == null)
+					return false;
+
+				if (str.trim().equals(UNDO_MARKER)) {
+					foundUndoMarker = true;
+					continue;
+				}
+
+				if (foundUndoMarker == onlyAfterUndoMarker) {
+					line = str;
+					linePosition = 0;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
 }
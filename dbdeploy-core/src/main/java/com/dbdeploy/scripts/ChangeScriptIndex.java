@@ -0,0 +1,104 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.exceptions.DbDeployException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A list of the change scripts in a directory, written beside them at build time so that once they are packaged on
+ * the classpath they can be found without listing the directory, which a jar cannot do cheaply, or matching file
+ * names. After a header line there is a line per script, in order, of its number, size in bytes, {@link ScriptChecksum}
+ * and file name, separated by tabs:
+ * <pre>
+ * # dbdeploy change script index 1
+ * 1	2048	9f0c3d8e5b1a2467	001_create_tables.sql
+ * 2	512	41e2bb07c5d9a3f0	002_add_email.sql
+ * </pre>
+ */
+public class ChangeScriptIndex {
+	public static final String INDEX_NAME = "dbdeploy.index";
+	private static final String HEADER = "# dbdeploy change script index 1";
+
+	/**
+	 * Indexes the change scripts in the directory, failing as the scripts would at deploy time if two share a number.
+	 *
+	 * @return the index file written
+	 */
+	public static File write(File directory) throws IOException {
+		List<ChangeScript> scripts = new ArrayList<ChangeScript>(
+				new ChangeScriptRepository(new DirectoryScanner("UTF-8").getChangeScriptsForDirectory(directory))
+						.getAvailableChangeScripts());
+		// a baseline and the script of the same number are equal as change scripts; order them by name, so that the
+		// same scripts always give the same index
+		Collections.sort(scripts, new Comparator<ChangeScript>() {
+			public int compare(ChangeScript a, ChangeScript b) {
+				int byId = a.compareTo(b);
+				return byId != 0 ? byId : a.getDescription().compareTo(b.getDescription());
+			}
+		});
+
+		File index = new File(directory, INDEX_NAME);
+		Writer writer = new OutputStreamWriter(new FileOutputStream(index), "UTF-8");
+		try {
+			writer.write(HEADER + "\n");
+			for (ChangeScript script : scripts) {
+				writer.write(script.getId() + "\t" + script.getLength() + "\t" + script.getChecksum() + "\t"
+						+ script.getDescription() + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+		return index;
+	}
+
+	/**
+	 * @param input the index, which is closed once read
+	 * @param directory the classpath directory of the index and its scripts, without a trailing '/'
+	 */
+	public static List<ChangeScript> read(InputStream input, ClassLoader classLoader, String directory,
+			String encoding) throws IOException {
+		String prefix = directory.length() == 0 ? "" : directory + "/";
+		BufferedReader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"));
+		try {
+			if (!HEADER.equals(reader.readLine())) {
+				throw new DbDeployException("Change script index " + prefix + INDEX_NAME
+						+ " is not an index this version of dbdeploy can read");
+			}
+
+			List<ChangeScript> scripts = new ArrayList<ChangeScript>();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0) {
+					continue;
+				}
+				int endOfId = line.indexOf('\t');
+				int endOfLength = line.indexOf('\t', endOfId + 1);
+				int endOfChecksum = line.indexOf('\t', endOfLength + 1);
+				if (endOfId < 0 || endOfLength < 0 || endOfChecksum < 0) {
+					throw new DbDeployException("Change script index " + prefix + INDEX_NAME
+							+ " has a malformed line: " + line);
+				}
+				scripts.add(new ClasspathChangeScript(Long.parseLong(line.substring(0, endOfId)), classLoader,
+						prefix + line.substring(endOfChecksum + 1),
+						Long.parseLong(line.substring(endOfId + 1, endOfLength)),
+						line.substring(endOfLength + 1, endOfChecksum), encoding));
+			}
+			return scripts;
+		} catch (NumberFormatException e) {
+			throw new DbDeployException("Change script index " + prefix + INDEX_NAME + " has a malformed number", e);
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -20,10 +20,23 @@ public class ChangeScriptRepository implements AvailableChangeScriptsProvider {
 		checkForDuplicateIds(scripts);
 	}
 	
+	/**
+	 * A baseline shares its number with the last of the scripts it stands in for, but there can only be one of each.
+	 */
 	private void checkForDuplicateIds(List<ChangeScript> scripts) throws DuplicateChangeScriptException {
 		long lastId = -1;
+		long lastBaselineId = -1;
 		
 		for (ChangeScript script : scripts) {
+			if (script.isBaseline()) {
+				if (script.getId() == lastBaselineId) {
+					throw new DuplicateChangeScriptException("There is more than one baseline script with number "
+							+ lastBaselineId);
+				}
+				lastBaselineId = script.getId();
+				continue;
+			}
+
 			if (script.getId() == lastId) {
 				throw new DuplicateChangeScriptException("There is more than one change script with number " + lastId);
 			}
@@ -0,0 +1,111 @@
+package com.dbdeploy.scripts;
+
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A change script packaged as a classpath resource, such as an entry in an application jar, as listed in a
+ * {@link ChangeScriptIndex}. The content is streamed from the resource whenever it is read, and the size and checksum
+ * come from the index, so the jar is neither unpacked nor hashed up front.
+ * <p>
+ * The size is only a hint for reading: the content is always read to its end, and hashed as it streams in, and reading
+ * fails if it no longer has the size and checksum in the index, as when the resources were changed without building
+ * the index again. Checking the checksums of applied scripts compares those in the index, without reading the jar.
+ */
+public class ClasspathChangeScript extends ChangeScript {
+	private final ClassLoader classLoader;
+	private final String resource;
+	private final long length;
+	private final String checksum;
+
+	public ClasspathChangeScript(long id, ClassLoader classLoader, String resource, long length, String checksum,
+			String encoding) {
+		super(id, resource.substring(resource.lastIndexOf('/') + 1), encoding);
+		this.classLoader = classLoader;
+		this.resource = resource;
+		this.length = length;
+		this.checksum = checksum;
+	}
+
+	public String getResource() {
+		return resource;
+	}
+
+	/**
+	 * @return the checksum taken when the index was built, which the content is checked against whenever it is read
+	 */
+	@Override
+	public String getChecksum() {
+		return checksum;
+	}
+
+	@Override
+	protected long getLength() {
+		return length;
+	}
+
+	@Override
+	protected InputStream openStream() throws IOException {
+		InputStream input = classLoader.getResourceAsStream(resource);
+		if (input == null) {
+			throw new FileNotFoundException("Change script " + resource + " is not on the classpath");
+		}
+		return new IndexedStream(input);
+	}
+
+	/**
+	 * Checks the content against the size and checksum in the index once it has all been read.
+	 */
+	private class IndexedStream extends FilterInputStream {
+		private final ScriptChecksum streamed = new ScriptChecksum();
+		private long count;
+
+		IndexedStream(InputStream input) {
+			super(input);
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				streamed.update(ByteBuffer.wrap(buffer, offset, read));
+				count += read;
+			} else if (read < 0) {
+				check();
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			byte[] skipped = new byte[(int) Math.min(n, 8192)];
+			int read = read(skipped, 0, skipped.length);
+			return read < 0 ? 0 : read;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		private void check() throws IOException {
+			if (count != ClasspathChangeScript.this.length) {
+				throw new IOException("Change script " + resource + " is " + count + " bytes, not the "
+						+ ClasspathChangeScript.this.length + " in its index; build the index again");
+			}
+			if (!streamed.toString().equals(checksum)) {
+				throw new IOException("Change script " + resource + " no longer has the checksum in its index;"
+						+ " build the index again");
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.List;
+
+/**
+ * Finds the change scripts in a directory on the classpath from its {@link ChangeScriptIndex}. Where there is no index
+ * but the directory is an ordinary one, as when running from an IDE or the build's own output, it is scanned as a
+ * {@link DirectoryScanner} would.
+ */
+public class ClasspathScanner {
+	private final String encoding;
+	private final ClassLoader classLoader;
+
+	public ClasspathScanner(String encoding, ClassLoader classLoader) {
+		this.encoding = encoding;
+		this.classLoader = classLoader;
+	}
+
+	/**
+	 * @param location the classpath directory of the scripts, such as <code>db/deltas</code>
+	 */
+	public List<ChangeScript> getChangeScriptsForLocation(String location) {
+		String directory = location;
+		while (directory.startsWith("/")) {
+			directory = directory.substring(1);
+		}
+		while (directory.endsWith("/")) {
+			directory = directory.substring(0, directory.length() - 1);
+		}
+		String indexName = directory.length() == 0 ? ChangeScriptIndex.INDEX_NAME
+				: directory + "/" + ChangeScriptIndex.INDEX_NAME;
+
+		InputStream index = classLoader.getResourceAsStream(indexName);
+		if (index == null) {
+			URL url = classLoader.getResource(directory);
+			if (url != null && "file".equals(url.getProtocol())) {
+				try {
+					return new DirectoryScanner(encoding).getChangeScriptsForDirectory(new File(url.toURI()));
+				} catch (URISyntaxException e) {
+					throw new DbDeployException("Could not find the directory of " + url, e);
+				}
+			}
+			throw new UsageException("There is no change script index " + indexName + " on the classpath;"
+					+ " build one with the index goal of the dbdeploy maven plugin");
+		}
+
+		Log.info("Reading change scripts from classpath index {}...", indexName);
+		try {
+			return ChangeScriptIndex.read(index, classLoader, directory, encoding);
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read change script index " + indexName, e);
+		}
+	}
+}
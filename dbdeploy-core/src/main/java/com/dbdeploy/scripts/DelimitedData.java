@@ -0,0 +1,214 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.metrics.Metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The rows of a data script, read from the file one at a time so that a script of any size is loaded in constant
+ * memory. The file starts with comment lines, one of which names the table to load, then a line of column names,
+ * then a line per row:
+ * <pre>
+ * --//@TABLE country
+ * code,name,population
+ * GB,United Kingdom,67000000
+ * "FM","Micronesia, Federated States of",
+ * </pre>
+ * Values are separated by commas in a <code>.csv</code> file and by tabs in a <code>.tsv</code> file. A value may be
+ * quoted, with doubled quotes inside it, to hold the separator, quotes or line breaks. An empty unquoted value is
+ * NULL, where <code>""</code> is an empty string. Blank lines are skipped.
+ */
+public class DelimitedData {
+	private static final String TABLE = "--//@TABLE";
+
+	private final ChangeScript script;
+	private final BufferedReader reader;
+	private final char separator;
+	private String table;
+	private List<String> columns;
+	private int lineNumber;
+	private int physicalLine;
+
+	private DelimitedData(ChangeScript script, BufferedReader reader, char separator) {
+		this.script = script;
+		this.reader = reader;
+		this.separator = separator;
+	}
+
+	public static boolean isDataFile(String filename) {
+		String name = filename.toLowerCase();
+		return name.endsWith(".csv") || name.endsWith(".tsv");
+	}
+
+	/**
+	 * Opens the script and reads up to the first row. The caller is responsible for closing it.
+	 */
+	public static DelimitedData open(ChangeScript script) {
+		BufferedReader reader;
+		try {
+			Metrics.BYTES_READ.add(script.getLength());
+			reader = new BufferedReader(new InputStreamReader(script.openStream(), script.getEncoding()));
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read change script file", e);
+		}
+
+		char separator = script.getDescription().toLowerCase().endsWith(".tsv") ? '\t' : ',';
+		DelimitedData data = new DelimitedData(script, reader, separator);
+		try {
+			data.readHeader();
+		} catch (RuntimeException e) {
+			data.close();
+			throw e;
+		}
+		return data;
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	public List<String> getColumns() {
+		return columns;
+	}
+
+	/**
+	 * @return the line the last row read started on, counting from 1
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the values of the next row, with null for NULL, or null at the end of the file
+	 */
+	public String[] next() {
+		List<String> values = readRecord();
+		if (values == null) {
+			return null;
+		}
+		if (values.size() != columns.size()) {
+			throw new DbDeployException(script + ": line " + lineNumber + " has " + values.size()
+					+ " values, where there are " + columns.size() + " columns");
+		}
+		return values.toArray(new String[values.size()]);
+	}
+
+	public void close() {
+		try {
+			reader.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	private void readHeader() {
+		String line;
+		while ((line = readLine()) != null) {
+			String trimmed = line.trim();
+			if (trimmed.startsWith(TABLE)) {
+				table = trimmed.substring(TABLE.length()).trim();
+			} else if (trimmed.length() > 0 && !trimmed.startsWith("--")) {
+				break;
+			}
+		}
+
+		if (table == null || table.length() == 0) {
+			throw new UsageException(script + ": a data script needs a " + TABLE + " line naming the table to load");
+		}
+		if (line == null) {
+			throw new UsageException(script + ": a data script needs a line of column names after " + TABLE);
+		}
+
+		List<String> columns = new ArrayList<String>();
+		for (String column : parse(line)) {
+			if (column == null || column.trim().length() == 0) {
+				throw new UsageException(script + ": line " + lineNumber + " has an empty column name");
+			}
+			columns.add(column.trim());
+		}
+		this.columns = Collections.unmodifiableList(columns);
+	}
+
+	private List<String> readRecord() {
+		String line;
+		do {
+			line = readLine();
+			if (line == null) {
+				return null;
+			}
+		} while (line.trim().length() == 0);
+		return parse(line);
+	}
+
+	/**
+	 * Splits a record starting on the given line, reading further lines while a quoted value is open.
+	 */
+	private List<String> parse(String line) {
+		int firstLine = lineNumber;
+		List<String> values = new ArrayList<String>();
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+		boolean wasQuoted = false;
+		int i = 0;
+
+		while (true) {
+			if (i == line.length()) {
+				if (!quoted) {
+					break;
+				}
+				line = readLine();
+				if (line == null) {
+					throw new DbDeployException(script + ": the quoted value starting on line " + firstLine
+							+ " is not closed");
+				}
+				value.append('\n');
+				i = 0;
+				continue;
+			}
+
+			char c = line.charAt(i++);
+			if (quoted) {
+				if (c != '"') {
+					value.append(c);
+				} else if (i < line.length() && line.charAt(i) == '"') {
+					value.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == separator) {
+				values.add(wasQuoted || value.length() > 0 ? value.toString() : null);
+				value.setLength(0);
+				wasQuoted = false;
+			} else if (c == '"' && value.length() == 0 && !wasQuoted) {
+				quoted = true;
+				wasQuoted = true;
+			} else {
+				value.append(c);
+			}
+		}
+		values.add(wasQuoted || value.length() > 0 ? value.toString() : null);
+
+		lineNumber = firstLine;
+		return values;
+	}
+
+	private String readLine() {
+		try {
+			String line = reader.readLine();
+			if (line != null) {
+				lineNumber = ++physicalLine;
+			}
+			return line;
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read change script file", e);
+		}
+	}
+}
@@ -1,6 +1,8 @@
 package com.dbdeploy.scripts;
 
 import com.dbdeploy.exceptions.UnrecognisedFilenameException;
+import com.dbdeploy.logging.Log;
+import com.dbdeploy.logging.LogLevel;
 
 import java.io.File;
 import java.io.IOException;
@@ -17,10 +19,12 @@ public class DirectoryScanner {
     }
 	
 	public List<ChangeScript> getChangeScriptsForDirectory(File directory)  {
-		try {
-			System.err.println("Reading change scripts from directory " + directory.getCanonicalPath() + "...");
-		} catch (IOException e1) {
-			// ignore
+		if (Log.isEnabled(LogLevel.info)) {
+			try {
+				Log.info("Reading change scripts from directory {}...", directory.getCanonicalPath());
+			} catch (IOException e1) {
+				// ignore
+			}
 		}
 
 		List<ChangeScript> scripts = new ArrayList<ChangeScript>();
@@ -5,11 +5,21 @@ import com.dbdeploy.exceptions.UnrecognisedFilenameException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Takes the change number from the start of a script's filename. A filename starting with <code>baseline_</code>, such
+ * as <code>baseline_6000_schema.sql</code>, is a baseline script; see {@link ChangeScript#isBaseline()}.
+ */
 public class FilenameParser {
+	private static final String BASELINE_PREFIX = "baseline_";
+
 	private final Pattern pattern;
 
 	public FilenameParser() {
-		pattern = Pattern.compile("(\\d+).*");
+		pattern = Pattern.compile("(?:" + BASELINE_PREFIX + ")?(\\d+).*");
+	}
+
+	public static boolean isBaselineFile(String filename) {
+		return filename.startsWith(BASELINE_PREFIX);
 	}
 
 	public long extractIdFromFilename(String filename) throws UnrecognisedFilenameException {
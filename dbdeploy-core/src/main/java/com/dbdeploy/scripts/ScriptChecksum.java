@@ -0,0 +1,159 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.metrics.Metrics;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * The 64 bit xxHash (XXH64, seed 0) of the bytes of a change script, recorded in the changelog as 16 hex digits so
+ * that a script edited after it was applied can be found. The file is memory mapped and hashed in a single pass, 32
+ * bytes at a time, without being decoded or copied onto the heap; a script without a file is hashed as it streams in.
+ */
+public class ScriptChecksum {
+	private static final long PRIME1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME3 = 0x165667B19E3779F9L;
+	private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+	private static final long PRIME5 = 0x27D4EB2F165667C5L;
+	private static final int STRIPE = 32;
+	private static final long MAPPED_REGION = 64 * 1024 * 1024;
+	private static final int STREAM_BUFFER = 64 * 1024;
+
+	private long v1 = PRIME1 + PRIME2;
+	private long v2 = PRIME2;
+	private long v3 = 0;
+	private long v4 = -PRIME1;
+	private long length;
+	private final ByteBuffer pending = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * @return the checksum of the script file, or of the bytes of a script without a file, read as a stream
+	 */
+	public static String of(ChangeScript script) {
+		ScriptChecksum checksum = new ScriptChecksum();
+		if (script.getFile() == null) {
+			try {
+				InputStream input = script.openStream();
+				try {
+					byte[] buffer = new byte[STREAM_BUFFER];
+					int count;
+					while ((count = input.read(buffer)) >= 0) {
+						checksum.update(ByteBuffer.wrap(buffer, 0, count));
+					}
+				} finally {
+					input.close();
+				}
+			} catch (IOException e) {
+				throw new DbDeployException("Failed to read change script", e);
+			}
+			return checksum.toString();
+		}
+
+		try {
+			FileInputStream input = new FileInputStream(script.getFile());
+			try {
+				FileChannel channel = input.getChannel();
+				long size = channel.size();
+				for (long position = 0; position < size; position += MAPPED_REGION) {
+					checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+							Math.min(MAPPED_REGION, size - position)));
+				}
+				Metrics.BYTES_READ.add(size);
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read change script file", e);
+		}
+		return checksum.toString();
+	}
+
+	public void update(ByteBuffer data) {
+		data.order(ByteOrder.LITTLE_ENDIAN);
+		length += data.remaining();
+
+		if (pending.position() > 0) {
+			while (pending.hasRemaining() && data.hasRemaining()) {
+				pending.put(data.get());
+			}
+			if (pending.hasRemaining()) {
+				return;
+			}
+			pending.flip();
+			stripe(pending);
+			pending.clear();
+		}
+
+		while (data.remaining() >= STRIPE) {
+			stripe(data);
+		}
+		pending.put(data);
+	}
+
+	public long getValue() {
+		long hash;
+		if (length >= STRIPE) {
+			hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+					+ Long.rotateLeft(v4, 18);
+			hash = merge(hash, v1);
+			hash = merge(hash, v2);
+			hash = merge(hash, v3);
+			hash = merge(hash, v4);
+		} else {
+			hash = PRIME5;
+		}
+		hash += length;
+
+		ByteBuffer tail = pending.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		tail.flip();
+		while (tail.remaining() >= 8) {
+			hash ^= round(0, tail.getLong());
+			hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+		}
+		if (tail.remaining() >= 4) {
+			hash ^= (tail.getInt() & 0xFFFFFFFFL) * PRIME1;
+			hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+		}
+		while (tail.hasRemaining()) {
+			hash ^= (tail.get() & 0xFF) * PRIME5;
+			hash = Long.rotateLeft(hash, 11) * PRIME1;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= PRIME2;
+		hash ^= hash >>> 29;
+		hash *= PRIME3;
+		hash ^= hash >>> 32;
+		return hash;
+	}
+
+	/**
+	 * @return the checksum as 16 hex digits
+	 */
+	@Override
+	public String toString() {
+		String hex = Long.toHexString(getValue());
+		return "0000000000000000".substring(hex.length()) + hex;
+	}
+
+	private void stripe(ByteBuffer data) {
+		v1 = round(v1, data.getLong());
+		v2 = round(v2, data.getLong());
+		v3 = round(v3, data.getLong());
+		v4 = round(v4, data.getLong());
+	}
+
+	private static long round(long accumulator, long input) {
+		return Long.rotateLeft(accumulator + input * PRIME2, 31) * PRIME1;
+	}
+
+	private static long merge(long hash, long accumulator) {
+		return (hash ^ round(0, accumulator)) * PRIME1 + PRIME4;
+	}
+}
@@ -0,0 +1,105 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.exceptions.UsageException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Scheduling directives from the comment lines at the top of a change script, which say what the script has to wait
+ * for when scripts are applied over several connections at once:
+ * <pre>
+ * --//@DEPENDS 12, 15
+ * </pre>
+ * means the script only needs scripts 12 and 15 to have been applied, and
+ * <pre>
+ * --//@GROUP indexes
+ * </pre>
+ * means that consecutive scripts of the same group do not depend on each other, only on the scripts before the group.
+ * A script with neither depends on every script before it.
+ */
+public class ScriptDirectives {
+	private static final String DEPENDS = "--//@DEPENDS";
+	private static final String GROUP = "--//@GROUP";
+
+	private final List<Long> dependencies;
+	private final String group;
+
+	public ScriptDirectives(List<Long> dependencies, String group) {
+		this.dependencies = dependencies;
+		this.group = group;
+	}
+
+	/**
+	 * @return the ids of the scripts this one depends on, or null if it does not say
+	 */
+	public List<Long> getDependencies() {
+		return dependencies;
+	}
+
+	/**
+	 * @return the group of independent scripts this one belongs to, or null if none
+	 */
+	public String getGroup() {
+		return group;
+	}
+
+	public boolean isEmpty() {
+		return dependencies == null && group == null;
+	}
+
+	public static ScriptDirectives read(ChangeScript script) {
+		List<Long> dependencies = null;
+		String group = null;
+
+		BufferedReader reader = new BufferedReader(script.getContentReader());
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.startsWith(DEPENDS)) {
+					dependencies = parseDependencies(script, line.substring(DEPENDS.length()));
+				} else if (line.startsWith(GROUP)) {
+					group = line.substring(GROUP.length()).trim();
+					if (group.length() == 0) {
+						throw new UsageException(script + ": " + GROUP + " needs a group name");
+					}
+				} else if (line.length() > 0 && !line.startsWith("--")) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read change script file", e);
+		} finally {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+
+		if (dependencies != null && group != null) {
+			throw new UsageException(script + ": use either " + DEPENDS + " or " + GROUP + ", not both");
+		}
+		return new ScriptDirectives(dependencies, group);
+	}
+
+	private static List<Long> parseDependencies(ChangeScript script, String list) {
+		List<Long> dependencies = new ArrayList<Long>();
+		for (String id : list.trim().split("[\\s,]+")) {
+			if (id.length() == 0) {
+				continue;
+			}
+			try {
+				dependencies.add(Long.valueOf(id));
+			} catch (NumberFormatException e) {
+				throw new UsageException(script + ": " + DEPENDS + " expects change script numbers, not " + id);
+			}
+		}
+		return Collections.unmodifiableList(dependencies);
+	}
+}
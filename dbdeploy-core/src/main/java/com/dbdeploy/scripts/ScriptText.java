@@ -0,0 +1,186 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.metrics.Metrics;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The text of a change script, read and decoded once, with the do section and the undo section laid end to end: each
+ * line ends with '\n', the undo markers are left out, and {@link #undoStart} is where the undo section begins.
+ * <p>
+ * The most recently used texts, up to {@link #MAX_RETAINED_CHARS} characters in all, are held on to here; beyond that
+ * a text is only softly reachable from its script, and is read again if the garbage collector has cleared it.
+ */
+class ScriptText {
+	static final int MAX_RETAINED_CHARS = 16 * 1024 * 1024;
+	private static final String UNDO_MARKER = "--//@UNDO";
+
+	private static final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>();
+	private static final Map<ScriptText, Boolean> retained = new LinkedHashMap<ScriptText, Boolean>(16, 0.75f, true);
+	private static long retainedChars;
+
+	private final String text;
+	private final int undoStart;
+
+	ScriptText(String text, int undoStart) {
+		this.text = text;
+		this.undoStart = undoStart;
+	}
+
+	String getContent() {
+		return text.substring(0, undoStart);
+	}
+
+	String getUndoContent() {
+		return text.substring(undoStart);
+	}
+
+	Reader openContent() {
+		return new TextReader(text, 0, undoStart);
+	}
+
+	Reader openUndoContent() {
+		return new TextReader(text, undoStart, text.length());
+	}
+
+	static ScriptText read(ChangeScript script) {
+		try {
+			InputStream input = script.openStream();
+			try {
+				ReadableByteChannel channel = input instanceof FileInputStream
+						? ((FileInputStream) input).getChannel() : Channels.newChannel(input);
+				ByteBuffer bytes = read(channel, (int) script.getLength());
+				Metrics.BYTES_READ.add(bytes.remaining());
+				return split(Charset.forName(script.getEncoding()).decode(bytes));
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			throw new DbDeployException("Failed to read change script file", e);
+		} catch (IllegalArgumentException e) {
+			throw new DbDeployException("Failed to read change script file", e);
+		}
+	}
+
+	/**
+	 * Reads the whole script into this thread's buffer, which is reused from script to script. The size is only where
+	 * to start: the buffer grows for a script that turns out to be longer.
+	 */
+	private static ByteBuffer read(ReadableByteChannel channel, int size) throws IOException {
+		ByteBuffer buffer = buffers.get();
+		if (buffer == null || buffer.capacity() < size + 1) {
+			buffer = ByteBuffer.allocate(Math.max(size + 1, 64 * 1024));
+			buffers.set(buffer);
+		}
+
+		buffer.clear();
+		while (channel.read(buffer) >= 0) {
+			if (!buffer.hasRemaining()) {
+				buffer.flip();
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer);
+				buffers.set(buffer);
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Splits the text into lines as {@link java.io.BufferedReader#readLine()} does, and lays out the do and undo
+	 * sections.
+	 */
+	private static ScriptText split(CharBuffer chars) {
+		StringBuilder doSection = new StringBuilder(chars.remaining());
+		StringBuilder undoSection = new StringBuilder();
+		boolean foundUndoMarker = false;
+
+		int length = chars.remaining();
+		int start = 0;
+		while (start < length) {
+			int end = start;
+			while (end < length && chars.get(end) != '\n' && chars.get(end) != '\r') {
+				end++;
+			}
+
+			CharSequence line = chars.subSequence(start, end);
+			if (line.toString().trim().equals(UNDO_MARKER)) {
+				foundUndoMarker = true;
+			} else {
+				(foundUndoMarker ? undoSection : doSection).append(line).append('\n');
+			}
+
+			if (end < length && chars.get(end) == '\r' && end + 1 < length && chars.get(end + 1) == '\n') {
+				end++;
+			}
+			start = end + 1;
+		}
+
+		int undoStart = doSection.length();
+		return new ScriptText(doSection.append(undoSection).toString(), undoStart);
+	}
+
+	/**
+	 * Keeps this text strongly reachable as one of the most recently used.
+	 */
+	void retain() {
+		synchronized (retained) {
+			if (retained.put(this, Boolean.TRUE) == null) {
+				retainedChars += text.length();
+			}
+
+			Iterator<ScriptText> leastRecentlyUsed = retained.keySet().iterator();
+			while (retainedChars > MAX_RETAINED_CHARS && leastRecentlyUsed.hasNext()) {
+				ScriptText evicted = leastRecentlyUsed.next();
+				if (evicted == this) {
+					break;
+				}
+				leastRecentlyUsed.remove();
+				retainedChars -= evicted.text.length();
+			}
+		}
+	}
+
+	private static class TextReader extends Reader {
+		private final String text;
+		private final int end;
+		private int position;
+
+		TextReader(String text, int start, int end) {
+			this.text = text;
+			this.position = start;
+			this.end = end;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (position >= end) {
+				return -1;
+			}
+
+			int count = Math.min(len, end - position);
+			text.getChars(position, position + count, cbuf, off);
+			position += count;
+			return count;
+		}
+
+		@Override
+		public void close() {
+			position = end;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package com.dbdeploy;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ChangeNumberSetTest {
+
+	@Test
+	public void shouldHoldConsecutiveNumbersAsOneRange() throws Exception {
+		ChangeNumberSet set = ChangeNumberSet.of(1L, 2L, 3L, 4L, 5L);
+
+		assertThat(set.getRangeCount(), is(1));
+		assertThat(set.size(), is(5L));
+		assertThat(set.min(), is(1L));
+		assertThat(set.max(), is(5L));
+	}
+
+	@Test
+	public void shouldKeepNumbersAddedOutOfOrderSortedAndMergeRangesTheyJoin() throws Exception {
+		ChangeNumberSet set = ChangeNumberSet.of(20120101120000L, 5L, 3L, 9L, 4L, 7L, 8L, 3L);
+
+		assertThat(set.toString(), is("[3..5, 7..9, 20120101120000]"));
+		assertThat(set.size(), is(7L));
+		assertThat(set.max(), is(20120101120000L));
+
+		set.add(6L);
+		assertThat(set.toString(), is("[3..9, 20120101120000]"));
+		assertThat(set.size(), is(8L));
+	}
+
+	@Test
+	public void shouldFindMembers() throws Exception {
+		ChangeNumberSet set = ChangeNumberSet.of(1L, 2L, 3L, 10L, 12L);
+
+		assertThat(set.contains(0L), is(false));
+		assertThat(set.contains(1L), is(true));
+		assertThat(set.contains(3L), is(true));
+		assertThat(set.contains(4L), is(false));
+		assertThat(set.contains(10L), is(true));
+		assertThat(set.contains(11L), is(false));
+		assertThat(set.contains(12L), is(true));
+		assertThat(set.contains(13L), is(false));
+	}
+
+	@Test
+	public void shouldSubtractAnotherSet() throws Exception {
+		ChangeNumberSet available = ChangeNumberSet.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 20L);
+		ChangeNumberSet applied = ChangeNumberSet.of(0L, 1L, 2L, 4L, 6L, 7L, 10L, 11L);
+
+		ChangeNumberSet notApplied = available.minus(applied);
+
+		assertThat(notApplied.toString(), is("[3, 5, 8..9, 20]"));
+		assertThat(notApplied.size(), is(5L));
+		assertThat(applied.minus(available).toString(), is("[0, 11]"));
+		assertThat(available.minus(available).isEmpty(), is(true));
+		assertThat(available.minus(new ChangeNumberSet()).toString(), is("[1..10, 20]"));
+	}
+
+	@Test
+	public void shouldIterateOverEveryNumberInOrder() throws Exception {
+		List<Long> numbers = new ArrayList<Long>();
+		for (Long number : ChangeNumberSet.of(7L, 1L, 2L, 3L)) {
+			numbers.add(number);
+		}
+
+		assertThat(numbers, is(Arrays.asList(1L, 2L, 3L, 7L)));
+	}
+
+	@Test
+	public void shouldHaveNoMaximumWhenEmpty() throws Exception {
+		try {
+			new ChangeNumberSet().max();
+			fail("exception expected");
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+}
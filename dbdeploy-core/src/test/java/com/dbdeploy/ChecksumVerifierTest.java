@@ -0,0 +1,68 @@
+package com.dbdeploy;
+
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.ScriptChecksum;
+import com.dbdeploy.scripts.StubChangeScript;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ChecksumVerifierTest {
+
+	@Test
+	public void shouldFindTheScriptsEditedSinceTheyWereApplied() throws Exception {
+		List<ChangeScript> scripts = new ArrayList<ChangeScript>();
+		Map<Long, String> checksums = new HashMap<Long, String>();
+		for (int i = 1; i <= 100; i++) {
+			ChangeScript script = new StubChangeScript(i, "script " + i, "INSERT INTO Test VALUES (" + i + ");");
+			scripts.add(script);
+			checksums.put((long) i, ScriptChecksum.of(script));
+		}
+		scripts.set(42, new StubChangeScript(43, "script 43", "INSERT INTO Test VALUES (-43);"));
+		scripts.set(6, new StubChangeScript(7, "script 7", "INSERT INTO Test VALUES (-7);"));
+
+		List<ChangeScript> edited = new ChecksumVerifier(4).verify(scripts, checksums);
+
+		assertThat(edited.size(), is(2));
+		assertThat(edited.get(0).getId(), is(7L));
+		assertThat(edited.get(1).getId(), is(43L));
+	}
+
+	@Test
+	public void shouldNotCheckScriptsAppliedWithoutAChecksumOrNoLongerThere() throws Exception {
+		List<ChangeScript> scripts = new ArrayList<ChangeScript>();
+		scripts.add(new StubChangeScript(2, "script 2", "INSERT INTO Test VALUES (2);"));
+		scripts.add(new StubChangeScript(3, "script 3", "INSERT INTO Test VALUES (3);"));
+		Map<Long, String> checksums = new HashMap<Long, String>();
+		checksums.put(1L, "0123456789abcdef");
+		checksums.put(2L, ScriptChecksum.of(scripts.get(0)));
+
+		assertThat(new ChecksumVerifier(4).verify(scripts, checksums).size(), is(0));
+	}
+
+	@Test
+	public void shouldAcceptEitherTheBaselineOrTheScriptOfItsNumber() throws Exception {
+		File file = File.createTempFile("baseline_2_", ".sql");
+		file.deleteOnExit();
+		FileUtils.writeStringToFile(file, "CREATE TABLE Test (id INTEGER);");
+		ChangeScript baseline = new ChangeScript(2, file, "UTF-8");
+		List<ChangeScript> scripts = new ArrayList<ChangeScript>();
+		scripts.add(new StubChangeScript(2, "script 2", "INSERT INTO Test VALUES (2);"));
+		scripts.add(baseline);
+		Map<Long, String> checksums = new HashMap<Long, String>();
+		checksums.put(2L, ScriptChecksum.of(baseline));
+
+		assertThat(new ChecksumVerifier(4).verify(scripts, checksums).size(), is(0));
+
+		checksums.put(2L, "0123456789abcdef");
+		assertThat(new ChecksumVerifier(4).verify(scripts, checksums).size(), is(1));
+	}
+}
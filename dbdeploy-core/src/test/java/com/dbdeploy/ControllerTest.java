@@ -1,5 +1,6 @@
 package com.dbdeploy;
 
+import com.dbdeploy.exceptions.DbDeployException;
 import com.dbdeploy.scripts.ChangeScript;
 import org.junit.Before;
 import org.junit.Test;
@@ -7,13 +8,15 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnit44Runner;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnit44Runner.class)
@@ -43,7 +46,7 @@ public class ControllerTest {
 
 	@Test
 	public void shouldApplyChangeScriptsInOrder() throws Exception {
-		when(appliedChangesProvider.getAppliedChanges()).thenReturn(Collections.<Long>emptyList());
+		when(appliedChangesProvider.getAppliedChanges()).thenReturn(new ChangeNumberSet());
 
 		controller.processChangeScripts(Long.MAX_VALUE);
 
@@ -57,14 +60,14 @@ public class ControllerTest {
 	public void shouldNotCrashWhenPassedANullUndoApplier() throws Exception {
 		controller = new Controller(availableChangeScriptsProvider, appliedChangesProvider, applier, null);
 
-		when(appliedChangesProvider.getAppliedChanges()).thenReturn(Collections.<Long>emptyList());
+		when(appliedChangesProvider.getAppliedChanges()).thenReturn(new ChangeNumberSet());
 
 		controller.processChangeScripts(Long.MAX_VALUE);
 	}
 
 	@Test
 	public void shouldApplyUndoScriptsInReverseOrder() throws Exception {
-		when(appliedChangesProvider.getAppliedChanges()).thenReturn(Collections.<Long>emptyList());
+		when(appliedChangesProvider.getAppliedChanges()).thenReturn(new ChangeNumberSet());
 
 		controller.processChangeScripts(Long.MAX_VALUE);
 
@@ -77,7 +80,7 @@ public class ControllerTest {
 
 	@Test
 	public void shouldIgnoreChangesAlreadyAppliedToTheDatabase() throws Exception {
-		when(appliedChangesProvider.getAppliedChanges()).thenReturn(Arrays.asList(1L));
+		when(appliedChangesProvider.getAppliedChanges()).thenReturn(ChangeNumberSet.of(1L));
 
 		controller.processChangeScripts(Long.MAX_VALUE);
 
@@ -88,7 +91,7 @@ public class ControllerTest {
 
 	@Test
 	public void shouldNotApplyChangesGreaterThanTheMaxChangeToApply() throws Exception {
-		when(appliedChangesProvider.getAppliedChanges()).thenReturn(Collections.<Long>emptyList());
+		when(appliedChangesProvider.getAppliedChanges()).thenReturn(new ChangeNumberSet());
 
 		controller.processChangeScripts(2L);
 
@@ -97,7 +100,92 @@ public class ControllerTest {
 		assertThat(applier.changeScripts.get(1), is(change2));
 	}
 
+	@Test
+	public void shouldApplyABaselineInPlaceOfTheScriptsBeforeItToAnEmptyDatabase() throws Exception {
+		ChangeScript baseline = baselineScript(2);
+		when(availableChangeScriptsProvider.getAvailableChangeScripts())
+				.thenReturn(Arrays.asList(change1, change2, baseline, change3));
+		when(appliedChangesProvider.getAppliedChanges()).thenReturn(new ChangeNumberSet());
+
+		controller.processChangeScripts(Long.MAX_VALUE);
 
+		assertThat(applier.changeScripts.size(), is(2));
+		assertThat(applier.changeScripts.get(0), is(baseline));
+		assertThat(applier.changeScripts.get(1), is(change3));
+	}
+
+	@Test
+	public void shouldCarryOnScriptByScriptOnADatabaseBehindTheBaseline() throws Exception {
+		when(availableChangeScriptsProvider.getAvailableChangeScripts())
+				.thenReturn(Arrays.asList(change1, change2, baselineScript(2), change3));
+		when(appliedChangesProvider.getAppliedChanges()).thenReturn(ChangeNumberSet.of(1L));
+
+		controller.processChangeScripts(Long.MAX_VALUE);
+
+		assertThat(applier.changeScripts.size(), is(2));
+		assertThat(applier.changeScripts.get(0), is(change2));
+		assertThat(applier.changeScripts.get(1), is(change3));
+	}
+
+	@Test
+	public void shouldNotNeedTheScriptsBeforeTheBaselineOnceItIsPassed() throws Exception {
+		when(availableChangeScriptsProvider.getAvailableChangeScripts())
+				.thenReturn(Arrays.asList(baselineScript(2), change3));
+		when(appliedChangesProvider.getAppliedChanges()).thenReturn(ChangeNumberSet.of(1L, 2L));
+
+		controller.processChangeScripts(Long.MAX_VALUE);
+
+		assertThat(applier.changeScripts.size(), is(1));
+		assertThat(applier.changeScripts.get(0), is(change3));
+	}
+
+	@Test
+	public void shouldRefuseToSkipTheScriptsOfABaselineOnADatabaseBehindIt() throws Exception {
+		when(availableChangeScriptsProvider.getAvailableChangeScripts())
+				.thenReturn(Arrays.asList(baselineScript(2), change3));
+		when(appliedChangesProvider.getAppliedChanges()).thenReturn(ChangeNumberSet.of(1L));
+
+		try {
+			controller.processChangeScripts(Long.MAX_VALUE);
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getMessage(), containsString("behind baseline #2"));
+		}
+	}
+
+	@Test
+	public void shouldCarryOnFromTheBaselineOverGapsInTheChangeNumbers() throws Exception {
+		ChangeScript march = new ChangeScript(20200315093000L);
+		ChangeScript june = new ChangeScript(20200601120000L);
+		when(availableChangeScriptsProvider.getAvailableChangeScripts())
+				.thenReturn(Arrays.asList(new ChangeScript(20200101100000L), march, june,
+						baselineScript(20200601120000L), new ChangeScript(20200702080000L)));
+		when(appliedChangesProvider.getAppliedChanges()).thenReturn(ChangeNumberSet.of(20200101100000L));
+
+		controller.processChangeScripts(Long.MAX_VALUE);
+
+		assertThat(applier.changeScripts.size(), is(3));
+		assertThat(applier.changeScripts.get(0), is(march));
+		assertThat(applier.changeScripts.get(1), is(june));
+	}
+
+	@Test
+	public void shouldRefuseToCarryOnFromTheBaselineWithoutTheLastScriptItStandsInFor() throws Exception {
+		when(availableChangeScriptsProvider.getAvailableChangeScripts())
+				.thenReturn(Arrays.asList(new ChangeScript(20200315093000L), baselineScript(20200601120000L)));
+		when(appliedChangesProvider.getAppliedChanges()).thenReturn(ChangeNumberSet.of(20200101100000L));
+
+		try {
+			controller.processChangeScripts(Long.MAX_VALUE);
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getMessage(), containsString("behind baseline #20200601120000"));
+		}
+	}
+
+	private ChangeScript baselineScript(long id) {
+		return new ChangeScript(id, new File("baseline_" + id + "_schema.sql"), "UTF-8");
+	}
 
     private class StubChangeScriptApplier implements ChangeScriptApplier {
         private List<ChangeScript> changeScripts;
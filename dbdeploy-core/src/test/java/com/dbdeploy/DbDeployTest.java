@@ -1,11 +1,18 @@
 package com.dbdeploy;
 
+import com.dbdeploy.appliers.TransactionGrouping;
 import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.logging.LogLevel;
+import com.dbdeploy.logging.LogSink;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.*;
 
@@ -60,6 +67,86 @@ public class DbDeployTest {
 		}
 	}
 
+	@Test
+	public void shouldOnlyUseSeveralConnectionsWithATransactionPerScriptAndNoCheckpoints() throws Exception {
+		dbDeploy.setConnections(2);
+		dbDeploy.setTransactionGrouping(TransactionGrouping.deployment);
+		try {
+			dbDeploy.go();
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertEquals("Several connections can only be used with a transaction per script", e.getMessage());
+		}
+
+		dbDeploy.setTransactionGrouping(TransactionGrouping.script);
+		dbDeploy.setCheckpointInterval(100);
+		try {
+			dbDeploy.go();
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertEquals("Checkpoints cannot be used with several connections", e.getMessage());
+		}
+	}
+
+	@Test
+	public void shouldLetRunsInTheSameJvmTakeTurnsWithTheLog() throws Exception {
+		final CountDownLatch firstLogged = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<String> firstMessages = new CopyOnWriteArrayList<String>();
+		final List<String> secondMessages = new CopyOnWriteArrayList<String>();
+
+		dbDeploy.setDriver("some.class.that.will.not.be.Found");
+		dbDeploy.setLogSink(new LogSink() {
+			public void log(LogLevel level, String message) {
+				firstMessages.add(message);
+				firstLogged.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		final DbDeploy second = new DbDeploy();
+		second.setDriver("some.class.that.will.not.be.Found");
+		second.setUserid("someUser");
+		second.setUrl("jdbc:hsqldb:mem:dbdeploy");
+		second.setScriptdirectory(new File("."));
+		second.setLogSink(new LogSink() {
+			public void log(LogLevel level, String message) {
+				secondMessages.add(message);
+			}
+		});
+
+		Thread firstRun = run(dbDeploy);
+		firstLogged.await();
+		Thread secondRun = run(second);
+		Thread.sleep(200);
+		assertThat(secondMessages.isEmpty(), is(true));
+
+		release.countDown();
+		firstRun.join();
+		secondRun.join();
+		assertThat(firstMessages.size(), is(1));
+		assertThat(secondMessages.size(), is(1));
+		assertThat(secondMessages.get(0), startsWith("dbdeploy"));
+	}
+
+	private Thread run(final DbDeploy dbDeploy) {
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					dbDeploy.go();
+				} catch (Exception e) {
+					// the driver is not found
+				}
+			}
+		};
+		thread.start();
+		return thread;
+	}
+
 	@Test
 	public void shouldReportVersionNumberWithoutCrashing() {
 		assertThat(dbDeploy.getWelcomeString(), startsWith("dbdeploy"));
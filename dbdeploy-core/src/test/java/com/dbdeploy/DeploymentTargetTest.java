@@ -0,0 +1,83 @@
+package com.dbdeploy;
+
+import com.dbdeploy.exceptions.UsageException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DeploymentTargetTest {
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("targets", ".properties");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void shouldReadTargetsInOrderOfNameFillingInDefaults() throws Exception {
+		write("shard2.url=jdbc:two\n"
+				+ "shard1.url=jdbc:one\n"
+				+ "shard1.userid=deployer\n"
+				+ "shard1.password=secret\n"
+				+ "shard1.changeLogTableName=shard_changelog\n");
+
+		List<DeploymentTarget> targets = DeploymentTarget.load(file, "sa", "", "changelog");
+
+		assertThat(targets.size(), is(2));
+		assertTarget(targets.get(0), "shard1", "jdbc:one", "deployer", "secret", "shard_changelog");
+		assertTarget(targets.get(1), "shard2", "jdbc:two", "sa", "", "changelog");
+	}
+
+	@Test
+	public void shouldRequireAUrlForEachTarget() throws Exception {
+		write("shard1.userid=deployer\n");
+
+		try {
+			DeploymentTarget.load(file, "sa", "", "changelog");
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertThat(e.getMessage(), is("shard1.url required"));
+		}
+	}
+
+	@Test
+	public void shouldRejectUnknownProperties() throws Exception {
+		write("shard1.url=jdbc:one\nshard1.user=deployer\n");
+
+		try {
+			DeploymentTarget.load(file, "sa", "", "changelog");
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertThat(e.getMessage(), is("Unknown property in " + file + ": shard1.user"));
+		}
+	}
+
+	private void assertTarget(DeploymentTarget target, String name, String url, String userid, String password,
+			String changeLogTableName) {
+		assertThat(target.getName(), is(name));
+		assertThat(target.getUrl(), is(url));
+		assertThat(target.getUserid(), is(userid));
+		assertThat(target.getPassword(), is(password));
+		assertThat(target.getChangeLogTableName(), is(changeLogTableName));
+	}
+
+	private void write(String content) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		writer.write(content);
+		writer.close();
+	}
+}
@@ -36,6 +36,11 @@ public class PrettyPrinterTest {
 		assertEquals("1, 2, 4, 7..10, 12", prettyPrinter.format(Arrays.asList(1L, 2L, 4L, 7L, 8L, 9L, 10L, 12L)));
 	}
 
+	@Test
+	public void shouldDisplayLargeNumbersOutsideRangesOnTheirOwn() throws Exception {
+		assertEquals("200, 20120101120000", prettyPrinter.format(Arrays.asList(200L, 20120101120000L)));
+	}
+
 	@Test
 	public void canFormatAChangeScriptList() throws Exception {
 		ChangeScript change1 = new ChangeScript(1);
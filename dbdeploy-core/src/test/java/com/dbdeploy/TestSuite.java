@@ -1,16 +1,34 @@
 package com.dbdeploy;
 
 import com.dbdeploy.appliers.DirectToDbApplierTest;
+import com.dbdeploy.appliers.ParallelDirectToDbApplierTest;
+import com.dbdeploy.appliers.InsertBatchTest;
+import com.dbdeploy.appliers.ParameterisedInsertTest;
+import com.dbdeploy.appliers.StatementBatchTest;
 import com.dbdeploy.appliers.TemplateBasedApplierTest;
+import com.dbdeploy.database.DialectStatementSplitterTest;
+import com.dbdeploy.database.ParseCacheTest;
 import com.dbdeploy.database.QueryStatementSplitterOracleTest;
 import com.dbdeploy.database.QueryStatementSplitterTest;
 import com.dbdeploy.database.ScriptGenerationTest;
+import com.dbdeploy.database.StatementSplitterRegistryTest;
+import com.dbdeploy.database.changelog.ChangelogSnapshotTest;
+import com.dbdeploy.database.changelog.ChangelogLockTest;
+import com.dbdeploy.database.changelog.ConnectionPoolTest;
+import com.dbdeploy.database.changelog.QueryExecuterTest;
 import com.dbdeploy.integration.DirectToDbIntegrationTest;
 import com.dbdeploy.integration.OutputToFileIntegrationTest;
+import com.dbdeploy.logging.LogTest;
+import com.dbdeploy.metrics.HistogramTest;
+import com.dbdeploy.metrics.MetricsTest;
 import com.dbdeploy.scripts.ChangeScriptCreatorTest;
 import com.dbdeploy.scripts.ChangeScriptRepositoryTest;
 import com.dbdeploy.scripts.ChangeScriptTest;
+import com.dbdeploy.scripts.ClasspathScannerTest;
+import com.dbdeploy.scripts.DelimitedDataTest;
 import com.dbdeploy.scripts.FilenameParserTest;
+import com.dbdeploy.scripts.ScriptChecksumTest;
+import com.dbdeploy.scripts.ScriptDirectivesTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -20,7 +38,14 @@ import org.junit.runners.Suite.SuiteClasses;
 		ChangeScriptCreatorTest.class, ChangeScriptRepositoryTest.class, FilenameParserTest.class,
 		DirectToDbIntegrationTest.class, OutputToFileIntegrationTest.class, ScriptGenerationTest.class,
 		QueryStatementSplitterTest.class, QueryStatementSplitterOracleTest.class, DirectToDbApplierTest.class,
-		TemplateBasedApplierTest.class })
+		TemplateBasedApplierTest.class, ParseCacheTest.class, DialectStatementSplitterTest.class,
+		StatementSplitterRegistryTest.class, LogTest.class, StatementBatchTest.class,
+		QueryExecuterTest.class, DeploymentTargetTest.class, ScriptDirectivesTest.class,
+		ParallelDirectToDbApplierTest.class, ConnectionPoolTest.class,
+		HistogramTest.class, MetricsTest.class, ParameterisedInsertTest.class, InsertBatchTest.class,
+		DelimitedDataTest.class, ChangeNumberSetTest.class,
+		ChangelogSnapshotTest.class, ScriptChecksumTest.class, ChecksumVerifierTest.class,
+		ChangelogLockTest.class, ClasspathScannerTest.class })
 public class TestSuite {
 
 }
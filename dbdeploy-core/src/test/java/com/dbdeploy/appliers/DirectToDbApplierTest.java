@@ -3,21 +3,32 @@ package com.dbdeploy.appliers;
 import com.dbdeploy.database.QueryStatementSplitter;
 import com.dbdeploy.database.changelog.DatabaseSchemaVersionManager;
 import com.dbdeploy.database.changelog.QueryExecuter;
+import com.dbdeploy.database.changelog.StatementCheckpoints;
+import com.dbdeploy.database.changelog.StatementCheckpoints.Checkpoint;
 import com.dbdeploy.exceptions.ChangeScriptFailedException;
+import com.dbdeploy.exceptions.DbDeployException;
 import com.dbdeploy.scripts.ChangeScript;
 import com.dbdeploy.scripts.StubChangeScript;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnit44Runner;
 
+import java.io.Reader;
+import java.sql.BatchUpdateException;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnit44Runner.class)
@@ -25,6 +36,7 @@ public class DirectToDbApplierTest {
 	@Mock private QueryExecuter queryExecuter;
 	@Mock private DatabaseSchemaVersionManager schemaVersionManager;
     @Mock private QueryStatementSplitter splitter;
+	@Mock private StatementCheckpoints checkpoints;
 	private DirectToDbApplier applier;
 
 	@Before
@@ -41,7 +53,7 @@ public class DirectToDbApplierTest {
 
 	@Test
 	public void shouldApplyChangeScriptBySplittingContentUsingTheSplitter() throws Exception {
-        when(splitter.split("split; content")).thenReturn(Arrays.asList("split", "content"));
+        when(splitter.iterate(isA(Reader.class))).thenReturn(Arrays.asList("split", "content").iterator());
 
 		applier.applyChangeScript(new StubChangeScript(1, "script", "split; content"));
 		
@@ -51,7 +63,7 @@ public class DirectToDbApplierTest {
 
 	@Test
 	public void shouldRethrowSqlExceptionsWithInformationAboutWhatStringFailed() throws Exception {
-		when(splitter.split("split; content")).thenReturn(Arrays.asList("split", "content"));
+		when(splitter.iterate(isA(Reader.class))).thenReturn(Arrays.asList("split", "content").iterator());
 		ChangeScript script = new StubChangeScript(1, "script", "split; content");
 
 		doThrow(new SQLException("dummy exception")).when(queryExecuter).execute("split");
@@ -84,5 +96,199 @@ public class DirectToDbApplierTest {
 		verify(queryExecuter).commit();
 	}
 
+	@Test
+	public void shouldApplyScriptsInOrderWhenParsingAhead() throws Exception {
+		ChangeScript first = new StubChangeScript(1, "first", "SELECT 1 FROM x;\nSELECT 2 FROM x;\n");
+		ChangeScript second = new StubChangeScript(2, "second", "SELECT 3 FROM x;\n");
+		ChangeScript third = new StubChangeScript(3, "third", "SELECT 4 FROM x;\nSELECT 5 FROM x;\n");
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setParseAhead(1);
+		final List<String> calls = new ArrayList<String>();
+		doAnswer(record(calls, "execute")).when(queryExecuter).execute(anyString());
+		doAnswer(record(calls, "commit")).when(queryExecuter).commit();
+		doAnswer(record(calls, "record")).when(schemaVersionManager).recordScriptApplied(isA(ChangeScript.class));
+
+		applier.apply(Arrays.asList(first, second, third));
+
+		assertThat(calls, is(Arrays.asList(
+				"execute SELECT 1 FROM x", "execute SELECT 2 FROM x", "record #1: first", "commit",
+				"execute SELECT 3 FROM x", "record #2: second", "commit",
+				"execute SELECT 4 FROM x", "execute SELECT 5 FROM x", "record #3: third", "commit")));
+	}
+
+	@Test
+	public void shouldNotApplyLaterScriptsAfterAFailureWhenParsingAhead() throws Exception {
+		ChangeScript first = new StubChangeScript(1, "first", "SELECT 1 FROM x;\n");
+		ChangeScript second = new StubChangeScript(2, "second", "SELECT 2 FROM x;\n");
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setParseAhead(1);
+		doThrow(new SQLException("dummy exception")).when(queryExecuter).execute("SELECT 1 FROM x");
+
+		try {
+			applier.apply(Arrays.asList(first, second));
+			fail("exception expected");
+		} catch (ChangeScriptFailedException e) {
+			assertThat(e.getScript(), is(first));
+		}
+
+		verify(queryExecuter, never()).execute("SELECT 2 FROM x");
+		verify(schemaVersionManager, never()).recordScriptApplied(isA(ChangeScript.class));
+	}
+
+	@Test
+	public void shouldRethrowSplittingFailuresWhenTheScriptIsReachedWhenParsingAhead() throws Exception {
+		when(splitter.iterate(isA(Reader.class))).thenThrow(new DbDeployException("unterminated literal"));
+		applier.setParseAhead(2);
+
+		try {
+			applier.apply(Arrays.<ChangeScript>asList(new StubChangeScript(1, "script", "SELECT 'x")));
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getMessage(), is("unterminated literal"));
+		}
+
+		verify(queryExecuter, never()).commit();
+	}
+
+	@Test
+	public void shouldBatchConsecutiveDataManipulationStatementsWhenBatching() throws Exception {
+		ChangeScript script = new StubChangeScript(1, "script", "CREATE TABLE x (a INTEGER);\n"
+				+ "INSERT INTO x VALUES (1);\nINSERT INTO x VALUES (2);\nINSERT INTO x VALUES (3);\n"
+				+ "CREATE INDEX x_a ON x (a);\nUPDATE x SET a = 4;\n");
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setBatchSize(2);
+		final List<String> calls = new ArrayList<String>();
+		doAnswer(record(calls, "execute")).when(queryExecuter).execute(anyString());
+		doAnswer(record(calls, "batch")).when(queryExecuter).executeBatch(anyList());
+
+		applier.applyChangeScript(script);
+
+		assertThat(calls, is(Arrays.asList(
+				"execute CREATE TABLE x (a INTEGER)",
+				"batch [INSERT INTO x VALUES (1), INSERT INTO x VALUES (2)]",
+				"batch [INSERT INTO x VALUES (3)]",
+				"execute CREATE INDEX x_a ON x (a)",
+				"batch [UPDATE x SET a = 4]")));
+	}
+
+	@Test
+	public void shouldExecuteInsertsOfTheSameShapeAsOnePreparedStatementWhenParameterising() throws Exception {
+		ChangeScript script = new StubChangeScript(1, "script", "CREATE TABLE x (a INTEGER, b VARCHAR(10));\n"
+				+ "INSERT INTO x (a, b) VALUES (1, 'one');\nINSERT INTO x (a, b) VALUES (2, 'it''s two');\n"
+				+ "INSERT INTO x (a) VALUES (3);\nINSERT INTO x (a, b) VALUES (4, UPPER('four'));\n");
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setParameteriseInserts(true);
+		final List<String> calls = new ArrayList<String>();
+		doAnswer(record(calls, "execute")).when(queryExecuter).execute(anyString());
+		doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) {
+				StringBuilder call = new StringBuilder("batch ").append(invocation.getArguments()[0]);
+				for (Object[] row : (List<Object[]>) invocation.getArguments()[1]) {
+					call.append(' ').append(Arrays.asList(row));
+				}
+				calls.add(call.toString());
+				return null;
+			}
+		}).when(queryExecuter).executeBatch(anyString(), anyList(), (int[]) anyObject());
+		when(queryExecuter.getColumnTypes(eq("x"), anyList()))
+				.thenReturn(new int[] { Types.INTEGER, Types.VARCHAR });
+
+		applier.applyChangeScript(script);
+
+		assertThat(calls, is(Arrays.asList(
+				"execute CREATE TABLE x (a INTEGER, b VARCHAR(10))",
+				"batch INSERT INTO x (a, b) VALUES (?, ?) [1, one] [2, it's two]",
+				"batch INSERT INTO x (a) VALUES (?) [3]",
+				"execute INSERT INTO x (a, b) VALUES (4, UPPER('four'))")));
+	}
+
+	@Test
+	public void shouldReportTheFailingInsertOfAParameterisedBatch() throws Exception {
+		ChangeScript script = new StubChangeScript(1, "script",
+				"INSERT INTO x VALUES (1);\nINSERT INTO x VALUES (2);\nINSERT INTO x VALUES (3);\n");
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setParameteriseInserts(true);
+		doThrow(new BatchUpdateException("duplicate key", new int[] { 1 }))
+				.when(queryExecuter).executeBatch(anyString(), anyList(), (int[]) anyObject());
+		when(queryExecuter.getColumnTypes("x", null)).thenReturn(new int[] { Types.INTEGER });
+
+		try {
+			applier.applyChangeScript(script);
+			fail("exception expected");
+		} catch (ChangeScriptFailedException e) {
+			assertThat(e.getStatement(), is(2));
+			assertThat(e.getExecutedSql(), is("INSERT INTO x VALUES (2)"));
+		}
+	}
+
+	@Test
+	public void shouldRefuseToResumeAScriptWhoseStatementsHaveChangedSinceTheCheckpoint() throws Exception {
+		ChangeScript script = new StubChangeScript(1, "script", "SELECT 1 FROM x;\nSELECT 2 FROM x;\n");
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setCheckpoints(checkpoints, 1);
+		when(checkpoints.getLastCheckpoint(1)).thenReturn(new Checkpoint(1, "not the hash of SELECT 1 FROM x"));
+
+		try {
+			applier.applyChangeScript(script);
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getMessage(), containsString("have changed since they were applied"));
+		}
+
+		verify(queryExecuter, never()).execute(anyString());
+	}
+
+	@Test
+	public void shouldCommitEveryCountScriptsWhenGroupingByCount() throws Exception {
+		ChangeScript first = new StubChangeScript(1, "first", "SELECT 1 FROM x;\n");
+		ChangeScript second = new StubChangeScript(2, "second", "SELECT 2 FROM x;\n");
+		ChangeScript third = new StubChangeScript(3, "third", "SELECT 3 FROM x;\n");
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setTransactionGrouping(TransactionGrouping.count, 2);
+		final List<String> calls = new ArrayList<String>();
+		doAnswer(record(calls, "execute")).when(queryExecuter).execute(anyString());
+		doAnswer(record(calls, "commit")).when(queryExecuter).commit();
+		doAnswer(record(calls, "record")).when(schemaVersionManager).recordScriptApplied(isA(ChangeScript.class));
+		doAnswer(record(calls, "record")).when(schemaVersionManager).recordScriptsApplied(anyList());
+
+		applier.apply(Arrays.asList(first, second, third));
+
+		assertThat(calls, is(Arrays.asList(
+				"execute SELECT 1 FROM x", "execute SELECT 2 FROM x", "record [#1: first, #2: second]", "commit",
+				"execute SELECT 3 FROM x", "record #3: third", "commit")));
+	}
+
+	@Test
+	public void shouldRollBackToTheLastCommitWhenAScriptFails() throws Exception {
+		ChangeScript first = new StubChangeScript(1, "first", "SELECT 1 FROM x;\n");
+		ChangeScript second = new StubChangeScript(2, "second", "SELECT 2 FROM x;\n");
+		ChangeScript third = new StubChangeScript(3, "third", "SELECT 3 FROM x;\n");
+		applier = new DirectToDbApplier(queryExecuter, schemaVersionManager, new QueryStatementSplitter());
+		applier.setTransactionGrouping(TransactionGrouping.deployment, 0);
+		doThrow(new SQLException("dummy exception")).when(queryExecuter).execute("SELECT 3 FROM x");
 
+		try {
+			applier.apply(Arrays.asList(first, second, third));
+			fail("exception expected");
+		} catch (ChangeScriptFailedException e) {
+			assertThat(e.getScript(), is(third));
+		}
+
+		verify(queryExecuter).rollback();
+		verify(queryExecuter, never()).commit();
+		verify(schemaVersionManager, never()).recordScriptsApplied(anyList());
+	}
+
+	private static Answer<Object> record(final List<String> calls, final String name) {
+		return new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) {
+				StringBuilder call = new StringBuilder(name);
+				for (Object argument : invocation.getArguments()) {
+					call.append(' ').append(argument);
+				}
+				calls.add(call.toString());
+				return null;
+			}
+		};
+	}
 }
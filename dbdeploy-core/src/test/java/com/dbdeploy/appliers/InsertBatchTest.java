@@ -0,0 +1,54 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.database.changelog.QueryExecuter;
+import com.dbdeploy.scripts.ChangeScript;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnit44Runner;
+import org.mockito.stubbing.Answer;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnit44Runner.class)
+public class InsertBatchTest {
+	@Mock private QueryExecuter queryExecuter;
+	private final ChangeScript script = new ChangeScript(1, "script.sql");
+
+	@Test
+	public void shouldBindEachLiteralAsTheTypeOfItsColumn() throws Exception {
+		final List<int[]> types = new ArrayList<int[]>();
+		doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) {
+				types.add((int[]) invocation.getArguments()[2]);
+				return null;
+			}
+		}).when(queryExecuter).executeBatch(anyString(), anyList(), (int[]) anyObject());
+		when(queryExecuter.getColumnTypes("Event", null))
+				.thenReturn(new int[] { Types.VARCHAR, Types.INTEGER, Types.DATE });
+		InsertBatch batch = new InsertBatch(queryExecuter, script, 10);
+
+		batch.add(1, "INSERT INTO Event VALUES (1, NULL, '2020-01-01')",
+				ParameterisedInsert.parse("INSERT INTO Event VALUES (1, NULL, '2020-01-01')"));
+		batch.add(2, "INSERT INTO Event VALUES (2, NULL, '2020-02-29')",
+				ParameterisedInsert.parse("INSERT INTO Event VALUES (2, NULL, '2020-02-29')"));
+		batch.flush();
+		batch.add(3, "INSERT INTO Event VALUES (3, NULL, '2020-03-01')",
+				ParameterisedInsert.parse("INSERT INTO Event VALUES (3, NULL, '2020-03-01')"));
+		batch.flush();
+
+		assertThat(types.size(), is(2));
+		assertThat(Arrays.toString(types.get(0)), is(Arrays.toString(new int[] { Types.VARCHAR, Types.DATE })));
+		verify(queryExecuter, times(1)).getColumnTypes("Event", null);
+	}
+}
@@ -0,0 +1,147 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.exceptions.UsageException;
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.StubChangeScript;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ParallelDirectToDbApplierTest {
+	private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+	private final CountDownLatch released = new CountDownLatch(1);
+	private long waitingScript;
+	private long releasingScript;
+	private long failingScript;
+
+	@Test
+	public void shouldApplyScriptsOfTheSameGroupConcurrentlyButCommitThemInOrder() {
+		ChangeScript first = new StubChangeScript(1, "first", "--//@GROUP load\nfirst");
+		ChangeScript second = new StubChangeScript(2, "second", "--//@GROUP load\nsecond");
+		waitingScript = 1;
+		releasingScript = 2;
+
+		createApplier().apply(Arrays.asList(first, second));
+
+		assertThat(committed(), is(Arrays.asList("#1: first", "#2: second")));
+	}
+
+	@Test
+	public void shouldRollBackLaterScriptsThatRanWhenAScriptFails() {
+		ChangeScript first = new StubChangeScript(1, "first", "first");
+		ChangeScript second = new StubChangeScript(2, "second", "--//@DEPENDS 1\nsecond");
+		ChangeScript third = new StubChangeScript(3, "third", "--//@DEPENDS 1\nthird");
+		waitingScript = 2;
+		releasingScript = 3;
+		failingScript = 2;
+
+		try {
+			createApplier().apply(Arrays.asList(first, second, third));
+			fail("exception expected");
+		} catch (RuntimeException e) {
+			assertThat(e.getMessage(), is("#2: second failed"));
+		}
+
+		assertThat(committed(), is(Arrays.asList("#1: first")));
+		assertThat(calls, hasItems("rollback #2: second", "rollback #3: third"));
+	}
+
+	@Test
+	public void shouldApplyScriptsOneAfterTheOtherOnOneConnectionWhenThereAreNoDirectives() {
+		ChangeScript first = new StubChangeScript(1, "first", "first");
+		ChangeScript second = new StubChangeScript(2, "second", "second");
+
+		createApplier().apply(Arrays.asList(first, second));
+
+		assertThat(calls, is(Arrays.asList("a apply #1: first", "a commit #1: first", "a apply #2: second",
+				"a commit #2: second")));
+	}
+
+	@Test
+	public void shouldRejectADependencyOnALaterScript() {
+		ChangeScript first = new StubChangeScript(1, "first", "--//@DEPENDS 2\nfirst");
+		ChangeScript second = new StubChangeScript(2, "second", "second");
+
+		try {
+			createApplier().apply(Arrays.asList(first, second));
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertThat(e.getMessage(), containsString("#2"));
+		}
+		assertThat(calls.size(), is(0));
+	}
+
+	private ParallelDirectToDbApplier createApplier() {
+		return new ParallelDirectToDbApplier(Arrays.<DirectToDbApplier>asList(new RecordingApplier("a"),
+				new RecordingApplier("b")));
+	}
+
+	private List<String> committed() {
+		List<String> committed = new ArrayList<String>();
+		synchronized (calls) {
+			for (String call : calls) {
+				if (call.contains(" commit ")) {
+					committed.add(call.substring(call.indexOf(" commit ") + " commit ".length()));
+				}
+			}
+		}
+		return committed;
+	}
+
+	private class RecordingApplier extends DirectToDbApplier {
+		private final String name;
+		private ChangeScript current;
+
+		RecordingApplier(String name) {
+			super(null, null, null);
+			this.name = name;
+		}
+
+		@Override
+		public void begin() {
+		}
+
+		@Override
+		protected void applyChangeScript(ChangeScript script) {
+			current = script;
+			calls.add(name + " apply " + script);
+
+			if (script.getId() == releasingScript) {
+				released.countDown();
+			}
+			if (script.getId() == waitingScript) {
+				try {
+					assertThat("timed out", released.await(10, TimeUnit.SECONDS), is(true));
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			if (script.getId() == failingScript) {
+				throw new RuntimeException(script + " failed");
+			}
+		}
+
+		@Override
+		protected void insertToSchemaVersionTable(ChangeScript changeScript) {
+		}
+
+		@Override
+		protected void commitTransaction() {
+			calls.add(name + " commit " + current);
+		}
+
+		@Override
+		protected void rollbackTransaction() {
+			calls.add("rollback " + current);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.dbdeploy.appliers;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ParameterisedInsertTest {
+	@Test
+	public void shouldReplaceEachLiteralWithABindParameter() {
+		ParameterisedInsert insert = ParameterisedInsert.parse(
+				"insert into Customer (id, name, balance)\n  values (42, 'O''Brien', -12.50)");
+
+		assertThat(insert.getSql(), is("INSERT INTO Customer (id, name, balance) VALUES (?, ?, ?)"));
+		assertThat(Arrays.asList(insert.getParameters()),
+				is(Arrays.<Object>asList(42L, "O'Brien", new BigDecimal("-12.50"))));
+	}
+
+	@Test
+	public void shouldGiveInsertsOfTheSameShapeTheSameSql() {
+		ParameterisedInsert first = ParameterisedInsert.parse("INSERT INTO x VALUES (1, 'a')");
+		ParameterisedInsert second = ParameterisedInsert.parse("INSERT   INTO x VALUES(2,'bb')");
+
+		assertThat(first.getSql(), is(second.getSql()));
+	}
+
+	@Test
+	public void shouldKeepNullsInTheSql() {
+		ParameterisedInsert insert = ParameterisedInsert.parse("INSERT INTO x (a, b) VALUES (NULL, 1)");
+
+		assertThat(insert.getSql(), is("INSERT INTO x (a, b) VALUES (NULL, ?)"));
+		assertThat(Arrays.asList(insert.getParameters()), is(Arrays.<Object>asList(1L)));
+	}
+
+	@Test
+	public void shouldKnowTheColumnOfEachParameter() {
+		ParameterisedInsert named = ParameterisedInsert.parse("INSERT INTO x (a, b, c) VALUES (1, NULL, 'c')");
+		ParameterisedInsert unnamed = ParameterisedInsert.parse("INSERT INTO x VALUES (NULL, 2)");
+
+		assertThat(named.getTable(), is("x"));
+		assertThat(named.getColumns(), is(Arrays.asList("a", "b", "c")));
+		assertThat(named.getPositions()[0], is(0));
+		assertThat(named.getPositions()[1], is(2));
+		assertThat(unnamed.getColumns(), is(nullValue()));
+		assertThat(unnamed.getPositions().length, is(1));
+		assertThat(unnamed.getPositions()[0], is(1));
+	}
+
+	@Test
+	public void shouldSkipLeadingComments() {
+		ParameterisedInsert insert = ParameterisedInsert.parse("-- seed data\nINSERT INTO x VALUES (1)");
+
+		assertThat(insert.getSql(), is("INSERT INTO x VALUES (?)"));
+	}
+
+	@Test
+	public void shouldLeaveAnythingButLiteralsAsWritten() {
+		assertThat(ParameterisedInsert.parse("INSERT INTO x VALUES (UPPER('a'))"), is(nullValue()));
+		assertThat(ParameterisedInsert.parse("INSERT INTO x VALUES (1 + 1)"), is(nullValue()));
+		assertThat(ParameterisedInsert.parse("INSERT INTO x VALUES (1), (2)"), is(nullValue()));
+		assertThat(ParameterisedInsert.parse("INSERT INTO x SELECT * FROM y"), is(nullValue()));
+		assertThat(ParameterisedInsert.parse("INSERT INTO x VALUES ('it\\'s')"), is(nullValue()));
+		assertThat(ParameterisedInsert.parse("INSERT INTO x VALUES (N'a')"), is(nullValue()));
+		assertThat(ParameterisedInsert.parse("INSERT INTO x VALUES (DATE '2000-01-01')"), is(nullValue()));
+		assertThat(ParameterisedInsert.parse("INSERT INTO x VALUES ('unterminated)"), is(nullValue()));
+		assertThat(ParameterisedInsert.parse("UPDATE x SET a = 1"), is(nullValue()));
+		assertThat(ParameterisedInsert.parse("INSERT INTO x (a, b) VALUES (1)"), is(nullValue()));
+	}
+}
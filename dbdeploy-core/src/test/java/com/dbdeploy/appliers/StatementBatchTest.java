@@ -0,0 +1,117 @@
+package com.dbdeploy.appliers;
+
+import com.dbdeploy.database.changelog.QueryExecuter;
+import com.dbdeploy.exceptions.ChangeScriptFailedException;
+import com.dbdeploy.scripts.ChangeScript;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnit44Runner;
+import org.mockito.stubbing.Answer;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnit44Runner.class)
+public class StatementBatchTest {
+	@Mock private QueryExecuter queryExecuter;
+	private final ChangeScript script = new ChangeScript(1, "script.sql");
+
+	@Test
+	public void shouldOnlyBatchDataManipulationStatements() {
+		assertThat(StatementBatch.isBatchable("INSERT INTO x VALUES (1)"), is(true));
+		assertThat(StatementBatch.isBatchable("update x set a = 1"), is(true));
+		assertThat(StatementBatch.isBatchable("Delete FROM x"), is(true));
+		assertThat(StatementBatch.isBatchable("MERGE INTO x USING y ON (x.a = y.a)"), is(true));
+		assertThat(StatementBatch.isBatchable("-- a comment\n/* and another */ INSERT INTO x VALUES (1)"), is(true));
+
+		assertThat(StatementBatch.isBatchable("CREATE TABLE x (a INTEGER)"), is(false));
+		assertThat(StatementBatch.isBatchable("SELECT * FROM x"), is(false));
+		assertThat(StatementBatch.isBatchable("INSERTED_ROWS()"), is(false));
+		assertThat(StatementBatch.isBatchable("-- INSERT INTO x VALUES (1)\nDROP TABLE x"), is(false));
+		assertThat(StatementBatch.isBatchable(""), is(false));
+	}
+
+	@Test
+	public void shouldExecuteTheStatementsOnceTheBatchIsFull() throws Exception {
+		final List<List<String>> batches = new ArrayList<List<String>>();
+		doAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) {
+				batches.add(new ArrayList<String>((List<String>) invocation.getArguments()[0]));
+				return null;
+			}
+		}).when(queryExecuter).executeBatch(anyList());
+		StatementBatch batch = new StatementBatch(queryExecuter, script, 2);
+
+		batch.add(1, "INSERT 1");
+		assertThat(batches.size(), is(0));
+
+		batch.add(2, "INSERT 2");
+		batch.add(3, "INSERT 3");
+		batch.flush();
+		batch.flush();
+
+		assertThat(batches.size(), is(2));
+		assertThat(batches.get(0), is(Arrays.asList("INSERT 1", "INSERT 2")));
+		assertThat(batches.get(1), is(Arrays.asList("INSERT 3")));
+	}
+
+	@Test
+	public void shouldReportTheStatementADriverStoppedAt() throws Exception {
+		doThrow(new BatchUpdateException(new int[] { 1, 1 })).when(queryExecuter).executeBatch(anyList());
+
+		ChangeScriptFailedException e = failWhenFlushing("INSERT 3", "INSERT 4", "INSERT 5", "INSERT 6");
+
+		assertThat(e.getStatement(), is(5));
+		assertThat(e.getExecutedSql(), is("INSERT 5"));
+	}
+
+	@Test
+	public void shouldReportTheFirstStatementADriverMarkedAsFailed() throws Exception {
+		int[] updateCounts = { 1, Statement.EXECUTE_FAILED, 1, Statement.EXECUTE_FAILED };
+		doThrow(new BatchUpdateException(updateCounts)).when(queryExecuter).executeBatch(anyList());
+
+		ChangeScriptFailedException e = failWhenFlushing("INSERT 3", "INSERT 4", "INSERT 5", "INSERT 6");
+
+		assertThat(e.getStatement(), is(4));
+		assertThat(e.getExecutedSql(), is("INSERT 4"));
+	}
+
+	@Test
+	public void shouldReportTheFirstStatementOfTheBatchWhenTheFailureCannotBePlaced() throws Exception {
+		doThrow(new SQLException("connection lost")).when(queryExecuter).executeBatch(anyList());
+
+		ChangeScriptFailedException e = failWhenFlushing("INSERT 3", "INSERT 4");
+
+		assertThat(e.getStatement(), is(3));
+		assertThat(e.getExecutedSql(), is("INSERT 3"));
+	}
+
+	private ChangeScriptFailedException failWhenFlushing(String... statements) {
+		StatementBatch batch = new StatementBatch(queryExecuter, script, 100);
+		List<String> list = Arrays.asList(statements);
+		for (int i = 0; i < list.size(); i++) {
+			batch.add(i + 3, list.get(i));
+		}
+
+		try {
+			batch.flush();
+			fail("exception expected");
+			return null;
+		} catch (ChangeScriptFailedException e) {
+			assertThat(e.getScript(), is(script));
+			return e;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.dbdeploy.database;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class DialectStatementSplitterTest {
+
+	@Test
+	public void shouldSendWholeBatchesToSqlServer() throws Exception {
+		List<String> result = split("mssql", "CREATE TABLE a (id INT);\nINSERT INTO a VALUES (1);\nGO\n"
+				+ "CREATE PROCEDURE p AS\nBEGIN\n  SELECT 1;\nEND\ngo\n");
+
+		assertThat(result, is(list("CREATE TABLE a (id INT);\nINSERT INTO a VALUES (1);",
+				"CREATE PROCEDURE p AS\nBEGIN\n  SELECT 1;\nEND")));
+	}
+
+	@Test
+	public void shouldOnlyTreatGoOnALineOfItsOwnOutsideQuotesAndCommentsAsABatchSeparator() throws Exception {
+		List<String> result = split("syb-ase", "SELECT 'a\nGO\n', [b\nGO\n]\n/* c\nGO\n*/\nGOTO x\n  GO  -- done\n");
+
+		assertThat(result, is(list("SELECT 'a\nGO\n', [b\nGO\n]\n/* c\nGO\n*/\nGOTO x")));
+	}
+
+	@Test
+	public void shouldRepeatBatchesFollowedByGoWithACount() throws Exception {
+		assertThat(split("mssql", "INSERT INTO a DEFAULT VALUES\nGO 3\n"), is(list("INSERT INTO a DEFAULT VALUES",
+				"INSERT INTO a DEFAULT VALUES", "INSERT INTO a DEFAULT VALUES")));
+	}
+
+	@Test
+	public void shouldNotSplitPostgresDollarQuotedBodies() throws Exception {
+		List<String> result = split("pgsql", "CREATE FUNCTION f() RETURNS int AS $$\nBEGIN\n  RETURN 1;\nEND;\n$$ "
+				+ "LANGUAGE plpgsql;\nCREATE FUNCTION g() RETURNS text AS $body$ SELECT 'x;'; $body$ LANGUAGE sql;\n"
+				+ "PREPARE q AS SELECT $1;\n");
+
+		assertThat(result, is(list("CREATE FUNCTION f() RETURNS int AS $$\nBEGIN\n  RETURN 1;\nEND;\n$$ LANGUAGE plpgsql",
+				"CREATE FUNCTION g() RETURNS text AS $body$ SELECT 'x;'; $body$ LANGUAGE sql", "PREPARE q AS SELECT $1")));
+	}
+
+	@Test
+	public void shouldUnderstandPostgresEscapeStringsAndNestedComments() throws Exception {
+		assertThat(split("pgsql", "SELECT E'a\\';b' /* x /* y; */ z; */;SELECT 'c\\';\n"),
+				is(list("SELECT E'a\\';b' /* x /* y; */ z; */", "SELECT 'c\\'")));
+	}
+
+	@Test
+	public void shouldFollowTheMysqlDelimiterCommand() throws Exception {
+		List<String> result = split("mysql", "DROP PROCEDURE IF EXISTS p;\nDELIMITER //\n"
+				+ "CREATE PROCEDURE p()\nBEGIN\n  SELECT 1;\nEND//\ndelimiter ;\nSELECT `a;b` FROM t;\n");
+
+		assertThat(result, is(list("DROP PROCEDURE IF EXISTS p", "CREATE PROCEDURE p()\nBEGIN\n  SELECT 1;\nEND",
+				"SELECT `a;b` FROM t")));
+	}
+
+	@Test
+	public void shouldUnderstandMysqlEscapesAndComments() throws Exception {
+		List<String> result = split("mysql", "# setup;\nSELECT 'it\\'s;' -- a;\n;\n/*!40101 SET NAMES utf8 */;\n"
+				+ "SELECT 1--1;\n-- only a comment;\n");
+
+		assertThat(result, is(list("# setup;\nSELECT 'it\\'s;' -- a;", "/*!40101 SET NAMES utf8 */", "SELECT 1--1")));
+	}
+
+	@Test
+	public void shouldFollowTheDb2TerminatorDirective() throws Exception {
+		List<String> result = split("db2", "CREATE TABLE a (id INT);\n--#SET TERMINATOR @\n"
+				+ "CREATE TRIGGER t AFTER INSERT ON a FOR EACH ROW BEGIN ATOMIC\n  VALUES 1;\nEND@\n");
+
+		assertThat(result, is(list("CREATE TABLE a (id INT)",
+				"CREATE TRIGGER t AFTER INSERT ON a FOR EACH ROW BEGIN ATOMIC\n  VALUES 1;\nEND")));
+	}
+
+	@Test
+	public void shouldIgnoreDelimitersInQuotesAndCommentsForHsql() throws Exception {
+		assertThat(split("hsql", "INSERT INTO a VALUES ('x;y'); -- z;\nSELECT \"b;c\" FROM a /* ; */;"),
+				is(list("INSERT INTO a VALUES ('x;y')", "-- z;\nSELECT \"b;c\" FROM a /* ; */")));
+	}
+
+	@Test
+	public void shouldUseTheOutputLineEndingOutsideQuotes() throws Exception {
+		QueryStatementSplitter splitter = new BuiltInStatementSplitterProvider().createSplitter("hsql");
+		splitter.setOutputLineEnding(LineEnding.crlf);
+
+		assertThat(splitter.split("SELECT\n'a\nb'\nFROM t;"), is(list("SELECT\r\n'a\nb'\r\nFROM t")));
+	}
+
+	private List<String> split(String dbms, String script) {
+		QueryStatementSplitter splitter = new BuiltInStatementSplitterProvider().createSplitter(dbms);
+		splitter.setOutputLineEnding(LineEnding.lf);
+		return splitter.split(script);
+	}
+
+	private static List<String> list(String... statements) {
+		return Arrays.asList(statements);
+	}
+}
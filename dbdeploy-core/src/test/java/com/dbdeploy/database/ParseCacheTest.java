@@ -0,0 +1,162 @@
+package com.dbdeploy.database;
+
+import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.StubChangeScript;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ParseCacheTest {
+	private File directory;
+	private CountingSplitter splitter = new CountingSplitter();
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("parseCacheTest", "");
+		directory.delete();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void shouldOnlySplitTheSameScriptOnce() throws Exception {
+		ParseCache cache = new ParseCache(directory, ParseCache.DEFAULT_SIZE);
+		ChangeScript script = new StubChangeScript(1, "script", "SELECT 'a;b' FROM x;\nSELECT 2 FROM y;\n");
+
+		assertThat(split(cache, script), is(list("SELECT 'a;b' FROM x", "SELECT 2 FROM y")));
+		assertThat(split(cache, script), is(list("SELECT 'a;b' FROM x", "SELECT 2 FROM y")));
+		assertThat(splitter.count, is(1));
+	}
+
+	@Test
+	public void shouldSplitAgainWhenTheContentOrTheDelimiterChanges() throws Exception {
+		ParseCache cache = new ParseCache(directory, ParseCache.DEFAULT_SIZE);
+
+		split(cache, new StubChangeScript(1, "script", "SELECT 1 FROM x;\n"));
+		split(cache, new StubChangeScript(1, "script", "SELECT 2 FROM x;\n"));
+		splitter.setDelimiter("/");
+		split(cache, new StubChangeScript(1, "script", "SELECT 2 FROM x;\n"));
+
+		assertThat(splitter.count, is(3));
+	}
+
+	@Test
+	public void shouldNotKeepAnEntryUntilTheScriptHasBeenReadToTheEnd() throws Exception {
+		ParseCache cache = new ParseCache(directory, ParseCache.DEFAULT_SIZE);
+		ChangeScript script = new StubChangeScript(1, "script", "SELECT 1 FROM x;\nSELECT 2 FROM y;\n");
+
+		Reader content = script.getContentReader();
+		cache.iterate(script, splitter, content).next();
+		content.close();
+
+		assertThat(split(cache, script), is(list("SELECT 1 FROM x", "SELECT 2 FROM y")));
+		assertThat(splitter.count, is(2));
+	}
+
+	@Test
+	public void shouldEvictTheLeastRecentlyUsedEntriesWhenFull() throws Exception {
+		ParseCache cache = new ParseCache(directory, 100);
+		ChangeScript first = new StubChangeScript(1, "first", "SELECT 'first script' FROM x;\n");
+		ChangeScript second = new StubChangeScript(2, "second", "SELECT 'second script' FROM x;\n");
+		ChangeScript third = new StubChangeScript(3, "third", "SELECT 'third script' FROM x;\n");
+
+		split(cache, first);
+		split(cache, second);
+		setAllLastModified(System.currentTimeMillis() - 60000);
+		split(cache, first);
+		split(cache, third);
+		assertThat(splitter.count, is(3));
+
+		split(cache, first);
+		split(cache, third);
+		assertThat(splitter.count, is(3));
+
+		split(cache, second);
+		assertThat(splitter.count, is(4));
+	}
+
+	@Test
+	public void shouldNotKeepEntriesLargerThanTheWholeCache() throws Exception {
+		ParseCache cache = new ParseCache(directory, 20);
+		ChangeScript script = new StubChangeScript(1, "script", "SELECT 'a rather long literal' FROM x;\n");
+
+		assertThat(split(cache, script), is(list("SELECT 'a rather long literal' FROM x")));
+		split(cache, script);
+
+		assertThat(splitter.count, is(2));
+	}
+
+	@Test
+	public void shouldSplitAgainIfAnEntryIsDamaged() throws Exception {
+		ParseCache cache = new ParseCache(directory, ParseCache.DEFAULT_SIZE);
+		ChangeScript script = new StubChangeScript(1, "script", "SELECT 1 FROM x;\n");
+		split(cache, script);
+
+		for (File file : directory.listFiles()) {
+			FileWriter writer = new FileWriter(file);
+			writer.write("garbage");
+			writer.close();
+		}
+
+		assertThat(split(cache, script), is(list("SELECT 1 FROM x")));
+		assertThat(splitter.count, is(2));
+	}
+
+	private List<String> split(ParseCache cache, ChangeScript script) throws IOException {
+		List<String> statements = new ArrayList<String>();
+		Reader content = script.getContentReader();
+		try {
+			Iterator<String> iterator = cache.iterate(script, splitter, content);
+			while (iterator.hasNext()) {
+				statements.add(iterator.next());
+			}
+		} finally {
+			content.close();
+		}
+		return statements;
+	}
+
+	private void setAllLastModified(long time) {
+		for (File file : directory.listFiles()) {
+			file.setLastModified(time);
+		}
+	}
+
+	private static List<String> list(String... statements) {
+		List<String> list = new ArrayList<String>();
+		for (String statement : statements) {
+			list.add(statement);
+		}
+		return list;
+	}
+
+	private static class CountingSplitter extends QueryStatementSplitter {
+		private int count;
+
+		@Override
+		public Iterator<String> iterate(Reader input) {
+			count++;
+			return super.iterate(input);
+		}
+	}
+}
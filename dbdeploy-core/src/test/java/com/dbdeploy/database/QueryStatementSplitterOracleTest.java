@@ -4,7 +4,9 @@ import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
+import java.io.StringReader;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.Before;
@@ -456,4 +458,59 @@ public class QueryStatementSplitterOracleTest {
         assertThat(result, hasItem("select (1+2+3)/greatest(case when 1=2 then 1 else 2 end,2) as a from dual"));
         assertThat(result.size(), is(1));
     }
+
+	@Test
+	public void oracleIgnoreDelimitersWithinQuotes() throws Exception {
+		List<String> result = oraSplitter.split("insert into x values ('a;\nb');\nselect 1 from dual;");
+
+		assertThat(result, hasItem("insert into x values ('a;\nb')"));
+		assertThat(result, hasItem("select 1 from dual"));
+		assertThat(result.size(), is(2));
+	}
+
+	@Test
+	public void oracleKeepWhitespaceWithinQuotes() throws Exception {
+		List<String> result = oraSplitter.split("select 'two  spaces /* not a comment */' from dual;");
+
+		assertThat(result, hasItem("select 'two  spaces /* not a comment */' from dual"));
+		assertThat(result.size(), is(1));
+	}
+
+	@Test
+	public void oracleIgnoreKeywordsWithinQuotes() throws Exception {
+		List<String> result = oraSplitter.split("insert into x values ('begin');insert into x values ('end');");
+
+		assertThat(result, hasItem("insert into x values ('begin')"));
+		assertThat(result, hasItem("insert into x values ('end')"));
+		assertThat(result.size(), is(2));
+	}
+
+	@Test
+	public void oracleAlternativeQuoting() throws Exception {
+		List<String> result = oraSplitter
+				.split("insert into x values (q'[it's; end;]');insert into x values (nq'{--}');");
+
+		assertThat(result, hasItem("insert into x values (q'[it's; end;]')"));
+		assertThat(result, hasItem("insert into x values (nq'{--}')"));
+		assertThat(result.size(), is(2));
+	}
+
+	@Test
+	public void oracleIgnoreRemarks() throws Exception {
+		List<String> result = oraSplitter.split("REM here is my remark;\n  REMARK another one\nselect 1 from dual;");
+
+		assertThat(result, hasItem("select 1 from dual"));
+		assertThat(result.size(), is(1));
+	}
+
+	@Test
+	public void oracleStatementsCanBeIteratedFromAReader() throws Exception {
+		Iterator<String> statements = oraSplitter.iterate(new StringReader(
+				"select 1 from dual;\nbegin\n  null;\nend;\n/\nselect 2 from dual;"));
+
+		assertThat(statements.next(), is("select 1 from dual"));
+		assertThat(statements.next(), is("begin null; end;"));
+		assertThat(statements.next(), is("select 2 from dual"));
+		assertThat(statements.hasNext(), is(false));
+	}
 }
@@ -4,6 +4,9 @@ import org.apache.commons.lang.SystemUtils;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.hamcrest.Matchers.*;
@@ -90,5 +93,112 @@ public class QueryStatementSplitterTest {
 		assertThat(splitter.split("SELECT\r\n1"), hasItems("SELECT" + SystemUtils.LINE_SEPARATOR + "1"));
 	}
 
+	@Test
+	public void shouldOnlyReadAsFarAsTheNextStatementWhenIterating() throws Exception {
+		StringReader reader = new StringReader("SELECT 1;\nSELECT 2;\nSELECT 3");
+		Iterator<String> statements = splitter.iterate(reader);
+
+		assertThat(statements.next(), is("SELECT 1"));
+		assertThat(statements.next(), is("SELECT 2"));
+		assertThat(statements.next(), is("SELECT 3"));
+		assertThat(statements.hasNext(), is(false));
+	}
+
+	@Test
+	public void shouldNotSplitOnADelimiterAtTheEndOfALineWithinAQuotedString() throws Exception {
+		splitter.setOutputLineEnding(LineEnding.lf);
+
+		List<String> result = splitter.split("INSERT INTO t VALUES ('first;\n\nsecond');\nSELECT 2;");
+		assertThat(result, hasItems("INSERT INTO t VALUES ('first;\n\nsecond')", "SELECT 2"));
+		assertThat(result.size(), is(2));
+	}
+
+	@Test
+	public void shouldNotSplitOnADelimiterAtTheEndOfAComment() throws Exception {
+		splitter.setOutputLineEnding(LineEnding.lf);
+
+		List<String> result = splitter.split("-- don't split here;\nSELECT 1 /* or here;\n*/ FROM t;");
+		assertThat(result, hasItem("-- don't split here;\nSELECT 1 /* or here;\n*/ FROM t"));
+		assertThat(result.size(), is(1));
+	}
+
+	@Test
+	public void shouldNotTreatQuotedRowTerminatorsAsDelimiters() throws Exception {
+		splitter.setDelimiter("/");
+		splitter.setDelimiterType(DelimiterType.row);
+		splitter.setOutputLineEnding(LineEnding.lf);
+
+		List<String> result = splitter.split("SELECT '\n/\n' FROM DUAL\n/\nSELECT 2 FROM DUAL");
+		assertThat(result, hasItems("SELECT '\n/\n' FROM DUAL\n", "SELECT 2 FROM DUAL"));
+		assertThat(result.size(), is(2));
+	}
 
+	@Test
+	public void shouldTreatABackslashAsAnEscapeInsideAQuotedStringForMysql() throws Exception {
+		splitter.setOutputLineEnding(LineEnding.lf);
+		splitter.setBackslashEscapes(true);
+
+		List<String> result = splitter.split("INSERT INTO t VALUES ('it\\'s');\nINSERT INTO t VALUES ('b');\n"
+				+ "INSERT INTO t VALUES ('c\\\\');\nINSERT INTO t VALUES ('d');");
+		assertThat(result, hasItems("INSERT INTO t VALUES ('it\\'s')", "INSERT INTO t VALUES ('b')",
+				"INSERT INTO t VALUES ('c\\\\')", "INSERT INTO t VALUES ('d')"));
+		assertThat(result.size(), is(4));
+	}
+
+	@Test
+	public void shouldTakeABackslashInsideAQuotedStringLiterally() throws Exception {
+		splitter.setOutputLineEnding(LineEnding.lf);
+
+		List<String> result = splitter.split("INSERT INTO t VALUES ('C:\\');\nSELECT 'a;\nb';");
+		assertThat(result, hasItems("INSERT INTO t VALUES ('C:\\')", "SELECT 'a;\nb'"));
+		assertThat(result.size(), is(2));
+	}
+
+	@Test
+	public void shouldSplitByLinesAloneAfterAQuoteThatIsNeverClosed() throws Exception {
+		splitter.setOutputLineEnding(LineEnding.lf);
+		splitter.setBackslashEscapes(true);
+
+		List<String> result = splitter.split("SELECT 1;\nINSERT INTO t VALUES ('C:\\');\nSELECT 'a\n\nb';\nSELECT 3;");
+		assertThat(result, hasItems("SELECT 1", "INSERT INTO t VALUES ('C:\\')", "SELECT 'a\nb'", "SELECT 3"));
+		assertThat(result.size(), is(4));
+	}
+
+	@Test
+	public void shouldSplitByLinesWithoutReadingToTheEndOnceAQuoteHasBeenOpenForTooLong() throws Exception {
+		final int rows = DelimitedStatementScanner.MAX_QUOTED_CHARS / 10;
+		final int[] row = { 0 };
+		Reader input = new Reader() {
+			private final StringBuilder pending = new StringBuilder("INSERT INTO t VALUES ('it's');\n");
+
+			@Override
+			public int read(char[] buffer, int offset, int length) {
+				if (pending.length() == 0) {
+					if (row[0] == rows * 2) {
+						return -1;
+					}
+					pending.append("INSERT INTO t VALUES (").append(row[0]++).append(");\n");
+				}
+				int count = Math.min(length, pending.length());
+				pending.getChars(0, count, buffer, offset);
+				pending.delete(0, count);
+				return count;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		Iterator<String> statements = splitter.iterate(input);
+		assertThat(statements.next(), is("INSERT INTO t VALUES ('it's')"));
+		assertThat(statements.next(), is("INSERT INTO t VALUES (0)"));
+		assertThat(row[0], lessThan(rows));
+		int count = 2;
+		while (statements.hasNext()) {
+			statements.next();
+			count++;
+		}
+		assertThat(count, is(rows * 2 + 1));
+	}
 }
@@ -1,5 +1,6 @@
 package com.dbdeploy.database;
 
+import com.dbdeploy.ChangeNumberSet;
 import com.dbdeploy.ChangeScriptApplier;
 import com.dbdeploy.Controller;
 import com.dbdeploy.appliers.TemplateBasedApplier;
@@ -12,7 +13,6 @@ import org.junit.Test;
 
 import java.io.*;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -89,8 +89,8 @@ public class ScriptGenerationTest {
 		}
 
 		@Override
-		public List<Long> getAppliedChanges() throws SchemaVersionTrackingException {
-			return Collections.emptyList();
+		public ChangeNumberSet getAppliedChanges() throws SchemaVersionTrackingException {
+			return new ChangeNumberSet();
 		}
 	}
 }
@@ -0,0 +1,54 @@
+package com.dbdeploy.database;
+
+import com.dbdeploy.exceptions.UsageException;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class StatementSplitterRegistryTest {
+	private final StatementSplitterRegistry registry = new StatementSplitterRegistry();
+
+	@Test
+	public void shouldUseThePlainSplitterForNormalAndRowDelimiters() throws Exception {
+		assertThat(registry.createSplitter("mssql", DelimiterType.normal).getClass(), equalTo((Object) QueryStatementSplitter.class));
+		assertThat(registry.createSplitter(null, DelimiterType.row).getClass(), equalTo((Object) QueryStatementSplitter.class));
+	}
+
+	@Test
+	public void shouldOnlyTreatBackslashesAsEscapesForMysql() throws Exception {
+		assertThat(registry.createSplitter("mysql", DelimiterType.normal).isBackslashEscapes(), is(true));
+		assertThat(registry.createSplitter("pgsql", DelimiterType.normal).isBackslashEscapes(), is(false));
+		assertThat(registry.createSplitter("ora", DelimiterType.row).isBackslashEscapes(), is(false));
+		assertThat(registry.createSplitter(null, DelimiterType.normal).isBackslashEscapes(), is(false));
+	}
+
+	@Test
+	public void shouldUseTheOracleSplitterForOracleParsedWhateverTheDbms() throws Exception {
+		assertThat(registry.createSplitter(null, DelimiterType.oracle_parsed), instanceOf(QueryStatementSplitterOracle.class));
+		assertThat(registry.createSplitter("ora", DelimiterType.parsed), instanceOf(QueryStatementSplitterOracle.class));
+	}
+
+	@Test
+	public void shouldHaveABuiltInSplitterForEveryDbmsWithTemplates() throws Exception {
+		for (String dbms : new String[] { "mssql", "syb-ase", "pgsql", "mysql", "db2", "hsql" }) {
+			assertThat(registry.createSplitter(dbms, DelimiterType.parsed), instanceOf(DialectStatementSplitter.class));
+		}
+	}
+
+	@Test
+	public void shouldFindProvidersRegisteredOnTheClasspath() throws Exception {
+		assertThat(registry.createSplitter("test", DelimiterType.parsed), instanceOf(TestStatementSplitterProvider.Splitter.class));
+	}
+
+	@Test
+	public void shouldComplainAboutAnUnknownDbms() throws Exception {
+		try {
+			registry.createSplitter("nosuchdb", DelimiterType.parsed);
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertThat(e.getMessage(), is("No statement splitter is available for dbms nosuchdb"));
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package com.dbdeploy.database;
+
+/**
+ * Registered in src/test/resources/META-INF/services, to check that providers are picked up from the classpath.
+ */
+public class TestStatementSplitterProvider implements StatementSplitterProvider {
+	public QueryStatementSplitter createSplitter(String dbms) {
+		return "test".equals(dbms) ? new Splitter() : null;
+	}
+
+	public static class Splitter extends QueryStatementSplitter {
+	}
+}
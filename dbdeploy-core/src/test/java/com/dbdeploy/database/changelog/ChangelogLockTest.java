@@ -0,0 +1,106 @@
+package com.dbdeploy.database.changelog;
+
+import com.dbdeploy.exceptions.SchemaVersionTrackingException;
+import com.dbdeploy.integration.Database;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ChangelogLockTest {
+	private Database db;
+	private QueryExecuter first;
+	private QueryExecuter second;
+
+	@Before
+	public void setUp() throws Exception {
+		db = new Database("changelog_lock_test");
+		db.createLockTable();
+		first = new QueryExecuter(db.getConnectionString(), "sa", "");
+		second = new QueryExecuter(db.getConnectionString(), "sa", "");
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		first.execute("DROP TABLE changelog_lock");
+		first.close();
+		second.close();
+	}
+
+	@Test
+	public void shouldLetOneHolderHaveTheLockAtATime() throws Exception {
+		ChangelogLock firstLock = new ChangelogLock(first, "changelog_lock", 60000);
+		ChangelogLock secondLock = new ChangelogLock(second, "changelog_lock", 60000);
+
+		assertThat(secondLock.getHolder(), is(nullValue()));
+		assertThat(firstLock.tryAcquire(), is(true));
+		assertThat(secondLock.tryAcquire(), is(false));
+		assertThat(secondLock.getHolder(), is(notNullValue()));
+
+		firstLock.release();
+		assertThat(secondLock.tryAcquire(), is(true));
+		secondLock.release();
+		assertThat(firstLock.getHolder(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldTakeOverALockWhoseLeaseHasExpired() throws Exception {
+		first.execute("INSERT INTO changelog_lock (lock_id, locked_by, expires_dt) VALUES (?, ?, ?)", 1,
+				"a process that died", new Timestamp(System.currentTimeMillis() - 1000));
+
+		ChangelogLock secondLock = new ChangelogLock(second, "changelog_lock", 60000);
+		assertThat(secondLock.tryAcquire(), is(true));
+		assertThat(secondLock.getHolder(), is(not("a process that died")));
+		secondLock.release();
+	}
+
+	@Test
+	public void shouldRenewTheLeaseForAsLongAsTheLockIsHeld() throws Exception {
+		ChangelogLock firstLock = new ChangelogLock(first, "changelog_lock", 300);
+		ChangelogLock secondLock = new ChangelogLock(second, "changelog_lock", 300);
+
+		assertThat(firstLock.tryAcquire(), is(true));
+		Thread.sleep(900);
+		assertThat(secondLock.tryAcquire(), is(false));
+
+		firstLock.release();
+		assertThat(secondLock.tryAcquire(), is(true));
+		secondLock.release();
+	}
+
+	@Test
+	public void shouldKnowWhenItsLeaseHasBeenTakenOver() throws Exception {
+		ChangelogLock firstLock = new ChangelogLock(first, "changelog_lock", 300);
+		assertThat(firstLock.tryAcquire(), is(true));
+		firstLock.checkHeld();
+
+		second.executeUpdate("UPDATE changelog_lock SET locked_by = ?", "another process");
+		Thread.sleep(400);
+
+		try {
+			firstLock.checkHeld();
+			fail("exception expected");
+		} catch (SchemaVersionTrackingException e) {
+			assertThat(e.getMessage(), containsString("Lost the lock on changelog_lock"));
+		}
+		firstLock.release();
+		assertThat(firstLock.getHolder(), is("another process"));
+	}
+
+	@Test(expected = SchemaVersionTrackingException.class)
+	public void shouldFailRatherThanWaitWhenTheLockCannotBeInserted() throws Exception {
+		first.execute("CREATE TABLE broken_lock (lock_id INTEGER NOT NULL, locked_by VARCHAR(100),"
+				+ " expires_dt TIMESTAMP, required INTEGER NOT NULL)");
+		try {
+			new ChangelogLock(first, "broken_lock", 60000).tryAcquire();
+		} finally {
+			first.execute("DROP TABLE broken_lock");
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.dbdeploy.database.changelog;
+
+import com.dbdeploy.ChangeNumberSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ChangelogSnapshotTest {
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("changelogSnapshotTest", "");
+		directory.delete();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	@Test
+	public void shouldReadBackTheChangeNumbersOfAnUnchangedChangelog() throws Exception {
+		ChangelogSnapshot snapshot = new ChangelogSnapshot(directory, "jdbc:x", "sa", "changelog");
+		ChangeNumberSet changes = ChangeNumberSet.of(1, 2, 3, 7, 20090101120000L);
+
+		snapshot.write(changes);
+
+		ChangeNumberSet read = snapshot.read(ChangelogFingerprint.of(changes));
+		assertThat(read.toString(), is("[1..3, 7, 20090101120000]"));
+		assertThat(directory.list().length, is(1));
+	}
+
+	@Test
+	public void shouldIgnoreTheSnapshotOnceTheFingerprintHasChanged() throws Exception {
+		ChangelogSnapshot snapshot = new ChangelogSnapshot(directory, "jdbc:x", "sa", "changelog");
+		snapshot.write(ChangeNumberSet.of(1, 2, 3));
+
+		assertThat(snapshot.read(new ChangelogFingerprint(4, 1, 4)), is(nullValue()));
+		assertThat(snapshot.read(new ChangelogFingerprint(2, 1, 3)), is(nullValue()));
+	}
+
+	@Test
+	public void shouldKeepASnapshotPerDatabaseUserAndTable() throws Exception {
+		ChangelogSnapshot snapshot = new ChangelogSnapshot(directory, "jdbc:x", "sa", "changelog");
+
+		assertThat(snapshot.getFile(), is(new ChangelogSnapshot(directory, "jdbc:x", "sa", "changelog").getFile()));
+		assertThat(snapshot.getFile(), not(new ChangelogSnapshot(directory, "jdbc:y", "sa", "changelog").getFile()));
+		assertThat(snapshot.getFile(), not(new ChangelogSnapshot(directory, "jdbc:x", "dba", "changelog").getFile()));
+		assertThat(snapshot.getFile(), not(new ChangelogSnapshot(directory, "jdbc:x", "sa", "other").getFile()));
+	}
+
+	@Test
+	public void shouldIgnoreAMissingOrCorruptSnapshot() throws Exception {
+		ChangelogSnapshot snapshot = new ChangelogSnapshot(directory, "jdbc:x", "sa", "changelog");
+		ChangelogFingerprint fingerprint = ChangelogFingerprint.of(ChangeNumberSet.of(1, 2, 3));
+
+		assertThat(snapshot.read(fingerprint), is(nullValue()));
+
+		directory.mkdirs();
+		FileWriter writer = new FileWriter(snapshot.getFile());
+		writer.write("not a snapshot");
+		writer.close();
+
+		assertThat(snapshot.read(fingerprint), is(nullValue()));
+	}
+}
@@ -0,0 +1,84 @@
+package com.dbdeploy.database.changelog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ConnectionPoolTest {
+	private ConnectionPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		Class.forName("org.hsqldb.jdbcDriver");
+		pool = new ConnectionPool("jdbc:hsqldb:mem:connection_pool_test", "sa", "", 2);
+	}
+
+	@After
+	public void tearDown() {
+		pool.close();
+	}
+
+	@Test
+	public void shouldReuseAConnectionOnceItIsHandedBack() throws Exception {
+		Connection first = pool.getConnection();
+		first.close();
+		Connection second = pool.getConnection();
+
+		assertThat(first.isClosed(), is(true));
+		assertThat(second.isClosed(), is(false));
+		assertThat(pool.getOpenConnections(), is(1));
+	}
+
+	@Test
+	public void shouldRollBackAndRestoreAutoCommitWhenAConnectionIsHandedBack() throws Exception {
+		Connection connection = pool.getConnection();
+		connection.setAutoCommit(false);
+		connection.close();
+
+		assertThat(pool.getConnection().getAutoCommit(), is(true));
+	}
+
+	@Test
+	public void shouldTimeOutWhenAllConnectionsAreInUse() throws Exception {
+		pool.setWaitTimeout(10);
+		pool.getConnection();
+		pool.getConnection();
+
+		try {
+			pool.getConnection();
+			fail("exception expected");
+		} catch (SQLException e) {
+			assertThat(e.getMessage(), containsString("all 2 are in use"));
+		}
+	}
+
+	@Test
+	public void shouldCloseConnectionsIdleForLongerThanTheIdleTimeout() throws Exception {
+		pool.getConnection().close();
+		assertThat(pool.getIdleConnections(), is(1));
+
+		pool.setIdleTimeout(0);
+		pool.getConnection().close();
+		Thread.sleep(5);
+		pool.getConnection();
+
+		assertThat(pool.getIdleConnections(), is(0));
+		assertThat(pool.getOpenConnections(), is(1));
+	}
+
+	@Test
+	public void shouldTakeTheUsernameFromTheConnectionWhenGivenADataSource() throws Exception {
+		QueryExecuter queryExecuter = new QueryExecuter(pool);
+		assertThat(queryExecuter.getDatabaseUsername(), equalToIgnoringCase("sa"));
+
+		queryExecuter.close();
+		assertThat(pool.getIdleConnections(), is(1));
+	}
+}
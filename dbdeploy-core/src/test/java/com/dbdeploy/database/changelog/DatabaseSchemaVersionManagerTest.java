@@ -1,6 +1,8 @@
 package com.dbdeploy.database.changelog;
 
+import com.dbdeploy.ChangeNumberSet;
 import com.dbdeploy.scripts.ChangeScript;
+import com.dbdeploy.scripts.StubChangeScript;
 import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,13 +13,17 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.Date;
-import java.util.List;
 
 import static org.hamcrest.Matchers.equalToIgnoringWhiteSpace;
 import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -45,10 +51,50 @@ public class DatabaseSchemaVersionManagerTest {
         when(expectedResultSet.next()).thenReturn(true, true, true, false);
         when(expectedResultSet.getLong(1)).thenReturn(5L, 9L, 12L);
 
-        final List<Long> numbers = schemaVersionManager.getAppliedChanges();
+        final ChangeNumberSet numbers = schemaVersionManager.getAppliedChanges();
         assertThat(numbers, hasItems(5L, 9L, 12L));
     }
 
+    @Test
+    public void shouldReadTheFingerprintOfTheChangelogTableInOneQuery() throws Exception {
+        when(expectedResultSet.next()).thenReturn(true);
+        when(expectedResultSet.getLong(1)).thenReturn(3L);
+        when(expectedResultSet.getLong(2)).thenReturn(5L);
+        when(expectedResultSet.getLong(3)).thenReturn(12L);
+
+        assertThat(schemaVersionManager.getFingerprint(), is(new ChangelogFingerprint(3, 5, 12)));
+        verify(queryExecuter).executeQuery("SELECT COUNT(*), MIN(change_number), MAX(change_number) FROM changelog");
+    }
+
+    @Test
+    public void shouldTakeAppliedChangesFromASnapshotThatMatchesTheFingerprint() throws Exception {
+        ChangelogSnapshot snapshot = mock(ChangelogSnapshot.class);
+        ChangeNumberSet snapshotNumbers = ChangeNumberSet.of(5, 9, 12);
+        when(snapshot.read(new ChangelogFingerprint(3, 5, 12))).thenReturn(snapshotNumbers);
+        when(expectedResultSet.next()).thenReturn(true);
+        when(expectedResultSet.getLong(1)).thenReturn(3L);
+        when(expectedResultSet.getLong(2)).thenReturn(5L);
+        when(expectedResultSet.getLong(3)).thenReturn(12L);
+
+        schemaVersionManager.setSnapshot(snapshot);
+
+        assertThat(schemaVersionManager.getAppliedChanges(), is(sameInstance(snapshotNumbers)));
+        verify(queryExecuter, never()).executeQuery(startsWith("SELECT change_number "));
+        verify(snapshot, never()).write(any(ChangeNumberSet.class));
+    }
+
+    @Test
+    public void shouldReadAndSnapshotAppliedChangesWhenTheFingerprintDoesNotMatch() throws Exception {
+        ChangelogSnapshot snapshot = mock(ChangelogSnapshot.class);
+        when(expectedResultSet.next()).thenReturn(true, true, true, false);
+        when(expectedResultSet.getLong(1)).thenReturn(2L, 5L, 9L);
+
+        schemaVersionManager.setSnapshot(snapshot);
+        final ChangeNumberSet numbers = schemaVersionManager.getAppliedChanges();
+
+        assertThat(numbers, hasItems(5L, 9L));
+        verify(snapshot).write(numbers);
+    }
 
     @Test
     public void shouldUpdateChangelogTable() throws Exception {
@@ -66,6 +112,24 @@ public class DatabaseSchemaVersionManagerTest {
                 new Timestamp(now.getTime()), "DBUSER", script.getDescription());
     }
 
+    @Test
+    public void shouldRecordTheChecksumOfTheScriptWhenAskedTo() throws Exception {
+        Date now = new Date();
+        ChangeScript script = new StubChangeScript(7, "Some Description", "abc");
+
+        when(queryExecuter.getDatabaseUsername()).thenReturn("DBUSER");
+        when(timeProvider.now()).thenReturn(now);
+
+        schemaVersionManager.setChecksums(true);
+        schemaVersionManager.recordScriptApplied(script);
+        String expected =
+                "INSERT INTO changelog (change_number, complete_dt, applied_by, description, checksum) " +
+                        "VALUES (?, ?, ?, ?, ?)";
+
+        verify(queryExecuter).execute(expected, 7L,
+                new Timestamp(now.getTime()), "DBUSER", "Some Description", "44bc2cf5ad770999");
+    }
+
     @Test
     public void shouldGenerateSqlStringToDeleteChangelogTableAfterUndoScriptApplication() throws Exception {
         String sql = schemaVersionManager.getChangelogDeleteSql(script);
@@ -0,0 +1,109 @@
+package com.dbdeploy.database.changelog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class QueryExecuterTest {
+	private QueryExecuter queryExecuter;
+
+	@Before
+	public void setUp() throws Exception {
+		Class.forName("org.hsqldb.jdbcDriver");
+		queryExecuter = new QueryExecuter("jdbc:hsqldb:mem:query_executer_test", "sa", "");
+		queryExecuter.execute("CREATE TABLE Test (id INTEGER, name VARCHAR(20))");
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		queryExecuter.execute("DROP TABLE Test");
+	}
+
+	@Test
+	public void shouldReusePreparedStatementsForTheSameSql() throws Exception {
+		queryExecuter.execute("INSERT INTO Test VALUES (?, ?)", 1, "one");
+		queryExecuter.execute("INSERT INTO Test VALUES (?, ?)", 2, "two");
+		queryExecuter.execute("UPDATE Test SET name = ? WHERE id = ?", "zwei", 2);
+		queryExecuter.execute("INSERT INTO Test VALUES (?, ?)", 3, "three");
+
+		assertThat(queryExecuter.getStatementCacheHits(), is(2L));
+		assertThat(queryExecuter.getStatementCacheMisses(), is(2L));
+		assertThat(count("SELECT COUNT(*) FROM Test"), is(3));
+		assertThat(count("SELECT COUNT(*) FROM Test WHERE name = 'zwei'"), is(1));
+	}
+
+	@Test
+	public void shouldPrepareTheLeastRecentlyUsedStatementAgainWhenTheCacheIsFull() throws Exception {
+		queryExecuter.setStatementCacheSize(2);
+
+		queryExecuter.execute("INSERT INTO Test VALUES (?, 'a')", 1);
+		queryExecuter.execute("INSERT INTO Test VALUES (?, 'b')", 2);
+		queryExecuter.execute("INSERT INTO Test VALUES (?, 'a')", 3);
+		queryExecuter.execute("INSERT INTO Test VALUES (?, 'c')", 4);
+		queryExecuter.execute("INSERT INTO Test VALUES (?, 'a')", 5);
+		queryExecuter.execute("INSERT INTO Test VALUES (?, 'b')", 6);
+
+		assertThat(queryExecuter.getStatementCacheHits(), is(2L));
+		assertThat(queryExecuter.getStatementCacheMisses(), is(4L));
+		assertThat(count("SELECT COUNT(*) FROM Test"), is(6));
+	}
+
+	@Test
+	public void shouldPrepareEveryStatementAfreshWithoutACache() throws Exception {
+		queryExecuter.setStatementCacheSize(0);
+
+		queryExecuter.execute("INSERT INTO Test VALUES (?, ?)", 1, "one");
+		queryExecuter.execute("INSERT INTO Test VALUES (?, ?)", 2, "two");
+
+		assertThat(queryExecuter.getStatementCacheHits(), is(0L));
+		assertThat(queryExecuter.getStatementCacheMisses(), is(2L));
+	}
+
+	@Test
+	public void shouldCarryOnUsingTheSameStatementAfterAFailure() throws Exception {
+		try {
+			queryExecuter.execute("INSERT INTO Test VALUES (1, 2, 3)");
+			fail("exception expected");
+		} catch (SQLException e) {
+			// expected
+		}
+
+		queryExecuter.execute("INSERT INTO Test VALUES (1, 'one')");
+		assertThat(count("SELECT COUNT(*) FROM Test"), is(1));
+	}
+
+	@Test
+	public void shouldCloseTheConnectionWhenItsUserCannotBeFound() throws Exception {
+		DataSource dataSource = mock(DataSource.class);
+		Connection connection = mock(Connection.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+		when(connection.getMetaData()).thenThrow(new SQLException("connection lost"));
+
+		try {
+			new QueryExecuter(dataSource);
+			fail("exception expected");
+		} catch (SQLException e) {
+			assertThat(e.getMessage(), is("connection lost"));
+		}
+
+		verify(connection).close();
+	}
+
+	private int count(String sql) throws SQLException {
+		ResultSet rs = queryExecuter.executeQuery(sql);
+		rs.next();
+		int count = rs.getInt(1);
+		rs.close();
+		return count;
+	}
+}
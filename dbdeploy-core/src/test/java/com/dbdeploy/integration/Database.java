@@ -50,7 +50,29 @@ public class Database {
                 " ADD CONSTRAINT Pkchangelog PRIMARY KEY (change_number)");
 	}
 
-	private void execute(String sql) throws SQLException {
+	public void createCheckpointTable() throws SQLException {
+		execute("CREATE TABLE " + changeLogTableName + DbDeploy.CHECKPOINT_TABLE_SUFFIX +
+				" ( " +
+				"  change_number INTEGER NOT NULL, " +
+				"  statement_index INTEGER NOT NULL, " +
+				"  statement_hash VARCHAR(40) NOT NULL " +
+				")");
+	}
+
+	public void createLockTable() throws SQLException {
+		execute("CREATE TABLE " + changeLogTableName + DbDeploy.LOCK_TABLE_SUFFIX +
+				" ( " +
+				"  lock_id INTEGER NOT NULL PRIMARY KEY, " +
+				"  locked_by VARCHAR(100) NOT NULL, " +
+				"  expires_dt TIMESTAMP NOT NULL " +
+				")");
+	}
+
+	public void addChecksumColumn() throws SQLException {
+		execute("ALTER TABLE " + changeLogTableName + " ADD COLUMN checksum VARCHAR(16)");
+	}
+
+	public void execute(String sql) throws SQLException {
 		final Statement statement = connection.createStatement();
 		statement.execute(sql);
 		statement.close();
@@ -64,6 +86,10 @@ public class Database {
 		dbDeploy.setPassword(DATABASE_PASSWORD);
 	}
 
+	public String getConnectionString() {
+		return connectionString;
+	}
+
 	public void applyScript(File sqlFile) throws SQLException, IOException {
 		String sql = FileUtils.readFileToString(sqlFile);
 
@@ -103,6 +129,10 @@ public class Database {
 
 		DatabaseSchemaVersionManager schemaVersionManager =
                 new DatabaseSchemaVersionManager(queryExecuter, changeLogTableName);
-		return schemaVersionManager.getAppliedChanges();
+		List<Long> entries = new ArrayList<Long>();
+		for (Long changeNumber : schemaVersionManager.getAppliedChanges()) {
+			entries.add(changeNumber);
+		}
+		return entries;
 	}
 }
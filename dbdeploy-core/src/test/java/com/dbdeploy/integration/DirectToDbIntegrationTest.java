@@ -1,9 +1,17 @@
 package com.dbdeploy.integration;
 
 import com.dbdeploy.DbDeploy;
+import com.dbdeploy.appliers.TransactionGrouping;
+import com.dbdeploy.database.changelog.ConnectionPool;
+import com.dbdeploy.exceptions.ChangeScriptFailedException;
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.scripts.ChangeScript;
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -45,6 +53,246 @@ public class DirectToDbIntegrationTest {
         assertThat(results, hasItems(new Object[] {6}, new Object[] {7}));
     }
 
+    @Test
+    public void shouldSuccessfullyApplyMultiStatementDeltasInBatches() throws Exception {
+        Database db = new Database("todb_batch_test");
+        db.createSchemaVersionTable();
+
+        DbDeploy dbDeploy = new DbDeploy();
+        db.applyDatabaseSettingsTo(dbDeploy);
+        dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/multi_statement_deltas"));
+        dbDeploy.setBatchSize(10);
+        dbDeploy.go();
+
+        assertThat(db.getChangelogEntries(), hasItems(1L, 2L));
+
+        List<Object[]> results = db.executeQuery("select id from Test");
+        assertThat(results.size(), is(2));
+        assertThat(results, hasItems(new Object[] {6}, new Object[] {7}));
+    }
+
+	@Test
+	public void shouldSuccessfullyApplyLiteralInsertsAsParameterisedBatches() throws Exception {
+		Database db = new Database("todb_parameterise_test");
+		db.createSchemaVersionTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/literal_insert_deltas"));
+		dbDeploy.setParameteriseInserts(true);
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), hasItems(1L, 2L));
+
+		List<Object[]> results = db.executeQuery("select id, name from Customer order by id");
+		assertThat(results.size(), is(5));
+		assertThat(results.get(1), is(new Object[] {2, "O'Brien"}));
+		assertThat(results.get(2), is(new Object[] {3, null}));
+		assertThat(results.get(3), is(new Object[] {4, "JONES"}));
+
+		results = db.executeQuery("select code, happened from Event order by happened");
+		assertThat(results.size(), is(2));
+		assertThat(results.get(0)[0], is((Object) "1"));
+		assertThat(results.get(1)[1].toString(), is("2020-02-29"));
+	}
+
+	@Test
+	public void shouldLoadDataScriptsIntoTheirTables() throws Exception {
+		Database db = new Database("todb_data_test");
+		db.createSchemaVersionTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/data_deltas"));
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), hasItems(1L, 2L, 3L));
+
+		List<Object[]> results = db.executeQuery("select code, name, population from Country order by code");
+		assertThat(results.size(), is(3));
+		assertThat(results.get(0), is(new Object[] {"CI", "C\u00f4te d'Ivoire", null}));
+		assertThat(results.get(1), is(new Object[] {"FM", "Micronesia, Federated States of", 115000}));
+		assertThat(results.get(2), is(new Object[] {"GB", "United Kingdom", 67000000}));
+	}
+
+	@Test
+	public void shouldLoadDataScriptsInBatchesWhenParsingAhead() throws Exception {
+		Database db = new Database("todb_data_batch_test");
+		db.createSchemaVersionTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/data_deltas"));
+		dbDeploy.setParseAhead(2);
+		dbDeploy.setBatchSize(2);
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), hasItems(1L, 2L, 3L));
+		assertThat(db.executeQuery("select code from Country").size(), is(3));
+	}
+
+	@Test
+	public void shouldWriteMetricsOfTheRun() throws Exception {
+		Database db = new Database("todb_metrics_test");
+		db.createSchemaVersionTable();
+		File metricsFile = File.createTempFile("metrics", ".json");
+		metricsFile.deleteOnExit();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/multi_statement_deltas"));
+		dbDeploy.setMetricsFile(metricsFile);
+		dbDeploy.go();
+
+		String metrics = FileUtils.readFileToString(metricsFile);
+		assertThat(metrics, containsString("\"scriptsApplied\": 2,"));
+		assertThat(metrics, containsString("\"statementsExecuted\": 3,"));
+		assertThat(metrics, containsString("\"commitTime\": {\"unit\": \"us\", \"count\": 2,"));
+	}
+
+	@Test
+	public void shouldReportTheScriptsStillToApplyWithoutApplyingThem() throws Exception {
+		Database db = new Database("todb_status_test");
+		db.createSchemaVersionTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/deltas"));
+
+		List<ChangeScript> pending = dbDeploy.status();
+		assertThat(pending.size(), is(2));
+		assertThat(pending.get(0).getId(), is(1L));
+		assertThat(db.getChangelogEntries().size(), is(0));
+
+		dbDeploy.go();
+
+		assertThat(dbDeploy.status().size(), is(0));
+	}
+
+	@Test
+	public void shouldKeepTheChangelogSnapshotInStepWithTheTable() throws Exception {
+		Database db = new Database("todb_changelog_cache_test");
+		db.createSchemaVersionTable();
+		File directory = File.createTempFile("changelogCache", "");
+		directory.delete();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/invalid_deltas"));
+		dbDeploy.setChangelogCache(true);
+		dbDeploy.setChangelogCacheDirectory(directory);
+		try {
+			dbDeploy.go();
+			fail("exception expected");
+		} catch (ChangeScriptFailedException e) {
+			assertThat(e.getScript().getId(), is(2L));
+		}
+		assertThat(directory.list().length, is(1));
+
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/deltas"));
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), hasItems(1L, 2L));
+		assertThat(db.executeQuery("select id from Test").size(), is(1));
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void shouldFindAppliedScriptsEditedSinceFromTheirChecksums() throws Exception {
+		Database db = new Database("todb_checksum_test");
+		db.createSchemaVersionTable();
+		db.addChecksumColumn();
+		File directory = File.createTempFile("checksumDeltas", "");
+		directory.delete();
+		FileUtils.copyDirectory(findScriptDirectory("src/it/db/deltas"), directory);
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(directory);
+		dbDeploy.setChecksums(true);
+		dbDeploy.go();
+
+		assertThat(db.executeQuery("select checksum from changelog where checksum is not null").size(), is(2));
+		assertThat(dbDeploy.verify().size(), is(0));
+
+		File[] scripts = directory.listFiles();
+		Arrays.sort(scripts);
+		FileUtils.writeStringToFile(scripts[1], FileUtils.readFileToString(scripts[1]) + "\n-- edited\n");
+
+		List<ChangeScript> edited = dbDeploy.verify();
+		assertThat(edited.size(), is(1));
+		assertThat(edited.get(0).getId(), is(2L));
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void shouldBuildAnEmptyDatabaseFromTheBaseline() throws Exception {
+		Database db = new Database("todb_baseline_test");
+		db.createSchemaVersionTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/baseline_deltas"));
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), is(Arrays.asList(2L, 3L)));
+		assertThat(db.executeQuery("select id from Test").size(), is(2));
+	}
+
+	@Test
+	public void shouldBringADatabaseBehindTheBaselineUpToDateScriptByScript() throws Exception {
+		Database db = new Database("todb_behind_baseline_test");
+		db.createSchemaVersionTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/baseline_deltas"));
+		dbDeploy.setLastChangeToApply(1L);
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), is(Arrays.asList(1L)));
+
+		dbDeploy.setLastChangeToApply(Long.MAX_VALUE);
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), is(Arrays.asList(1L, 2L, 3L)));
+		assertThat(db.executeQuery("select id from Test").size(), is(2));
+	}
+
+	@Test
+	public void shouldTakeTheLockOverOnceItsLeaseHasExpired() throws Exception {
+		Database db = new Database("todb_lock_test");
+		db.createSchemaVersionTable();
+		db.createLockTable();
+		db.execute("INSERT INTO changelog_lock VALUES (1, 'a node that died', '2000-01-01 00:00:00')");
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/deltas"));
+		dbDeploy.setLock(true);
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), hasItems(1L, 2L));
+		assertThat(db.executeQuery("select locked_by from changelog_lock").size(), is(0));
+	}
+
+	@Test
+	public void shouldNotWaitForTheLockWhenThereIsNothingToApply() throws Exception {
+		Database db = new Database("todb_lock_up_to_date_test");
+		db.createSchemaVersionTable();
+		db.createLockTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/deltas"));
+		dbDeploy.setLock(true);
+		dbDeploy.go();
+
+		db.execute("INSERT INTO changelog_lock VALUES (1, 'another node', '2100-01-01 00:00:00')");
+		dbDeploy.go();
+
+		assertThat(db.executeQuery("select locked_by from changelog_lock").get(0), is(new Object[] {"another node"}));
+	}
 
 	@Test
 	public void shouldBeAbleToRecoverFromBadScriptsJustByRunningCorrectedScriptsAgain() throws Exception {
@@ -78,6 +326,178 @@ public class DirectToDbIntegrationTest {
 		assertThat(results.size(), is(1));
 	}
 
+	@Test
+	public void shouldResumeAFailedDeltaFromItsLastCheckpoint() throws Exception {
+		Database db = new Database("todb_checkpoint_test");
+		db.createSchemaVersionTable();
+		db.createCheckpointTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/checkpoint_invalid_deltas"));
+		dbDeploy.setCheckpointInterval(2);
+		try {
+			dbDeploy.go();
+			fail("exception expected");
+		} catch (ChangeScriptFailedException e) {
+			assertThat(e.getStatement(), is(4));
+		}
+
+		assertThat(db.getChangelogEntries().size(), is(0));
+		assertThat(db.executeQuery("select id from Test").size(), is(1));
+		assertThat(db.executeQuery("select statement_index from changelog_checkpoint").size(), is(1));
+
+		// the table was created by statement 1, so running it again would fail
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/checkpoint_deltas"));
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), hasItems(1L));
+		assertThat(db.executeQuery("select id from Test").size(), is(4));
+		assertThat(db.executeQuery("select statement_index from changelog_checkpoint").size(), is(0));
+	}
+
+	@Test
+	public void shouldApplyAllDeltasInOneTransactionWhenGroupingByDeployment() throws Exception {
+		Database db = new Database("todb_single_transaction_test");
+		db.createSchemaVersionTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/multi_statement_deltas"));
+		dbDeploy.setTransactionGrouping(TransactionGrouping.deployment);
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), hasItems(1L, 2L));
+
+		List<Object[]> results = db.executeQuery("select id from Test");
+		assertThat(results.size(), is(2));
+	}
+
+	@Test
+	public void shouldNotRecordAnyDeltasWhenOneFailsInTheSameTransaction() throws Exception {
+		Database db = new Database("todb_single_transaction_failure_test");
+		db.createSchemaVersionTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/invalid_deltas"));
+		dbDeploy.setTransactionGrouping(TransactionGrouping.deployment);
+		try {
+			dbDeploy.go();
+			fail("exception expected");
+		} catch (ChangeScriptFailedException e) {
+			assertThat(e.getScript().getId(), is(2L));
+		}
+
+		assertThat(db.getChangelogEntries().size(), is(0));
+	}
+
+	@Test
+	public void shouldApplyDeltasOverConnectionsFromADataSource() throws Exception {
+		Database db = new Database("todb_data_source_test");
+		db.createSchemaVersionTable();
+		ConnectionPool dataSource = new ConnectionPool(db.getConnectionString(), "sa", "", 1);
+
+		DbDeploy dbDeploy = new DbDeploy();
+		dbDeploy.setDbms("hsql");
+		dbDeploy.setDataSource(dataSource);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/deltas"));
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), hasItems(1L, 2L));
+		assertThat(dataSource.getIdleConnections(), is(1));
+		dataSource.close();
+	}
+
+	@Test
+	public void shouldHandTheConnectionBackWhenADeltaFails() throws Exception {
+		Database db = new Database("todb_data_source_failure_test");
+		db.createSchemaVersionTable();
+		ConnectionPool dataSource = new ConnectionPool(db.getConnectionString(), "sa", "", 1);
+
+		DbDeploy dbDeploy = new DbDeploy();
+		dbDeploy.setDbms("hsql");
+		dbDeploy.setDataSource(dataSource);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/invalid_deltas"));
+		try {
+			dbDeploy.go();
+			fail("exception expected");
+		} catch (ChangeScriptFailedException e) {
+			assertThat(e.getScript().getId(), is(2L));
+		}
+
+		assertThat(dataSource.getIdleConnections(), is(1));
+		dataSource.close();
+	}
+
+	@Test
+	public void shouldApplyIndependentDeltasOverSeveralConnections() throws Exception {
+		Database db = new Database("todb_connections_test");
+		db.createSchemaVersionTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/independent_deltas"));
+		dbDeploy.setConnections(3);
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), hasItems(1L, 2L, 3L, 4L));
+		assertThat(db.executeQuery("select id from Test").size(), is(2));
+		assertThat(db.executeQuery("select id from Other").size(), is(1));
+		assertThat(db.executeQuery("select id from Third").size(), is(0));
+	}
+
+	@Test
+	public void shouldPoolAConnectionForTheLockBesideThoseToApplyOver() throws Exception {
+		Database db = new Database("todb_connections_lock_test");
+		db.createSchemaVersionTable();
+		db.createLockTable();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		db.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/independent_deltas"));
+		dbDeploy.setConnections(3);
+		dbDeploy.setPoolSize(3);
+		dbDeploy.setLock(true);
+		dbDeploy.go();
+
+		assertThat(db.getChangelogEntries(), hasItems(1L, 2L, 3L, 4L));
+	}
+
+	@Test
+	public void shouldDeployToEachTargetAndCarryOnPastFailures() throws Exception {
+		Database first = new Database("todb_fleet_first_test");
+		first.createSchemaVersionTable();
+		Database second = new Database("todb_fleet_second_test", "other_changelog");
+		second.createSchemaVersionTable();
+
+		File targets = File.createTempFile("targets", ".properties");
+		targets.deleteOnExit();
+		FileWriter writer = new FileWriter(targets);
+		writer.write("first.url=" + first.getConnectionString() + "\n");
+		writer.write("second.url=" + second.getConnectionString() + "\n");
+		writer.write("second.changeLogTableName=other_changelog\n");
+		writer.write("unreachable.url=jdbc:nosuchdatabase:x\n");
+		writer.close();
+
+		DbDeploy dbDeploy = new DbDeploy();
+		first.applyDatabaseSettingsTo(dbDeploy);
+		dbDeploy.setUrl(null);
+		dbDeploy.setTargets(targets);
+		dbDeploy.setParallelism(2);
+		dbDeploy.setScriptdirectory(findScriptDirectory("src/it/db/deltas"));
+		try {
+			dbDeploy.go();
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getMessage(), is("Deployment failed on 1 of 3 targets"));
+		}
+
+		assertThat(first.getChangelogEntries(), hasItems(1L, 2L));
+		assertThat(second.getChangelogEntries(), hasItems(1L, 2L));
+		assertThat(second.executeQuery("select id from Test").size(), is(1));
+	}
+
 	private File findScriptDirectory(String directoryName) {
 		File directoryWhenRunningUnderMaven = new File(directoryName);
 		if (directoryWhenRunningUnderMaven.isDirectory()) {
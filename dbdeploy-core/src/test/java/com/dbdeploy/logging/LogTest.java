@@ -0,0 +1,89 @@
+package com.dbdeploy.logging;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class LogTest {
+	private final RecordingSink sink = new RecordingSink();
+	private LogSink previousSink;
+	private LogLevel previousLevel;
+
+	@Before
+	public void setUp() {
+		previousSink = Log.getSink();
+		previousLevel = Log.getLevel();
+		Log.setSink(sink);
+		Log.setLevel(LogLevel.info);
+	}
+
+	@After
+	public void tearDown() {
+		Log.stopAsync();
+		Log.setSink(previousSink);
+		Log.setLevel(previousLevel);
+	}
+
+	@Test
+	public void shouldSubstituteArgumentsForPlaceholders() throws Exception {
+		Log.info("no arguments {}");
+		Log.info("Applying {}...", "#1: a.sql");
+		Log.warn("{} and {}!", 1, 2L);
+
+		assertThat(sink.messages, is(list("info: no arguments {}", "info: Applying #1: a.sql...", "warn: 1 and 2!")));
+	}
+
+	@Test
+	public void shouldNotBuildMessagesBelowTheLevel() throws Exception {
+		Log.debug("Statement: {}", new Object() {
+			@Override
+			public String toString() {
+				throw new AssertionError("should not have been formatted");
+			}
+		});
+
+		assertThat(Log.isDebugEnabled(), is(false));
+		assertThat(sink.messages.size(), is(0));
+	}
+
+	@Test
+	public void shouldWriteEverythingInOrderWhenAsynchronous() throws Exception {
+		Log.setLevel(LogLevel.debug);
+		Log.startAsync();
+		for (int i = 0; i < 20000; i++) {
+			Log.debug("statement {}", i);
+		}
+		Log.stopAsync();
+
+		assertThat(sink.messages.size(), is(20000));
+		assertThat(sink.messages.get(0), is("debug: statement 0"));
+		assertThat(sink.messages.get(19999), is("debug: statement 19999"));
+		assertThat(sink.threads.size(), is(1));
+		assertThat(sink.threads.contains(Thread.currentThread()), is(false));
+	}
+
+	private static List<String> list(String... messages) {
+		List<String> list = new ArrayList<String>();
+		Collections.addAll(list, messages);
+		return list;
+	}
+
+	private static class RecordingSink implements LogSink {
+		private final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+		private final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+
+		public void log(LogLevel level, String message) {
+			messages.add(level + ": " + message);
+			if (!threads.contains(Thread.currentThread())) {
+				threads.add(Thread.currentThread());
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.dbdeploy.metrics;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class HistogramTest {
+	private final Histogram histogram = new Histogram();
+
+	@Test
+	public void shouldPutEveryValueInABucketThatHoldsIt() {
+		for (long value : new long[] { 0, 1, 31, 32, 33, 100, 1000, 123456789, Long.MAX_VALUE }) {
+			int index = Histogram.index(value);
+			assertThat(Histogram.highestValue(index), greaterThanOrEqualTo(value));
+			if (index > 0) {
+				assertThat(Histogram.highestValue(index - 1), lessThan(value));
+			}
+		}
+	}
+
+	@Test
+	public void shouldKnowValuesToWithinOneSixteenth() {
+		long value = 1000000;
+		long highest = Histogram.highestValue(Histogram.index(value));
+
+		assertThat(highest - value, lessThanOrEqualTo(value / 16));
+	}
+
+	@Test
+	public void shouldReportPercentilesMeanAndMax() {
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(i);
+		}
+
+		assertThat(histogram.getCount(), is(100L));
+		assertThat(histogram.getMean(), is(50L));
+		assertThat(histogram.getMax(), is(100L));
+		assertThat(histogram.getPercentile(50), allOf(greaterThanOrEqualTo(50L), lessThanOrEqualTo(53L)));
+		assertThat(histogram.getPercentile(100), is(100L));
+	}
+
+	@Test
+	public void shouldCountValuesRecordedFromManyThreadsAtOnce() throws Exception {
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 10000; j++) {
+						histogram.record(j);
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(histogram.getCount(), is(80000L));
+		assertThat(histogram.getMax(), is(9999L));
+	}
+}
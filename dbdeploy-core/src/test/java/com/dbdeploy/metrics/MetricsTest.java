@@ -0,0 +1,26 @@
+package com.dbdeploy.metrics;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class MetricsTest {
+	@Test
+	public void shouldOnlyStartAgainFromNothingWhenNoOtherRunIsRecording() {
+		Metrics.startRun();
+		try {
+			Metrics.SCRIPTS_APPLIED.increment();
+
+			Metrics.startRun();
+			assertThat(Metrics.SCRIPTS_APPLIED.get(), is(1L));
+			Metrics.endRun();
+		} finally {
+			Metrics.endRun();
+		}
+
+		Metrics.startRun();
+		assertThat(Metrics.SCRIPTS_APPLIED.get(), is(0L));
+		Metrics.endRun();
+	}
+}
@@ -3,6 +3,7 @@ package com.dbdeploy.scripts;
 import com.dbdeploy.exceptions.DuplicateChangeScriptException;
 import org.junit.Test;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
@@ -42,6 +43,24 @@ public class ChangeScriptRepositoryTest {
 		}
 	}
 
+	@Test
+	public void shouldAllowABaselineToShareItsNumberWithAScript() throws Exception {
+		ChangeScript two = new ChangeScript(2);
+		ChangeScript baselineTwo = new ChangeScript(2, new File("baseline_2_schema.sql"), "UTF-8");
+		ChangeScript three = new ChangeScript(3);
+
+		ChangeScriptRepository repository = new ChangeScriptRepository(Arrays.asList(three, baselineTwo, two));
+		assertThat(repository.getOrderedListOfDoChangeScripts().size(), is(3));
+
+		try {
+			new ChangeScriptRepository(Arrays.asList(baselineTwo, two,
+					new ChangeScript(2, new File("baseline_2_again.sql"), "UTF-8")));
+			fail("expected exception");
+		} catch (DuplicateChangeScriptException ex) {
+			assertEquals("There is more than one baseline script with number 2", ex.getMessage());
+		}
+	}
+
 	@Test
     public void shouldAllowChangeScriptsThatStartFromZero() throws Exception {
         ChangeScript zero = new ChangeScript(0);
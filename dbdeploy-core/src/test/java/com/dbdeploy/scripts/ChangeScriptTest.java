@@ -6,6 +6,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
@@ -64,14 +65,65 @@ public class ChangeScriptTest {
 		assertThat(changeScript.getUndoContent(), is("This is after the undo marker!\n"));		
 	}
 
+	@Test
+	public void shouldStreamTheSameContentsAsGetContent() throws Exception {
+		File file = createTemporaryFileWithContent(
+				"Hello\r\n" +
+				"There!\n" +
+				"--//@UNDO\n" +
+				"This is after the undo marker!\n");
+
+		ChangeScript changeScript = new ChangeScript(5, file, "UTF-8");
+		Reader reader = changeScript.getContentReader();
+		StringBuilder content = new StringBuilder();
+		int c;
+		while ((c = reader.read()) >= 0) {
+			content.append((char) c);
+		}
+		reader.close();
+
+		assertThat(content.toString(), is(changeScript.getContent()));
+		assertThat(content.toString(), is("Hello\nThere!\n"));
+	}
+
+	@Test
+	public void shouldReadTheFileOnlyOnce() throws Exception {
+		File file = createTemporaryFileWithContent("Hello\n--//@UNDO\nGoodbye\n");
+		ChangeScript changeScript = new ChangeScript(5, file, "UTF-8");
+		assertThat(changeScript.getContent(), is("Hello\n"));
+
+		writeContent(file, "Changed\n");
+
+		assertThat(changeScript.getContent(), is("Hello\n"));
+		assertThat(changeScript.getUndoContent(), is("Goodbye\n"));
+	}
+
+	@Test
+	public void shouldReadScriptsTooLargeToKeepFromTheFileEachTime() throws Exception {
+		StringBuilder content = new StringBuilder();
+		while (content.length() <= ChangeScript.MAX_CACHED_LENGTH) {
+			content.append("INSERT INTO Test VALUES (1);\n");
+		}
+		File file = createTemporaryFileWithContent(content.toString());
+		ChangeScript changeScript = new ChangeScript(5, file, "UTF-8");
+		assertThat(changeScript.getContent().length(), is(content.length()));
+
+		writeContent(file, "Changed\n");
+
+		assertThat(changeScript.getContent(), is("Changed\n"));
+	}
+
 	private File createTemporaryFileWithContent(String content) throws IOException {
 		File file = File.createTempFile("changeScriptTest", ".sql");
 		file.deleteOnExit();
+		writeContent(file, content);
+		return file;
+	}
 
+	private void writeContent(File file, String content) throws IOException {
 		BufferedWriter out = new BufferedWriter(new FileWriter(file));
 		out.write(content);
 		out.close();
-		return file;
 	}
 
 	@Test
@@ -0,0 +1,178 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.exceptions.UsageException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ClasspathScannerTest {
+	private File root;
+	private File scripts;
+
+	@Before
+	public void setUp() throws IOException {
+		root = File.createTempFile("classpathScannerTest", "");
+		root.delete();
+		scripts = new File(root, "db/deltas");
+		scripts.mkdirs();
+		write("002_insert.sql", "INSERT INTO Test VALUES (6);\n--//@UNDO\nDELETE FROM Test;\n");
+		write("001_create.sql", "CREATE TABLE Test (id INTEGER);\n");
+		write("baseline_002_schema.sql", "CREATE TABLE Test (id INTEGER);\nINSERT INTO Test VALUES (6);\n");
+		write("003_rows.csv", "--//@TABLE Test\nid\n7\n");
+		write("readme.txt", "not a change script");
+	}
+
+	@After
+	public void tearDown() {
+		delete(root);
+	}
+
+	@Test
+	public void shouldReadIndexedScriptsFromAJar() throws Exception {
+		ChangeScriptIndex.write(scripts);
+		ClassLoader classLoader = new URLClassLoader(new URL[] { jar().toURI().toURL() }, null);
+
+		List<ChangeScript> found = new ClasspathScanner("UTF-8", classLoader).getChangeScriptsForLocation("/db/deltas/");
+
+		assertThat(found.size(), is(4));
+		assertThat(found.get(0).toString(), is("#1: 001_create.sql"));
+		assertThat(found.get(1).toString(), is("#2: 002_insert.sql"));
+		assertThat(found.get(2).isBaseline(), is(true));
+		assertThat(found.get(3).isDataScript(), is(true));
+
+		ChangeScript insert = found.get(1);
+		assertThat(insert.getFile(), is(nullValue()));
+		assertThat(insert.getContent(), is("INSERT INTO Test VALUES (6);\n"));
+		assertThat(insert.getUndoContent(), is("DELETE FROM Test;\n"));
+		assertThat(insert.getChecksum(), is(ScriptChecksum.of(new ChangeScript(2, new File(scripts,
+				"002_insert.sql"), "UTF-8"))));
+		assertThat(ScriptChecksum.of(insert), is(insert.getChecksum()));
+
+		DelimitedData rows = DelimitedData.open(found.get(3));
+		try {
+			assertThat(rows.getTable(), is("Test"));
+			assertThat(rows.next()[0], is("7"));
+		} finally {
+			rows.close();
+		}
+	}
+
+	@Test
+	public void shouldWriteTheSameIndexForTheSameScripts() throws Exception {
+		String first = read(ChangeScriptIndex.write(scripts));
+		String second = read(ChangeScriptIndex.write(scripts));
+
+		assertThat(second, is(first));
+		assertThat(first, containsString("\n2\t57\t"));
+		assertThat(first, not(containsString("readme")));
+	}
+
+	@Test
+	public void shouldScanAnUnindexedDirectoryOfTheFileSystem() throws Exception {
+		ClassLoader classLoader = new URLClassLoader(new URL[] { root.toURI().toURL() }, null);
+
+		List<ChangeScript> found = new ClasspathScanner("UTF-8", classLoader).getChangeScriptsForLocation("db/deltas");
+
+		assertThat(found.size(), is(4));
+	}
+
+	@Test
+	public void shouldReadAScriptToItsEndAndFailWhenItHasGrownSinceItWasIndexed() throws Exception {
+		ChangeScriptIndex.write(scripts);
+		write("001_create.sql", "CREATE TABLE Test (id INTEGER);\nCREATE TABLE Other (id INTEGER);\n");
+		ClassLoader classLoader = new URLClassLoader(new URL[] { root.toURI().toURL() }, null);
+
+		ChangeScript create = new ClasspathScanner("UTF-8", classLoader).getChangeScriptsForLocation("db/deltas")
+				.get(0);
+
+		try {
+			create.getContent();
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getCause().getMessage(), containsString("build the index again"));
+		}
+	}
+
+	@Test
+	public void shouldFailWhenAScriptHasChangedSinceItWasIndexed() throws Exception {
+		ChangeScriptIndex.write(scripts);
+		write("001_create.sql", "CREATE TABLE Tost (id INTEGER);\n");
+		ClassLoader classLoader = new URLClassLoader(new URL[] { root.toURI().toURL() }, null);
+
+		ChangeScript create = new ClasspathScanner("UTF-8", classLoader).getChangeScriptsForLocation("db/deltas")
+				.get(0);
+
+		try {
+			create.getContent();
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getCause().getMessage(), containsString("no longer has the checksum in its index"));
+		}
+	}
+
+	@Test(expected = UsageException.class)
+	public void shouldRejectALocationWithoutAnIndex() throws Exception {
+		ClassLoader classLoader = new URLClassLoader(new URL[] { jar().toURI().toURL() }, null);
+
+		new ClasspathScanner("UTF-8", classLoader).getChangeScriptsForLocation("db/deltas");
+	}
+
+	private void write(String name, String content) throws IOException {
+		FileWriter writer = new FileWriter(new File(scripts, name));
+		writer.write(content);
+		writer.close();
+	}
+
+	private File jar() throws IOException {
+		File jar = new File(root, "scripts.jar");
+		JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+		for (File file : scripts.listFiles()) {
+			out.putNextEntry(new JarEntry("db/deltas/" + file.getName()));
+			InputStream in = new FileInputStream(file);
+			byte[] buffer = new byte[4096];
+			int count;
+			while ((count = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, count);
+			}
+			in.close();
+			out.closeEntry();
+		}
+		out.close();
+		return jar;
+	}
+
+	private String read(File file) throws IOException {
+		byte[] bytes = new byte[(int) file.length()];
+		InputStream in = new FileInputStream(file);
+		in.read(bytes);
+		in.close();
+		return new String(bytes, "UTF-8");
+	}
+
+	private void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
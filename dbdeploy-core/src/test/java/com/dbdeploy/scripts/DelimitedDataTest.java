@@ -0,0 +1,132 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.exceptions.DbDeployException;
+import com.dbdeploy.exceptions.UsageException;
+import org.junit.Test;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DelimitedDataTest {
+
+	@Test
+	public void shouldRecogniseDataScriptsByTheirExtension() throws Exception {
+		assertThat(new ChangeScript(1, new File("001_load_countries.csv"), "UTF-8").isDataScript(), is(true));
+		assertThat(new ChangeScript(1, new File("001_load_countries.TSV"), "UTF-8").isDataScript(), is(true));
+		assertThat(new ChangeScript(1, new File("001_create_countries.sql"), "UTF-8").isDataScript(), is(false));
+	}
+
+	@Test
+	public void shouldReadTheTableAndColumnsFromTheHeader() throws Exception {
+		DelimitedData data = open(".csv",
+				"-- countries of the world\n" +
+				"--//@TABLE country\n" +
+				"\n" +
+				"code, name ,population\n");
+
+		assertThat(data.getTable(), is("country"));
+		assertThat(data.getColumns(), is(Arrays.asList("code", "name", "population")));
+		assertThat(data.next(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldReadOneRowPerLine() throws Exception {
+		DelimitedData data = open(".csv",
+				"--//@TABLE country\n" +
+				"code,name,population\n" +
+				"GB,United Kingdom,67000000\n" +
+				"\n" +
+				"FR,France,68000000\n");
+
+		assertThat(data.next(), is(new String[] {"GB", "United Kingdom", "67000000"}));
+		assertThat(data.getLineNumber(), is(3));
+		assertThat(data.next(), is(new String[] {"FR", "France", "68000000"}));
+		assertThat(data.getLineNumber(), is(5));
+		assertThat(data.next(), is(nullValue()));
+	}
+
+	@Test
+	public void shouldReadQuotedValuesAndNulls() throws Exception {
+		DelimitedData data = open(".csv",
+				"--//@TABLE country\n" +
+				"code,name,notes\n" +
+				"FM,\"Micronesia, Federated States of\",\n" +
+				"CI,\"C\"\"te d'Ivoire\",\"\"\n" +
+				"XX,\"two\n" +
+				"lines\",x\n" +
+				"YY,,z\n");
+
+		assertThat(data.next(), is(new String[] {"FM", "Micronesia, Federated States of", null}));
+		assertThat(data.next(), is(new String[] {"CI", "C\"te d'Ivoire", ""}));
+		assertThat(data.next(), is(new String[] {"XX", "two\nlines", "x"}));
+		assertThat(data.getLineNumber(), is(5));
+		assertThat(data.next(), is(new String[] {"YY", null, "z"}));
+		assertThat(data.getLineNumber(), is(7));
+	}
+
+	@Test
+	public void shouldSeparateTsvValuesWithTabs() throws Exception {
+		DelimitedData data = open(".tsv",
+				"--//@TABLE country\n" +
+				"code\tname\n" +
+				"FM\tMicronesia, Federated States of\n");
+
+		assertThat(data.next(), is(new String[] {"FM", "Micronesia, Federated States of"}));
+	}
+
+	@Test
+	public void shouldRejectADataScriptWithoutATable() throws Exception {
+		try {
+			open(".csv", "code,name\nGB,United Kingdom\n");
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertThat(e.getMessage(), containsString("--//@TABLE"));
+		}
+	}
+
+	@Test
+	public void shouldRejectARowWithTheWrongNumberOfValues() throws Exception {
+		DelimitedData data = open(".csv",
+				"--//@TABLE country\n" +
+				"code,name\n" +
+				"GB,United Kingdom,67000000\n");
+
+		try {
+			data.next();
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getMessage(), containsString("line 3 has 3 values, where there are 2 columns"));
+		}
+	}
+
+	@Test
+	public void shouldRejectAnUnclosedQuotedValue() throws Exception {
+		DelimitedData data = open(".csv",
+				"--//@TABLE country\n" +
+				"code,name\n" +
+				"GB,\"United Kingdom\n");
+
+		try {
+			data.next();
+			fail("exception expected");
+		} catch (DbDeployException e) {
+			assertThat(e.getMessage(), containsString("the quoted value starting on line 3 is not closed"));
+		}
+	}
+
+	private DelimitedData open(String extension, String content) throws IOException {
+		File file = File.createTempFile("delimitedDataTest", extension);
+		file.deleteOnExit();
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		out.write(content);
+		out.close();
+		return DelimitedData.open(new ChangeScript(1, file, "UTF-8"));
+	}
+}
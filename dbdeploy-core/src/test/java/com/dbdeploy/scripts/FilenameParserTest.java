@@ -17,6 +17,14 @@ public class FilenameParserTest {
 		assertEquals(123L, parser.extractIdFromFilename("00123_something.txt"));
 	}
 
+	@Test
+	public void canParseBaselineFilenames() throws Exception {
+		FilenameParser parser = new FilenameParser();
+		assertEquals(6000L, parser.extractIdFromFilename("baseline_6000_schema.sql"));
+		assertTrue(FilenameParser.isBaselineFile("baseline_6000_schema.sql"));
+		assertFalse(FilenameParser.isBaselineFile("6000_baseline.sql"));
+	}
+
 	@Test
 	public void throwsWhenFilenameDoesNotStartWithANumber() throws Exception {
 		FilenameParser parser = new FilenameParser();
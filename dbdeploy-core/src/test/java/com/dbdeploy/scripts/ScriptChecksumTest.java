@@ -0,0 +1,61 @@
+package com.dbdeploy.scripts;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+
+public class ScriptChecksumTest {
+
+	@Test
+	public void shouldGiveTheXxHash64OfTheScriptContent() throws Exception {
+		assertThat(checksumOf(""), is("ef46db3751d8e999"));
+		assertThat(checksumOf("a"), is("d24ec4f1a98c6e5b"));
+		assertThat(checksumOf("abc"), is("44bc2cf5ad770999"));
+		assertThat(checksumOf("Nobody inspects the spammish repetition"), is("fbcea83c8a378bf1"));
+	}
+
+	@Test
+	public void shouldGiveTheSameChecksumHowEverTheBytesArrive() throws Exception {
+		byte[] bytes = new byte[1000];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) (i * 31);
+		}
+		ScriptChecksum whole = new ScriptChecksum();
+		whole.update(ByteBuffer.wrap(bytes));
+
+		ScriptChecksum pieces = new ScriptChecksum();
+		for (int i = 0; i < bytes.length; i += 7) {
+			pieces.update(ByteBuffer.wrap(bytes, i, Math.min(7, bytes.length - i)));
+		}
+
+		assertThat(pieces.getValue(), is(whole.getValue()));
+		assertThat(ScriptChecksum.of(scriptFile(bytes)), is(whole.toString()));
+	}
+
+	@Test
+	public void shouldChangeWhenTheScriptIsEdited() throws Exception {
+		String script = "CREATE TABLE Test (id INTEGER);\nINSERT INTO Test VALUES (6);\n";
+
+		assertThat(checksumOf(script), is(checksumOf(script)));
+		assertThat(checksumOf(script), not(checksumOf(script.replace('6', '7'))));
+	}
+
+	private String checksumOf(String content) {
+		return ScriptChecksum.of(new StubChangeScript(1, "script", content));
+	}
+
+	private ChangeScript scriptFile(byte[] bytes) throws IOException {
+		File file = File.createTempFile("scriptChecksumTest", ".sql");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(bytes);
+		out.close();
+		return new ChangeScript(1, file, "UTF-8");
+	}
+}
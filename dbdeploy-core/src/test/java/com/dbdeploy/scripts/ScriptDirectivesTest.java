@@ -0,0 +1,58 @@
+package com.dbdeploy.scripts;
+
+import com.dbdeploy.exceptions.UsageException;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class ScriptDirectivesTest {
+	@Test
+	public void shouldReadDependenciesFromTheHeaderComments() {
+		ScriptDirectives directives = read("-- adds the index\n--//@DEPENDS 12, 15\n\ncreate index ...;");
+
+		assertThat(directives.getDependencies(), is(Arrays.asList(12L, 15L)));
+		assertThat(directives.getGroup(), nullValue());
+		assertThat(directives.isEmpty(), is(false));
+	}
+
+	@Test
+	public void shouldReadGroupFromTheHeaderComments() {
+		ScriptDirectives directives = read("--//@GROUP indexes\ncreate index ...;");
+
+		assertThat(directives.getGroup(), is("indexes"));
+		assertThat(directives.getDependencies(), nullValue());
+	}
+
+	@Test
+	public void shouldIgnoreDirectivesAfterTheFirstStatement() {
+		assertThat(read("create index ...;\n--//@GROUP indexes\n").isEmpty(), is(true));
+	}
+
+	@Test
+	public void shouldRejectBothDirectivesInOneScript() {
+		try {
+			read("--//@DEPENDS 1\n--//@GROUP indexes\n");
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertThat(e.getMessage(), containsString("not both"));
+		}
+	}
+
+	@Test
+	public void shouldRejectDependenciesThatAreNotScriptNumbers() {
+		try {
+			read("--//@DEPENDS 1, two\n");
+			fail("exception expected");
+		} catch (UsageException e) {
+			assertThat(e.getMessage(), containsString("two"));
+		}
+	}
+
+	private ScriptDirectives read(String content) {
+		return ScriptDirectives.read(new StubChangeScript(3, "script", content));
+	}
+}
@@ -1,5 +1,8 @@
 package com.dbdeploy.scripts;
 
+import java.io.Reader;
+import java.io.StringReader;
+
 public class StubChangeScript extends ChangeScript {
 	private final String changeContents;
 
@@ -12,4 +15,9 @@ public class StubChangeScript extends ChangeScript {
 	public String getContent() {
 		return changeContents;
 	}
+
+	@Override
+	public Reader getContentReader() {
+		return new StringReader(changeContents);
+	}
 }
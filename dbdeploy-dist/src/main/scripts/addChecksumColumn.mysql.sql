@@ -0,0 +1 @@
+ALTER TABLE changelog ADD COLUMN checksum VARCHAR(16);
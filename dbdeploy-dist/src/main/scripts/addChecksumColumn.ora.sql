@@ -0,0 +1,2 @@
+ALTER TABLE changelog ADD checksum VARCHAR2(16)
+;
\ No newline at end of file
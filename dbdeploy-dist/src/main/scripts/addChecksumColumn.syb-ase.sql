@@ -0,0 +1,2 @@
+ALTER TABLE changelog ADD checksum VARCHAR(16) NULL
+GO
@@ -0,0 +1,7 @@
+CREATE TABLE changelog_checkpoint (
+  change_number BIGINT NOT NULL,
+  statement_index INTEGER NOT NULL,
+  statement_hash VARCHAR(40) NOT NULL
+);
+
+ALTER TABLE changelog_checkpoint ADD CONSTRAINT Pkchangelog_checkpoint PRIMARY KEY (change_number, statement_index);
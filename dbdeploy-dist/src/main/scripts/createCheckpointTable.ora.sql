@@ -0,0 +1,7 @@
+CREATE TABLE changelog_checkpoint (
+  change_number NUMBER(22,0) NOT NULL,
+  statement_index NUMBER(10,0) NOT NULL,
+  statement_hash VARCHAR2(40) NOT NULL
+);
+
+ALTER TABLE changelog_checkpoint ADD CONSTRAINT Pkchangelog_checkpoint PRIMARY KEY (change_number, statement_index);
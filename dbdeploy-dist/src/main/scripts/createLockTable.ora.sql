@@ -0,0 +1,7 @@
+CREATE TABLE changelog_lock (
+  lock_id NUMBER(10,0) NOT NULL,
+  locked_by VARCHAR2(100) NOT NULL,
+  expires_dt TIMESTAMP NOT NULL
+);
+
+ALTER TABLE changelog_lock ADD CONSTRAINT Pkchangelog_lock PRIMARY KEY (lock_id);
@@ -0,0 +1,9 @@
+CREATE TABLE changelog_lock (
+  lock_id INT NOT NULL,
+  locked_by VARCHAR(100) NOT NULL,
+  expires_dt DATETIME NOT NULL
+)
+GO
+
+ALTER TABLE changelog_lock ADD CONSTRAINT Pkchangelog_lock PRIMARY KEY (lock_id)
+GO
@@ -16,8 +16,10 @@ package com.dbdeploy.mojo;
  * limitations under the License.
  */
 import com.dbdeploy.DbDeploy;
+import com.dbdeploy.appliers.TransactionGrouping;
 import com.dbdeploy.database.DelimiterType;
 import com.dbdeploy.database.LineEnding;
+import com.dbdeploy.logging.LogLevel;
 import org.apache.maven.plugin.AbstractMojo;
 
 import java.io.File;
@@ -34,6 +36,15 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
      */
     protected File scriptdirectory;
 
+	/**
+	 * Directory on the classpath of change scripts listed in a dbdeploy.index
+	 * built by the index goal, to use instead of the script directory. The
+	 * jar holding them is added to the plugin as a dependency.
+	 *
+	 * @parameter expression="${dbdeploy.scriptClasspath}"
+	 */
+	protected String scriptClasspath;
+
 	/**
 	 * Encoding to use for change scripts and output files.
 	 *
@@ -52,9 +63,9 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
 
     /**
      * Specifies the url of the database that the deltas are to be applied to. 
+     * Required, except by the update-fleet goal.
      *
      * @parameter expression="${dbdeploy.url}"
-     * @required
      */
     protected String url;
 
@@ -68,10 +79,10 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
 
     /**
      * The ID of a dbms user who has permissions to select from the schema
-     * version table.
+     * version table. Required, except by the update-fleet goal, where it is
+     * the default for targets that do not give their own.
      *
      * @parameter expression="${dbdeploy.userid}"
-     * @required
      */
     protected String userid;
 
@@ -94,7 +105,9 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
 
     /**
      * Either normal: split on delimiter wherever it occurs or row  only split
-     * on delimiter if it features on a line by itself. Default normal.
+     * on delimiter if it features on a line by itself, or parsed: split
+     * according to the syntax of the dbms (e.g. GO batches for mssql).
+     * Default normal.
      *
      * @parameter expression="${dbdeploy.delimiterType}"
      */
@@ -109,6 +122,143 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
 	 */
 	protected String lineEnding;
 
+	/**
+	 * Keep the statements each change script is split into, so that applying
+	 * the same scripts to the next database does not mean parsing them again.
+	 * Default false.
+	 *
+	 * @parameter expression="${dbdeploy.parseCache}"
+	 */
+	protected Boolean parseCache;
+
+	/**
+	 * Directory for the parse cache. Default ~/.dbdeploy/cache.
+	 *
+	 * @parameter expression="${dbdeploy.parseCacheDirectory}"
+	 */
+	protected File parseCacheDirectory;
+
+	/**
+	 * Size of the parse cache in megabytes, beyond which the least recently
+	 * used entries are deleted. Default 256.
+	 *
+	 * @parameter expression="${dbdeploy.parseCacheSize}"
+	 */
+	protected Long parseCacheSize;
+
+	/**
+	 * Number of change scripts to read and split on background threads,
+	 * ahead of the one being applied. Default 0.
+	 *
+	 * @parameter expression="${dbdeploy.parseAhead}"
+	 */
+	protected Integer parseAhead;
+
+	/**
+	 * Maximum number of consecutive INSERT, UPDATE, DELETE or MERGE
+	 * statements to send to the database as one JDBC batch. Default 0,
+	 * i.e. no batching.
+	 *
+	 * @parameter expression="${dbdeploy.batchSize}"
+	 */
+	protected Integer batchSize;
+
+	/**
+	 * Whether to execute runs of single row INSERTs of literal values as
+	 * batches of one prepared statement, with the literals bound as
+	 * parameters. Default false.
+	 *
+	 * @parameter expression="${dbdeploy.parameteriseInserts}"
+	 */
+	protected Boolean parameteriseInserts;
+
+	/**
+	 * Whether to record a checksum of each script applied in the checksum
+	 * column of the changelog table, for the verify goal. Default false.
+	 *
+	 * @parameter expression="${dbdeploy.checksums}"
+	 */
+	protected Boolean checksums;
+
+	/**
+	 * Whether to take a lease on the lock table before applying scripts,
+	 * so that of several builds or nodes deploying at once only one applies
+	 * them. Default false.
+	 *
+	 * @parameter expression="${dbdeploy.lock}"
+	 */
+	protected Boolean lock;
+
+	/**
+	 * Seconds for which the lock is held without being renewed. Default 60.
+	 *
+	 * @parameter expression="${dbdeploy.lockLease}"
+	 */
+	protected Integer lockLease;
+
+	/**
+	 * Whether to keep a snapshot of the changelog table of each database,
+	 * and only read it in full again when its row count, lowest or highest
+	 * change number have changed. Default false.
+	 *
+	 * @parameter expression="${dbdeploy.changelogCache}"
+	 */
+	protected Boolean changelogCache;
+
+	/**
+	 * Directory for the changelog cache. Default ~/.dbdeploy/changelog.
+	 *
+	 * @parameter expression="${dbdeploy.changelogCacheDirectory}"
+	 */
+	protected File changelogCacheDirectory;
+
+	/**
+	 * How to group change scripts into transactions: script, count, time
+	 * or deployment. Default script, i.e. a transaction per script.
+	 *
+	 * @parameter expression="${dbdeploy.transactions}"
+	 */
+	protected String transactions;
+
+	/**
+	 * Number of scripts per transaction when grouping by count, or
+	 * milliseconds per transaction when grouping by time.
+	 *
+	 * @parameter expression="${dbdeploy.transactionSize}"
+	 */
+	protected Long transactionSize;
+
+	/**
+	 * Number of connections over which to apply change scripts marked
+	 * with --//@DEPENDS or --//@GROUP concurrently. Default 1.
+	 *
+	 * @parameter expression="${dbdeploy.connections}"
+	 */
+	protected Integer connections;
+
+	/**
+	 * Maximum number of pooled connections to each database. The pool is
+	 * shared by the goals of one build. Default 8; 0 disables pooling.
+	 *
+	 * @parameter expression="${dbdeploy.poolSize}"
+	 */
+	protected Integer poolSize;
+
+	/**
+	 * File to write the metrics of the run to, as JSON.
+	 *
+	 * @parameter expression="${dbdeploy.metricsFile}"
+	 */
+	protected File metricsFile;
+
+	/**
+	 * Number of statements between checkpoints within a change script,
+	 * from which a script that failed resumes. Default 0, i.e. none.
+	 *
+	 * @parameter expression="${dbdeploy.checkpointInterval}"
+	 */
+	protected Integer checkpointInterval;
+
     /**
      * The highest numbered delta script to apply.
      *
@@ -118,6 +268,8 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
 
     protected DbDeploy getConfiguredDbDeploy() {
         DbDeploy dbDeploy = new DbDeploy();
+        dbDeploy.setLogSink(new MavenLogSink(getLog()));
+        dbDeploy.setLogLevel(getLog().isDebugEnabled() ? LogLevel.debug : LogLevel.info);
         dbDeploy.setScriptdirectory(scriptdirectory);
         dbDeploy.setDriver(driver);
         dbDeploy.setUrl(url);
@@ -148,6 +300,78 @@ public abstract class AbstractDbDeployMojo extends AbstractMojo {
 		    dbDeploy.setLineEnding(LineEnding.valueOf(lineEnding));
 	    }
 
+	    if (parseCache != null) {
+		    dbDeploy.setParseCache(parseCache);
+	    }
+
+	    if (parseCacheDirectory != null) {
+		    dbDeploy.setParseCacheDirectory(parseCacheDirectory);
+	    }
+
+	    if (parseCacheSize != null) {
+		    dbDeploy.setParseCacheSize(parseCacheSize);
+	    }
+
+	    if (parseAhead != null) {
+		    dbDeploy.setParseAhead(parseAhead);
+	    }
+
+	    if (batchSize != null) {
+		    dbDeploy.setBatchSize(batchSize);
+	    }
+
+	    if (parameteriseInserts != null) {
+		    dbDeploy.setParameteriseInserts(parameteriseInserts);
+	    }
+
+	    if (checksums != null) {
+		    dbDeploy.setChecksums(checksums);
+	    }
+
+	    if (scriptClasspath != null) {
+		    dbDeploy.setScriptClasspath(scriptClasspath);
+	    }
+
+	    if (lock != null) {
+		    dbDeploy.setLock(lock);
+	    }
+
+	    if (lockLease != null) {
+		    dbDeploy.setLockLease(lockLease);
+	    }
+
+	    if (changelogCache != null) {
+		    dbDeploy.setChangelogCache(changelogCache);
+	    }
+
+	    if (changelogCacheDirectory != null) {
+		    dbDeploy.setChangelogCacheDirectory(changelogCacheDirectory);
+	    }
+
+	    if (transactions != null) {
+		    dbDeploy.setTransactionGrouping(TransactionGrouping.valueOf(transactions));
+	    }
+
+	    if (transactionSize != null) {
+		    dbDeploy.setTransactionSize(transactionSize);
+	    }
+
+	    if (connections != null) {
+		    dbDeploy.setConnections(connections);
+	    }
+
+	    if (poolSize != null) {
+		    dbDeploy.setPoolSize(poolSize);
+	    }
+
+	    if (metricsFile != null) {
+		    dbDeploy.setMetricsFile(metricsFile);
+	    }
+
+	    if (checkpointInterval != null) {
+		    dbDeploy.setCheckpointInterval(checkpointInterval);
+	    }
+
         return dbDeploy;
     }
 }
@@ -0,0 +1,63 @@
+package com.dbdeploy.mojo;
+
+/*
+ * Copyright 2001-2005 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import com.dbdeploy.scripts.ChangeScriptIndex;
+import java.io.File;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Maven goal for writing a dbdeploy.index of the change scripts in a
+ * directory of the build output, so that once packaged they can be applied
+ * from the classpath without unpacking the jar or listing its entries.
+ *
+ * @goal index
+ * @phase process-classes
+ */
+public class IndexMojo extends AbstractMojo {
+    /**
+     * Directory of the change scripts on the classpath, such as db/deltas,
+     * as they are copied into the build output from the resources.
+     *
+     * @parameter expression="${dbdeploy.scriptClasspath}"
+     * @required
+     */
+    private String scriptClasspath;
+
+    /**
+     * The build output directory the change scripts are copied into.
+     *
+     * @parameter expression="${project.build.outputDirectory}"
+     * @required
+     */
+    private File outputDirectory;
+
+    public void execute() throws MojoExecutionException {
+        File directory = new File(outputDirectory, scriptClasspath);
+        if (!directory.isDirectory()) {
+            throw new MojoExecutionException("There are no change scripts in " + directory);
+        }
+
+        try {
+            File index = ChangeScriptIndex.write(directory);
+            getLog().info("Indexed change scripts in:\n\t" + index.getAbsolutePath());
+        } catch (Exception e) {
+            getLog().error(e);
+            throw new MojoExecutionException("dbdeploy index failed", e);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.dbdeploy.mojo;
+
+import com.dbdeploy.logging.LogLevel;
+import com.dbdeploy.logging.LogSink;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Sends dbdeploy's messages to the log of the mojo that is running it.
+ */
+public class MavenLogSink implements LogSink {
+    private final Log log;
+
+    public MavenLogSink(Log log) {
+        this.log = log;
+    }
+
+    public void log(LogLevel level, String message) {
+        switch (level) {
+        case debug:
+            log.debug(message);
+            break;
+        case warn:
+            log.warn(message);
+            break;
+        case error:
+            log.error(message);
+            break;
+        default:
+            log.info(message);
+        }
+    }
+}
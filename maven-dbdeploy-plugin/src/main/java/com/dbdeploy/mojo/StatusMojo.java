@@ -0,0 +1,54 @@
+package com.dbdeploy.mojo;
+
+/*
+ * Copyright 2001-2005 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import com.dbdeploy.DbDeploy;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+
+/**
+ * Maven goal for reporting, without applying anything, which dbdeploy change
+ * scripts are still to be applied to the database.
+ *
+ * @goal status
+ */
+public class StatusMojo extends AbstractDbDeployMojo {
+
+    /**
+     * Whether to fail the build when there are change scripts to apply.
+     *
+     * @parameter expression="${dbdeploy.failIfPending}" default-value="false"
+     */
+    private boolean failIfPending;
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        DbDeploy dbDeploy = getConfiguredDbDeploy();
+
+        int pending;
+        try {
+            pending = dbDeploy.status().size();
+        } catch (Exception e) {
+            getLog().error(e);
+            throw new MojoExecutionException("dbdeploy status failed", e);
+        }
+
+        if (pending > 0 && failIfPending) {
+            throw new MojoFailureException(pending + " change scripts are still to be applied");
+        }
+    }
+
+}
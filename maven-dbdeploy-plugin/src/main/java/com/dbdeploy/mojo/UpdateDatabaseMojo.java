@@ -26,6 +26,14 @@ import org.apache.maven.plugin.MojoExecutionException;
  */
 public class UpdateDatabaseMojo extends AbstractDbDeployMojo {
 
+    /**
+     * String representing our DBMS (e.g. mssql, pgsql). Only needed with
+     * delimiterType parsed, to choose how scripts are split into statements.
+     *
+     * @parameter expression="${dbdeploy.dbms}"
+     */
+    private String dbms;
+
     public void execute() throws MojoExecutionException {
         DbDeploy dbDeploy = getConfiguredDbDeploy();
 
@@ -37,4 +45,11 @@ public class UpdateDatabaseMojo extends AbstractDbDeployMojo {
         }
     }
 
+    @Override
+    protected DbDeploy getConfiguredDbDeploy() {
+        DbDeploy dbDeploy = super.getConfiguredDbDeploy();
+        dbDeploy.setDbms(dbms);
+        return dbDeploy;
+    }
+
 }
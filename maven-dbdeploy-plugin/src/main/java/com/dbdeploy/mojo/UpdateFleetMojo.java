@@ -0,0 +1,73 @@
+package com.dbdeploy.mojo;
+
+/*
+ * Copyright 2001-2005 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import com.dbdeploy.DbDeploy;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+
+
+/**
+ * Maven goal for applying dbdeploy change scripts directly to each of a
+ * list of databases, several at a time.
+ *
+ * @goal update-fleet
+ */
+public class UpdateFleetMojo extends UpdateDatabaseMojo {
+
+    /**
+     * Properties file listing the databases to deploy to, as
+     * &lt;name&gt;.url, &lt;name&gt;.userid, &lt;name&gt;.password and
+     * &lt;name&gt;.changeLogTableName. Only the url is required; the others
+     * default to the userid, password and changeLogTableName parameters.
+     *
+     * @parameter expression="${dbdeploy.targets}"
+     * @required
+     */
+    private File targets;
+
+    /**
+     * Number of databases to deploy to at a time. Default 8.
+     *
+     * @parameter expression="${dbdeploy.parallelism}"
+     */
+    private Integer parallelism;
+
+    public void execute() throws MojoExecutionException {
+        DbDeploy dbDeploy = getConfiguredDbDeploy();
+
+        try {
+            dbDeploy.go();
+        } catch (Exception e) {
+            getLog().error(e);
+            throw new MojoExecutionException("dbdeploy update-fleet failed", e);
+        }
+    }
+
+    @Override
+    protected DbDeploy getConfiguredDbDeploy() {
+        DbDeploy dbDeploy = super.getConfiguredDbDeploy();
+        dbDeploy.setTargets(targets);
+
+        if (parallelism != null) {
+            dbDeploy.setParallelism(parallelism);
+        }
+
+        return dbDeploy;
+    }
+
+}
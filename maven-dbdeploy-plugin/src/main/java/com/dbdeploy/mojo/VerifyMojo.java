@@ -0,0 +1,52 @@
+package com.dbdeploy.mojo;
+
+/*
+ * Copyright 2001-2005 The Apache Software Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import com.dbdeploy.DbDeploy;
+import com.dbdeploy.scripts.ChangeScript;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+import java.util.List;
+
+
+/**
+ * Maven goal for checking the dbdeploy change scripts applied to the database
+ * against the checksums recorded when they were applied, failing the build if
+ * any have been edited since.
+ *
+ * @goal verify
+ */
+public class VerifyMojo extends AbstractDbDeployMojo {
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        DbDeploy dbDeploy = getConfiguredDbDeploy();
+
+        List<ChangeScript> edited;
+        try {
+            edited = dbDeploy.verify();
+        } catch (Exception e) {
+            getLog().error(e);
+            throw new MojoExecutionException("dbdeploy verify failed", e);
+        }
+
+        if (!edited.isEmpty()) {
+            throw new MojoFailureException(edited.size() + " change scripts have been edited since they were applied: "
+                    + edited);
+        }
+    }
+
+}